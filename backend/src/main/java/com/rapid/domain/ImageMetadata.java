@@ -0,0 +1,138 @@
+package com.rapid.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.time.LocalDateTime;
+
+/**
+ * VALUE OBJECT: ImageMetadata
+ *
+ * What a photo's content turned out to be, read from the first bytes of the stored
+ * object (see ContentInspectionService): the format from its magic bytes, and what the
+ * header and EXIF say. Every field but mediaType is optional, since cameras, editors
+ * and formats differ in what they write.
+ *
+ * Key Design Decisions:
+ * - Embedded in photos as typed columns (queryable, unlike a JSON blob)
+ * - Width/height are as stored; orientation is the EXIF value (1-8), to apply on display
+ * - capturedAt is the camera's local time (EXIF DateTimeOriginal has no zone)
+ * - GPS coordinates are signed decimal degrees (south/west negative)
+ */
+@Embeddable
+public class ImageMetadata {
+
+    @Column(length = 32)
+    private String mediaType;
+
+    @Column(name = "image_width")
+    private Integer width;
+
+    @Column(name = "image_height")
+    private Integer height;
+
+    private Integer orientation;
+
+    private LocalDateTime capturedAt;
+
+    private String cameraMake;
+
+    private String cameraModel;
+
+    private Double gpsLatitude;
+
+    private Double gpsLongitude;
+
+    // Constructors
+    public ImageMetadata() {
+    }
+
+    public ImageMetadata(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public ImageMetadata(ImageMetadata other) {
+        this.mediaType = other.mediaType;
+        this.width = other.width;
+        this.height = other.height;
+        this.orientation = other.orientation;
+        this.capturedAt = other.capturedAt;
+        this.cameraMake = other.cameraMake;
+        this.cameraModel = other.cameraModel;
+        this.gpsLatitude = other.gpsLatitude;
+        this.gpsLongitude = other.gpsLongitude;
+    }
+
+    // Getters and Setters
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public void setMediaType(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Integer getOrientation() {
+        return orientation;
+    }
+
+    public void setOrientation(Integer orientation) {
+        this.orientation = orientation;
+    }
+
+    public LocalDateTime getCapturedAt() {
+        return capturedAt;
+    }
+
+    public void setCapturedAt(LocalDateTime capturedAt) {
+        this.capturedAt = capturedAt;
+    }
+
+    public String getCameraMake() {
+        return cameraMake;
+    }
+
+    public void setCameraMake(String cameraMake) {
+        this.cameraMake = cameraMake;
+    }
+
+    public String getCameraModel() {
+        return cameraModel;
+    }
+
+    public void setCameraModel(String cameraModel) {
+        this.cameraModel = cameraModel;
+    }
+
+    public Double getGpsLatitude() {
+        return gpsLatitude;
+    }
+
+    public void setGpsLatitude(Double gpsLatitude) {
+        this.gpsLatitude = gpsLatitude;
+    }
+
+    public Double getGpsLongitude() {
+        return gpsLongitude;
+    }
+
+    public void setGpsLongitude(Double gpsLongitude) {
+        this.gpsLongitude = gpsLongitude;
+    }
+}
@@ -0,0 +1,117 @@
+package com.rapid.domain;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * DOMAIN ENTITY: ObjectDeletion
+ *
+ * Outbox entry: one storage object (original or derivative) whose photo is gone and
+ * which is still to be deleted from storage.
+ *
+ * Key Design Decisions:
+ * - Written in the same transaction that deletes (or rejects) the photo rows, so an
+ *   object is scheduled for deletion exactly when nothing references it any more, and
+ *   a rollback schedules nothing
+ * - Drained by StorageReclaimService in DeleteObjects batches; the row is removed once
+ *   storage confirms the delete
+ * - nextAttemptAt: when the row is due; moved forward while a reclaimer holds it (lease)
+ *   and after a failed attempt (backoff), so a crashed or failing run is retried
+ */
+@Entity
+@Table(name = "object_deletions", indexes = {
+    @Index(name = "idx_object_deletions_next_attempt_at", columnList = "next_attempt_at")
+})
+public class ObjectDeletion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(nullable = false, length = 1024)
+    private String s3Key;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public ObjectDeletion() {
+    }
+
+    public ObjectDeletion(String s3Key, String userId, LocalDateTime nextAttemptAt) {
+        this.s3Key = s3Key;
+        this.userId = userId;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getS3Key() {
+        return s3Key;
+    }
+
+    public void setS3Key(String s3Key) {
+        this.s3Key = s3Key;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -22,6 +22,14 @@ import java.util.List;
  * - S3 key is immutable once set (represents permanent storage location)
  * - Status enum tracks photo lifecycle (PENDING → UPLOADING → UPLOADED/FAILED)
  * - Relationship with User and UploadBatch establishes aggregate boundaries
+ * - Large files upload as an S3 multipart upload: multipartUploadId and the part size
+ *   chosen at initiate are kept until the parts are assembled
+ * - Gallery derivatives (thumbnail/preview JPEGs) are generated after upload; their keys
+ *   are null until then, and stay null (with derivativesProcessedAt set) for non-images
+ * - Several photos of a user may share one stored object (content deduplication, see
+ *   StoredObject); exactly one of them carries its bytes, the others are deduplicated
+ * - Uploaded content is inspected from its first bytes (format, dimensions, EXIF) before
+ *   derivatives are made; imageMetadata stays null until then (inspectedAt set when done)
  * 
  * Part of the Photo Aggregate in DDD terminology, with User and UploadBatch as
  * separate aggregates. This design allows independent lifecycle management while
@@ -30,7 +38,16 @@ import java.util.List;
 @Entity
 @Table(name = "photos", indexes = {
     @Index(name = "idx_user_id", columnList = "user_id"),
-    @Index(name = "idx_batch_id", columnList = "batch_id")
+    @Index(name = "idx_batch_id", columnList = "batch_id"),
+    @Index(name = "idx_s3_key", columnList = "s3key"),
+    // Batch status polling: photos in a batch changed since a (updated_at, id) cursor
+    @Index(name = "idx_batch_updated", columnList = "batch_id, updated_at, id"),
+    // Inspection backfill: UPLOADED photos whose content was never inspected
+    @Index(name = "idx_inspected", columnList = "inspected_at, status"),
+    // Thumbnail backfill: UPLOADED photos whose derivatives were never generated
+    @Index(name = "idx_derivatives_processed", columnList = "derivatives_processed_at, status"),
+    // Gallery listing: keyset pagination over (created_at, id) for one user's UPLOADED photos
+    @Index(name = "idx_user_status_created", columnList = "user_id, status, created_at DESC, id DESC")
 })
 public class Photo {
     @Id
@@ -60,6 +77,33 @@ public class Photo {
     
     private String errorMessage;
     
+    // S3 multipart upload in progress (null for single-PUT uploads)
+    private String multipartUploadId;
+    
+    private Long multipartPartSizeBytes;
+    
+    // Hex SHA-256 of the content, when the bytes passed through the server (streaming upload)
+    @Column(length = 64)
+    private String contentSha256;
+    
+    // What the content is, from its header and EXIF (see ContentInspectionService)
+    @Embedded
+    private ImageMetadata imageMetadata;
+    
+    private LocalDateTime inspectedAt;
+    
+    // Derivatives for the gallery (see ThumbnailService)
+    private String thumbnailKey;
+    
+    private String previewKey;
+    
+    private LocalDateTime derivativesProcessedAt;
+    
+    // References an object whose bytes are accounted to another photo (no storage of its own)
+    @Column(columnDefinition = "boolean not null default false")
+    private boolean deduplicated;
+    
+    // GIN-indexed for tag search (idx_photos_tags, created by SearchIndexInitializer)
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "jsonb")
     private List<String> tags = new ArrayList<>();
@@ -172,5 +216,76 @@ public class Photo {
     public void setTags(List<String> tags) {
         this.tags = tags;
     }
-}
 
+    public String getMultipartUploadId() {
+        return multipartUploadId;
+    }
+
+    public void setMultipartUploadId(String multipartUploadId) {
+        this.multipartUploadId = multipartUploadId;
+    }
+
+    public Long getMultipartPartSizeBytes() {
+        return multipartPartSizeBytes;
+    }
+
+    public void setMultipartPartSizeBytes(Long multipartPartSizeBytes) {
+        this.multipartPartSizeBytes = multipartPartSizeBytes;
+    }
+
+    public String getContentSha256() {
+        return contentSha256;
+    }
+
+    public void setContentSha256(String contentSha256) {
+        this.contentSha256 = contentSha256;
+    }
+
+    public String getThumbnailKey() {
+        return thumbnailKey;
+    }
+
+    public void setThumbnailKey(String thumbnailKey) {
+        this.thumbnailKey = thumbnailKey;
+    }
+
+    public String getPreviewKey() {
+        return previewKey;
+    }
+
+    public void setPreviewKey(String previewKey) {
+        this.previewKey = previewKey;
+    }
+
+    public LocalDateTime getDerivativesProcessedAt() {
+        return derivativesProcessedAt;
+    }
+
+    public void setDerivativesProcessedAt(LocalDateTime derivativesProcessedAt) {
+        this.derivativesProcessedAt = derivativesProcessedAt;
+    }
+
+    public boolean isDeduplicated() {
+        return deduplicated;
+    }
+
+    public void setDeduplicated(boolean deduplicated) {
+        this.deduplicated = deduplicated;
+    }
+
+    public ImageMetadata getImageMetadata() {
+        return imageMetadata;
+    }
+
+    public void setImageMetadata(ImageMetadata imageMetadata) {
+        this.imageMetadata = imageMetadata;
+    }
+
+    public LocalDateTime getInspectedAt() {
+        return inspectedAt;
+    }
+
+    public void setInspectedAt(LocalDateTime inspectedAt) {
+        this.inspectedAt = inspectedAt;
+    }
+}
@@ -0,0 +1,99 @@
+package com.rapid.domain;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * DOMAIN ENTITY: StoredObject
+ *
+ * Content index entry: one stored object with a known SHA-256, and how many photos
+ * reference it.
+ *
+ * Key Design Decisions:
+ * - Scoped per user: a hash only ever matches the same user's uploads, so knowing a
+ *   file's hash can't give access to someone else's copy of it
+ * - Created when a photo with a content hash finishes uploading (refCount 1); photos
+ *   initiated later with the same hash and size reference the object instead of
+ *   uploading it again (refCount + 1)
+ * - The object (and its derivatives) is deleted with the last referencing photo
+ * - Objects uploaded without a hash have no entry and belong to their one photo
+ */
+@Entity
+@Table(name = "stored_objects", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stored_objects_user_sha256", columnNames = {"user_id", "content_sha256"})
+})
+public class StoredObject {
+    @Id
+    private String s3Key;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "content_sha256", nullable = false, length = 64)
+    private String contentSha256;
+
+    @Column(nullable = false)
+    private Long sizeBytes;
+
+    @Column(nullable = false)
+    private Integer refCount;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public StoredObject() {
+    }
+
+    // Getters and Setters
+    public String getS3Key() {
+        return s3Key;
+    }
+
+    public void setS3Key(String s3Key) {
+        this.s3Key = s3Key;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getContentSha256() {
+        return contentSha256;
+    }
+
+    public void setContentSha256(String contentSha256) {
+        this.contentSha256 = contentSha256;
+    }
+
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
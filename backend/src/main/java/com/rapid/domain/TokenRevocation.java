@@ -0,0 +1,92 @@
+package com.rapid.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * DOMAIN ENTITY: TokenRevocation
+ * 
+ * One revoked JWT, or all of a user's JWTs issued before a point in time.
+ * 
+ * Key Design Decisions:
+ * - jti set: that single token is revoked (logout)
+ * - jti null: every token of userId issued before revokedAt is revoked (logout everywhere,
+ *   password change, user deletion)
+ * - expiresAt: when the row stops mattering (the token, or the last token it covers, has
+ *   expired anyway); rows past it are purged
+ * - Held in memory by TokenRevocationService, which reads new rows by revokedAt
+ */
+@Entity
+@Table(name = "token_revocations", indexes = {
+    @Index(name = "idx_revoked_at", columnList = "revoked_at"),
+    @Index(name = "idx_revocation_expires_at", columnList = "expires_at")
+})
+public class TokenRevocation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+    
+    private String jti;
+    
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+    
+    @Column(nullable = false)
+    private LocalDateTime revokedAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public TokenRevocation() {
+    }
+
+    public TokenRevocation(String jti, String userId, LocalDateTime revokedAt, LocalDateTime expiresAt) {
+        this.jti = jti;
+        this.userId = userId;
+        this.revokedAt = revokedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getRevokedAt() {
+        return revokedAt;
+    }
+
+    public void setRevokedAt(LocalDateTime revokedAt) {
+        this.revokedAt = revokedAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
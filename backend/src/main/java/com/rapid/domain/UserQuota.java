@@ -0,0 +1,73 @@
+package com.rapid.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * DOMAIN ENTITY: UserQuota
+ * 
+ * Durable ledger row holding one user's storage balance.
+ * 
+ * Key Design Decisions:
+ * - reservedBytes: declared sizes of uploads that were initiated but not yet completed
+ * - committedBytes: sizes of completed uploads
+ * - Balances live in memory (UserQuotaService) and are flushed here periodically,
+ *   so quota checks never take a row lock on the upload hot path
+ * - A record for reporting, not read back: balances are recomputed from the photos
+ *   table, which stays the source of truth
+ * - Written only through upserts keyed by user_id (one row per user)
+ */
+@Entity
+@Table(name = "user_quotas")
+public class UserQuota {
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+    
+    @Column(nullable = false)
+    private Long reservedBytes = 0L;
+    
+    @Column(nullable = false)
+    private Long committedBytes = 0L;
+    
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public UserQuota() {
+    }
+
+    // Getters and Setters
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public void setReservedBytes(Long reservedBytes) {
+        this.reservedBytes = reservedBytes;
+    }
+
+    public Long getCommittedBytes() {
+        return committedBytes;
+    }
+
+    public void setCommittedBytes(Long committedBytes) {
+        this.committedBytes = committedBytes;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,92 @@
+package com.rapid.domain;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * DOMAIN ENTITY: UserTagCount
+ *
+ * Tag facet row: how many of a user's UPLOADED photos carry a tag.
+ *
+ * Key Design Decisions:
+ * - Maintained incrementally (TagCountService) as tags change, so the facet list is
+ *   a primary-key range read instead of a GROUP BY over all of the user's photos
+ * - Written only through delta upserts keyed by (user_id, tag); rows reaching zero
+ *   are deleted
+ */
+@Entity
+@Table(name = "user_tag_counts")
+@IdClass(UserTagCount.Key.class)
+public class UserTagCount {
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Id
+    @Column(length = 50)
+    private String tag;
+
+    @Column(nullable = false)
+    private Integer photoCount;
+
+    // Composite primary key (user_id, tag)
+    public static class Key implements Serializable {
+        private String userId;
+        private String tag;
+
+        public Key() {
+        }
+
+        public Key(String userId, String tag) {
+            this.userId = userId;
+            this.tag = tag;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(userId, other.userId) && Objects.equals(tag, other.tag);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, tag);
+        }
+    }
+
+    // Constructors
+    public UserTagCount() {
+    }
+
+    public UserTagCount(String userId, String tag, Integer photoCount) {
+        this.userId = userId;
+        this.tag = tag;
+        this.photoCount = photoCount;
+    }
+
+    // Getters and Setters
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public Integer getPhotoCount() {
+        return photoCount;
+    }
+
+    public void setPhotoCount(Integer photoCount) {
+        this.photoCount = photoCount;
+    }
+}
@@ -4,11 +4,17 @@ import com.rapid.features.auth.dto.AuthResponse;
 import com.rapid.features.auth.dto.LoginRequest;
 import com.rapid.features.auth.dto.RegisterRequest;
 import com.rapid.features.auth.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000", "http://localhost:8080"})
@@ -17,16 +23,38 @@ public class AuthController {
     @Autowired
     private AuthService authService;
     
+    // Async: the request thread is released while the password is hashed/verified
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest request) {
-        AuthResponse response = authService.register(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<AuthResponse>> register(
+            @Valid @RequestBody RegisterRequest request,
+            HttpServletRequest httpRequest) {
+        return authService.register(request, httpRequest.getRemoteAddr()).thenApply(ResponseEntity::ok);
     }
     
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
-        AuthResponse response = authService.login(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(
+            @Valid @RequestBody LoginRequest request,
+            HttpServletRequest httpRequest) {
+        return authService.login(request, httpRequest.getRemoteAddr()).thenApply(ResponseEntity::ok);
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader("Authorization") String authorization) {
+        authService.logout(authorization.substring("Bearer ".length()));
+        return ResponseEntity.ok(Map.of("status", "success"));
+    }
+    
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll() {
+        authService.logoutAll(getCurrentUserId());
+        return ResponseEntity.ok(Map.of("status", "success"));
+    }
+    
+    private String getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            return authentication.getName();
+        }
+        throw new RuntimeException("User not authenticated");
     }
 }
-
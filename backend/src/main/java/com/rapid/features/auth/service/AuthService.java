@@ -7,10 +7,13 @@ import com.rapid.features.auth.dto.RegisterRequest;
 import com.rapid.infrastructure.repository.UserRepository;
 import com.rapid.infrastructure.service.LimitsService;
 import com.rapid.security.JwtTokenProvider;
+import com.rapid.security.PasswordHashingService;
+import com.rapid.security.TokenRevocationService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * AUTH SERVICE: User authentication and registration
  * 
@@ -19,9 +22,10 @@ import org.springframework.stereotype.Service;
  * as authentication is a cohesive unit that doesn't benefit from CQRS separation.
  * 
  * Security considerations:
- * - Passwords hashed with BCrypt (handled by PasswordEncoder)
+ * - Passwords hashed with BCrypt on bounded workers (PasswordHashingService), off request threads
  * - JWT tokens generated with configurable expiration
  * - Email uniqueness enforced at database level
+ * - Logout revokes tokens (TokenRevocationService) since JWTs are otherwise valid until expiry
  * - No plain text passwords ever stored or logged
  * 
  * This is part of the Vertical Slice Architecture - all auth logic is in
@@ -34,7 +38,7 @@ public class AuthService {
     private UserRepository userRepository;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
     
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
@@ -42,7 +46,15 @@ public class AuthService {
     @Autowired
     private LimitsService limitsService;
     
-    public AuthResponse register(RegisterRequest request) {
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    /**
+     * Create an account. Hashing runs on the password hashing workers; the returned
+     * future completes there once the user is saved.
+     * @param clientKey Fairness key for the hashing queue (source IP)
+     */
+    public CompletableFuture<AuthResponse> register(RegisterRequest request, String clientKey) {
         // Check user limit before creating account
         limitsService.checkUserLimit();
         
@@ -50,25 +62,47 @@ public class AuthService {
             throw new RuntimeException("Email already exists");
         }
         
-        User user = new User();
-        user.setEmail(request.getEmail());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
-        user = userRepository.save(user);
-        
-        String token = jwtTokenProvider.generateToken(user.getId(), user.getEmail());
-        return new AuthResponse(token, user.getId(), user.getEmail());
+        return passwordHashingService.encode(request.getPassword(), clientKey).thenApply(passwordHash -> {
+            User user = new User();
+            user.setEmail(request.getEmail());
+            user.setPasswordHash(passwordHash);
+            user = userRepository.save(user);
+            limitsService.recordUserCreated();
+            
+            String token = jwtTokenProvider.generateToken(user.getId(), user.getEmail());
+            return new AuthResponse(token, user.getId(), user.getEmail());
+        });
     }
     
-    public AuthResponse login(LoginRequest request) {
+    /**
+     * Verify credentials and issue a token. Verification runs on the password hashing workers.
+     * @param clientKey Fairness key for the hashing queue (source IP)
+     */
+    public CompletableFuture<AuthResponse> login(LoginRequest request, String clientKey) {
         User user = userRepository.findByEmail(request.getEmail())
             .orElseThrow(() -> new RuntimeException("Invalid email or password"));
         
-        if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
-            throw new RuntimeException("Invalid email or password");
-        }
-        
-        String token = jwtTokenProvider.generateToken(user.getId(), user.getEmail());
-        return new AuthResponse(token, user.getId(), user.getEmail());
+        return passwordHashingService.matches(request.getPassword(), user.getPasswordHash(), clientKey)
+            .thenApply(matches -> {
+                if (!matches) {
+                    throw new RuntimeException("Invalid email or password");
+                }
+                String token = jwtTokenProvider.generateToken(user.getId(), user.getEmail());
+                return new AuthResponse(token, user.getId(), user.getEmail());
+            });
+    }
+    
+    /**
+     * Log out one session: the presented token is revoked until it expires.
+     */
+    public void logout(String token) {
+        jwtTokenProvider.revoke(token);
+    }
+    
+    /**
+     * Log out everywhere: every token issued to the user so far is revoked.
+     */
+    public void logoutAll(String userId) {
+        tokenRevocationService.revokeAllForUser(userId);
     }
 }
-
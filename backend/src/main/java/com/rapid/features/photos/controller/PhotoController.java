@@ -1,17 +1,29 @@
 package com.rapid.features.photos.controller;
 
+import com.rapid.features.photos.dto.BulkDeleteRequest;
+import com.rapid.features.photos.dto.BulkDeleteResponse;
+import com.rapid.features.photos.dto.BulkTagRequest;
+import com.rapid.features.photos.dto.BulkTagResponse;
 import com.rapid.features.photos.dto.PhotoDto;
 import com.rapid.features.photos.dto.PhotoListResponse;
+import com.rapid.features.photos.dto.TagCountDto;
 import com.rapid.features.photos.dto.UpdateTagsRequest;
+import com.rapid.features.photos.service.ImageVariantService;
 import com.rapid.features.photos.service.PhotoCommandService;
 import com.rapid.features.photos.service.PhotoQueryService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -25,15 +37,51 @@ public class PhotoController {
     @Autowired
     private PhotoCommandService photoCommandService;
     
+    @Autowired
+    private ImageVariantService imageVariantService;
+    
     @GetMapping
     public ResponseEntity<?> listPhotos(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "15") int pageSize) {
+            @RequestParam(defaultValue = "15") int pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @RequestParam(required = false) List<String> tag,
+            @RequestParam(defaultValue = "all") String match) {
         String userId = getCurrentUserId();
-        PhotoListResponse response = photoQueryService.getUserPhotos(userId, page, pageSize);
+        PhotoListResponse response;
+        if (tag != null && !tag.isEmpty()) {
+            // ?tag=a&tag=b[&match=any]: tag search, always keyset-paginated
+            response = photoQueryService.getPhotosByTags(userId, tag, match, cursor, pageSize, includeTotal);
+        } else if (cursor != null) {
+            // Presence of ?cursor= (empty for the first page) selects keyset pagination
+            response = photoQueryService.getUserPhotosAfter(userId, cursor, pageSize, includeTotal);
+        } else {
+            response = photoQueryService.getUserPhotos(userId, page, pageSize);
+        }
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Tag facets: each of the user's tags with its number of photos, most used first
+     */
+    @GetMapping("/tags")
+    public ResponseEntity<List<TagCountDto>> listTags() {
+        String userId = getCurrentUserId();
+        return ResponseEntity.ok(photoQueryService.getTagCounts(userId));
+    }
+    
+    /**
+     * Tag autocomplete: the user's tags starting with prefix, most used first
+     */
+    @GetMapping("/tags/suggest")
+    public ResponseEntity<List<TagCountDto>> suggestTags(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        String userId = getCurrentUserId();
+        return ResponseEntity.ok(photoQueryService.suggestTags(userId, prefix, limit));
+    }
+    
     @GetMapping("/{photoId}")
     public ResponseEntity<?> getPhoto(@PathVariable String photoId) {
         String userId = getCurrentUserId();
@@ -41,6 +89,31 @@ public class PhotoController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Photo resized to fit w x h (either may be omitted), rendered on first request and cached
+     */
+    @GetMapping("/{photoId}/image")
+    public ResponseEntity<byte[]> getImage(
+            @PathVariable String photoId,
+            @RequestParam(required = false) Integer w,
+            @RequestParam(required = false) Integer h,
+            @RequestParam(required = false) String fmt,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String userId = getCurrentUserId();
+        ImageVariantService.Variant variant = imageVariantService.resolve(userId, photoId, w, h, fmt);
+        // A variant's content never changes, so the browser copy is always still valid
+        String eTag = "\"" + variant.cacheKey() + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofDays(1)).cachePrivate().immutable();
+        if (eTag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(variant.contentType()))
+            .eTag(eTag)
+            .cacheControl(cacheControl)
+            .body(imageVariantService.load(variant));
+    }
+    
     @PutMapping("/{photoId}/tags")
     public ResponseEntity<?> updateTags(
             @PathVariable String photoId,
@@ -50,6 +123,15 @@ public class PhotoController {
         return ResponseEntity.ok(Map.of("status", "success"));
     }
     
+    /**
+     * Add, remove or replace tags on many photos (photoIds or a whole batchId) at once
+     */
+    @PostMapping("/tags/bulk")
+    public ResponseEntity<BulkTagResponse> bulkUpdateTags(@Valid @RequestBody BulkTagRequest request) {
+        String userId = getCurrentUserId();
+        return ResponseEntity.ok(photoCommandService.bulkUpdateTags(userId, request));
+    }
+    
     @DeleteMapping("/{photoId}")
     public ResponseEntity<?> deletePhoto(@PathVariable String photoId) {
         String userId = getCurrentUserId();
@@ -57,6 +139,15 @@ public class PhotoController {
         return ResponseEntity.ok(Map.of("status", "success"));
     }
     
+    /**
+     * Delete many photos (photoIds or a whole batchId) at once
+     */
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkDeleteResponse> deletePhotos(@Valid @RequestBody BulkDeleteRequest request) {
+        String userId = getCurrentUserId();
+        return ResponseEntity.ok(photoCommandService.deletePhotos(userId, request));
+    }
+    
     private String getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.isAuthenticated()) {
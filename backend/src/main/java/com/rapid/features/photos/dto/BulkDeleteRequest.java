@@ -0,0 +1,40 @@
+package com.rapid.features.photos.dto;
+
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Photos to delete: either photoIds or a whole batchId
+ */
+public class BulkDeleteRequest {
+    
+    @Size(max = 1000, message = "Maximum 1000 photos per request")
+    private List<String> photoIds;
+    
+    private String batchId;
+    
+    public BulkDeleteRequest() {
+    }
+    
+    public BulkDeleteRequest(List<String> photoIds, String batchId) {
+        this.photoIds = photoIds;
+        this.batchId = batchId;
+    }
+    
+    public List<String> getPhotoIds() {
+        return photoIds;
+    }
+    
+    public void setPhotoIds(List<String> photoIds) {
+        this.photoIds = photoIds;
+    }
+    
+    public String getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+}
@@ -0,0 +1,33 @@
+package com.rapid.features.photos.dto;
+
+import java.util.List;
+
+public class BulkDeleteResponse {
+    
+    private Integer deletedCount;
+    private List<String> notFoundIds; // Requested ids with no photo of this user
+    
+    public BulkDeleteResponse() {
+    }
+    
+    public BulkDeleteResponse(Integer deletedCount, List<String> notFoundIds) {
+        this.deletedCount = deletedCount;
+        this.notFoundIds = notFoundIds;
+    }
+    
+    public Integer getDeletedCount() {
+        return deletedCount;
+    }
+    
+    public void setDeletedCount(Integer deletedCount) {
+        this.deletedCount = deletedCount;
+    }
+    
+    public List<String> getNotFoundIds() {
+        return notFoundIds;
+    }
+    
+    public void setNotFoundIds(List<String> notFoundIds) {
+        this.notFoundIds = notFoundIds;
+    }
+}
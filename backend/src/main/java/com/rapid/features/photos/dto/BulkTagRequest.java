@@ -0,0 +1,72 @@
+package com.rapid.features.photos.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Tag change for many photos: either photoIds or a whole batchId
+ */
+public class BulkTagRequest {
+    
+    public enum Operation {
+        ADD,     // Append the tags a photo doesn't have yet
+        REMOVE,  // Drop the tags
+        REPLACE  // Set exactly these tags
+    }
+    
+    @Size(max = 1000, message = "Maximum 1000 photos per request")
+    private List<String> photoIds;
+    
+    private String batchId;
+    
+    @NotNull(message = "Operation is required")
+    private Operation operation;
+    
+    @NotNull(message = "Tags cannot be null")
+    @Size(max = 3, message = "Maximum 3 tags allowed")
+    private List<@Size(max = 50, message = "Each tag must be 50 characters or less") String> tags;
+    
+    public BulkTagRequest() {
+    }
+    
+    public BulkTagRequest(List<String> photoIds, String batchId, Operation operation, List<String> tags) {
+        this.photoIds = photoIds;
+        this.batchId = batchId;
+        this.operation = operation;
+        this.tags = tags;
+    }
+    
+    public List<String> getPhotoIds() {
+        return photoIds;
+    }
+    
+    public void setPhotoIds(List<String> photoIds) {
+        this.photoIds = photoIds;
+    }
+    
+    public String getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+    
+    public Operation getOperation() {
+        return operation;
+    }
+    
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+    
+    public List<String> getTags() {
+        return tags;
+    }
+    
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+}
@@ -0,0 +1,80 @@
+package com.rapid.features.photos.dto;
+
+import java.util.List;
+
+public class BulkTagResponse {
+    
+    public enum Outcome {
+        UPDATED,
+        UNCHANGED,      // Already had the resulting tags
+        NOT_FOUND,      // No such photo for this user
+        NOT_AVAILABLE,  // Not fully uploaded (only gallery photos are tagged)
+        TOO_MANY_TAGS   // Would end up with more than 3 tags; left as is
+    }
+    
+    private Integer updatedCount;
+    private List<Result> results; // Request order for photoIds, id order for a batch
+    
+    public BulkTagResponse() {
+    }
+    
+    public BulkTagResponse(Integer updatedCount, List<Result> results) {
+        this.updatedCount = updatedCount;
+        this.results = results;
+    }
+    
+    public Integer getUpdatedCount() {
+        return updatedCount;
+    }
+    
+    public void setUpdatedCount(Integer updatedCount) {
+        this.updatedCount = updatedCount;
+    }
+    
+    public List<Result> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<Result> results) {
+        this.results = results;
+    }
+    
+    public static class Result {
+        private String photoId;
+        private Outcome outcome;
+        private List<String> tags; // Tags after the request (null if not found)
+        
+        public Result() {
+        }
+        
+        public Result(String photoId, Outcome outcome, List<String> tags) {
+            this.photoId = photoId;
+            this.outcome = outcome;
+            this.tags = tags;
+        }
+        
+        public String getPhotoId() {
+            return photoId;
+        }
+        
+        public void setPhotoId(String photoId) {
+            this.photoId = photoId;
+        }
+        
+        public Outcome getOutcome() {
+            return outcome;
+        }
+        
+        public void setOutcome(Outcome outcome) {
+            this.outcome = outcome;
+        }
+        
+        public List<String> getTags() {
+            return tags;
+        }
+        
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+}
@@ -8,6 +8,7 @@ public class PhotoListResponse {
     private Integer pageNumber;
     private Integer pageSize;
     private Long totalCount;
+    private String nextCursor;
     
     public PhotoListResponse() {}
     
@@ -18,6 +19,13 @@ public class PhotoListResponse {
         this.totalCount = totalCount;
     }
     
+    public PhotoListResponse(List<PhotoDto> photos, Integer pageSize, Long totalCount, String nextCursor) {
+        this.photos = photos;
+        this.pageSize = pageSize;
+        this.totalCount = totalCount;
+        this.nextCursor = nextCursor;
+    }
+    
     public List<PhotoDto> getPhotos() {
         return photos;
     }
@@ -49,5 +57,12 @@ public class PhotoListResponse {
     public void setTotalCount(Long totalCount) {
         this.totalCount = totalCount;
     }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
-
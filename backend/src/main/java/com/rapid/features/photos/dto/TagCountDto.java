@@ -0,0 +1,31 @@
+package com.rapid.features.photos.dto;
+
+public class TagCountDto {
+    
+    private String tag;
+    private Integer count;
+    
+    public TagCountDto() {
+    }
+    
+    public TagCountDto(String tag, Integer count) {
+        this.tag = tag;
+        this.count = count;
+    }
+    
+    public String getTag() {
+        return tag;
+    }
+    
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+    
+    public Integer getCount() {
+        return count;
+    }
+    
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+}
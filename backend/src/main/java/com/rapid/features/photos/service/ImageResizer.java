@@ -0,0 +1,118 @@
+package com.rapid.features.photos.service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * Decode / scale / encode helpers shared by ThumbnailService and ImageVariantService
+ *
+ * Decoding uses source subsampling, so a large original is read at about twice the
+ * target size instead of full resolution (far less CPU and memory per image).
+ */
+final class ImageResizer {
+
+    static final String JPEG = "jpeg";
+    static final String PNG = "png";
+
+    private ImageResizer() {
+    }
+
+    /**
+     * Decode an image at no more than about twice the target box (source subsampling),
+     * then scale it down to fit the box
+     * @param opaque True for an RGB result on white (JPEG output), false to keep alpha
+     * @return Scaled image, or null if the content isn't in a readable image format
+     */
+    static BufferedImage decodeToFit(InputStream in, int maxWidth, int maxHeight, boolean opaque) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                double scale = fitScale(reader.getWidth(0), reader.getHeight(0), maxWidth, maxHeight);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, (int) (0.5 / scale));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scaleToFit(reader.read(0, param), maxWidth, maxHeight, opaque);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale down to fit the box (never up)
+     * @param opaque True for RGB on white (JPEG has no alpha), false for ARGB
+     */
+    static BufferedImage scaleToFit(BufferedImage image, int maxWidth, int maxHeight, boolean opaque) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = fitScale(width, height, maxWidth, maxHeight);
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        if (scale == 1.0 && image.getType() == type) {
+            return image;
+        }
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, type);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (opaque) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, targetWidth, targetHeight);
+            }
+            g.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Encode as JPEG (at the given quality) or PNG
+     */
+    static byte[] encode(BufferedImage image, String format, float jpegQuality) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (JPEG.equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static double fitScale(int width, int height, int maxWidth, int maxHeight) {
+        return Math.min(1.0, Math.min((double) maxWidth / width, (double) maxHeight / height));
+    }
+}
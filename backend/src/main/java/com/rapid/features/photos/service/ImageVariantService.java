@@ -0,0 +1,268 @@
+package com.rapid.features.photos.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.infrastructure.cache.DiskLruCache;
+import com.rapid.infrastructure.cache.LruCache;
+import com.rapid.infrastructure.exceptions.LimitExceededException;
+import com.rapid.infrastructure.storage.StorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOException;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QUERY SERVICE: Photos resized on demand (GET /api/photos/{id}/image?w=&h=&fmt=)
+ *
+ * Complements the fixed derivatives from ThumbnailService for sizes the client picks.
+ * A variant is rendered on its first request, then served from a two-tier cache:
+ * - Heap LRU (bytes-bounded) for small variants, e.g. gallery tiles
+ * - Disk LRU (size-capped, survives restarts) for everything rendered
+ *
+ * Concurrent requests for the same variant share one render, and the number of
+ * renders at once is bounded (429 IMAGE_RESIZE when a slot doesn't free up in time).
+ * Variants are keyed by the photo's immutable s3Key, so they never go stale.
+ *
+ * Metrics: images.variants{result=heap|disk|rendered|coalesced}
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final long RENDER_WAIT_SECONDS = 5;
+
+    private final PhotoQueryService photoQueryService;
+    private final StorageService storageService;
+    private final int maxDimension;
+    private final long maxSourceBytes;
+    private final int heapMaxEntryBytes;
+    private final LruCache<String, byte[]> heapCache;
+    private final DiskLruCache diskCache;
+    private final Semaphore renderSlots;
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> rendering = new ConcurrentHashMap<>();
+
+    private final Counter heapHits;
+    private final Counter diskHits;
+    private final Counter rendered;
+    private final Counter coalesced;
+
+    /**
+     * A validated variant of one photo
+     * @param cacheKey File-name-safe key, also used as the ETag
+     * @param width Bounding box width (0 = unconstrained)
+     * @param height Bounding box height (0 = unconstrained)
+     * @param format ImageResizer.JPEG or ImageResizer.PNG
+     */
+    public record Variant(String cacheKey, String s3Key, long sourceBytes, int width, int height, String format) {
+
+        public String contentType() {
+            return "image/" + format;
+        }
+    }
+
+    @Autowired
+    public ImageVariantService(PhotoQueryService photoQueryService,
+                               StorageService storageService,
+                               MeterRegistry meterRegistry,
+                               @Value("${images.max-dimension:2048}") int maxDimension,
+                               @Value("${images.max-source-bytes:52428800}") long maxSourceBytes,
+                               @Value("${images.max-concurrent-renders:0}") int maxConcurrentRenders,
+                               @Value("${images.cache.heap-bytes:67108864}") long heapBytes,
+                               @Value("${images.cache.heap-max-entry-bytes:262144}") int heapMaxEntryBytes,
+                               @Value("${images.cache.dir:./data/image-cache}") Path cacheDir,
+                               @Value("${images.cache.disk-bytes:1073741824}") long diskBytes) {
+        this.photoQueryService = photoQueryService;
+        this.storageService = storageService;
+        this.maxDimension = maxDimension;
+        this.maxSourceBytes = maxSourceBytes;
+        this.heapMaxEntryBytes = heapMaxEntryBytes;
+        this.heapCache = new LruCache<>(heapBytes, bytes -> bytes.length);
+        this.diskCache = new DiskLruCache(cacheDir, diskBytes);
+        // Default: one render per core (decoding is CPU-bound)
+        this.renderSlots = new Semaphore(maxConcurrentRenders > 0
+            ? maxConcurrentRenders : Runtime.getRuntime().availableProcessors());
+
+        this.heapHits = variantCounter(meterRegistry, "heap");
+        this.diskHits = variantCounter(meterRegistry, "disk");
+        this.rendered = variantCounter(meterRegistry, "rendered");
+        this.coalesced = variantCounter(meterRegistry, "coalesced");
+    }
+
+    /**
+     * Check the request and the user's access to the photo
+     * @param width Max width, or null
+     * @param height Max height, or null (at least one of width/height is required)
+     * @param format "jpeg"/"jpg" or "png" (null = jpeg)
+     */
+    public Variant resolve(String userId, String photoId, Integer width, Integer height, String format) {
+        if (width == null && height == null) {
+            throw new RuntimeException("Width or height is required");
+        }
+        if (!validDimension(width) || !validDimension(height)) {
+            throw new RuntimeException("Width and height must be between 1 and " + maxDimension);
+        }
+        String normalizedFormat = normalizeFormat(format);
+
+        Photo photo = photoQueryService.findUploadedPhoto(userId, photoId);
+        int w = width != null ? width : 0;
+        int h = height != null ? height : 0;
+        String cacheKey = sha256Hex(photo.getS3Key()).substring(0, 32) + "_" + w + "x" + h + "." + normalizedFormat;
+        return new Variant(cacheKey, photo.getS3Key(), photo.getFileSizeBytes(), w, h, normalizedFormat);
+    }
+
+    /**
+     * Content of a variant: from cache, from a render already in progress, or rendered now
+     */
+    public byte[] load(Variant variant) {
+        byte[] cached = lookup(variant.cacheKey());
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = rendering.putIfAbsent(variant.cacheKey(), mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        try {
+            // A render may have finished between the lookup and claiming the key
+            byte[] content = lookup(variant.cacheKey());
+            if (content == null) {
+                content = render(variant);
+                rendered.increment();
+                log.debug("Image variant rendered: key={}, bytes={}", variant.cacheKey(), content.length);
+                diskCache.put(variant.cacheKey(), content);
+                cacheInHeap(variant.cacheKey(), content);
+            }
+            mine.complete(content);
+            return content;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            rendering.remove(variant.cacheKey(), mine);
+        }
+    }
+
+    private byte[] lookup(String cacheKey) {
+        byte[] content = heapCache.get(cacheKey);
+        if (content != null) {
+            heapHits.increment();
+            return content;
+        }
+        content = diskCache.get(cacheKey);
+        if (content != null) {
+            diskHits.increment();
+            cacheInHeap(cacheKey, content);
+        }
+        return content;
+    }
+
+    private void cacheInHeap(String cacheKey, byte[] content) {
+        if (content.length <= heapMaxEntryBytes) {
+            heapCache.put(cacheKey, content);
+        }
+    }
+
+    private byte[] render(Variant variant) {
+        if (variant.sourceBytes() > maxSourceBytes) {
+            throw new RuntimeException("Photo is too large to resize");
+        }
+        acquireRenderSlot();
+        try {
+            InputStream original = storageService.openObject(variant.s3Key())
+                .orElseThrow(() -> new RuntimeException("Photo not found"));
+            int boxWidth = variant.width() > 0 ? variant.width() : Integer.MAX_VALUE;
+            int boxHeight = variant.height() > 0 ? variant.height() : Integer.MAX_VALUE;
+            boolean opaque = ImageResizer.JPEG.equals(variant.format());
+            BufferedImage image;
+            try (InputStream in = original) {
+                image = ImageResizer.decodeToFit(in, boxWidth, boxHeight, opaque);
+            } catch (IIOException e) {
+                image = null; // Corrupt or unsupported variant of a known format
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (image == null) {
+                throw new RuntimeException("Photo is not a supported image");
+            }
+            return ImageResizer.encode(image, variant.format(), JPEG_QUALITY);
+        } finally {
+            renderSlots.release();
+        }
+    }
+
+    private void acquireRenderSlot() {
+        try {
+            if (!renderSlots.tryAcquire(RENDER_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                throw new LimitExceededException("Too many image resizes in progress, retry shortly", "IMAGE_RESIZE");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Image resize interrupted");
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> render) {
+        try {
+            return render.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean validDimension(Integer dimension) {
+        return dimension == null || (dimension >= 1 && dimension <= maxDimension);
+    }
+
+    private static String normalizeFormat(String format) {
+        if (format == null) {
+            return ImageResizer.JPEG;
+        }
+        return switch (format.toLowerCase()) {
+            case "jpeg", "jpg" -> ImageResizer.JPEG;
+            case "png" -> ImageResizer.PNG;
+            default -> throw new RuntimeException("Unsupported format: " + format + " (use jpeg or png)");
+        };
+    }
+
+    private static Counter variantCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("images.variants")
+            .description("Resized image requests by how they were served")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
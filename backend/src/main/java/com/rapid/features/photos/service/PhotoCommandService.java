@@ -1,16 +1,35 @@
 package com.rapid.features.photos.service;
 
 import com.rapid.domain.Photo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.features.photos.dto.BulkDeleteRequest;
+import com.rapid.features.photos.dto.BulkDeleteResponse;
+import com.rapid.features.photos.dto.BulkTagRequest;
+import com.rapid.features.photos.dto.BulkTagResponse;
 import com.rapid.features.photos.dto.UpdateTagsRequest;
+import com.rapid.features.upload.service.BatchProgressService;
 import com.rapid.infrastructure.repository.PhotoRepository;
-import com.rapid.infrastructure.storage.S3PresignedUrlService;
+import com.rapid.infrastructure.repository.UploadBatchRepository;
+import com.rapid.infrastructure.service.ContentIndexService;
+import com.rapid.infrastructure.service.LimitsService;
+import com.rapid.infrastructure.service.StorageReclaimService;
+import com.rapid.infrastructure.service.TagCountService;
+import com.rapid.infrastructure.service.UserQuotaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -22,55 +41,321 @@ public class PhotoCommandService {
     
     private static final Logger log = LoggerFactory.getLogger(PhotoCommandService.class);
     
+    // Photos per bulk tag/delete statement (a batch is handled in chunks, in one transaction)
+    private static final int BULK_CHUNK = 1000;
+    private static final TypeReference<List<String>> TAG_LIST = new TypeReference<>() { };
+    
     @Autowired
     private PhotoRepository photoRepository;
     
     @Autowired
-    private S3PresignedUrlService s3Service;
+    private StorageReclaimService storageReclaimService;
+    
+    @Autowired
+    private LimitsService limitsService;
+    
+    @Autowired
+    private UserQuotaService userQuotaService;
+    
+    @Autowired
+    private ContentIndexService contentIndexService;
+    
+    @Autowired
+    private TagCountService tagCountService;
+    
+    @Autowired
+    private UploadBatchRepository uploadBatchRepository;
+    
+    @Autowired
+    private BatchProgressService batchProgressService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
     
     @Transactional
     public void deletePhoto(String userId, String photoId) {
         log.info("Delete photo: userId={}, photoId={}", userId, photoId);
         
-        Photo photo = photoRepository.findByIdAndUserId(photoId, userId)
+        // Row lock: its tags leave the facet counts exactly once
+        Photo photo = photoRepository.findByIdAndUserIdForUpdate(photoId, userId)
             .orElseThrow(() -> new RuntimeException("Photo not found"));
         
-        // Delete from S3
-        s3Service.deleteFile(userId, photo.getS3Key());
+        // Schedule the S3 object (with the gallery derivatives, if generated) for deletion,
+        // unless other photos still reference the same content; the reclaimer deletes it
+        boolean lastReference = contentIndexService.release(photo);
+        if (lastReference) {
+            storageReclaimService.enqueue(userId, objectKeys(photo));
+        }
         
         // Delete from database
         photoRepository.delete(photo);
+        // Storage is only freed with the object (a shared object's bytes move to another photo)
+        long freedBytes = lastReference && !photo.isDeduplicated() ? photo.getFileSizeBytes() : 0;
+        limitsService.recordPhotosDeleted(1, freedBytes);
+        if (photo.getStatus() == PhotoStatus.UPLOADED) {
+            userQuotaService.uncommit(userId, freedBytes);
+            tagCountService.photoTagsChanged(userId, photo.getTags(), List.of());
+        } else if (photo.getStatus() == PhotoStatus.PENDING || photo.getStatus() == PhotoStatus.UPLOADING) {
+            userQuotaService.release(userId, photo.getFileSizeBytes());
+        }
+        BatchCounts removed = new BatchCounts();
+        removed.add(photo);
+        removeFromBatches(Map.of(photo.getBatch().getId(), removed));
         
         log.info("Photo deleted: photoId={}", photoId);
     }
     
+    /**
+     * Delete many photos (given ids, or a whole batch) with set-based statements
+     * 
+     * Per chunk of 1000 photos: one locking SELECT, one UPDATE releasing content
+     * references, one DELETE. Quota, limit counters and tag facets get one aggregated
+     * change (batch counters one UPDATE per batch), and the objects (with derivatives) no
+     * photo references any more go to the
+     * deletion outbox in the same transaction (StorageReclaimService removes them with S3
+     * DeleteObjects, 1000 keys per request).
+     * 
+     * @return Number of photos deleted, and requested ids that weren't found
+     */
+    @Transactional
+    public BulkDeleteResponse deletePhotos(String userId, BulkDeleteRequest request) {
+        boolean byIds = request.getPhotoIds() != null && !request.getPhotoIds().isEmpty();
+        boolean byBatch = request.getBatchId() != null && !request.getBatchId().isBlank();
+        if (byIds == byBatch) {
+            throw new IllegalArgumentException("Give either photoIds or batchId");
+        }
+        
+        List<String> photoIds;
+        if (byIds) {
+            photoIds = new ArrayList<>(new LinkedHashSet<>(request.getPhotoIds()));
+        } else {
+            uploadBatchRepository.findByIdAndUserId(request.getBatchId(), userId)
+                .orElseThrow(() -> new RuntimeException("Batch not found"));
+            photoIds = photoRepository.findIdsByUserIdAndBatchId(userId, request.getBatchId());
+        }
+        log.info("Bulk delete: userId={}, photos={}", userId, photoIds.size());
+        
+        Set<String> deletedIds = new LinkedHashSet<>();
+        Set<String> objectKeys = new LinkedHashSet<>();
+        Map<String, BatchCounts> removedPerBatch = new HashMap<>();
+        List<TagCountService.TagChange> tagChanges = new ArrayList<>();
+        long freedBytes = 0;
+        long uncommittedBytes = 0;
+        long releasedBytes = 0;
+        for (int from = 0; from < photoIds.size(); from += BULK_CHUNK) {
+            List<String> chunk = photoIds.subList(from, Math.min(from + BULK_CHUNK, photoIds.size()));
+            List<Photo> photos = photoRepository.findAllByIdInAndUserIdForUpdate(chunk, userId);
+            if (photos.isEmpty()) {
+                continue;
+            }
+            
+            // Objects other photos still reference are kept (their bytes move to one of them)
+            Set<String> deletableKeys = contentIndexService.releaseAll(photos);
+            List<String> chunkIds = new ArrayList<>();
+            for (Photo photo : photos) {
+                chunkIds.add(photo.getId());
+                boolean lastReference = deletableKeys.contains(photo.getS3Key());
+                if (lastReference) {
+                    objectKeys.addAll(objectKeys(photo));
+                }
+                long photoFreedBytes = lastReference && !photo.isDeduplicated() ? photo.getFileSizeBytes() : 0;
+                freedBytes += photoFreedBytes;
+                if (photo.getStatus() == PhotoStatus.UPLOADED) {
+                    uncommittedBytes += photoFreedBytes;
+                    tagChanges.add(new TagCountService.TagChange(photo.getTags(), List.of()));
+                } else if (photo.getStatus() == PhotoStatus.PENDING || photo.getStatus() == PhotoStatus.UPLOADING) {
+                    releasedBytes += photo.getFileSizeBytes();
+                }
+                removedPerBatch.computeIfAbsent(photo.getBatch().getId(), id -> new BatchCounts()).add(photo);
+            }
+            photoRepository.deleteAllByIdInAndUserId(chunkIds, userId);
+            deletedIds.addAll(chunkIds);
+        }
+        
+        limitsService.recordPhotosDeleted(deletedIds.size(), freedBytes);
+        if (uncommittedBytes > 0) {
+            userQuotaService.uncommit(userId, uncommittedBytes);
+        }
+        if (releasedBytes > 0) {
+            userQuotaService.release(userId, releasedBytes);
+        }
+        tagCountService.photosTagsChanged(userId, tagChanges);
+        removeFromBatches(removedPerBatch);
+        // Deleted by the reclaimer once this commits (a rollback schedules nothing)
+        storageReclaimService.enqueue(userId, objectKeys);
+        
+        List<String> notFoundIds = photoIds.stream()
+            .filter(id -> !deletedIds.contains(id))
+            .collect(Collectors.toList());
+        log.info("Bulk delete done: userId={}, deleted={}, objects={}", userId, deletedIds.size(), objectKeys.size());
+        return new BulkDeleteResponse(deletedIds.size(), notFoundIds);
+    }
+    
     @Transactional
     public void updateTags(String userId, String photoId, UpdateTagsRequest request) {
         log.info("Update tags: userId={}, photoId={}, tagCount={}", userId, photoId, request.getTags().size());
         
-        Photo photo = photoRepository.findByIdAndUserId(photoId, userId)
+        // Row lock: the old tags read here are the ones the facet counts hold
+        Photo photo = photoRepository.findByIdAndUserIdForUpdate(photoId, userId)
             .orElseThrow(() -> new RuntimeException("Photo not found"));
+        // Only gallery photos are tagged (and counted in the tag facets)
+        if (photo.getStatus() != PhotoStatus.UPLOADED) {
+            throw new RuntimeException("Photo not available");
+        }
+        
+        List<String> validatedTags = validateTags(request.getTags());
+        
+        tagCountService.photoTagsChanged(userId, photo.getTags(), validatedTags);
+        photo.setTags(validatedTags);
+        photoRepository.save(photo);
         
+        log.info("Tags updated: photoId={}, tags={}", photoId, validatedTags);
+    }
+    
+    /**
+     * Add, remove or replace tags on many photos (given ids, or a whole batch) with
+     * set-based jsonb UPDATEs instead of one load-and-save per photo
+     * 
+     * Same rules as updateTags: at most 3 tags of at most 50 characters, and only
+     * UPLOADED photos are tagged. A photo that would end up with more than 3 tags is
+     * left unchanged and reported; the others are still updated.
+     * 
+     * @return Outcome and resulting tags of every requested photo
+     */
+    @Transactional
+    public BulkTagResponse bulkUpdateTags(String userId, BulkTagRequest request) {
+        boolean byIds = request.getPhotoIds() != null && !request.getPhotoIds().isEmpty();
+        boolean byBatch = request.getBatchId() != null && !request.getBatchId().isBlank();
+        if (byIds == byBatch) {
+            throw new IllegalArgumentException("Give either photoIds or batchId");
+        }
+        
+        List<String> tags = validateTags(request.getTags());
+        if (tags.isEmpty() && request.getOperation() != BulkTagRequest.Operation.REPLACE) {
+            throw new IllegalArgumentException("At least one tag is required");
+        }
+        
+        List<String> photoIds;
+        if (byIds) {
+            photoIds = new ArrayList<>(new LinkedHashSet<>(request.getPhotoIds()));
+        } else {
+            uploadBatchRepository.findByIdAndUserId(request.getBatchId(), userId)
+                .orElseThrow(() -> new RuntimeException("Batch not found"));
+            photoIds = photoRepository.findIdsByUserIdAndBatchId(userId, request.getBatchId());
+        }
+        log.info("Bulk tag update: userId={}, operation={}, photos={}, tags={}",
+            userId, request.getOperation(), photoIds.size(), tags);
+        
+        String tagsJson = toJson(tags);
+        Map<String, BulkTagResponse.Result> resultsById = new HashMap<>();
+        List<TagCountService.TagChange> changes = new ArrayList<>();
+        for (int from = 0; from < photoIds.size(); from += BULK_CHUNK) {
+            List<String> chunk = photoIds.subList(from, Math.min(from + BULK_CHUNK, photoIds.size()));
+            for (Object[] row : photoRepository.bulkUpdateTags(userId, chunk, request.getOperation().name(), tagsJson)) {
+                String photoId = (String) row[0];
+                List<String> oldTags = fromJson((String) row[2]);
+                List<String> newTags = fromJson((String) row[3]);
+                BulkTagResponse.Outcome outcome;
+                if (Boolean.TRUE.equals(row[4])) {
+                    outcome = BulkTagResponse.Outcome.UPDATED;
+                    changes.add(new TagCountService.TagChange(oldTags, newTags));
+                } else if (!PhotoStatus.UPLOADED.name().equals(row[1])) {
+                    outcome = BulkTagResponse.Outcome.NOT_AVAILABLE;
+                } else if (newTags.size() > 3) {
+                    outcome = BulkTagResponse.Outcome.TOO_MANY_TAGS;
+                } else {
+                    outcome = BulkTagResponse.Outcome.UNCHANGED;
+                }
+                List<String> resultTags = outcome == BulkTagResponse.Outcome.UPDATED ? newTags : oldTags;
+                resultsById.put(photoId, new BulkTagResponse.Result(photoId, outcome, resultTags));
+            }
+        }
+        tagCountService.photosTagsChanged(userId, changes);
+        
+        List<BulkTagResponse.Result> results = photoIds.stream()
+            .map(id -> resultsById.getOrDefault(id,
+                new BulkTagResponse.Result(id, BulkTagResponse.Outcome.NOT_FOUND, null)))
+            .collect(Collectors.toList());
+        log.info("Bulk tag update done: userId={}, updated={}", userId, changes.size());
+        return new BulkTagResponse(changes.size(), results);
+    }
+    
+    /**
+     * Tags as stored: trimmed, non-empty, at most 50 characters, no duplicates, at most 3
+     */
+    private List<String> validateTags(List<String> tags) {
         // Validate: max 3 tags
-        if (request.getTags().size() > 3) {
+        if (tags.size() > 3) {
             throw new IllegalArgumentException("Maximum 3 tags allowed");
         }
         
         // Validate: each tag max 50 chars and not empty
-        List<String> validatedTags = request.getTags().stream()
+        List<String> validatedTags = tags.stream()
             .map(String::trim)
             .filter(tag -> !tag.isEmpty())
             .filter(tag -> tag.length() <= 50)
+            .distinct()
             .collect(Collectors.toList());
         
         if (validatedTags.size() > 3) {
             throw new IllegalArgumentException("Maximum 3 tags allowed");
         }
+        return validatedTags;
+    }
+    
+    private String toJson(List<String> tags) {
+        try {
+            return objectMapper.writeValueAsString(tags);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize tags", e);
+        }
+    }
+    
+    private List<String> fromJson(String tagsJson) {
+        try {
+            return objectMapper.readValue(tagsJson, TAG_LIST);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored tags", e);
+        }
+    }
+    
+    /**
+     * Take deleted photos out of their batches' counters (which also bumps the batches'
+     * updatedAt, their status ETag) and tell progress watchers once this commits
+     */
+    private void removeFromBatches(Map<String, BatchCounts> removedPerBatch) {
+        removedPerBatch.forEach((batchId, removed) -> {
+            uploadBatchRepository.removePhotos(batchId, removed.total, removed.completed, removed.failed);
+            batchProgressService.countersChanged(batchId);
+        });
+    }
+    
+    // Deleted photos of one batch, by the counter they were in
+    private static final class BatchCounts {
+        private int total;
+        private int completed;
+        private int failed;
         
-        photo.setTags(validatedTags);
-        photoRepository.save(photo);
-        
-        log.info("Tags updated: photoId={}, tags={}", photoId, validatedTags);
+        void add(Photo photo) {
+            total++;
+            if (photo.getStatus() == PhotoStatus.UPLOADED) {
+                completed++;
+            } else if (photo.getStatus() == PhotoStatus.FAILED) {
+                failed++;
+            }
+        }
+    }
+    
+    // The photo's object and the derivatives generated from it
+    private static List<String> objectKeys(Photo photo) {
+        List<String> keys = new ArrayList<>(3);
+        keys.add(photo.getS3Key());
+        if (photo.getThumbnailKey() != null) {
+            keys.add(photo.getThumbnailKey());
+        }
+        if (photo.getPreviewKey() != null) {
+            keys.add(photo.getPreviewKey());
+        }
+        return keys;
     }
 }
-
@@ -1,11 +1,15 @@
 package com.rapid.features.photos.service;
 
+import com.rapid.domain.ImageMetadata;
 import com.rapid.domain.Photo;
 import com.rapid.domain.PhotoStatus;
 import com.rapid.features.photos.dto.PhotoDto;
 import com.rapid.features.photos.dto.PhotoListResponse;
+import com.rapid.features.photos.dto.TagCountDto;
 import com.rapid.infrastructure.repository.PhotoRepository;
-import com.rapid.infrastructure.storage.S3PresignedUrlService;
+import com.rapid.infrastructure.service.TagCountService;
+import com.rapid.infrastructure.service.TagSuggestionService;
+import com.rapid.infrastructure.storage.StorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -13,6 +17,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -34,11 +39,20 @@ import java.util.stream.Collectors;
 @Service
 public class PhotoQueryService {
     
+    // Sorts after every photo: the tag search's first-page cursor
+    private static final PhotoCursor FIRST_PAGE = new PhotoCursor(LocalDateTime.of(9999, 12, 31, 0, 0), "");
+    
     @Autowired
     private PhotoRepository photoRepository;
     
     @Autowired
-    private S3PresignedUrlService s3Service;
+    private StorageService storageService;
+    
+    @Autowired
+    private TagCountService tagCountService;
+    
+    @Autowired
+    private TagSuggestionService tagSuggestionService;
     
     public PhotoListResponse getUserPhotos(String userId, int pageNumber, int pageSize) {
         Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.by("createdAt").descending());
@@ -47,14 +61,7 @@ public class PhotoQueryService {
         Page<Photo> page = photoRepository.findByUserIdAndStatus(userId, PhotoStatus.UPLOADED, pageable);
         
         List<PhotoDto> photoDtos = page.getContent().stream()
-            .map(p -> new PhotoDto(
-                p.getId(),
-                p.getOriginalFilename(),
-                p.getFileSizeBytes(),
-                s3Service.generatePresignedGetUrl(userId, p.getS3Key()),
-                p.getCreatedAt(),
-                p.getTags()
-            ))
+            .map(p -> toDto(userId, p))
             .collect(Collectors.toList());
         
         // Use count from filtered query for accurate pagination
@@ -67,6 +74,13 @@ public class PhotoQueryService {
     }
     
     public PhotoDto getPhotoById(String userId, String photoId) {
+        return toDto(userId, findUploadedPhoto(userId, photoId));
+    }
+    
+    /**
+     * The user's photo, if it exists and is fully uploaded (otherwise throws)
+     */
+    Photo findUploadedPhoto(String userId, String photoId) {
         Photo photo = photoRepository.findByIdAndUserId(photoId, userId)
             .orElseThrow(() -> new RuntimeException("Photo not found"));
         
@@ -74,14 +88,146 @@ public class PhotoQueryService {
             throw new RuntimeException("Photo not available");
         }
         
-        return new PhotoDto(
+        return photo;
+    }
+    
+    /**
+     * Cursor (keyset) pagination for infinite scroll.
+     * 
+     * Seeks directly to the rows after the last one the client saw, using the
+     * (user_id, status, created_at DESC, id DESC) index, so every page costs the same
+     * regardless of depth - unlike OFFSET, which scans and discards all earlier rows.
+     * The total count is a separate query and only runs when asked for.
+     * 
+     * @param cursor Opaque cursor from the previous page's nextCursor (null/blank for the first page)
+     * @param includeTotal Whether to also count all UPLOADED photos
+     * @return Page of photos; nextCursor is null on the last page
+     */
+    public PhotoListResponse getUserPhotosAfter(String userId, String cursor, int pageSize, boolean includeTotal) {
+        requirePageSize(pageSize);
+        // Fetch one extra row to know whether another page exists without counting
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Photo> photos;
+        if (cursor == null || cursor.isBlank()) {
+            photos = photoRepository.findByUserIdAndStatusOrderByCreatedAtDescIdDesc(userId, PhotoStatus.UPLOADED, limit);
+        } else {
+            PhotoCursor position = PhotoCursor.decode(cursor);
+            photos = photoRepository.findPageAfter(userId, PhotoStatus.UPLOADED,
+                position.createdAt(), position.id(), limit);
+        }
+        
+        Long totalCount = includeTotal
+            ? photoRepository.countByUserIdAndStatus(userId, PhotoStatus.UPLOADED)
+            : null;
+        return toCursorPage(userId, photos, pageSize, totalCount);
+    }
+    
+    /**
+     * Gallery photos with the given tags, newest first, in keyset pages like
+     * getUserPhotosAfter. Served by the GIN index on tags (see PhotoRepository), so
+     * the cost follows the number of matching photos, not the size of the gallery.
+     * 
+     * @param tags Tags to filter by (1 to 10)
+     * @param match "all" (default): photos with every tag; "any": with at least one
+     * @param cursor Opaque cursor from the previous page's nextCursor (null/blank for the first page)
+     */
+    public PhotoListResponse getPhotosByTags(String userId, List<String> tags, String match, String cursor,
+                                             int pageSize, boolean includeTotal) {
+        requirePageSize(pageSize);
+        TagFilter filter = TagFilter.of(tags, match);
+        PhotoCursor position = cursor == null || cursor.isBlank() ? FIRST_PAGE : PhotoCursor.decode(cursor);
+        
+        List<Photo> photos;
+        Long totalCount = null;
+        if (filter.matchAll()) {
+            String tagsJson = filter.containsJson();
+            photos = photoRepository.findTaggedWithAllAfter(userId, tagsJson,
+                position.createdAt(), position.id(), pageSize + 1);
+            if (includeTotal) {
+                totalCount = photoRepository.countTaggedWithAll(userId, tagsJson);
+            }
+        } else {
+            String tagsPath = filter.anyPath();
+            photos = photoRepository.findTaggedWithAnyAfter(userId, tagsPath,
+                position.createdAt(), position.id(), pageSize + 1);
+            if (includeTotal) {
+                totalCount = photoRepository.countTaggedWithAny(userId, tagsPath);
+            }
+        }
+        return toCursorPage(userId, photos, pageSize, totalCount);
+    }
+    
+    /**
+     * The user's tags with the number of gallery photos carrying each, most used first.
+     * Read from the incrementally maintained counts (TagCountService): no scan of the photos.
+     */
+    public List<TagCountDto> getTagCounts(String userId) {
+        return tagCountService.counts(userId).stream()
+            .map(c -> new TagCountDto(c.getTag(), c.getPhotoCount()))
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Autocomplete: the user's tags starting with prefix (case-insensitive), most used
+     * first. Served from memory (TagSuggestionService), no database round trip per keystroke.
+     */
+    public List<TagCountDto> suggestTags(String userId, String prefix, int limit) {
+        return tagSuggestionService.suggest(userId, prefix, limit).stream()
+            .map(c -> new TagCountDto(c.getTag(), c.getPhotoCount()))
+            .collect(Collectors.toList());
+    }
+    
+    // Same rule as the offset listing (PageRequest): 400, not an index error on the page trim
+    private static void requirePageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must not be less than one");
+        }
+    }
+    
+    // photos holds up to pageSize + 1 rows: the extra one only says another page exists
+    private PhotoListResponse toCursorPage(String userId, List<Photo> photos, int pageSize, Long totalCount) {
+        String nextCursor = null;
+        if (photos.size() > pageSize) {
+            photos = photos.subList(0, pageSize);
+            Photo last = photos.get(pageSize - 1);
+            nextCursor = new PhotoCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        
+        List<PhotoDto> photoDtos = photos.stream()
+            .map(p -> toDto(userId, p))
+            .collect(Collectors.toList());
+        
+        return new PhotoListResponse(photoDtos, pageSize, totalCount, nextCursor);
+    }
+    
+    private PhotoDto toDto(String userId, Photo photo) {
+        PhotoDto dto = new PhotoDto(
             photo.getId(),
             photo.getOriginalFilename(),
             photo.getFileSizeBytes(),
-            s3Service.generatePresignedGetUrl(userId, photo.getS3Key()),
+            storageService.generatePresignedGetUrl(userId, photo.getS3Key()),
             photo.getCreatedAt(),
             photo.getTags()
         );
+        if (photo.getThumbnailKey() != null) {
+            dto.setThumbnailUrl(storageService.generatePresignedGetUrl(userId, photo.getThumbnailKey()));
+        }
+        if (photo.getPreviewKey() != null) {
+            dto.setPreviewUrl(storageService.generatePresignedGetUrl(userId, photo.getPreviewKey()));
+        }
+        ImageMetadata metadata = photo.getImageMetadata();
+        if (metadata != null) {
+            dto.setMediaType(metadata.getMediaType());
+            dto.setWidth(metadata.getWidth());
+            dto.setHeight(metadata.getHeight());
+            dto.setOrientation(metadata.getOrientation());
+            dto.setCapturedAt(metadata.getCapturedAt());
+            dto.setCameraMake(metadata.getCameraMake());
+            dto.setCameraModel(metadata.getCameraModel());
+            dto.setLatitude(metadata.getGpsLatitude());
+            dto.setLongitude(metadata.getGpsLongitude());
+        }
+        return dto;
     }
 }
 
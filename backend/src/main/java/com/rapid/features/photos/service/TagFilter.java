@@ -0,0 +1,71 @@
+package com.rapid.features.photos.service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tags a gallery listing is filtered by, matched ALL (every tag) or ANY (at least one).
+ * Renders the filter as the jsonb operand PhotoRepository's tag queries take: a JSON
+ * array for containment (ALL), a jsonpath OR predicate (ANY). Tags go into both as
+ * JSON string literals, so quotes and backslashes in a tag can't change the query.
+ */
+record TagFilter(List<String> tags, boolean matchAll) {
+
+    static final int MAX_TAGS = 10;
+    private static final int MAX_TAG_LENGTH = 50;
+
+    /**
+     * @param match "all" (default) or "any"
+     */
+    static TagFilter of(List<String> tags, String match) {
+        boolean matchAll;
+        if (match == null || match.equalsIgnoreCase("all")) {
+            matchAll = true;
+        } else if (match.equalsIgnoreCase("any")) {
+            matchAll = false;
+        } else {
+            throw new RuntimeException("match must be 'all' or 'any'");
+        }
+
+        // Same normalization as tag updates
+        List<String> normalized = tags.stream()
+            .map(String::trim)
+            .filter(tag -> !tag.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
+        if (normalized.isEmpty()) {
+            throw new RuntimeException("At least one tag is required");
+        }
+        if (normalized.size() > MAX_TAGS) {
+            throw new RuntimeException("Maximum " + MAX_TAGS + " tags per search");
+        }
+        if (normalized.stream().anyMatch(tag -> tag.length() > MAX_TAG_LENGTH)) {
+            throw new RuntimeException("Each tag must be " + MAX_TAG_LENGTH + " characters or less");
+        }
+        return new TagFilter(normalized, matchAll);
+    }
+
+    // ["a","b"]: photos whose tags contain every one of these
+    String containsJson() {
+        return tags.stream().map(TagFilter::quote).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    // $[*] == "a" || $[*] == "b": photos with at least one of these
+    String anyPath() {
+        return tags.stream().map(tag -> "$[*] == " + quote(tag)).collect(Collectors.joining(" || "));
+    }
+
+    private static String quote(String tag) {
+        StringBuilder quoted = new StringBuilder(tag.length() + 2).append('"');
+        for (char c : tag.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
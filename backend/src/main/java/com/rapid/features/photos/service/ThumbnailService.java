@@ -0,0 +1,229 @@
+package com.rapid.features.photos.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.service.StorageReclaimService;
+import com.rapid.infrastructure.storage.StorageService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOException;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gallery derivatives: fixed-size JPEGs generated once a photo is UPLOADED
+ *
+ * The gallery renders small tiles; serving it the originals means pulling multi-MB
+ * files per tile. Each uploaded photo gets a 256 px thumbnail and a 1024 px preview
+ * (long edge), stored next to the original under derivatives/ and exposed on PhotoDto.
+ *
+ * - Triggered once an uploaded photo's content is inspected and found to be an image
+ *   (ContentInspectionService), so non-images are never downloaded in full
+ * - Runs on a fixed pool of CPU workers with a bounded queue. When the queue is full the
+ *   photo is skipped, and the backfill sweep picks it up later (so are photos from before
+ *   this existed, and those whose generation failed on a storage error)
+ * - Decodes with source subsampling (see ImageResizer), so a 24 MP original is read at
+ *   ~2x the preview size instead of full resolution
+ * - Originals that aren't readable images (or are over max-source-bytes) are marked
+ *   processed without derivatives; clients fall back to the original URL
+ *
+ * Metrics: thumbnails.queue.depth, thumbnails.duration
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    static final int THUMBNAIL_SIZE = 256;
+    static final int PREVIEW_SIZE = 1024;
+    private static final float JPEG_QUALITY = 0.82f;
+    // Leave just-uploaded photos to the post-commit trigger
+    private static final Duration BACKFILL_SETTLE = Duration.ofMinutes(2);
+
+    private final PhotoRepository photoRepository;
+    private final StorageService storageService;
+    private final StorageReclaimService storageReclaimService;
+    private final long maxSourceBytes;
+    private final ThreadPoolExecutor executor;
+    private final Timer duration;
+
+    // Photos queued or being processed (so the sweep doesn't queue them twice)
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private record Job(String userId, String photoId, String s3Key, long sizeBytes) {
+    }
+
+    @Autowired
+    public ThumbnailService(PhotoRepository photoRepository,
+                            StorageService storageService,
+                            StorageReclaimService storageReclaimService,
+                            MeterRegistry meterRegistry,
+                            @Value("${thumbnails.threads:0}") int threads,
+                            @Value("${thumbnails.max-queued:1000}") int maxQueued,
+                            @Value("${thumbnails.max-source-bytes:52428800}") long maxSourceBytes) {
+        this.photoRepository = photoRepository;
+        this.storageService = storageService;
+        this.storageReclaimService = storageReclaimService;
+        this.maxSourceBytes = maxSourceBytes;
+
+        // Default: half the cores, leaving the rest for request threads
+        int workerCount = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(maxQueued), runnable -> {
+                Thread worker = new Thread(runnable, "thumbnail-" + threadIndex.getAndIncrement());
+                worker.setDaemon(true);
+                worker.setPriority(Thread.NORM_PRIORITY - 1);
+                return worker;
+            });
+        this.duration = Timer.builder("thumbnails.duration")
+            .description("Time to generate one photo's derivatives")
+            .register(meterRegistry);
+        Gauge.builder("thumbnails.queue.depth", executor, e -> e.getQueue().size())
+            .description("Photos waiting for derivative generation")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queue derivative generation for an uploaded photo whose content was inspected.
+     * Call after the status is committed. Never blocks; skipped if the queue is full.
+     */
+    public void enqueue(Photo photo) {
+        if (!enqueue(new Job(photo.getUser().getId(), photo.getId(), photo.getS3Key(), photo.getFileSizeBytes()))) {
+            log.debug("Thumbnail queue full, left for backfill: photoId={}", photo.getId());
+        }
+    }
+
+    /**
+     * Queue uploaded photos that have no derivatives yet (missed while the queue was
+     * full, failed on a storage error, or uploaded before thumbnails existed)
+     */
+    @Scheduled(fixedDelayString = "${thumbnails.backfill-interval-ms:60000}")
+    public void backfill() {
+        int room = executor.getQueue().remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        List<Photo> pending = photoRepository
+            .findTop100ByDerivativesProcessedAtIsNullAndInspectedAtIsNotNullAndStatusAndUpdatedAtBefore(
+                PhotoStatus.UPLOADED, LocalDateTime.now().minus(BACKFILL_SETTLE));
+        int queued = 0;
+        for (Photo photo : pending) {
+            if (queued >= room || !enqueue(new Job(photo.getUser().getId(), photo.getId(), photo.getS3Key(), photo.getFileSizeBytes()))) {
+                break;
+            }
+            queued++;
+        }
+        if (queued > 0) {
+            log.info("Thumbnail backfill queued: photos={}", queued);
+        }
+    }
+
+    int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean enqueue(Job job) {
+        if (!inFlight.add(job.photoId())) {
+            return true;
+        }
+        try {
+            executor.execute(() -> run(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(job.photoId());
+            return false;
+        }
+    }
+
+    private void run(Job job) {
+        try {
+            duration.record(() -> generate(job));
+        } catch (RuntimeException e) {
+            // Left unprocessed: the backfill sweep retries it
+            log.warn("Thumbnail generation failed: photoId={}, error={}", job.photoId(), e.getMessage());
+        } finally {
+            inFlight.remove(job.photoId());
+        }
+    }
+
+    void generate(String userId, String photoId, String s3Key, long sizeBytes) {
+        generate(new Job(userId, photoId, s3Key, sizeBytes));
+    }
+
+    private void generate(Job job) {
+        if (job.sizeBytes() > maxSourceBytes) {
+            photoRepository.setDerivatives(job.photoId(), null, null);
+            return;
+        }
+        Optional<InputStream> original = storageService.openObject(job.s3Key());
+        if (original.isEmpty()) {
+            // Deleted since it was uploaded
+            photoRepository.setDerivatives(job.photoId(), null, null);
+            return;
+        }
+
+        BufferedImage preview;
+        try (InputStream in = original.get()) {
+            preview = ImageResizer.decodeToFit(in, PREVIEW_SIZE, PREVIEW_SIZE, true);
+        } catch (IIOException e) {
+            preview = null; // Corrupt or unsupported variant of a known format
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (preview == null) {
+            log.info("Original is not a readable image, no derivatives: photoId={}", job.photoId());
+            photoRepository.setDerivatives(job.photoId(), null, null);
+            return;
+        }
+
+        String previewKey = derivativeKey(job.s3Key(), PREVIEW_SIZE);
+        String thumbnailKey = derivativeKey(job.s3Key(), THUMBNAIL_SIZE);
+        putJpeg(previewKey, preview);
+        // Scaled from the preview, not the original: much less work for the same result
+        putJpeg(thumbnailKey, ImageResizer.scaleToFit(preview, THUMBNAIL_SIZE, THUMBNAIL_SIZE, true));
+        if (photoRepository.setDerivatives(job.photoId(), thumbnailKey, previewKey) == 0
+                && !photoRepository.existsByS3KeyAndStatus(job.s3Key(), PhotoStatus.UPLOADED)) {
+            // Deleted or rejected while rendering: no photo will reference these
+            log.info("Photo gone before its derivatives were saved, reclaiming them: photoId={}", job.photoId());
+            storageReclaimService.enqueue(job.userId(), List.of(thumbnailKey, previewKey));
+        }
+    }
+
+    static String derivativeKey(String s3Key, int size) {
+        return "derivatives/" + s3Key + "_" + size + ".jpg";
+    }
+
+    private void putJpeg(String key, BufferedImage image) {
+        byte[] bytes = ImageResizer.encode(image, ImageResizer.JPEG, JPEG_QUALITY);
+        storageService.putObject(key, "image/jpeg", bytes, bytes.length);
+    }
+}
@@ -2,18 +2,29 @@ package com.rapid.features.upload.controller;
 
 import com.rapid.features.upload.dto.BatchCompleteRequest;
 import com.rapid.features.upload.dto.BatchStatusResponse;
+import com.rapid.features.upload.dto.BulkInitiateUploadRequest;
+import com.rapid.features.upload.dto.BulkInitiateUploadResponse;
 import com.rapid.features.upload.dto.InitiateUploadRequest;
 import com.rapid.features.upload.dto.InitiateUploadResponse;
+import com.rapid.features.upload.dto.MultipartUploadResponse;
 import com.rapid.features.upload.dto.UploadCompleteRequest;
+import com.rapid.features.upload.service.BatchProgressService;
+import com.rapid.features.upload.service.StreamingUploadService;
 import com.rapid.features.upload.service.UploadCommandService;
 import com.rapid.features.upload.service.UploadQueryService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.Map;
 
 @RestController
@@ -27,6 +38,12 @@ public class UploadController {
     @Autowired
     private UploadQueryService uploadQueryService;
     
+    @Autowired
+    private BatchProgressService batchProgressService;
+    
+    @Autowired
+    private StreamingUploadService streamingUploadService;
+    
     @PostMapping("/initiate")
     public ResponseEntity<?> initiateUpload(@Valid @RequestBody InitiateUploadRequest request) {
         String userId = getCurrentUserId();
@@ -34,6 +51,56 @@ public class UploadController {
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/initiate/bulk")
+    public ResponseEntity<?> initiateBulkUpload(@Valid @RequestBody BulkInitiateUploadRequest request) {
+        String userId = getCurrentUserId();
+        BulkInitiateUploadResponse response = uploadCommandService.initiateBulkUpload(userId, request);
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Large files: one presigned URL per part. Parts can be uploaded in parallel and
+     * retried individually; /multipart/{photoId}/parts re-presigns the ones still missing.
+     */
+    @PostMapping("/initiate/multipart")
+    public ResponseEntity<?> initiateMultipartUpload(@Valid @RequestBody InitiateUploadRequest request) {
+        String userId = getCurrentUserId();
+        MultipartUploadResponse response = uploadCommandService.initiateMultipartUpload(userId, request);
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/multipart/{photoId}/parts")
+    public ResponseEntity<?> getMissingParts(@PathVariable String photoId) {
+        String userId = getCurrentUserId();
+        MultipartUploadResponse response = uploadCommandService.getMissingParts(userId, photoId);
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/multipart/{photoId}/complete")
+    public ResponseEntity<?> completeMultipartUpload(@PathVariable String photoId) {
+        String userId = getCurrentUserId();
+        uploadCommandService.completeMultipartUpload(userId, photoId);
+        return ResponseEntity.ok(Map.of("status", "success"));
+    }
+    
+    @PostMapping("/multipart/{photoId}/abort")
+    public ResponseEntity<?> abortMultipartUpload(@PathVariable String photoId) {
+        String userId = getCurrentUserId();
+        uploadCommandService.abortMultipartUpload(userId, photoId);
+        return ResponseEntity.ok(Map.of("status", "success"));
+    }
+    
+    /**
+     * Upload through the API (clients that can't reach S3): PUT the raw file bytes for a
+     * photo from /initiate. Streamed to S3 without buffering the whole file.
+     */
+    @PutMapping(value = "/stream/{photoId}", consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<?> streamUpload(@PathVariable String photoId, HttpServletRequest request) throws IOException {
+        String userId = getCurrentUserId();
+        streamingUploadService.streamUpload(userId, photoId, request.getContentType(), request.getInputStream());
+        return ResponseEntity.ok(Map.of("status", "success"));
+    }
+    
     @PostMapping("/complete/{photoId}")
     public ResponseEntity<?> completeUpload(
             @PathVariable String photoId,
@@ -65,11 +132,46 @@ public class UploadController {
         return ResponseEntity.ok(Map.of("status", "success"));
     }
     
+    /**
+     * Batch counters and photo statuses. Pass the previous response's changeCursor as
+     * {@code since} to get only photos changed since then; send its ETag as If-None-Match
+     * to get 304 when the batch hasn't changed at all.
+     */
     @GetMapping("/batch/{batchId}/status")
-    public ResponseEntity<?> getBatchStatus(@PathVariable String batchId) {
+    public ResponseEntity<?> getBatchStatus(
+            @PathVariable String batchId,
+            @RequestParam(required = false) String since,
+            WebRequest webRequest) {
         String userId = getCurrentUserId();
-        BatchStatusResponse response = uploadQueryService.getBatchStatus(userId, batchId);
-        return ResponseEntity.ok(response);
+        String etag = uploadQueryService.getBatchETag(userId, batchId, since);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        BatchStatusResponse response = uploadQueryService.getBatchStatus(userId, batchId, since);
+        return ResponseEntity.ok().eTag(etag).body(response);
+    }
+    
+    /**
+     * Server-Sent Events stream of batch progress (counters + photos that changed).
+     * Replaces polling /status; the first event carries the current counters.
+     */
+    @GetMapping(value = "/batch/{batchId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBatchProgress(@PathVariable String batchId) {
+        String userId = getCurrentUserId();
+        return batchProgressService.subscribe(userId, batchId);
+    }
+    
+    /**
+     * Long-poll fallback for clients that can't use SSE: returns the next progress
+     * event, or 204 if nothing changed before the poll timeout. Pass the previous
+     * event's changeCursor as {@code since} so changes between polls aren't missed.
+     */
+    @GetMapping("/batch/{batchId}/events/poll")
+    public DeferredResult<ResponseEntity<?>> pollBatchProgress(
+            @PathVariable String batchId,
+            @RequestParam(required = false) String since) {
+        String userId = getCurrentUserId();
+        return batchProgressService.poll(userId, batchId, since);
     }
     
     private String getCurrentUserId() {
@@ -9,6 +9,7 @@ public class BatchStatusResponse {
     private Integer completedCount;
     private Integer failedCount;
     private List<PhotoStatusDto> photos;
+    private String changeCursor;
     
     public BatchStatusResponse() {}
     
@@ -20,6 +21,12 @@ public class BatchStatusResponse {
         this.photos = photos;
     }
     
+    public BatchStatusResponse(String batchId, Integer totalCount, Integer completedCount, Integer failedCount,
+                               List<PhotoStatusDto> photos, String changeCursor) {
+        this(batchId, totalCount, completedCount, failedCount, photos);
+        this.changeCursor = changeCursor;
+    }
+    
     public String getBatchId() {
         return batchId;
     }
@@ -59,5 +66,12 @@ public class BatchStatusResponse {
     public void setPhotos(List<PhotoStatusDto> photos) {
         this.photos = photos;
     }
+    
+    public String getChangeCursor() {
+        return changeCursor;
+    }
+    
+    public void setChangeCursor(String changeCursor) {
+        this.changeCursor = changeCursor;
+    }
 }
-
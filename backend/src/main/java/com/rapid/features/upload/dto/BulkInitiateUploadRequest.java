@@ -0,0 +1,98 @@
+package com.rapid.features.upload.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BulkInitiateUploadRequest {
+    
+    private String batchId; // Optional; backend creates if null
+    
+    @NotEmpty(message = "Files list cannot be empty")
+    @Size(max = 1000, message = "Maximum 1000 files per request")
+    @Valid
+    private List<FileItem> files;
+    
+    public BulkInitiateUploadRequest() {}
+    
+    public BulkInitiateUploadRequest(String batchId, List<FileItem> files) {
+        this.batchId = batchId;
+        this.files = files;
+    }
+    
+    public String getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+    
+    public List<FileItem> getFiles() {
+        return files;
+    }
+    
+    public void setFiles(List<FileItem> files) {
+        this.files = files;
+    }
+    
+    public static class FileItem {
+        @NotBlank(message = "Filename is required")
+        private String filename;
+        
+        @NotNull(message = "File size is required")
+        private Long fileSizeBytes;
+        
+        @NotBlank(message = "Content type is required")
+        private String contentType;
+        
+        // Optional hex SHA-256; a file the user already stored is not uploaded again
+        @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "contentSha256 must be 64 hex characters")
+        private String contentSha256;
+        
+        public FileItem() {}
+        
+        public FileItem(String filename, Long fileSizeBytes, String contentType) {
+            this.filename = filename;
+            this.fileSizeBytes = fileSizeBytes;
+            this.contentType = contentType;
+        }
+        
+        public String getFilename() {
+            return filename;
+        }
+        
+        public void setFilename(String filename) {
+            this.filename = filename;
+        }
+        
+        public Long getFileSizeBytes() {
+            return fileSizeBytes;
+        }
+        
+        public void setFileSizeBytes(Long fileSizeBytes) {
+            this.fileSizeBytes = fileSizeBytes;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+        
+        public void setContentType(String contentType) {
+            this.contentType = contentType;
+        }
+        
+        public String getContentSha256() {
+            return contentSha256;
+        }
+        
+        public void setContentSha256(String contentSha256) {
+            this.contentSha256 = contentSha256;
+        }
+    }
+}
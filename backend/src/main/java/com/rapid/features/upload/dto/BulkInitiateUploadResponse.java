@@ -0,0 +1,42 @@
+package com.rapid.features.upload.dto;
+
+import java.util.List;
+
+public class BulkInitiateUploadResponse {
+    
+    private String batchId;
+    private Integer expiresInMinutes;
+    private List<InitiateUploadResponse> uploads; // Same order as the request's files
+    
+    public BulkInitiateUploadResponse() {}
+    
+    public BulkInitiateUploadResponse(String batchId, Integer expiresInMinutes, List<InitiateUploadResponse> uploads) {
+        this.batchId = batchId;
+        this.expiresInMinutes = expiresInMinutes;
+        this.uploads = uploads;
+    }
+    
+    public String getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+    
+    public Integer getExpiresInMinutes() {
+        return expiresInMinutes;
+    }
+    
+    public void setExpiresInMinutes(Integer expiresInMinutes) {
+        this.expiresInMinutes = expiresInMinutes;
+    }
+    
+    public List<InitiateUploadResponse> getUploads() {
+        return uploads;
+    }
+    
+    public void setUploads(List<InitiateUploadResponse> uploads) {
+        this.uploads = uploads;
+    }
+}
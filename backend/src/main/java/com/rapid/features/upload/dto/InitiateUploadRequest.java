@@ -2,6 +2,7 @@ package com.rapid.features.upload.dto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 
 public class InitiateUploadRequest {
     
@@ -16,6 +17,10 @@ public class InitiateUploadRequest {
     
     private String batchId; // Optional; backend creates if null
     
+    // Optional hex SHA-256; a file the user already stored is not uploaded again
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "contentSha256 must be 64 hex characters")
+    private String contentSha256;
+    
     public InitiateUploadRequest() {}
     
     public InitiateUploadRequest(String filename, Long fileSizeBytes, String contentType, String batchId) {
@@ -56,5 +61,12 @@ public class InitiateUploadRequest {
     public void setBatchId(String batchId) {
         this.batchId = batchId;
     }
+    
+    public String getContentSha256() {
+        return contentSha256;
+    }
+    
+    public void setContentSha256(String contentSha256) {
+        this.contentSha256 = contentSha256;
+    }
 }
-
@@ -6,6 +6,8 @@ public class InitiateUploadResponse {
     private String uploadUrl;
     private Integer expiresInMinutes;
     private String batchId;
+    // Content already stored (same hash and size): the photo is UPLOADED, there is nothing to upload
+    private boolean alreadyStored;
     
     public InitiateUploadResponse() {}
     
@@ -47,5 +49,12 @@ public class InitiateUploadResponse {
     public void setBatchId(String batchId) {
         this.batchId = batchId;
     }
+    
+    public boolean isAlreadyStored() {
+        return alreadyStored;
+    }
+    
+    public void setAlreadyStored(boolean alreadyStored) {
+        this.alreadyStored = alreadyStored;
+    }
 }
-
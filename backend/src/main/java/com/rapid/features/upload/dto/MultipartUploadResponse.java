@@ -0,0 +1,111 @@
+package com.rapid.features.upload.dto;
+
+import java.util.List;
+
+public class MultipartUploadResponse {
+    
+    private String photoId;
+    private String batchId;
+    private Long partSizeBytes;
+    private Integer partCount;
+    private Integer expiresInMinutes;
+    private List<PartUrl> parts; // Parts still to upload (all of them at initiate)
+    // Content already stored (same hash and size): the photo is UPLOADED, there is nothing to upload
+    private boolean alreadyStored;
+    
+    public MultipartUploadResponse() {}
+    
+    public MultipartUploadResponse(String photoId, String batchId, Long partSizeBytes, Integer partCount,
+                                   Integer expiresInMinutes, List<PartUrl> parts) {
+        this.photoId = photoId;
+        this.batchId = batchId;
+        this.partSizeBytes = partSizeBytes;
+        this.partCount = partCount;
+        this.expiresInMinutes = expiresInMinutes;
+        this.parts = parts;
+    }
+    
+    public String getPhotoId() {
+        return photoId;
+    }
+    
+    public void setPhotoId(String photoId) {
+        this.photoId = photoId;
+    }
+    
+    public String getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+    
+    public Long getPartSizeBytes() {
+        return partSizeBytes;
+    }
+    
+    public void setPartSizeBytes(Long partSizeBytes) {
+        this.partSizeBytes = partSizeBytes;
+    }
+    
+    public Integer getPartCount() {
+        return partCount;
+    }
+    
+    public void setPartCount(Integer partCount) {
+        this.partCount = partCount;
+    }
+    
+    public Integer getExpiresInMinutes() {
+        return expiresInMinutes;
+    }
+    
+    public void setExpiresInMinutes(Integer expiresInMinutes) {
+        this.expiresInMinutes = expiresInMinutes;
+    }
+    
+    public List<PartUrl> getParts() {
+        return parts;
+    }
+    
+    public void setParts(List<PartUrl> parts) {
+        this.parts = parts;
+    }
+    
+    public boolean isAlreadyStored() {
+        return alreadyStored;
+    }
+    
+    public void setAlreadyStored(boolean alreadyStored) {
+        this.alreadyStored = alreadyStored;
+    }
+    
+    public static class PartUrl {
+        private Integer partNumber;
+        private String uploadUrl;
+        
+        public PartUrl() {}
+        
+        public PartUrl(Integer partNumber, String uploadUrl) {
+            this.partNumber = partNumber;
+            this.uploadUrl = uploadUrl;
+        }
+        
+        public Integer getPartNumber() {
+            return partNumber;
+        }
+        
+        public void setPartNumber(Integer partNumber) {
+            this.partNumber = partNumber;
+        }
+        
+        public String getUploadUrl() {
+            return uploadUrl;
+        }
+        
+        public void setUploadUrl(String uploadUrl) {
+            this.uploadUrl = uploadUrl;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.rapid.features.upload.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a batch's change feed: the (updatedAt, id) of the last photo change a
+ * client has seen. Encoded as opaque base64url so clients don't depend on its contents.
+ */
+record BatchChangeCursor(LocalDateTime updatedAt, String id) {
+
+    private static final char SEPARATOR = '|';
+
+    String encode() {
+        String raw = updatedAt + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static BatchChangeCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new RuntimeException("Invalid cursor");
+            }
+            return new BatchChangeCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
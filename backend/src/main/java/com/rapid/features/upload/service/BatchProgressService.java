@@ -0,0 +1,495 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.UploadBatch;
+import com.rapid.features.upload.dto.BatchStatusResponse;
+import com.rapid.features.upload.dto.PhotoStatusDto;
+import com.rapid.infrastructure.exceptions.LimitExceededException;
+import com.rapid.infrastructure.repository.UploadBatchRepository;
+import com.rapid.infrastructure.transaction.TransactionCallbacks;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Push batch progress to watching clients (SSE, with a long-poll fallback)
+ *
+ * Replaces clients polling /batch/{id}/status, which reloads every photo in the batch.
+ * Upload commands report photo transitions and counter changes here after commit;
+ * nothing is read from the database unless someone is watching that batch.
+ *
+ * Cost model:
+ * - An idle watcher is a registry entry plus an open async response (no thread, no DB)
+ * - Changes are coalesced per batch and flushed every flush-interval: one counter
+ *   read per changed, watched batch, and at most one event per watcher per flush
+ * - Only watched batches keep a change log (numbered, latest change per photo); it
+ *   outlives its last watcher by cursor-retention, then is dropped
+ * - Sends run on a small pool; a watcher that is still sending keeps accumulating
+ *   (merged) changes instead of queueing events, so a slow client can't back up others
+ * - Stream count is capped globally and per user (429 STREAM_LIMIT)
+ *
+ * Each event is a BatchStatusResponse with the current counters, only the photos that
+ * changed since the previous event, and a changeCursor (position in the batch's log).
+ * A long-poll client passes the cursor back as {@code since} and gets whatever changed
+ * between its polls; a cursor this instance can't place (log dropped, other instance)
+ * is answered with the full batch status instead.
+ */
+@Service
+public class BatchProgressService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchProgressService.class);
+
+    private final UploadBatchRepository batchRepository;
+    private final UploadQueryService uploadQueryService;
+    private final Executor sender;
+    private final long streamTimeoutMs;
+    private final long pollTimeoutMs;
+    private final long cursorRetentionMs;
+    private final int maxStreams;
+    private final int maxStreamsPerUser;
+
+    // Changes and watchers are added inside compute on the batch's key, so never into a dropped log
+    private final Map<String, BatchLog> logsByBatch = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> streamsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger streamCount = new AtomicInteger();
+
+    @Autowired
+    public BatchProgressService(UploadBatchRepository batchRepository,
+                                UploadQueryService uploadQueryService,
+                                @Value("${upload.progress.stream-timeout-ms:600000}") long streamTimeoutMs,
+                                @Value("${upload.progress.poll-timeout-ms:25000}") long pollTimeoutMs,
+                                @Value("${upload.progress.cursor-retention-ms:60000}") long cursorRetentionMs,
+                                @Value("${upload.progress.max-streams:5000}") int maxStreams,
+                                @Value("${upload.progress.max-streams-per-user:20}") int maxStreamsPerUser) {
+        this(batchRepository, uploadQueryService, new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxStreams)),
+            streamTimeoutMs, pollTimeoutMs, cursorRetentionMs, maxStreams, maxStreamsPerUser);
+    }
+
+    BatchProgressService(UploadBatchRepository batchRepository, UploadQueryService uploadQueryService,
+                         Executor sender, long streamTimeoutMs, long pollTimeoutMs, long cursorRetentionMs,
+                         int maxStreams, int maxStreamsPerUser) {
+        this.batchRepository = batchRepository;
+        this.uploadQueryService = uploadQueryService;
+        this.sender = sender;
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.cursorRetentionMs = cursorRetentionMs;
+        this.maxStreams = maxStreams;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+    }
+
+    /**
+     * Open an SSE stream for a batch. The first event carries the current counters.
+     */
+    public SseEmitter subscribe(String userId, String batchId) {
+        UploadBatch batch = findOwnedBatch(userId, batchId);
+        reserveStream(userId);
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Watcher watcher = new Watcher(userId, batchId, emitter, null);
+        emitter.onCompletion(() -> unregister(watcher));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unregister(watcher));
+        try {
+            Backlog backlog = register(watcher, null);
+            deliver(watcher, counters(batch, List.of(), backlog.cursor()));
+        } catch (RuntimeException e) {
+            unregister(watcher); // gives the reserved stream back
+            throw e;
+        }
+        return emitter;
+    }
+
+    /**
+     * Long-poll fallback: completes with the next progress event, or 204 No Content
+     * after poll-timeout if nothing changed.
+     * @param since changeCursor of the previous event: changes made since it are returned
+     *              at once. Without it, only changes from now on.
+     */
+    public DeferredResult<ResponseEntity<?>> poll(String userId, String batchId, String since) {
+        UploadBatch batch = findOwnedBatch(userId, batchId);
+        reserveStream(userId);
+
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(pollTimeoutMs,
+            ResponseEntity.noContent().build());
+        Watcher watcher = new Watcher(userId, batchId, null, result);
+        result.onCompletion(() -> unregister(watcher));
+        try {
+            Backlog backlog = register(watcher, since);
+            if (backlog.changes() == null) {
+                // Can't tell what was missed: everything, positioned at the log's current end
+                BatchStatusResponse status = uploadQueryService.getBatchStatus(userId, batchId);
+                status.setChangeCursor(backlog.cursor());
+                deliver(watcher, status);
+            } else if (backlog.missed()) {
+                deliver(watcher, counters(batch, backlog.changes(), backlog.cursor()));
+            }
+        } catch (RuntimeException e) {
+            unregister(watcher); // gives the reserved stream back
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * A photo in the batch changed status (published after commit).
+     */
+    public void photoChanged(String batchId, String photoId, String originalFilename,
+                             PhotoStatus status, String errorMessage) {
+        PhotoStatusDto change = new PhotoStatusDto(photoId, originalFilename, status, errorMessage, LocalDateTime.now());
+        TransactionCallbacks.afterCommit(() -> record(batchId, change));
+    }
+
+    /**
+     * The batch's counters changed without a photo transition, e.g. more files added (published after commit).
+     */
+    public void countersChanged(String batchId) {
+        TransactionCallbacks.afterCommit(() -> record(batchId, null));
+    }
+
+    /**
+     * Push coalesced changes: one counter read per changed batch, one event per watcher.
+     * Batch logs left without watchers for cursor-retention are dropped.
+     */
+    @Scheduled(fixedDelayString = "${upload.progress.flush-interval-ms:250}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, BatchLog> entry : logsByBatch.entrySet()) {
+            String batchId = entry.getKey();
+            BatchLog batchLog = entry.getValue();
+            Map<Watcher, List<PhotoStatusDto>> updates = new HashMap<>();
+            String cursor;
+            synchronized (batchLog) {
+                for (Watcher watcher : batchLog.watchers) {
+                    if (watcher.seen < batchLog.seq) {
+                        updates.put(watcher, batchLog.changesSince(watcher.seen));
+                        watcher.seen = batchLog.seq;
+                    }
+                }
+                cursor = batchLog.cursor();
+            }
+            if (updates.isEmpty()) {
+                logsByBatch.computeIfPresent(batchId, (id, current) -> {
+                    synchronized (current) {
+                        boolean idle = current.watchers.isEmpty() && now - current.lastWatchedAt >= cursorRetentionMs;
+                        return idle ? null : current;
+                    }
+                });
+                continue;
+            }
+            UploadBatch batch = batchRepository.findById(batchId).orElse(null);
+            if (batch == null) {
+                continue;
+            }
+            updates.forEach((watcher, changes) -> deliver(watcher, counters(batch, changes, cursor)));
+        }
+    }
+
+    /**
+     * Keep idle SSE connections open through proxies and detect dead clients.
+     */
+    @Scheduled(fixedDelayString = "${upload.progress.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        for (Watcher watcher : streams()) {
+            deliver(watcher, null);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Watcher watcher : streams()) {
+            watcher.emitter.complete();
+        }
+        if (sender instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    int streamCount() {
+        return streamCount.get();
+    }
+
+    int loggedBatches() {
+        return logsByBatch.size();
+    }
+
+    private UploadBatch findOwnedBatch(String userId, String batchId) {
+        return batchRepository.findByIdAndUserId(batchId, userId)
+            .orElseThrow(() -> new RuntimeException("Batch not found"));
+    }
+
+    private void reserveStream(String userId) {
+        AtomicInteger userStreams = streamsByUser.computeIfAbsent(userId, id -> new AtomicInteger());
+        int total = streamCount.incrementAndGet();
+        int forUser = userStreams.incrementAndGet();
+        if (total > maxStreams || forUser > maxStreamsPerUser) {
+            streamCount.decrementAndGet();
+            userStreams.decrementAndGet();
+            throw new LimitExceededException("Too many open progress streams", "STREAM_LIMIT");
+        }
+    }
+
+    /**
+     * Add a watcher to its batch's log (started if none), caught up to the log's end
+     * @return What it missed since {@code since}
+     */
+    private Backlog register(Watcher watcher, String since) {
+        Backlog[] backlog = new Backlog[1];
+        logsByBatch.compute(watcher.batchId, (id, current) -> {
+            BatchLog batchLog = current != null ? current : new BatchLog();
+            synchronized (batchLog) {
+                Long seen = since == null ? Long.valueOf(batchLog.seq) : batchLog.position(since);
+                backlog[0] = new Backlog(
+                    seen == null ? null : batchLog.changesSince(seen),
+                    seen == null || seen < batchLog.seq,
+                    batchLog.cursor());
+                watcher.seen = batchLog.seq;
+                batchLog.watchers.add(watcher);
+                batchLog.lastWatchedAt = System.currentTimeMillis();
+            }
+            return batchLog;
+        });
+        return backlog[0];
+    }
+
+    // Change committed: logged if the batch is watched (or was, within cursor-retention)
+    private void record(String batchId, PhotoStatusDto change) {
+        logsByBatch.computeIfPresent(batchId, (id, batchLog) -> {
+            synchronized (batchLog) {
+                batchLog.record(change);
+            }
+            return batchLog;
+        });
+    }
+
+    private void unregister(Watcher watcher) {
+        if (!watcher.closed.compareAndSet(false, true)) {
+            return;
+        }
+        logsByBatch.computeIfPresent(watcher.batchId, (id, batchLog) -> {
+            synchronized (batchLog) {
+                batchLog.watchers.remove(watcher);
+                batchLog.lastWatchedAt = System.currentTimeMillis();
+            }
+            return batchLog;
+        });
+        streamCount.decrementAndGet();
+        streamsByUser.computeIfPresent(watcher.userId, (id, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+
+    /**
+     * Queue an update (or a heartbeat, if null) for a watcher. If a send is already in
+     * progress the update is merged into the pending one rather than queued separately.
+     */
+    private void deliver(Watcher watcher, BatchStatusResponse update) {
+        synchronized (watcher) {
+            if (update != null) {
+                watcher.pending = merge(watcher.pending, update);
+            } else if (watcher.sending) {
+                return; // A send is already proving the connection is alive
+            } else {
+                watcher.heartbeatDue = true;
+            }
+            if (watcher.sending) {
+                return;
+            }
+            watcher.sending = true;
+        }
+        try {
+            sender.execute(() -> drain(watcher));
+        } catch (RejectedExecutionException e) {
+            synchronized (watcher) {
+                watcher.sending = false; // Pending state is kept and retried on the next flush
+            }
+        }
+    }
+
+    private List<Watcher> streams() {
+        List<Watcher> streams = new ArrayList<>();
+        for (BatchLog batchLog : logsByBatch.values()) {
+            synchronized (batchLog) {
+                for (Watcher watcher : batchLog.watchers) {
+                    if (watcher.emitter != null) {
+                        streams.add(watcher);
+                    }
+                }
+            }
+        }
+        return streams;
+    }
+
+    private void drain(Watcher watcher) {
+        while (true) {
+            BatchStatusResponse next;
+            boolean heartbeat;
+            synchronized (watcher) {
+                next = watcher.pending;
+                heartbeat = watcher.heartbeatDue;
+                watcher.pending = null;
+                watcher.heartbeatDue = false;
+                if (next == null && !heartbeat) {
+                    watcher.sending = false;
+                    return;
+                }
+            }
+            if (watcher.closed.get()) {
+                return;
+            }
+            if (watcher.deferred != null) {
+                if (next != null) {
+                    watcher.deferred.setResult(ResponseEntity.ok(next));
+                }
+                continue;
+            }
+            try {
+                if (next != null) {
+                    watcher.emitter.send(SseEmitter.event().name("progress").data(next));
+                } else {
+                    watcher.emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Progress stream closed: batchId={}, error={}", watcher.batchId, e.getMessage());
+                unregister(watcher);
+                watcher.emitter.completeWithError(e);
+                return;
+            }
+        }
+    }
+
+    private static BatchStatusResponse counters(UploadBatch batch, List<PhotoStatusDto> changedPhotos, String cursor) {
+        return new BatchStatusResponse(
+            batch.getId(),
+            batch.getTotalCount(),
+            batch.getCompletedCount(),
+            batch.getFailedCount(),
+            changedPhotos,
+            cursor
+        );
+    }
+
+    private static BatchStatusResponse merge(BatchStatusResponse pending, BatchStatusResponse update) {
+        if (pending == null) {
+            return update;
+        }
+        Map<String, PhotoStatusDto> photos = new LinkedHashMap<>();
+        for (PhotoStatusDto photo : pending.getPhotos()) {
+            photos.put(photo.getId(), photo);
+        }
+        for (PhotoStatusDto photo : update.getPhotos()) {
+            photos.put(photo.getId(), photo);
+        }
+        return new BatchStatusResponse(update.getBatchId(), update.getTotalCount(),
+            update.getCompletedCount(), update.getFailedCount(), new ArrayList<>(photos.values()),
+            update.getChangeCursor());
+    }
+
+    /**
+     * What a watcher missed before it was added: {@code changes} is null if its cursor
+     * couldn't be placed in the log (everything may have been missed)
+     */
+    private record Backlog(List<PhotoStatusDto> changes, boolean missed, String cursor) {
+    }
+
+    /**
+     * Committed changes of one watched batch, numbered in order; only the latest change
+     * per photo is kept. A cursor is the log's id plus a number, so one handed out by
+     * a dropped log (or another instance) is recognised as unknown.
+     */
+    private static final class BatchLog {
+        private final String id = UUID.randomUUID().toString();
+
+        // Guarded by this
+        private long seq;
+        private final TreeMap<Long, PhotoStatusDto> changesBySeq = new TreeMap<>();
+        private final Map<String, Long> seqByPhoto = new HashMap<>();
+        private final Set<Watcher> watchers = new HashSet<>();
+        private long lastWatchedAt;
+
+        // A null change is a counters-only change
+        private void record(PhotoStatusDto change) {
+            seq++;
+            if (change != null) {
+                Long previous = seqByPhoto.put(change.getId(), seq);
+                if (previous != null) {
+                    changesBySeq.remove(previous);
+                }
+                changesBySeq.put(seq, change);
+            }
+        }
+
+        private List<PhotoStatusDto> changesSince(long seen) {
+            return new ArrayList<>(changesBySeq.tailMap(seen, false).values());
+        }
+
+        private String cursor() {
+            return id + ":" + seq;
+        }
+
+        // Number of a cursor handed out by this log, or null
+        private Long position(String cursor) {
+            int separator = cursor.lastIndexOf(':');
+            if (separator < 0 || !cursor.substring(0, separator).equals(id)) {
+                return null;
+            }
+            try {
+                long position = Long.parseLong(cursor.substring(separator + 1));
+                return position >= 0 && position <= seq ? position : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Watcher {
+        private final String userId;
+        private final String batchId;
+        private final SseEmitter emitter;
+        private final DeferredResult<ResponseEntity<?>> deferred;
+
+        // Guarded by the batch's log: last change number sent (or skipped on registering)
+        private long seen;
+
+        // Guarded by this
+        private BatchStatusResponse pending;
+        private boolean heartbeatDue;
+        private boolean sending;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Watcher(String userId, String batchId, SseEmitter emitter, DeferredResult<ResponseEntity<?>> deferred) {
+            this.userId = userId;
+            this.batchId = batchId;
+            this.emitter = emitter;
+            this.deferred = deferred;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.ImageMetadata;
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.features.photos.service.ThumbnailService;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.storage.StorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Post-complete stage: find out what an upload actually is from its first bytes
+ *
+ * Completion only checks that the object exists with the declared size. Once a photo
+ * is UPLOADED, this fetches the first inspection.head-bytes of the object with a ranged
+ * GET (never the whole object, so a 1 GB upload costs the same as a 1 MB one), then:
+ * - Checks the magic bytes: content that isn't a supported image is rejected (the
+ *   photo becomes FAILED and the object is deleted, see ContentRejectionWriter)
+ * - Stores format, dimensions, orientation, capture time, camera and GPS position
+ *   as typed columns (see ImageHeaderParser, ImageMetadata)
+ * - Queues derivative generation, so thumbnails are only made for real images
+ *
+ * Same shape as ThumbnailService: post-commit trigger, bounded queue, backfill sweep
+ * for photos missed while the queue was full or on a storage error. Workers wait on
+ * the network rather than the CPU, so there are more of them.
+ *
+ * Metrics: uploads.inspection.queue.depth, uploads.inspections{result=image|rejected|missing}
+ */
+@Service
+public class ContentInspectionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentInspectionService.class);
+
+    static final String NOT_AN_IMAGE = "Not a supported image";
+    // Leave just-uploaded photos to the post-commit trigger
+    private static final Duration BACKFILL_SETTLE = Duration.ofMinutes(2);
+
+    private final PhotoRepository photoRepository;
+    private final StorageService storageService;
+    private final ContentRejectionWriter rejectionWriter;
+    private final ThumbnailService thumbnailService;
+    private final int headBytes;
+    private final ThreadPoolExecutor executor;
+
+    private final Counter images;
+    private final Counter rejected;
+    private final Counter missing;
+
+    // Photos queued or being inspected (so the sweep doesn't queue them twice)
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ContentInspectionService(PhotoRepository photoRepository,
+                                    StorageService storageService,
+                                    ContentRejectionWriter rejectionWriter,
+                                    ThumbnailService thumbnailService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${inspection.threads:8}") int threads,
+                                    @Value("${inspection.max-queued:1000}") int maxQueued,
+                                    @Value("${inspection.head-bytes:65536}") int headBytes) {
+        this.photoRepository = photoRepository;
+        this.storageService = storageService;
+        this.rejectionWriter = rejectionWriter;
+        this.thumbnailService = thumbnailService;
+        this.headBytes = headBytes;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(maxQueued), runnable -> {
+                Thread worker = new Thread(runnable, "inspection-" + threadIndex.getAndIncrement());
+                worker.setDaemon(true);
+                return worker;
+            });
+        Gauge.builder("uploads.inspection.queue.depth", executor, e -> e.getQueue().size())
+            .description("Uploaded photos waiting for content inspection")
+            .register(meterRegistry);
+        this.images = inspectionCounter(meterRegistry, "image");
+        this.rejected = inspectionCounter(meterRegistry, "rejected");
+        this.missing = inspectionCounter(meterRegistry, "missing");
+    }
+
+    /**
+     * Queue inspection of a photo that just became UPLOADED.
+     * Call after the status is committed. Never blocks; skipped if the queue is full.
+     */
+    public void enqueue(Photo photo) {
+        if (!submit(photo)) {
+            log.debug("Inspection queue full, left for backfill: photoId={}", photo.getId());
+        }
+    }
+
+    /**
+     * Queue uploaded photos never inspected (missed while the queue was full, failed on
+     * a storage error, or uploaded before inspection existed)
+     */
+    @Scheduled(fixedDelayString = "${inspection.backfill-interval-ms:60000}")
+    public void backfill() {
+        int room = executor.getQueue().remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        List<Photo> pending = photoRepository.findTop100ByInspectedAtIsNullAndStatusAndUpdatedAtBefore(
+            PhotoStatus.UPLOADED, LocalDateTime.now().minus(BACKFILL_SETTLE));
+        int queued = 0;
+        for (Photo photo : pending) {
+            if (queued >= room || !submit(photo)) {
+                break;
+            }
+            queued++;
+        }
+        if (queued > 0) {
+            log.info("Inspection backfill queued: photos={}", queued);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean submit(Photo photo) {
+        if (!inFlight.add(photo.getId())) {
+            return true;
+        }
+        try {
+            executor.execute(() -> run(photo));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(photo.getId());
+            return false;
+        }
+    }
+
+    private void run(Photo photo) {
+        try {
+            inspect(photo);
+        } catch (RuntimeException e) {
+            // Left uninspected: the backfill sweep retries it
+            log.warn("Content inspection failed: photoId={}, error={}", photo.getId(), e.getMessage());
+        } finally {
+            inFlight.remove(photo.getId());
+        }
+    }
+
+    void inspect(Photo photo) {
+        Optional<byte[]> head = storageService.readObjectHead(photo.getS3Key(), headBytes);
+        if (head.isEmpty()) {
+            // Deleted since it was uploaded
+            missing.increment();
+            photoRepository.setInspected(photo.getId(), null);
+            return;
+        }
+
+        ImageMetadata metadata = ImageHeaderParser.parse(head.get());
+        if (metadata == null) {
+            rejected.increment();
+            log.info("Uploaded content is not an image: photoId={}, s3Key={}", photo.getId(), photo.getS3Key());
+            rejectionWriter.reject(photo.getS3Key(), NOT_AN_IMAGE);
+            return;
+        }
+
+        images.increment();
+        photoRepository.setInspected(photo.getId(), metadata);
+        photo.setImageMetadata(metadata);
+        photo.setInspectedAt(LocalDateTime.now());
+        if (photo.getDerivativesProcessedAt() == null) {
+            thumbnailService.enqueue(photo);
+        }
+    }
+
+    private static Counter inspectionCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("uploads.inspections")
+            .description("Uploaded photos inspected, by outcome")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
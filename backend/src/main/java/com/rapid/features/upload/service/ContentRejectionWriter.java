@@ -0,0 +1,105 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.UploadBatchRepository;
+import com.rapid.infrastructure.service.ContentIndexService;
+import com.rapid.infrastructure.service.StorageReclaimService;
+import com.rapid.infrastructure.service.TagCountService;
+import com.rapid.infrastructure.service.UserQuotaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * COMMAND SERVICE: Take back completed uploads whose content isn't an image
+ *
+ * Completion only verifies that the object exists with the declared size; inspection
+ * (ContentInspectionService) finds out what it is afterwards. When it isn't an image,
+ * every UPLOADED photo of the object becomes FAILED, as if the upload had failed:
+ * - Batch counters move from completed to failed, and watchers see the change
+ * - The committed storage goes back to the user's quota, and any tags leave the facets
+ * - The object (and any derivatives) goes to the deletion outbox with the change
+ *
+ * Photos sharing the object through deduplication are rejected with it, since they
+ * have the same content. Idempotent: only rows that were still UPLOADED change.
+ */
+@Service
+public class ContentRejectionWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentRejectionWriter.class);
+
+    private final PhotoRepository photoRepository;
+    private final UploadBatchRepository uploadBatchRepository;
+    private final UserQuotaService userQuotaService;
+    private final BatchProgressService batchProgressService;
+    private final ContentIndexService contentIndexService;
+    private final TagCountService tagCountService;
+    private final StorageReclaimService storageReclaimService;
+
+    public ContentRejectionWriter(PhotoRepository photoRepository,
+                                  UploadBatchRepository uploadBatchRepository,
+                                  UserQuotaService userQuotaService,
+                                  BatchProgressService batchProgressService,
+                                  ContentIndexService contentIndexService,
+                                  TagCountService tagCountService,
+                                  StorageReclaimService storageReclaimService) {
+        this.photoRepository = photoRepository;
+        this.uploadBatchRepository = uploadBatchRepository;
+        this.userQuotaService = userQuotaService;
+        this.batchProgressService = batchProgressService;
+        this.contentIndexService = contentIndexService;
+        this.tagCountService = tagCountService;
+        this.storageReclaimService = storageReclaimService;
+    }
+
+    /**
+     * Reject an object's content: fail all its uploaded photos and delete it
+     * @return Number of photos that moved to FAILED
+     */
+    @Transactional
+    public int reject(String s3Key, String errorMessage) {
+        // First, so that no new reference to the object can be taken until this commits
+        contentIndexService.unregister(s3Key);
+        List<String> rejectedIds = photoRepository.markRejected(s3Key, errorMessage);
+        if (rejectedIds.isEmpty()) {
+            return 0; // Deleted or already rejected
+        }
+
+        List<Photo> rejected = photoRepository.findAllById(rejectedIds);
+        Map<String, Integer> rejectedPerBatch = new HashMap<>();
+        List<String> objectKeys = new ArrayList<>(List.of(s3Key));
+        String userId = rejected.get(0).getUser().getId();
+        for (Photo photo : rejected) {
+            // Only the photo carrying the object's bytes has storage committed
+            if (!photo.isDeduplicated()) {
+                userQuotaService.uncommit(userId, photo.getFileSizeBytes());
+            }
+            if (photo.getTags() != null && !photo.getTags().isEmpty()) {
+                tagCountService.photoTagsChanged(userId, photo.getTags(), List.of());
+            }
+            if (photo.getThumbnailKey() != null && !objectKeys.contains(photo.getThumbnailKey())) {
+                objectKeys.add(photo.getThumbnailKey());
+            }
+            if (photo.getPreviewKey() != null && !objectKeys.contains(photo.getPreviewKey())) {
+                objectKeys.add(photo.getPreviewKey());
+            }
+            rejectedPerBatch.merge(photo.getBatch().getId(), 1, Integer::sum);
+            batchProgressService.photoChanged(photo.getBatch().getId(), photo.getId(), photo.getOriginalFilename(),
+                PhotoStatus.FAILED, errorMessage);
+        }
+        rejectedPerBatch.forEach(uploadBatchRepository::moveCompletedToFailed);
+
+        storageReclaimService.enqueue(userId, objectKeys);
+
+        log.info("Upload content rejected: s3Key={}, photos={}, reason={}", s3Key, rejected.size(), errorMessage);
+        return rejected.size();
+    }
+}
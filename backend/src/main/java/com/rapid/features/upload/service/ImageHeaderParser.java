@@ -0,0 +1,456 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.ImageMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Identifies an image from its first bytes and reads what its header and EXIF say
+ *
+ * Works on a prefix of the file (what a ranged GET returned): containers are walked
+ * forward, segment by segment, without decoding any pixels, and anything past the end
+ * of the prefix is simply not reported. Malformed or truncated metadata is skipped;
+ * only the magic bytes decide whether the content is an image.
+ *
+ * - JPEG: EXIF (APP1) and dimensions from the frame header (SOFn)
+ * - PNG: dimensions from IHDR, EXIF from an eXIf chunk
+ * - WebP: dimensions from VP8/VP8L/VP8X, EXIF from an EXIF chunk
+ * - TIFF: EXIF is the file's own header
+ * - GIF, HEIC/HEIF, AVIF: format and (GIF) dimensions
+ */
+final class ImageHeaderParser {
+
+    static final String JPEG = "image/jpeg";
+    static final String PNG = "image/png";
+    static final String GIF = "image/gif";
+    static final String WEBP = "image/webp";
+    static final String TIFF = "image/tiff";
+    static final String HEIC = "image/heic";
+    static final String HEIF = "image/heif";
+    static final String AVIF = "image/avif";
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] EXIF_PREFIX = {'E', 'x', 'i', 'f', 0, 0};
+    private static final DateTimeFormatter EXIF_DATE_TIME = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+    private static final int MAX_IFD_ENTRIES = 1000;
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    // TIFF tags (IFD0, Exif IFD, GPS IFD)
+    private static final int TAG_IMAGE_WIDTH = 0x0100;
+    private static final int TAG_IMAGE_LENGTH = 0x0101;
+    private static final int TAG_MAKE = 0x010F;
+    private static final int TAG_MODEL = 0x0110;
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_GPS_IFD = 0x8825;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    private static final int TAG_PIXEL_X_DIMENSION = 0xA002;
+    private static final int TAG_PIXEL_Y_DIMENSION = 0xA003;
+    private static final int TAG_GPS_LATITUDE_REF = 0x0001;
+    private static final int TAG_GPS_LATITUDE = 0x0002;
+    private static final int TAG_GPS_LONGITUDE_REF = 0x0003;
+    private static final int TAG_GPS_LONGITUDE = 0x0004;
+
+    // TIFF field types, by size in bytes (index = type)
+    private static final int[] TYPE_SIZES = {0, 1, 1, 2, 4, 8, 1, 1, 2, 4, 8, 4, 8};
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_RATIONAL = 5;
+
+    private ImageHeaderParser() {
+    }
+
+    /**
+     * @param head First bytes of the file (64 KB is enough for nearly all metadata)
+     * @return Metadata, or null if the bytes don't start like a supported image
+     */
+    static ImageMetadata parse(byte[] head) {
+        if (startsWith(head, 0, new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF})) {
+            return jpeg(head);
+        }
+        if (startsWith(head, 0, PNG_SIGNATURE)) {
+            return png(head);
+        }
+        if (startsWith(head, 0, ascii("GIF87a")) || startsWith(head, 0, ascii("GIF89a"))) {
+            ImageMetadata metadata = new ImageMetadata(GIF);
+            if (head.length >= 10) {
+                setDimensions(metadata, u16le(head, 6), u16le(head, 8));
+            }
+            return metadata;
+        }
+        if (startsWith(head, 0, ascii("RIFF")) && startsWith(head, 8, ascii("WEBP"))) {
+            return webp(head);
+        }
+        if (startsWith(head, 0, ascii("II*\0")) || startsWith(head, 0, ascii("MM\0*"))) {
+            ImageMetadata metadata = new ImageMetadata(TIFF);
+            readExif(head, 0, head.length, metadata);
+            return metadata;
+        }
+        if (startsWith(head, 4, ascii("ftyp")) && head.length >= 12) {
+            String mediaType = isoMediaType(new String(head, 8, 4, StandardCharsets.US_ASCII));
+            return mediaType != null ? new ImageMetadata(mediaType) : null;
+        }
+        return null;
+    }
+
+    private static ImageMetadata jpeg(byte[] b) {
+        ImageMetadata metadata = new ImageMetadata(JPEG);
+        int pos = 2;
+        while (pos + 4 <= b.length) {
+            if ((b[pos] & 0xFF) != 0xFF) {
+                break; // Lost sync: not a marker where one should be
+            }
+            int marker = b[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                pos++; // Fill byte
+                continue;
+            }
+            pos += 2;
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                continue; // Standalone markers (no length)
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                break; // End of image, or start of the entropy-coded data
+            }
+            int length = u16be(b, pos);
+            if (length < 2) {
+                break;
+            }
+            int data = pos + 2;
+            int end = Math.min(pos + length, b.length);
+            if (marker == 0xE1 && startsWith(b, data, EXIF_PREFIX)) {
+                readExif(b, data + EXIF_PREFIX.length, end, metadata);
+            } else if (isStartOfFrame(marker) && data + 5 <= b.length) {
+                // Frame header: precision, height, width (the authoritative dimensions)
+                metadata.setHeight(u16be(b, data + 1));
+                metadata.setWidth(u16be(b, data + 3));
+            }
+            pos += length;
+        }
+        return metadata;
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static ImageMetadata png(byte[] b) {
+        ImageMetadata metadata = new ImageMetadata(PNG);
+        int pos = PNG_SIGNATURE.length;
+        while (pos + 8 <= b.length) {
+            long length = u32be(b, pos);
+            String type = new String(b, pos + 4, 4, StandardCharsets.US_ASCII);
+            int data = pos + 8;
+            if (type.equals("IHDR") && data + 8 <= b.length) {
+                setDimensions(metadata, u32be(b, data), u32be(b, data + 4));
+            } else if (type.equals("eXIf")) {
+                readExif(b, data, (int) Math.min(data + length, b.length), metadata);
+            } else if (type.equals("IDAT") || type.equals("IEND")) {
+                break; // Metadata chunks that matter come before the image data
+            }
+            if (length > Integer.MAX_VALUE - 12 - pos) {
+                break;
+            }
+            pos = data + (int) length + 4; // Data, then CRC
+        }
+        return metadata;
+    }
+
+    private static ImageMetadata webp(byte[] b) {
+        ImageMetadata metadata = new ImageMetadata(WEBP);
+        int pos = 12;
+        while (pos + 8 <= b.length) {
+            String type = new String(b, pos, 4, StandardCharsets.US_ASCII);
+            long length = u32le(b, pos + 4);
+            int data = pos + 8;
+            if (type.equals("VP8X") && data + 10 <= b.length) {
+                setDimensions(metadata, u24le(b, data + 4) + 1, u24le(b, data + 7) + 1);
+            } else if (type.equals("VP8 ") && data + 10 <= b.length && metadata.getWidth() == null) {
+                // Key frame: 3-byte tag, start code, then 14-bit width and height
+                setDimensions(metadata, u16le(b, data + 6) & 0x3FFF, u16le(b, data + 8) & 0x3FFF);
+            } else if (type.equals("VP8L") && data + 5 <= b.length && metadata.getWidth() == null) {
+                // Signature byte, then 14-bit width - 1 and height - 1, packed
+                long bits = u32le(b, data + 1);
+                setDimensions(metadata, (bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1);
+            } else if (type.equals("EXIF")) {
+                int exif = startsWith(b, data, EXIF_PREFIX) ? data + EXIF_PREFIX.length : data;
+                readExif(b, exif, (int) Math.min(data + length, b.length), metadata);
+            }
+            if (length > Integer.MAX_VALUE - 9 - pos) {
+                break;
+            }
+            pos = data + (int) length + (int) (length & 1); // Chunks are padded to even sizes
+        }
+        return metadata;
+    }
+
+    // ISO base media file brands used for still images
+    private static String isoMediaType(String brand) {
+        return switch (brand) {
+            case "heic", "heix", "heim", "heis" -> HEIC;
+            case "mif1", "msf1", "hevc", "hevx" -> HEIF;
+            case "avif", "avis" -> AVIF;
+            default -> null;
+        };
+    }
+
+    /**
+     * Read a TIFF structure (EXIF payload) into the metadata. Offsets inside it are
+     * relative to its start; entries pointing past end are ignored.
+     */
+    private static void readExif(byte[] b, int start, int end, ImageMetadata metadata) {
+        try {
+            new TiffReader(b, start, end).read(metadata);
+        } catch (IndexOutOfBoundsException e) {
+            // Truncated or malformed: keep what was read before it
+        }
+    }
+
+    private static final class TiffReader {
+        private final byte[] b;
+        private final int start;
+        private final int end;
+        private final boolean littleEndian;
+
+        private Long ifdWidth;
+        private Long ifdHeight;
+        private Long pixelWidth;
+        private Long pixelHeight;
+        private String latitudeRef;
+        private Double latitude;
+        private String longitudeRef;
+        private Double longitude;
+
+        TiffReader(byte[] b, int start, int end) {
+            if (end - start < 8) {
+                throw new IndexOutOfBoundsException("TIFF header");
+            }
+            this.b = b;
+            this.start = start;
+            this.end = end;
+            if (b[start] == 'I' && b[start + 1] == 'I') {
+                this.littleEndian = true;
+            } else if (b[start] == 'M' && b[start + 1] == 'M') {
+                this.littleEndian = false;
+            } else {
+                throw new IndexOutOfBoundsException("TIFF byte order");
+            }
+        }
+
+        void read(ImageMetadata metadata) {
+            try {
+                readIfd(u32(4), 0, metadata);
+            } finally {
+                // Whatever was read, even if a later IFD is cut off
+                if (metadata.getWidth() == null) {
+                    setDimensions(metadata, pixelWidth != null ? pixelWidth : ifdWidth,
+                        pixelHeight != null ? pixelHeight : ifdHeight);
+                }
+                if (latitude != null && longitude != null) {
+                    double lat = "S".equals(latitudeRef) ? -latitude : latitude;
+                    double lon = "W".equals(longitudeRef) ? -longitude : longitude;
+                    if (Math.abs(lat) <= 90 && Math.abs(lon) <= 180) {
+                        metadata.setGpsLatitude(lat);
+                        metadata.setGpsLongitude(lon);
+                    }
+                }
+            }
+        }
+
+        // kind: 0 = IFD0, 1 = Exif IFD, 2 = GPS IFD
+        private void readIfd(long offset, int kind, ImageMetadata metadata) {
+            int ifd = position(offset, 2);
+            int count = u16(ifd - start);
+            if (count > MAX_IFD_ENTRIES) {
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                int entry = ifd + 2 + i * 12;
+                position(entry - start, 12);
+                int tag = u16(entry - start);
+                int type = u16(entry - start + 2);
+                long n = u32(entry - start + 4);
+                if (type <= 0 || type >= TYPE_SIZES.length || n <= 0 || n > end - start) {
+                    continue;
+                }
+                long size = n * TYPE_SIZES[type];
+                int value = size <= 4 ? entry + 8 : position(u32(entry - start + 8), size);
+                switch (kind) {
+                    case 0 -> readIfd0Entry(tag, type, value, (int) n, metadata);
+                    case 1 -> readExifEntry(tag, type, value, (int) n, metadata);
+                    default -> readGpsEntry(tag, type, value, (int) n);
+                }
+            }
+        }
+
+        private void readIfd0Entry(int tag, int type, int value, int n, ImageMetadata metadata) {
+            switch (tag) {
+                case TAG_MAKE -> metadata.setCameraMake(text(value, n));
+                case TAG_MODEL -> metadata.setCameraModel(text(value, n));
+                case TAG_ORIENTATION -> {
+                    Long orientation = integer(type, value);
+                    if (orientation != null && orientation >= 1 && orientation <= 8) {
+                        metadata.setOrientation(orientation.intValue());
+                    }
+                }
+                case TAG_IMAGE_WIDTH -> ifdWidth = integer(type, value);
+                case TAG_IMAGE_LENGTH -> ifdHeight = integer(type, value);
+                case TAG_EXIF_IFD -> subIfd(type, value, 1, metadata);
+                case TAG_GPS_IFD -> subIfd(type, value, 2, metadata);
+                default -> {
+                }
+            }
+        }
+
+        private void readExifEntry(int tag, int type, int value, int n, ImageMetadata metadata) {
+            switch (tag) {
+                case TAG_DATE_TIME_ORIGINAL -> metadata.setCapturedAt(dateTime(text(value, n)));
+                case TAG_PIXEL_X_DIMENSION -> pixelWidth = integer(type, value);
+                case TAG_PIXEL_Y_DIMENSION -> pixelHeight = integer(type, value);
+                default -> {
+                }
+            }
+        }
+
+        private void readGpsEntry(int tag, int type, int value, int n) {
+            switch (tag) {
+                case TAG_GPS_LATITUDE_REF -> latitudeRef = text(value, n);
+                case TAG_GPS_LATITUDE -> latitude = degrees(type, value, n);
+                case TAG_GPS_LONGITUDE_REF -> longitudeRef = text(value, n);
+                case TAG_GPS_LONGITUDE -> longitude = degrees(type, value, n);
+                default -> {
+                }
+            }
+        }
+
+        private void subIfd(int type, int value, int kind, ImageMetadata metadata) {
+            Long offset = integer(type, value);
+            if (offset != null) {
+                try {
+                    readIfd(offset, kind, metadata);
+                } catch (IndexOutOfBoundsException e) {
+                    // Sub-IFD cut off: the rest of IFD0 is still readable
+                }
+            }
+        }
+
+        private Long integer(int type, int value) {
+            if (type == TYPE_SHORT) {
+                return (long) u16(value - start);
+            }
+            if (type == TYPE_LONG) {
+                return u32(value - start);
+            }
+            return null;
+        }
+
+        // Degrees, minutes, seconds as three rationals
+        private Double degrees(int type, int value, int n) {
+            if (type != TYPE_RATIONAL || n != 3) {
+                return null;
+            }
+            double result = 0;
+            double unit = 1;
+            for (int i = 0; i < 3; i++) {
+                long numerator = u32(value - start + i * 8);
+                long denominator = u32(value - start + i * 8 + 4);
+                if (denominator == 0) {
+                    return null;
+                }
+                result += (double) numerator / denominator / unit;
+                unit *= 60;
+            }
+            return result;
+        }
+
+        private String text(int value, int n) {
+            int length = 0;
+            while (length < n && b[value + length] != 0) {
+                length++;
+            }
+            String text = new String(b, value, Math.min(length, MAX_TEXT_LENGTH), StandardCharsets.ISO_8859_1).trim();
+            return text.isEmpty() ? null : text;
+        }
+
+        // Absolute index of a range inside the TIFF structure
+        private int position(long offset, long length) {
+            if (offset < 0 || offset + length > end - start) {
+                throw new IndexOutOfBoundsException("TIFF offset " + offset);
+            }
+            return start + (int) offset;
+        }
+
+        private int u16(int offset) {
+            int at = position(offset, 2);
+            return littleEndian ? u16le(b, at) : u16be(b, at);
+        }
+
+        private long u32(int offset) {
+            int at = position(offset, 4);
+            return littleEndian ? u32le(b, at) : u32be(b, at);
+        }
+    }
+
+    private static LocalDateTime dateTime(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(text, EXIF_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            return null; // e.g. "0000:00:00 00:00:00" from cameras without a clock
+        }
+    }
+
+    private static void setDimensions(ImageMetadata metadata, Long width, Long height) {
+        if (width != null && height != null) {
+            setDimensions(metadata, (long) width, (long) height);
+        }
+    }
+
+    private static void setDimensions(ImageMetadata metadata, long width, long height) {
+        if (width > 0 && height > 0 && width <= Integer.MAX_VALUE && height <= Integer.MAX_VALUE) {
+            metadata.setWidth((int) width);
+            metadata.setHeight((int) height);
+        }
+    }
+
+    private static boolean startsWith(byte[] b, int offset, byte[] prefix) {
+        if (offset < 0 || offset + prefix.length > b.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (b[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static int u16be(byte[] b, int i) {
+        return ((b[i] & 0xFF) << 8) | (b[i + 1] & 0xFF);
+    }
+
+    private static int u16le(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8);
+    }
+
+    private static int u24le(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16);
+    }
+
+    private static long u32be(byte[] b, int i) {
+        return ((long) u16be(b, i) << 16) | u16be(b, i + 2);
+    }
+
+    private static long u32le(byte[] b, int i) {
+        return u16le(b, i) | ((long) u16le(b, i + 2) << 16);
+    }
+}
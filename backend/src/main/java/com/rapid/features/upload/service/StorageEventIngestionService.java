@@ -0,0 +1,97 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.storage.StorageEvent;
+import com.rapid.infrastructure.storage.StorageEventSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * COMMAND SERVICE: Complete uploads from storage (ObjectCreated) events
+ *
+ * Lets uploads complete without the client calling /api/upload/complete: the
+ * storage notification already carries the object's size, so no HEAD is needed.
+ * Events are drained in batches, matched to photos by s3Key in one query and
+ * written through the same idempotent path as batch complete (UploadCompletionWriter),
+ * so a client callback arriving before or after the event is harmless.
+ *
+ * Events for keys that don't belong to a photo are acknowledged and ignored.
+ */
+@Service
+public class StorageEventIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageEventIngestionService.class);
+
+    @Autowired
+    private StorageEventSource eventSource;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private UploadCompletionWriter completionWriter;
+
+    @Value("${storage.events.max-batch:500}")
+    private int maxBatch;
+
+    @Scheduled(fixedDelayString = "${storage.events.poll-interval-ms:1000}")
+    public void ingest() {
+        List<StorageEvent> events = eventSource.poll(maxBatch);
+        if (events.isEmpty()) {
+            return;
+        }
+
+        try {
+            completionWriter.apply(toOutcomes(events));
+            eventSource.acknowledge(events);
+        } catch (RuntimeException e) {
+            // Left unacknowledged: the source delivers them again after its visibility timeout
+            log.error("Failed to ingest storage events: count={}, error={}", events.size(), e.getMessage(), e);
+        }
+    }
+
+    private List<UploadCompletionWriter.Outcome> toOutcomes(List<StorageEvent> events) {
+        // Latest event wins if an object was written more than once
+        Map<String, StorageEvent> eventsByKey = new LinkedHashMap<>();
+        for (StorageEvent event : events) {
+            eventsByKey.put(event.s3Key(), event);
+        }
+
+        Map<String, Photo> photosByKey = new HashMap<>();
+        for (Photo photo : photoRepository.findByS3KeyIn(eventsByKey.keySet())) {
+            photosByKey.put(photo.getS3Key(), photo);
+        }
+
+        List<UploadCompletionWriter.Outcome> outcomes = new ArrayList<>(photosByKey.size());
+        for (StorageEvent event : eventsByKey.values()) {
+            Photo photo = photosByKey.get(event.s3Key());
+            if (photo == null) {
+                log.debug("Storage event for unknown key, ignoring: s3Key={}", event.s3Key());
+                continue;
+            }
+            if (photo.getStatus() != PhotoStatus.PENDING && photo.getStatus() != PhotoStatus.UPLOADING) {
+                continue; // Client already completed it, or it failed / expired meanwhile
+            }
+            if (event.sizeBytes() != photo.getFileSizeBytes()) {
+                log.error("Size mismatch: expected={}, actual={}, photoId={}",
+                    photo.getFileSizeBytes(), event.sizeBytes(), photo.getId());
+                outcomes.add(UploadCompletionWriter.Outcome.failed(photo, "File size mismatch"));
+            } else {
+                outcomes.add(UploadCompletionWriter.Outcome.uploaded(photo, event.sizeBytes()));
+            }
+        }
+        return outcomes;
+    }
+}
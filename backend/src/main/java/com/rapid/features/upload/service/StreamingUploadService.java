@@ -0,0 +1,179 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.infrastructure.exceptions.LimitExceededException;
+import com.rapid.infrastructure.exceptions.UploadNoLongerInProgressException;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.storage.StorageService;
+import com.rapid.infrastructure.storage.UploadedPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * COMMAND SERVICE: Upload through the API for clients that can't reach S3 directly
+ *
+ * The request body is piped to S3 through one reused buffer per upload: files up to
+ * one part go up as a single PUT, larger ones as multipart parts. Nothing is spooled
+ * to disk, and memory per upload is bounded by the part size (5 MiB by default)
+ * whatever the file size. Size and SHA-256 are computed while reading; the photo is
+ * marked UPLOADED (with its checksum) in one transaction once S3 has the object.
+ *
+ * The photo must be initiated first (/initiate), which reserves quota as usual. A long
+ * stream records activity every touch-interval so the expiry sweep leaves it alone; if
+ * the photo expired or failed anyway, the stream stops (or its finished object is
+ * reclaimed) and the client gets 409.
+ */
+@Service
+public class StreamingUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingUploadService.class);
+
+    private final PhotoRepository photoRepository;
+    private final StorageService storageService;
+    private final UploadCompletionWriter completionWriter;
+    private final long partSizeBytes;
+    private final long touchIntervalNanos;
+    private final Semaphore inFlight;
+
+    public StreamingUploadService(
+            PhotoRepository photoRepository,
+            StorageService storageService,
+            UploadCompletionWriter completionWriter,
+            @Value("${upload.stream.part-size-bytes:5242880}") long partSizeBytes,
+            @Value("${upload.stream.max-concurrent:32}") int maxConcurrent,
+            @Value("${upload.stream.touch-interval-ms:60000}") long touchIntervalMs) {
+        this.photoRepository = photoRepository;
+        this.storageService = storageService;
+        this.completionWriter = completionWriter;
+        this.partSizeBytes = partSizeBytes;
+        this.touchIntervalNanos = TimeUnit.MILLISECONDS.toNanos(touchIntervalMs);
+        this.inFlight = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Stream an initiated photo's content to storage and mark it uploaded
+     * @param body Request body; must be exactly the size given at initiate
+     * @throws UploadNoLongerInProgressException if the photo expired or failed mid-stream
+     */
+    public void streamUpload(String userId, String photoId, String contentType, InputStream body) {
+        Photo photo = photoRepository.findByIdAndUserId(photoId, userId)
+            .orElseThrow(() -> new RuntimeException("Photo not found"));
+        if (photo.getStatus() != PhotoStatus.PENDING || photo.getMultipartUploadId() != null) {
+            throw new RuntimeException("Upload is not pending");
+        }
+        // Bounds total buffer memory: max-concurrent x part size
+        if (!inFlight.tryAcquire()) {
+            throw new LimitExceededException("Too many streaming uploads in progress, retry shortly", "STREAM_UPLOADS");
+        }
+        try {
+            String type = contentType != null ? contentType : "application/octet-stream";
+            long expected = photo.getFileSizeBytes();
+            long partSize = UploadCommandService.partSizeFor(expected, partSizeBytes);
+            String sha256 = expected <= partSize
+                ? putSingle(photo, type, body)
+                : putMultipart(photo, type, body, partSize);
+            if (sha256 == null) {
+                completionWriter.apply(List.of(UploadCompletionWriter.Outcome.failed(photo, "File size mismatch")));
+                throw new RuntimeException("File size mismatch");
+            }
+            if (!completionWriter.applyStoredObject(UploadCompletionWriter.Outcome.uploaded(photo, expected, sha256))) {
+                throw new UploadNoLongerInProgressException();
+            }
+            log.info("Streaming upload completed: photoId={}, size={}", photoId, expected);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    // Whole file in one buffer and one PUT; null if the body wasn't the expected size
+    private String putSingle(Photo photo, String contentType, InputStream body) {
+        int size = (int) (long) photo.getFileSizeBytes();
+        byte[] buffer = new byte[size];
+        MessageDigest digest = sha256();
+        if (!readExactly(body, buffer, size, digest) || !atEnd(body)) {
+            return null;
+        }
+        storageService.putObject(photo.getS3Key(), contentType, buffer, size);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // One part at a time through a reused buffer; the S3 upload is aborted on any failure
+    private String putMultipart(Photo photo, String contentType, InputStream body, long partSize) {
+        String uploadId = storageService.createMultipartUpload(photo.getS3Key(), contentType);
+        boolean completed = false;
+        try {
+            byte[] buffer = new byte[(int) partSize];
+            MessageDigest digest = sha256();
+            List<UploadedPart> parts = new ArrayList<>();
+            long remaining = photo.getFileSizeBytes();
+            long touchedAt = System.nanoTime();
+            for (int partNumber = 1; remaining > 0; partNumber++) {
+                int length = (int) Math.min(partSize, remaining);
+                if (!readExactly(body, buffer, length, digest)) {
+                    return null;
+                }
+                parts.add(storageService.uploadPart(photo.getS3Key(), uploadId, partNumber, buffer, length));
+                remaining -= length;
+                if (remaining > 0 && System.nanoTime() - touchedAt >= touchIntervalNanos) {
+                    // Upload activity for the expiry sweep; stop if the photo expired or failed anyway
+                    if (photoRepository.touchIfStatusIn(photo.getId(), EnumSet.of(PhotoStatus.PENDING)) == 0) {
+                        throw new UploadNoLongerInProgressException();
+                    }
+                    touchedAt = System.nanoTime();
+                }
+            }
+            if (!atEnd(body)) {
+                return null;
+            }
+            storageService.completeMultipartUpload(photo.getS3Key(), uploadId, parts);
+            completed = true;
+            return HexFormat.of().formatHex(digest.digest());
+        } finally {
+            if (!completed) {
+                storageService.abortMultipartUpload(photo.getS3Key(), uploadId);
+            }
+        }
+    }
+
+    // Fill buffer[0, length) from the body; false if the body ended early
+    private static boolean readExactly(InputStream body, byte[] buffer, int length, MessageDigest digest) {
+        try {
+            int read = body.readNBytes(buffer, 0, length);
+            digest.update(buffer, 0, read);
+            return read == length;
+        } catch (IOException e) {
+            // Client went away mid-upload: the photo stays PENDING so the upload can be retried
+            throw new RuntimeException("Upload interrupted");
+        }
+    }
+
+    private static boolean atEnd(InputStream body) {
+        try {
+            return body.read() == -1;
+        } catch (IOException e) {
+            throw new RuntimeException("Upload interrupted");
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
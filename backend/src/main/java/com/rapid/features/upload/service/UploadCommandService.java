@@ -1,24 +1,47 @@
 package com.rapid.features.upload.service;
 
+import com.rapid.domain.ImageMetadata;
 import com.rapid.domain.Photo;
 import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.StoredObject;
 import com.rapid.domain.UploadBatch;
 import com.rapid.domain.User;
+import com.rapid.features.photos.service.ThumbnailService;
 import com.rapid.features.upload.dto.BatchCompleteRequest;
+import com.rapid.features.upload.dto.BulkInitiateUploadRequest;
+import com.rapid.features.upload.dto.BulkInitiateUploadResponse;
 import com.rapid.features.upload.dto.InitiateUploadRequest;
 import com.rapid.features.upload.dto.InitiateUploadResponse;
+import com.rapid.features.upload.dto.MultipartUploadResponse;
 import com.rapid.features.upload.dto.UploadCompleteRequest;
+import com.rapid.infrastructure.exceptions.UploadNoLongerInProgressException;
 import com.rapid.infrastructure.repository.PhotoRepository;
 import com.rapid.infrastructure.repository.UploadBatchRepository;
 import com.rapid.infrastructure.repository.UserRepository;
+import com.rapid.infrastructure.service.ContentIndexService;
 import com.rapid.infrastructure.service.LimitsService;
-import com.rapid.infrastructure.storage.S3PresignedUrlService;
+import com.rapid.infrastructure.service.UserQuotaService;
+import com.rapid.infrastructure.storage.MultipartUploadNotFoundException;
+import com.rapid.infrastructure.storage.StorageService;
+import com.rapid.infrastructure.storage.UploadedPart;
+import com.rapid.infrastructure.transaction.TransactionCallbacks;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -30,6 +53,13 @@ public class UploadCommandService {
     
     private static final Logger log = LoggerFactory.getLogger(UploadCommandService.class);
     
+    private static final EnumSet<PhotoStatus> IN_PROGRESS_STATUSES = EnumSet.of(PhotoStatus.PENDING, PhotoStatus.UPLOADING);
+    
+    // S3 multipart limits: every part but the last is at least 5 MiB, at most 10,000 parts
+    private static final long MIB = 1024 * 1024;
+    private static final long S3_MIN_PART_SIZE = 5 * MIB;
+    private static final long S3_MAX_PARTS = 10_000;
+    
     @Autowired
     private PhotoRepository photoRepository;
     
@@ -40,210 +70,715 @@ public class UploadCommandService {
     private UserRepository userRepository;
     
     @Autowired
-    private S3PresignedUrlService s3Service;
+    private StorageService storageService;
     
     @Autowired
     private LimitsService limitsService;
     
+    @Autowired
+    private UserQuotaService userQuotaService;
+    
+    @Autowired
+    private UploadCompletionWriter completionWriter;
+    
+    @Autowired
+    private BatchProgressService batchProgressService;
+    
+    @Autowired
+    private ThumbnailService thumbnailService;
+    
+    @Autowired
+    private ContentInspectionService contentInspectionService;
+    
+    @Autowired
+    private ContentIndexService contentIndexService;
+    
+    @Value("${s3.presigned-url-expiration-minutes}")
+    private int uploadUrlExpirationMinutes;
+    
+    @Value("${s3.multipart.part-size-bytes:8388608}")
+    private long multipartPartSizeBytes;
+    
     @Transactional
     public InitiateUploadResponse initiateUpload(String userId, InitiateUploadRequest request) {
         log.info("Initiate upload: userId={}, batchId={}, filename={}, size={}", 
             userId, request.getBatchId(), request.getFilename(), request.getFileSizeBytes());
         
-        // Check limits before processing upload
-        limitsService.checkFileSizeLimit(request.getFileSizeBytes());
-        limitsService.checkPhotoLimit();
-        limitsService.checkStorageLimit();
-        
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-        
-        // Create or fetch batch
-        UploadBatch batch;
-        if (request.getBatchId() != null && !request.getBatchId().isEmpty()) {
-            log.debug("Using existing/creating batch: {}", request.getBatchId());
-            
-            // Atomically insert batch if not exists (PostgreSQL ON CONFLICT)
-            // This is safe for concurrent requests - all will succeed
-            uploadBatchRepository.insertBatchIfNotExists(request.getBatchId(), userId);
-            
-            // Now fetch it (guaranteed to exist)
-            batch = uploadBatchRepository.findByIdAndUserId(request.getBatchId(), userId)
-                .orElseThrow(() -> new RuntimeException("Batch not found after insert"));
-        } else {
-            log.debug("Creating new batch with auto-generated ID");
-            // No batchId provided - create new batch with auto-generated ID
-            batch = new UploadBatch();
-            batch.setId(UUID.randomUUID().toString());
-            batch.setUser(user);
-            batch.setTotalCount(0);
-            batch = uploadBatchRepository.saveAndFlush(batch);
-            log.debug("Created batch: {}", batch.getId());
+        Photo reference = createStoredReference(userId, request);
+        if (reference != null) {
+            InitiateUploadResponse response = new InitiateUploadResponse(
+                reference.getId(), null, null, reference.getBatch().getId());
+            response.setAlreadyStored(true);
+            return response;
         }
         
-        // Atomically increment total count using database-level update
-        uploadBatchRepository.incrementTotalCount(batch.getId());
-        
-        // Generate S3 key BEFORE saving photo (s3_key is NOT NULL)
-        String s3Key = userId + "/" + System.currentTimeMillis() + "_" + UUID.randomUUID() + "_" + request.getFilename();
-        
-        // Create Photo record with S3 key set
-        Photo photo = new Photo();
-        photo.setUser(user);
-        photo.setBatch(batch);
-        photo.setOriginalFilename(request.getFilename());
-        photo.setFileSizeBytes(request.getFileSizeBytes());
-        photo.setS3Key(s3Key);
-        photo.setStatus(PhotoStatus.PENDING);
-        photo = photoRepository.save(photo);
+        Photo photo = createPendingPhoto(userId, request, false);
         
         // Generate presigned URL
-        String presignedUrl = s3Service.generatePresignedPutUrl(userId, s3Key);
+        String presignedUrl = storageService.generatePresignedPutUrl(userId, photo.getS3Key());
         
-        log.info("Upload initiated: photoId={}, batchId={}", photo.getId(), batch.getId());
+        log.info("Upload initiated: photoId={}, batchId={}", photo.getId(), photo.getBatch().getId());
         
         return new InitiateUploadResponse(
             photo.getId(),
             presignedUrl,
             30,
-            batch.getId()
+            photo.getBatch().getId()
         );
     }
     
+    /**
+     * Initiate a large file as an S3 multipart upload
+     * 
+     * Returns a presigned URL per part so the client can upload parts in parallel and
+     * retry a failed part on its own instead of restarting the whole file. The part size
+     * is chosen from the file size (see partSizeFor). Finish with completeMultipartUpload;
+     * getMissingParts re-presigns whatever still needs uploading (resume / expired URLs).
+     */
+    @Transactional
+    public MultipartUploadResponse initiateMultipartUpload(String userId, InitiateUploadRequest request) {
+        log.info("Initiate multipart upload: userId={}, batchId={}, filename={}, size={}", 
+            userId, request.getBatchId(), request.getFilename(), request.getFileSizeBytes());
+        
+        Photo reference = createStoredReference(userId, request);
+        if (reference != null) {
+            MultipartUploadResponse response = new MultipartUploadResponse(
+                reference.getId(), reference.getBatch().getId(), null, 0, null, List.of());
+            response.setAlreadyStored(true);
+            return response;
+        }
+        
+        Photo photo = createPendingPhoto(userId, request, true);
+        int partCount = partCount(photo);
+        List<Integer> partNumbers = new ArrayList<>(partCount);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            partNumbers.add(partNumber);
+        }
+        
+        log.info("Multipart upload initiated: photoId={}, batchId={}, partSize={}, parts={}", 
+            photo.getId(), photo.getBatch().getId(), photo.getMultipartPartSizeBytes(), partCount);
+        
+        return multipartResponse(photo, partNumbers);
+    }
+    
+    /**
+     * Presigned URLs for the parts of a multipart upload that are not in S3 yet (or were
+     * uploaded with the wrong size). Also counts as upload activity for the expiry sweep.
+     */
+    public MultipartUploadResponse getMissingParts(String userId, String photoId) {
+        Photo photo = findInProgressMultipart(userId, photoId);
+        List<Integer> missing = missingParts(photo, listParts(photo));
+        photoRepository.touchIfStatusIn(photo.getId(), IN_PROGRESS_STATUSES);
+        
+        log.info("Multipart parts re-presigned: photoId={}, missing={}", photoId, missing.size());
+        return multipartResponse(photo, missing);
+    }
+    
+    /**
+     * Assemble the uploaded parts and mark the photo uploaded
+     * 
+     * Parts are read back from S3 (ListParts), so clients don't have to collect part
+     * ETags. Every part must be present at its expected size. Idempotent: completing an
+     * already completed upload succeeds.
+     * @throws UploadNoLongerInProgressException if the photo expired, failed or was aborted;
+     *         an object assembled meanwhile is queued for reclaim
+     */
+    public void completeMultipartUpload(String userId, String photoId) {
+        log.info("Complete multipart upload: userId={}, photoId={}", userId, photoId);
+        
+        Photo photo = findMultipart(userId, photoId);
+        if (photo.getStatus() == PhotoStatus.UPLOADED) {
+            return;
+        }
+        if (!holdsReservation(photo)) {
+            throw new UploadNoLongerInProgressException();
+        }
+        
+        List<UploadedPart> parts;
+        try {
+            parts = storageService.listParts(photo.getS3Key(), photo.getMultipartUploadId());
+        } catch (MultipartUploadNotFoundException e) {
+            // Completed by a concurrent request (or aborted): trust the object if it is there
+            OptionalLong size = storageService.headObjectSize(photo.getS3Key());
+            if (size.isPresent() && size.getAsLong() == photo.getFileSizeBytes()
+                    && completionWriter.applyStoredObject(UploadCompletionWriter.Outcome.uploaded(photo, size.getAsLong()))) {
+                return;
+            }
+            throw new UploadNoLongerInProgressException();
+        }
+        
+        List<Integer> missing = missingParts(photo, parts);
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Upload incomplete: " + missing.size() + " parts missing");
+        }
+        int partCount = partCount(photo);
+        storageService.completeMultipartUpload(photo.getS3Key(), photo.getMultipartUploadId(),
+            parts.stream().filter(part -> part.partNumber() <= partCount).toList());
+        if (!completionWriter.applyStoredObject(UploadCompletionWriter.Outcome.uploaded(photo, photo.getFileSizeBytes()))) {
+            // Expired or aborted while the parts were assembled
+            throw new UploadNoLongerInProgressException();
+        }
+        
+        log.info("Multipart upload completed: photoId={}, parts={}", photoId, partCount);
+    }
+    
+    /**
+     * Abort a multipart upload: S3 discards the stored parts and the photo is marked FAILED.
+     */
+    public void abortMultipartUpload(String userId, String photoId) {
+        log.info("Abort multipart upload: userId={}, photoId={}", userId, photoId);
+        
+        Photo photo = findMultipart(userId, photoId);
+        if (photo.getStatus() == PhotoStatus.UPLOADED) {
+            throw new RuntimeException("Upload already completed");
+        }
+        storageService.abortMultipartUpload(photo.getS3Key(), photo.getMultipartUploadId());
+        completionWriter.apply(List.of(UploadCompletionWriter.Outcome.failed(photo, "Upload aborted")));
+    }
+    
+    /**
+     * Bulk initiate: Mint presigned URLs for many files in one round trip
+     * 
+     * Does the per-request work of initiateUpload once for the whole list:
+     * - One limit check sized for all files
+     * - One batch upsert and one totalCount increment (by N)
+     * - Photo rows inserted via saveAll (JDBC batching, see hibernate.jdbc.batch_size)
+     * 
+     * @param userId User ID
+     * @param request Files to upload plus optional client-provided batch ID
+     * @return Upload URLs in the same order as the request's files
+     */
     @Transactional
+    public BulkInitiateUploadResponse initiateBulkUpload(String userId, BulkInitiateUploadRequest request) {
+        List<BulkInitiateUploadRequest.FileItem> files = request.getFiles();
+        log.info("Bulk initiate upload: userId={}, batchId={}, fileCount={}", 
+            userId, request.getBatchId(), files.size());
+        
+        // Files the user already stored become references to the stored object (one lookup)
+        List<String> hashes = new ArrayList<>();
+        for (BulkInitiateUploadRequest.FileItem file : files) {
+            if (file.getContentSha256() != null) {
+                hashes.add(normalizeSha256(file.getContentSha256()));
+            }
+        }
+        Map<String, StoredObject> storedByHash = contentIndexService.findStored(userId, hashes);
+        StoredObject[] reused = new StoredObject[files.size()];
+        int reusedCount = 0;
+        for (int i = 0; i < files.size(); i++) {
+            BulkInitiateUploadRequest.FileItem file = files.get(i);
+            StoredObject stored = file.getContentSha256() != null
+                ? storedByHash.get(normalizeSha256(file.getContentSha256()))
+                : null;
+            if (stored != null && contentIndexService.acquire(stored, file.getFileSizeBytes())) {
+                reused[i] = stored;
+                reusedCount++;
+            }
+        }
+        
+        // Check limits once for the whole request (only files to upload take storage)
+        long totalBytes = 0;
+        for (int i = 0; i < files.size(); i++) {
+            if (reused[i] == null) {
+                limitsService.checkFileSizeLimit(files.get(i).getFileSizeBytes());
+                totalBytes += files.get(i).getFileSizeBytes();
+            }
+        }
+        limitsService.checkPhotoLimit(files.size());
+        limitsService.checkStorageLimit(totalBytes);
+        userQuotaService.reserve(userId, totalBytes);
+        
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+        
+        UploadBatch batch = resolveBatch(user, request.getBatchId());
+        uploadBatchRepository.incrementTotalCountBy(batch.getId(), files.size());
+        batchProgressService.countersChanged(batch.getId());
+        
+        Map<String, Photo> processedByKey = reusedCount > 0 ? processedPhotosByKey(reused) : Map.of();
+        List<Photo> photos = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            BulkInitiateUploadRequest.FileItem file = files.get(i);
+            if (reused[i] != null) {
+                photos.add(newStoredReference(user, batch, file.getFilename(), reused[i], processedByKey));
+                continue;
+            }
+            Photo photo = new Photo();
+            photo.setUser(user);
+            photo.setBatch(batch);
+            photo.setOriginalFilename(file.getFilename());
+            photo.setFileSizeBytes(file.getFileSizeBytes());
+            photo.setS3Key(generateS3Key(userId, file.getFilename()));
+            photo.setStatus(PhotoStatus.PENDING);
+            photo.setContentSha256(normalizeSha256(file.getContentSha256()));
+            photos.add(photo);
+        }
+        photos = photoRepository.saveAll(photos);
+        limitsService.recordPhotosCreated(photos.size(), totalBytes);
+        
+        List<InitiateUploadResponse> uploads = new ArrayList<>(photos.size());
+        List<Photo> references = new ArrayList<>(reusedCount);
+        for (Photo photo : photos) {
+            if (photo.isDeduplicated()) {
+                references.add(photo);
+                InitiateUploadResponse upload = new InitiateUploadResponse(photo.getId(), null, null, batch.getId());
+                upload.setAlreadyStored(true);
+                uploads.add(upload);
+                continue;
+            }
+            uploads.add(new InitiateUploadResponse(
+                photo.getId(),
+                storageService.generatePresignedPutUrl(userId, photo.getS3Key()),
+                30,
+                batch.getId()
+            ));
+        }
+        storedReferencesCreated(batch, references);
+        
+        log.info("Bulk upload initiated: batchId={}, photoCount={}", batch.getId(), uploads.size());
+        
+        return new BulkInitiateUploadResponse(batch.getId(), 30, uploads);
+    }
+    
+    /**
+     * Complete a single upload: one HEAD (outside any transaction), then the same guarded
+     * write as batch complete and storage events (UploadCompletionWriter)
+     * 
+     * Idempotent: completing a photo that is already UPLOADED (e.g. by its storage event)
+     * succeeds without writing anything. Photos no longer in progress (failed, expired)
+     * are refused.
+     */
     public void completeUpload(String userId, String photoId, UploadCompleteRequest request) {
         log.info("Complete upload: userId={}, photoId={}, size={}", userId, photoId, request.getFileSizeBytes());
         
         Photo photo = photoRepository.findByIdAndUserId(photoId, userId)
             .orElseThrow(() -> new RuntimeException("Photo not found"));
+        if (photo.getMultipartUploadId() != null) {
+            throw new RuntimeException("Multipart uploads are completed with /multipart/{photoId}/complete");
+        }
+        if (photo.getStatus() == PhotoStatus.UPLOADED) {
+            log.debug("Photo already completed, skipping: photoId={}", photoId);
+            return;
+        }
+        if (!IN_PROGRESS_STATUSES.contains(photo.getStatus())) {
+            throw new RuntimeException("Upload is no longer in progress");
+        }
         
-        // Verify file exists in S3
-        if (!s3Service.verifyFileExists(userId, photo.getS3Key())) {
+        // Verify file exists in S3 and has the expected size (single HEAD)
+        OptionalLong headSize = storageService.headObjectSize(photo.getS3Key());
+        if (headSize.isEmpty()) {
             log.error("S3 verification failed: file not found - photoId={}, s3Key={}", photoId, photo.getS3Key());
-            photo.setStatus(PhotoStatus.FAILED);
-            photo.setErrorMessage("File not found in S3");
-            photoRepository.save(photo);
+            completionWriter.apply(List.of(UploadCompletionWriter.Outcome.failed(photo, "File not found in S3")));
             throw new RuntimeException("Upload verification failed");
         }
         
         // Verify file size
-        long actualSize = s3Service.getFileSizeBytes(userId, photo.getS3Key());
+        long actualSize = headSize.getAsLong();
         if (actualSize != request.getFileSizeBytes()) {
             log.error("Size mismatch: expected={}, actual={}, photoId={}", 
                 request.getFileSizeBytes(), actualSize, photoId);
-            photo.setStatus(PhotoStatus.FAILED);
-            photo.setErrorMessage("File size mismatch");
-            photoRepository.save(photo);
+            completionWriter.apply(List.of(UploadCompletionWriter.Outcome.failed(photo, "File size mismatch")));
             throw new RuntimeException("File size verification failed");
         }
         
-        // Update photo status
-        photo.setStatus(PhotoStatus.UPLOADED);
-        photoRepository.save(photo);
-        
-        // Update batch counts atomically
-        UploadBatch batch = photo.getBatch();
-        uploadBatchRepository.incrementCompletedCount(batch.getId());
+        // Status, quota, content index, batch counter, progress and inspection only move
+        // if this call is the one that changes the row
+        completionWriter.apply(List.of(UploadCompletionWriter.Outcome.uploaded(photo, actualSize)));
         
-        log.info("Upload completed: photoId={}, batchId={}", photoId, batch.getId());
+        log.info("Upload completed: photoId={}, batchId={}", photoId, photo.getBatch().getId());
     }
     
-    @Transactional
+    /**
+     * Client reports an upload as failed. Only an upload still in progress is failed
+     * (guarded write, see UploadCompletionWriter): reporting it again is a no-op, and a
+     * completed photo is refused.
+     */
     public void failUpload(String userId, String photoId, String errorMessage) {
         log.warn("Upload failed: userId={}, photoId={}, error={}", userId, photoId, errorMessage);
         
         Photo photo = photoRepository.findByIdAndUserId(photoId, userId)
             .orElseThrow(() -> new RuntimeException("Photo not found"));
+        if (photo.getStatus() == PhotoStatus.UPLOADED) {
+            throw new RuntimeException("Upload already completed");
+        }
         
-        photo.setStatus(PhotoStatus.FAILED);
-        photo.setErrorMessage(errorMessage);
-        photoRepository.save(photo);
-        
-        UploadBatch batch = photo.getBatch();
-        uploadBatchRepository.incrementFailedCount(batch.getId());
-        
-        log.debug("Batch updated: batchId={}", batch.getId());
+        Set<String> changed = completionWriter.apply(List.of(UploadCompletionWriter.Outcome.failed(photo, errorMessage)));
+        if (changed.contains(photoId)) {
+            abortMultipartAfterCommit(photo);
+        }
     }
     
     /**
-     * Batch complete uploads: Process multiple upload completions in one transaction
-     * This is more efficient than calling completeUpload multiple times
+     * Batch complete uploads: verify all items, then record every outcome in one transaction
+     * 
+     * Stages:
+     * 1. Load all photos in one query
+     * 2. Verify in S3 with a single HEAD per object, issued concurrently (no transaction
+     *    or DB connection held while waiting on S3)
+     * 3. Write all results back in one go (UploadCompletionWriter)
      * 
      * @param userId User ID
      * @param request Batch complete request with list of items
-     * @return Number of successfully processed items
+     * @return Number of items that are uploaded (including ones already completed)
      */
-    @Transactional
     public int batchCompleteUpload(String userId, BatchCompleteRequest request) {
         log.info("Batch complete upload: userId={}, itemCount={}", userId, request.getItems().size());
         
-        int successCount = 0;
-        String batchId = null;
+        Map<String, Photo> photos = new HashMap<>();
+        for (Photo photo : photoRepository.findByIdInAndUserId(
+                request.getItems().stream().map(BatchCompleteRequest.CompleteItem::getPhotoId).toList(), userId)) {
+            photos.put(photo.getId(), photo);
+        }
         
+        int successCount = 0;
+        List<BatchCompleteRequest.CompleteItem> toVerify = new ArrayList<>();
         for (BatchCompleteRequest.CompleteItem item : request.getItems()) {
-            try {
-                Photo photo = photoRepository.findByIdAndUserId(item.getPhotoId(), userId)
-                    .orElseThrow(() -> new RuntimeException("Photo not found: " + item.getPhotoId()));
-                
+            Photo photo = photos.get(item.getPhotoId());
+            if (photo == null) {
+                log.error("Error processing batch complete item: photoId={}, error=Photo not found", item.getPhotoId());
+            } else if (photo.getStatus() == PhotoStatus.UPLOADED) {
                 // Skip if already completed (idempotency)
-                if (photo.getStatus() == PhotoStatus.UPLOADED) {
-                    log.debug("Photo already completed, skipping: photoId={}", item.getPhotoId());
-                    successCount++;
-                    if (batchId == null) {
-                        batchId = photo.getBatch().getId();
-                    }
-                    continue;
-                }
-                
-                // Verify file exists in S3
-                if (!s3Service.verifyFileExists(userId, photo.getS3Key())) {
-                    log.error("S3 verification failed: file not found - photoId={}, s3Key={}", 
-                        item.getPhotoId(), photo.getS3Key());
-                    photo.setStatus(PhotoStatus.FAILED);
-                    photo.setErrorMessage("File not found in S3");
-                    photoRepository.save(photo);
-                    continue; // Skip this item, continue with others
-                }
-                
-                // Verify file size
-                long actualSize = s3Service.getFileSizeBytes(userId, photo.getS3Key());
-                if (actualSize != item.getFileSizeBytes()) {
-                    log.error("Size mismatch: expected={}, actual={}, photoId={}", 
-                        item.getFileSizeBytes(), actualSize, item.getPhotoId());
-                    photo.setStatus(PhotoStatus.FAILED);
-                    photo.setErrorMessage("File size mismatch");
-                    photoRepository.save(photo);
-                    continue; // Skip this item, continue with others
-                }
-                
-                // Update photo status
-                photo.setStatus(PhotoStatus.UPLOADED);
-                photoRepository.save(photo);
-                
-                // Track batch for count update
-                if (batchId == null) {
-                    batchId = photo.getBatch().getId();
-                }
-                
+                log.debug("Photo already completed, skipping: photoId={}", item.getPhotoId());
                 successCount++;
-                
-            } catch (Exception e) {
-                log.error("Error processing batch complete item: photoId={}, error={}", 
-                    item.getPhotoId(), e.getMessage(), e);
-                // Continue with next item (don't fail entire batch)
+            } else if (!IN_PROGRESS_STATUSES.contains(photo.getStatus())) {
+                // Failed or expired: its reservation is gone, so it can't be completed (no HEAD)
+                log.error("Error processing batch complete item: photoId={}, error=Upload no longer in progress",
+                    item.getPhotoId());
+            } else if (photo.getMultipartUploadId() != null) {
+                // Its object only exists once the parts are assembled (completeMultipartUpload)
+                log.error("Error processing batch complete item: photoId={}, error=Multipart upload", item.getPhotoId());
+            } else {
+                toVerify.add(item);
             }
         }
         
-        // Update batch completed count atomically (single update for all successful items)
-        if (batchId != null && successCount > 0) {
-            uploadBatchRepository.incrementCompletedCountBy(batchId, successCount);
-            log.info("Batch updated: batchId={}, addedCompletedCount={}", batchId, successCount);
+        Map<String, OptionalLong> sizes = storageService.headObjectSizes(
+            toVerify.stream().map(item -> photos.get(item.getPhotoId()).getS3Key()).toList());
+        
+        List<UploadCompletionWriter.Outcome> outcomes = new ArrayList<>(toVerify.size());
+        for (BatchCompleteRequest.CompleteItem item : toVerify) {
+            Photo photo = photos.get(item.getPhotoId());
+            OptionalLong actualSize = sizes.get(photo.getS3Key());
+            if (actualSize == null) {
+                // HEAD itself failed (not a 404): leave as-is so the client can retry
+                continue;
+            }
+            if (actualSize.isEmpty()) {
+                log.error("S3 verification failed: file not found - photoId={}, s3Key={}", 
+                    item.getPhotoId(), photo.getS3Key());
+                outcomes.add(UploadCompletionWriter.Outcome.failed(photo, "File not found in S3"));
+            } else if (actualSize.getAsLong() != item.getFileSizeBytes()) {
+                log.error("Size mismatch: expected={}, actual={}, photoId={}", 
+                    item.getFileSizeBytes(), actualSize.getAsLong(), item.getPhotoId());
+                outcomes.add(UploadCompletionWriter.Outcome.failed(photo, "File size mismatch"));
+            } else {
+                outcomes.add(UploadCompletionWriter.Outcome.uploaded(photo, actualSize.getAsLong()));
+                successCount++;
+            }
         }
         
+        completionWriter.apply(outcomes);
+        
         log.info("Batch complete finished: userId={}, totalItems={}, successCount={}", 
             userId, request.getItems().size(), successCount);
         
         return successCount;
     }
+    
+    /**
+     * Expire uploads that were initiated but never completed or reported as failed
+     * (e.g. the client died mid-batch). Their presigned URL has expired, so they are
+     * marked FAILED and their quota reservation is released.
+     * 
+     * Written through the guarded path (UploadCompletionWriter): a completion landing
+     * between the read and the write (late complete call, lagging storage event) wins,
+     * and only photos this sweep actually failed release quota or abort their upload.
+     */
+    @Scheduled(fixedDelayString = "${upload.expiry-sweep-interval-ms:300000}")
+    public void expireStaleUploads() {
+        // Grace period on top of the URL expiry so in-flight PUTs can still complete
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(uploadUrlExpirationMinutes * 2L);
+        List<Photo> stale = photoRepository.findTop500ByStatusInAndUpdatedAtBefore(IN_PROGRESS_STATUSES, cutoff);
+        if (stale.isEmpty()) {
+            return;
+        }
+        
+        List<UploadCompletionWriter.Outcome> outcomes = new ArrayList<>(stale.size());
+        for (Photo photo : stale) {
+            outcomes.add(UploadCompletionWriter.Outcome.failed(photo, "Upload expired"));
+        }
+        Set<String> expired = completionWriter.apply(outcomes);
+        for (Photo photo : stale) {
+            if (!expired.contains(photo.getId())) {
+                continue;
+            }
+            try {
+                abortMultipartAfterCommit(photo);
+            } catch (RuntimeException e) {
+                log.warn("Failed to abort expired multipart upload: photoId={}, error={}", photo.getId(), e.getMessage());
+            }
+        }
+        
+        log.info("Expired stale uploads: photoCount={}, completedMeanwhile={}", expired.size(), stale.size() - expired.size());
+    }
+    
+    /**
+     * Checks limits, reserves quota and saves a new PENDING photo in its batch.
+     * Multipart photos also get their S3 multipart upload started (and are UPLOADING).
+     */
+    private Photo createPendingPhoto(String userId, InitiateUploadRequest request, boolean multipart) {
+        // Check limits before processing upload
+        limitsService.checkFileSizeLimit(request.getFileSizeBytes());
+        limitsService.checkPhotoLimit();
+        limitsService.checkStorageLimit();
+        userQuotaService.reserve(userId, request.getFileSizeBytes());
+        
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+        
+        // Create or fetch batch
+        UploadBatch batch = resolveBatch(user, request.getBatchId());
+        
+        // Atomically increment total count using database-level update
+        uploadBatchRepository.incrementTotalCount(batch.getId());
+        batchProgressService.countersChanged(batch.getId());
+        
+        // Generate S3 key BEFORE saving photo (s3_key is NOT NULL)
+        String s3Key = generateS3Key(userId, request.getFilename());
+        
+        // Create Photo record with S3 key set
+        Photo photo = new Photo();
+        photo.setUser(user);
+        photo.setBatch(batch);
+        photo.setOriginalFilename(request.getFilename());
+        photo.setFileSizeBytes(request.getFileSizeBytes());
+        photo.setS3Key(s3Key);
+        photo.setStatus(PhotoStatus.PENDING);
+        photo.setContentSha256(normalizeSha256(request.getContentSha256()));
+        if (multipart) {
+            String uploadId = storageService.createMultipartUpload(s3Key, request.getContentType());
+            TransactionCallbacks.afterRollback(() -> storageService.abortMultipartUpload(s3Key, uploadId));
+            photo.setMultipartUploadId(uploadId);
+            photo.setMultipartPartSizeBytes(partSizeFor(request.getFileSizeBytes(), multipartPartSizeBytes));
+            photo.setStatus(PhotoStatus.UPLOADING);
+        }
+        photo = photoRepository.save(photo);
+        limitsService.recordPhotosCreated(1, request.getFileSizeBytes());
+        return photo;
+    }
+    
+    /**
+     * If the request's hash and size match an object the user already stored, create the
+     * photo as a reference to it (UPLOADED at once, no storage of its own)
+     * @return The new photo, or null if the file has to be uploaded
+     */
+    private Photo createStoredReference(String userId, InitiateUploadRequest request) {
+        String sha256 = normalizeSha256(request.getContentSha256());
+        if (sha256 == null) {
+            return null;
+        }
+        StoredObject stored = contentIndexService.findStored(userId, List.of(sha256)).get(sha256);
+        if (stored == null || !contentIndexService.acquire(stored, request.getFileSizeBytes())) {
+            return null;
+        }
+        limitsService.checkPhotoLimit();
+        
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+        UploadBatch batch = resolveBatch(user, request.getBatchId());
+        uploadBatchRepository.incrementTotalCount(batch.getId());
+        
+        StoredObject[] reused = {stored};
+        Photo photo = photoRepository.save(
+            newStoredReference(user, batch, request.getFilename(), stored, processedPhotosByKey(reused)));
+        limitsService.recordPhotosCreated(1, 0);
+        storedReferencesCreated(batch, List.of(photo));
+        
+        log.info("Upload deduplicated: photoId={}, s3Key={}", photo.getId(), stored.getS3Key());
+        return photo;
+    }
+    
+    private static Photo newStoredReference(User user, UploadBatch batch, String filename, StoredObject stored,
+                                            Map<String, Photo> processedByKey) {
+        Photo photo = new Photo();
+        photo.setUser(user);
+        photo.setBatch(batch);
+        photo.setOriginalFilename(filename);
+        photo.setFileSizeBytes(stored.getSizeBytes());
+        photo.setS3Key(stored.getS3Key());
+        photo.setStatus(PhotoStatus.UPLOADED);
+        photo.setContentSha256(stored.getContentSha256());
+        photo.setDeduplicated(true);
+        // Inspection and derivatives are per object, so another photo's can be reused as they are
+        Photo processed = processedByKey.get(stored.getS3Key());
+        if (processed != null) {
+            if (processed.getImageMetadata() != null) {
+                photo.setImageMetadata(new ImageMetadata(processed.getImageMetadata()));
+            }
+            photo.setInspectedAt(processed.getInspectedAt());
+            photo.setThumbnailKey(processed.getThumbnailKey());
+            photo.setPreviewKey(processed.getPreviewKey());
+            photo.setDerivativesProcessedAt(processed.getDerivativesProcessedAt());
+        }
+        return photo;
+    }
+    
+    // Photos of the reused objects that were inspected, by key (preferring ones with derivatives done)
+    private Map<String, Photo> processedPhotosByKey(StoredObject[] reused) {
+        List<String> keys = new ArrayList<>();
+        for (StoredObject stored : reused) {
+            if (stored != null) {
+                keys.add(stored.getS3Key());
+            }
+        }
+        Map<String, Photo> byKey = new HashMap<>();
+        for (Photo photo : photoRepository.findByS3KeyIn(keys)) {
+            if (photo.getInspectedAt() == null) {
+                continue;
+            }
+            Photo current = byKey.get(photo.getS3Key());
+            if (current == null
+                || (current.getDerivativesProcessedAt() == null && photo.getDerivativesProcessedAt() != null)) {
+                byKey.put(photo.getS3Key(), photo);
+            }
+        }
+        return byKey;
+    }
+    
+    // References are complete on creation: count them and report them like any completed upload
+    private void storedReferencesCreated(UploadBatch batch, List<Photo> references) {
+        if (references.isEmpty()) {
+            return;
+        }
+        uploadBatchRepository.incrementCompletedCountBy(batch.getId(), references.size());
+        batchProgressService.countersChanged(batch.getId());
+        for (Photo photo : references) {
+            batchProgressService.photoChanged(batch.getId(), photo.getId(), photo.getOriginalFilename(),
+                PhotoStatus.UPLOADED, null);
+            if (photo.getInspectedAt() == null) {
+                TransactionCallbacks.afterCommit(() -> contentInspectionService.enqueue(photo));
+            } else if (photo.getDerivativesProcessedAt() == null) {
+                TransactionCallbacks.afterCommit(() -> thumbnailService.enqueue(photo));
+            }
+        }
+    }
+    
+    private static String normalizeSha256(String sha256) {
+        return sha256 != null ? sha256.toLowerCase(Locale.ROOT) : null;
+    }
+    
+    /**
+     * Part size for a multipart upload: the preferred size (at least S3's 5 MiB minimum),
+     * grown in whole MiB when needed to stay within S3's 10,000 parts per upload.
+     */
+    static long partSizeFor(long fileSizeBytes, long preferredPartSizeBytes) {
+        long partSize = Math.max(Math.max(S3_MIN_PART_SIZE, preferredPartSizeBytes),
+            (fileSizeBytes + S3_MAX_PARTS - 1) / S3_MAX_PARTS);
+        return (partSize + MIB - 1) / MIB * MIB;
+    }
+    
+    private static int partCount(Photo photo) {
+        long partSize = photo.getMultipartPartSizeBytes();
+        return (int) Math.max(1, (photo.getFileSizeBytes() + partSize - 1) / partSize);
+    }
+    
+    // Part numbers not in S3 yet, or uploaded with a size other than expected
+    private static List<Integer> missingParts(Photo photo, List<UploadedPart> uploaded) {
+        long partSize = photo.getMultipartPartSizeBytes();
+        int partCount = partCount(photo);
+        Map<Integer, Long> sizeByPart = new HashMap<>();
+        for (UploadedPart part : uploaded) {
+            sizeByPart.put(part.partNumber(), part.sizeBytes());
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            long expected = partNumber < partCount ? partSize : photo.getFileSizeBytes() - (partCount - 1) * partSize;
+            Long actual = sizeByPart.get(partNumber);
+            if (actual == null || actual != expected) {
+                missing.add(partNumber);
+            }
+        }
+        return missing;
+    }
+    
+    private MultipartUploadResponse multipartResponse(Photo photo, List<Integer> partNumbers) {
+        List<MultipartUploadResponse.PartUrl> urls = new ArrayList<>(partNumbers.size());
+        for (int partNumber : partNumbers) {
+            urls.add(new MultipartUploadResponse.PartUrl(partNumber,
+                storageService.generatePresignedPartUrl(photo.getS3Key(), photo.getMultipartUploadId(), partNumber)));
+        }
+        return new MultipartUploadResponse(photo.getId(), photo.getBatch().getId(),
+            photo.getMultipartPartSizeBytes(), partCount(photo), uploadUrlExpirationMinutes, urls);
+    }
+    
+    private Photo findMultipart(String userId, String photoId) {
+        Photo photo = photoRepository.findByIdAndUserId(photoId, userId)
+            .orElseThrow(() -> new RuntimeException("Photo not found"));
+        if (photo.getMultipartUploadId() == null) {
+            throw new RuntimeException("Not a multipart upload");
+        }
+        return photo;
+    }
+    
+    private Photo findInProgressMultipart(String userId, String photoId) {
+        Photo photo = findMultipart(userId, photoId);
+        if (!holdsReservation(photo)) {
+            throw new RuntimeException("Upload is no longer in progress");
+        }
+        return photo;
+    }
+    
+    private List<UploadedPart> listParts(Photo photo) {
+        try {
+            return storageService.listParts(photo.getS3Key(), photo.getMultipartUploadId());
+        } catch (MultipartUploadNotFoundException e) {
+            throw new RuntimeException("Upload is no longer in progress");
+        }
+    }
+    
+    // Free the stored parts of an abandoned multipart upload once its FAILED status is committed
+    private void abortMultipartAfterCommit(Photo photo) {
+        if (photo.getMultipartUploadId() != null) {
+            String s3Key = photo.getS3Key();
+            String uploadId = photo.getMultipartUploadId();
+            TransactionCallbacks.afterCommit(() -> storageService.abortMultipartUpload(s3Key, uploadId));
+        }
+    }
+    
+    private static boolean holdsReservation(Photo photo) {
+        return IN_PROGRESS_STATUSES.contains(photo.getStatus());
+    }
+    
+    /**
+     * Create or fetch the upload batch for an initiate request.
+     * Client-provided IDs are upserted atomically (PostgreSQL ON CONFLICT) so concurrent
+     * requests for the same batch all succeed; otherwise a new batch ID is generated.
+     */
+    private UploadBatch resolveBatch(User user, String batchId) {
+        String userId = user.getId();
+        if (batchId != null && !batchId.isEmpty()) {
+            log.debug("Using existing/creating batch: {}", batchId);
+            
+            // Atomically insert batch if not exists (PostgreSQL ON CONFLICT)
+            // This is safe for concurrent requests - all will succeed
+            uploadBatchRepository.insertBatchIfNotExists(batchId, userId);
+            
+            // Now fetch it (guaranteed to exist)
+            return uploadBatchRepository.findByIdAndUserId(batchId, userId)
+                .orElseThrow(() -> new RuntimeException("Batch not found after insert"));
+        }
+        
+        log.debug("Creating new batch with auto-generated ID");
+        // No batchId provided - create new batch with auto-generated ID
+        UploadBatch batch = new UploadBatch();
+        batch.setId(UUID.randomUUID().toString());
+        batch.setUser(user);
+        batch.setTotalCount(0);
+        batch = uploadBatchRepository.saveAndFlush(batch);
+        log.debug("Created batch: {}", batch.getId());
+        return batch;
+    }
+    
+    private String generateS3Key(String userId, String filename) {
+        return userId + "/" + System.currentTimeMillis() + "_" + UUID.randomUUID() + "_" + filename;
+    }
 }
-
@@ -0,0 +1,177 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.UploadBatchRepository;
+import com.rapid.infrastructure.service.ContentIndexService;
+import com.rapid.infrastructure.service.StorageReclaimService;
+import com.rapid.infrastructure.service.UserQuotaService;
+import com.rapid.infrastructure.transaction.TransactionCallbacks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * COMMAND SERVICE: Write verified upload outcomes back in one transaction
+ *
+ * Verification (S3 HEADs) happens before this is called, outside any transaction,
+ * so a DB connection is only held for the writes themselves:
+ * - One UPDATE for all uploaded photos, one per failure reason
+ * - One counter UPDATE per batch touched
+ *
+ * Idempotent: only rows whose status actually changed move the batch counters and
+ * the user's quota, so repeated or concurrent completes of the same photo are safe.
+ */
+@Service
+public class UploadCompletionWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadCompletionWriter.class);
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private UploadBatchRepository uploadBatchRepository;
+
+    @Autowired
+    private UserQuotaService userQuotaService;
+
+    @Autowired
+    private BatchProgressService batchProgressService;
+
+    @Autowired
+    private ContentInspectionService contentInspectionService;
+
+    @Autowired
+    private ContentIndexService contentIndexService;
+
+    @Autowired
+    private StorageReclaimService storageReclaimService;
+
+    /**
+     * Verified result for one photo
+     * @param photo Photo as loaded before verification
+     * @param actualSizeBytes Size found in storage (ignored for failures)
+     * @param errorMessage Null if the upload verified, otherwise why it failed
+     * @param contentSha256 Hex SHA-256 of the content, if the server saw the bytes (else null)
+     */
+    public record Outcome(Photo photo, long actualSizeBytes, String errorMessage, String contentSha256) {
+
+        public static Outcome uploaded(Photo photo, long actualSizeBytes) {
+            return new Outcome(photo, actualSizeBytes, null, null);
+        }
+
+        public static Outcome uploaded(Photo photo, long actualSizeBytes, String contentSha256) {
+            return new Outcome(photo, actualSizeBytes, null, contentSha256);
+        }
+
+        public static Outcome failed(Photo photo, String errorMessage) {
+            return new Outcome(photo, 0, errorMessage, null);
+        }
+    }
+
+    /**
+     * @return Ids of the photos this call changed; the others had already left
+     *         PENDING/UPLOADING (completed, failed or expired elsewhere)
+     */
+    @Transactional
+    public Set<String> apply(List<Outcome> outcomes) {
+        if (outcomes.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<String, Outcome> byPhotoId = new HashMap<>();
+        List<String> uploadedIds = new ArrayList<>();
+        Map<String, List<String>> failedIdsByReason = new HashMap<>();
+        for (Outcome outcome : outcomes) {
+            String photoId = outcome.photo().getId();
+            byPhotoId.put(photoId, outcome);
+            if (outcome.errorMessage() == null) {
+                uploadedIds.add(photoId);
+                if (outcome.contentSha256() != null) {
+                    photoRepository.setContentSha256(photoId, outcome.contentSha256());
+                }
+            } else {
+                failedIdsByReason.computeIfAbsent(outcome.errorMessage(), reason -> new ArrayList<>()).add(photoId);
+            }
+        }
+
+        Set<String> changedIds = new HashSet<>();
+        Map<String, Integer> completedPerBatch = new HashMap<>();
+        if (!uploadedIds.isEmpty()) {
+            for (String photoId : new HashSet<>(photoRepository.markUploaded(uploadedIds))) {
+                changedIds.add(photoId);
+                Outcome outcome = byPhotoId.get(photoId);
+                Photo photo = outcome.photo();
+                userQuotaService.commit(photo.getUser().getId(), photo.getFileSizeBytes(), outcome.actualSizeBytes());
+                // Server-computed hash if there is one, else the hash given at initiate
+                String sha256 = outcome.contentSha256() != null ? outcome.contentSha256() : photo.getContentSha256();
+                if (sha256 != null) {
+                    contentIndexService.register(photo.getUser().getId(), photo.getS3Key(), sha256,
+                        outcome.actualSizeBytes());
+                }
+                completedPerBatch.merge(photo.getBatch().getId(), 1, Integer::sum);
+                batchProgressService.photoChanged(photo.getBatch().getId(), photoId, photo.getOriginalFilename(),
+                    PhotoStatus.UPLOADED, null);
+                TransactionCallbacks.afterCommit(() -> contentInspectionService.enqueue(photo));
+            }
+        }
+
+        Map<String, Integer> failedPerBatch = new HashMap<>();
+        for (Map.Entry<String, List<String>> failure : failedIdsByReason.entrySet()) {
+            Set<String> changed = new HashSet<>(photoRepository.markFailed(failure.getValue(), failure.getKey()));
+            changedIds.addAll(changed);
+            for (String photoId : changed) {
+                Photo photo = byPhotoId.get(photoId).photo();
+                userQuotaService.release(photo.getUser().getId(), photo.getFileSizeBytes());
+                failedPerBatch.merge(photo.getBatch().getId(), 1, Integer::sum);
+                batchProgressService.photoChanged(photo.getBatch().getId(), photoId, photo.getOriginalFilename(),
+                    PhotoStatus.FAILED, failure.getKey());
+            }
+        }
+
+        // Update batch counts atomically (one update per batch, not per photo)
+        completedPerBatch.forEach(uploadBatchRepository::incrementCompletedCountBy);
+        failedPerBatch.forEach(uploadBatchRepository::incrementFailedCountBy);
+
+        log.info("Upload outcomes written: outcomes={}, completedPerBatch={}, failedPerBatch={}",
+            outcomes.size(), completedPerBatch, failedPerBatch);
+        return changedIds;
+    }
+
+    /**
+     * Record an upload whose object the caller has just written to storage (streaming,
+     * multipart assembly)
+     *
+     * If the photo left PENDING/UPLOADING before this write (expired, failed, aborted),
+     * nothing references the new object any more: it is queued for deletion
+     * (StorageReclaimService) in the same transaction.
+     * @return Whether the photo is uploaded; also true if it was completed meanwhile
+     *         (e.g. by its storage event), since that is the same object
+     */
+    @Transactional
+    public boolean applyStoredObject(Outcome outcome) {
+        Photo photo = outcome.photo();
+        if (apply(List.of(outcome)).contains(photo.getId())) {
+            return true;
+        }
+        PhotoStatus status = photoRepository.findById(photo.getId()).map(Photo::getStatus).orElse(null);
+        if (status == PhotoStatus.UPLOADED) {
+            return true;
+        }
+        log.warn("Stored object has no upload in progress, reclaiming: photoId={}, status={}, s3Key={}",
+            photo.getId(), status, photo.getS3Key());
+        storageReclaimService.enqueue(photo.getUser().getId(), List.of(photo.getS3Key()));
+        return false;
+    }
+}
@@ -12,6 +12,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,20 +29,56 @@ public class UploadQueryService {
     
     private static final Logger log = LoggerFactory.getLogger(UploadQueryService.class);
     
+    // How far the change cursor trails the clock (see nextChangeCursor)
+    private static final Duration CHANGE_SETTLE = Duration.ofSeconds(5);
+    
     @Autowired
     private UploadBatchRepository batchRepository;
     
     @Autowired
     private PhotoRepository photoRepository;
     
+    /**
+     * Weak ETag for a batch's status: the counters plus updatedAt, which every counter
+     * update (photo deletes included) bumps, plus the {@code since} cursor the response answers.
+     * Reads only the batch row, so an unchanged batch can be answered with 304 without
+     * touching the photos table.
+     *
+     * Weak because equal tags aren't byte-identical bodies: the changeCursor in the body
+     * moves with the clock while nothing changes (see nextChangeCursor).
+     */
+    @Transactional(readOnly = true)
+    public String getBatchETag(String userId, String batchId, String since) {
+        // Re-encoded so only a valid cursor ends up in the header
+        String sinceTag = since == null || since.isBlank() ? "" : "-" + BatchChangeCursor.decode(since).encode();
+        UploadBatch batch = batchRepository.findByIdAndUserId(batchId, userId)
+            .orElseThrow(() -> new RuntimeException("Batch not found"));
+        return "W/\"" + batch.getTotalCount() + "-" + batch.getCompletedCount() + "-" + batch.getFailedCount() + "-" +
+            ChronoUnit.MICROS.between(Instant.EPOCH, batch.getUpdatedAt().toInstant(ZoneOffset.UTC)) + sinceTag + "\"";
+    }
+    
     @Transactional(readOnly = true)
     public BatchStatusResponse getBatchStatus(String userId, String batchId) {
-        log.debug("Query batch status: userId={}, batchId={}", userId, batchId);
+        return getBatchStatus(userId, batchId, null);
+    }
+    
+    /**
+     * Batch counters plus photo statuses.
+     * Without a cursor every photo is returned; with one, only photos changed since it.
+     * Either way the response carries the cursor to pass as {@code since} on the next poll.
+     */
+    @Transactional(readOnly = true)
+    public BatchStatusResponse getBatchStatus(String userId, String batchId, String since) {
+        log.debug("Query batch status: userId={}, batchId={}, since={}", userId, batchId, since);
+        
+        BatchChangeCursor sinceCursor = since == null || since.isBlank() ? null : BatchChangeCursor.decode(since);
         
         UploadBatch batch = batchRepository.findByIdAndUserId(batchId, userId)
             .orElseThrow(() -> new RuntimeException("Batch not found"));
         
-        List<Photo> photos = photoRepository.findByUserIdAndBatchIdOrderByCreatedAtDesc(userId, batchId);
+        List<Photo> photos = sinceCursor == null
+            ? photoRepository.findByUserIdAndBatchIdOrderByCreatedAtDesc(userId, batchId)
+            : photoRepository.findBatchChangesAfter(userId, batchId, sinceCursor.updatedAt(), sinceCursor.id());
         
         log.debug("Found batch: totalCount={}, completedCount={}, failedCount={}, photos={}", 
             batch.getTotalCount(), batch.getCompletedCount(), batch.getFailedCount(), photos.size());
@@ -57,8 +98,35 @@ public class UploadQueryService {
             batch.getTotalCount(),
             batch.getCompletedCount(),
             batch.getFailedCount(),
-            photoDtos
+            photoDtos,
+            nextChangeCursor(photos, sinceCursor).encode()
         );
     }
+    
+    /**
+     * Cursor just past the newest change returned, held back to CHANGE_SETTLE ago.
+     * Photo timestamps are taken when a write starts, not when it commits, so a slow
+     * transaction can commit a change older than one already returned; re-sending the
+     * last few seconds of changes means it is still picked up on the next poll.
+     */
+    private BatchChangeCursor nextChangeCursor(List<Photo> photos, BatchChangeCursor since) {
+        BatchChangeCursor next = since;
+        for (Photo photo : photos) {
+            BatchChangeCursor position = new BatchChangeCursor(photo.getUpdatedAt(), photo.getId());
+            if (next == null || isAfter(position, next)) {
+                next = position;
+            }
+        }
+        
+        BatchChangeCursor settled = new BatchChangeCursor(LocalDateTime.now().minus(CHANGE_SETTLE), "");
+        if (next == null || isAfter(next, settled)) {
+            next = since != null && isAfter(since, settled) ? since : settled;
+        }
+        return next;
+    }
+    
+    private static boolean isAfter(BatchChangeCursor a, BatchChangeCursor b) {
+        int byTime = a.updatedAt().compareTo(b.updatedAt());
+        return byTime > 0 || (byTime == 0 && a.id().compareTo(b.id()) > 0);
+    }
 }
-
@@ -0,0 +1,134 @@
+package com.rapid.infrastructure.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Size-capped cache of byte blobs in a directory, one file per key
+ *
+ * Recency is tracked in memory by an LruCache of key -> file size; files of entries it
+ * evicts are deleted. On startup the index is rebuilt from the directory, oldest
+ * modification time first, so the cache survives restarts (warm after a deploy).
+ * Writes go to a temp file that is moved into place, so readers never see partial
+ * content. Keys are used as file names and must be safe ones (e.g. hex digests).
+ */
+public class DiskLruCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskLruCache.class);
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final LruCache<String, Long> index;
+
+    public DiskLruCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.index = new LruCache<>(maxBytes, Long::longValue, (key, size) -> deleteQuietly(key));
+        try {
+            Files.createDirectories(directory);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open disk cache at " + directory, e);
+        }
+    }
+
+    /**
+     * @return Cached content, or null on a miss
+     */
+    public byte[] get(String key) {
+        if (index.get(key) == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file(key));
+        } catch (NoSuchFileException e) {
+            index.remove(key); // Evicted between the lookup and the read, or removed externally
+            return null;
+        } catch (IOException e) {
+            log.warn("Disk cache read failed: key={}, error={}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store content (best effort: a failed write just means a later miss)
+     */
+    public void put(String key, byte[] content) {
+        Path target = file(key);
+        Path temp = directory.resolve(UUID.randomUUID() + TEMP_SUFFIX);
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            index.put(key, (long) content.length);
+        } catch (IOException e) {
+            log.warn("Disk cache write failed: key={}, error={}", key, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Left for the next startup to clean up
+            }
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long bytes() {
+        return index.weight();
+    }
+
+    private void load() throws IOException {
+        record Existing(String key, long size, long modifiedMillis) {
+        }
+        List<Existing> existing = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(path); // Interrupted write
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    existing.add(new Existing(name, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+        existing.sort(Comparator.comparingLong(Existing::modifiedMillis));
+        for (Existing entry : existing) {
+            index.put(entry.key(), entry.size());
+        }
+        if (!existing.isEmpty()) {
+            log.info("Disk cache loaded: directory={}, entries={}, bytes={}", directory, index.size(), index.weight());
+        }
+    }
+
+    private Path file(String key) {
+        if (key.isEmpty() || key.contains("/") || key.contains("\\") || key.startsWith(".") || key.endsWith(TEMP_SUFFIX)) {
+            throw new IllegalArgumentException("Invalid cache key");
+        }
+        return directory.resolve(key);
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            Files.deleteIfExists(directory.resolve(key));
+        } catch (IOException e) {
+            log.warn("Disk cache eviction failed: key={}, error={}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.rapid.infrastructure.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Small bounded, thread-safe LRU cache
+ * 
+ * Bounded by total weight (entry count by default, or e.g. bytes via a weigher).
+ * Least-recently-used entries are evicted once the bound is exceeded.
+ * Operations take a single lock; intended for short critical sections
+ * (lookups and inserts of already-computed values), not for computing values.
+ * An optional listener sees entries evicted by the bound (not explicit removes);
+ * it runs under the lock, so it must be cheap.
+ */
+public class LruCache<K, V> {
+    
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final BiConsumer<K, V> onEvict;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    
+    public LruCache(int maxEntries) {
+        this(maxEntries, value -> 1L);
+    }
+    
+    public LruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this(maxWeight, weigher, (key, value) -> { });
+    }
+    
+    public LruCache(long maxWeight, ToLongFunction<V> weigher, BiConsumer<K, V> onEvict) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.onEvict = onEvict;
+    }
+    
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+    
+    public synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxWeight) {
+            remove(key); // Never cache something larger than the whole cache
+            return;
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            totalWeight -= weigher.applyAsLong(previous);
+        }
+        totalWeight += weight;
+        
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (totalWeight > maxWeight && eldest.hasNext()) {
+            Map.Entry<K, V> evicted = eldest.next();
+            totalWeight -= weigher.applyAsLong(evicted.getValue());
+            eldest.remove();
+            onEvict.accept(evicted.getKey(), evicted.getValue());
+        }
+    }
+    
+    public synchronized V remove(K key) {
+        V removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= weigher.applyAsLong(removed);
+        }
+        return removed;
+    }
+    
+    /**
+     * Remove every entry matching the predicate (e.g. idle ones); not reported to the listener
+     * @return Number of entries removed
+     */
+    public synchronized int removeIf(BiPredicate<K, V> predicate) {
+        int removed = 0;
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, V> entry = iterator.next();
+            if (predicate.test(entry.getKey(), entry.getValue())) {
+                totalWeight -= weigher.applyAsLong(entry.getValue());
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long weight() {
+        return totalWeight;
+    }
+}
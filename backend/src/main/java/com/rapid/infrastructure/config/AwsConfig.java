@@ -1,12 +1,15 @@
 package com.rapid.infrastructure.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sqs.SqsClient;
 
 @Configuration
 public class AwsConfig {
@@ -21,6 +24,7 @@ public class AwsConfig {
     private String secretAccessKey;
     
     @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
     public S3Client s3Client() {
         return S3Client.builder()
             .region(Region.of(awsRegion))
@@ -29,5 +33,33 @@ public class AwsConfig {
             ))
             .build();
     }
+    
+    /**
+     * Non-blocking client for fanning out many small requests at once
+     * (e.g. one HEAD per item when completing a batch)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+    public S3AsyncClient s3AsyncClient() {
+        return S3AsyncClient.builder()
+            .region(Region.of(awsRegion))
+            .credentialsProvider(StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(accessKeyId, secretAccessKey)
+            ))
+            .build();
+    }
+    
+    /**
+     * Only needed when S3 event notifications are consumed from SQS
+     */
+    @Bean
+    @ConditionalOnProperty(name = "storage.events.source", havingValue = "sqs")
+    public SqsClient sqsClient() {
+        return SqsClient.builder()
+            .region(Region.of(awsRegion))
+            .credentialsProvider(StaticCredentialsProvider.create(
+                AwsBasicCredentials.create(accessKeyId, secretAccessKey)
+            ))
+            .build();
+    }
 }
-
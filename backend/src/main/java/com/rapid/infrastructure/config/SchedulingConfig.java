@@ -0,0 +1,15 @@
+package com.rapid.infrastructure.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs (limit counter reconciliation, etc.)
+ *
+ * All jobs run on Boot's default scheduler, with a thread per job
+ * (spring.task.scheduling.pool.size), so a job waiting on storage can't hold up others.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
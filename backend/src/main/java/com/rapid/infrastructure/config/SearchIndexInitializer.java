@@ -0,0 +1,41 @@
+package com.rapid.infrastructure.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes JPA can't declare (Hibernate's schema update only knows B-trees)
+ *
+ * - idx_photos_tags: GIN over photos.tags with jsonb_path_ops, serving tag search
+ *   (containment for ALL, jsonpath filters for ANY; see PhotoRepository)
+ *
+ * Built CONCURRENTLY so that a first start against a large photos table doesn't block
+ * uploads while it builds; a no-op once the index exists. A failure is logged and
+ * startup continues: tag search still works, just without the index.
+ */
+@Component
+public class SearchIndexInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SearchIndexInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_photos_tags " +
+                "ON photos USING GIN (tags jsonb_path_ops)");
+        } catch (DataAccessException e) {
+            log.warn("Could not create tag search index: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.rapid.infrastructure.config;
+
+import com.rapid.infrastructure.service.TagCountService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the tag facet counts (user_tag_counts) from the photos table at startup,
+ * if the table is still empty
+ *
+ * Counts are otherwise only moved by deltas, so photos tagged before the table existed
+ * would never be counted (and removing their tags would drive counts negative). The
+ * backfill is one grouped INSERT ... SELECT, done once (see
+ * TagCountService.backfillIfEmpty); a filled table costs one EXISTS per start. A
+ * failure is logged and startup continues: the next start tries again.
+ */
+@Component
+public class TagCountInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TagCountInitializer.class);
+
+    private final TagCountService tagCountService;
+
+    public TagCountInitializer(TagCountService tagCountService) {
+        this.tagCountService = tagCountService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            int counts = tagCountService.backfillIfEmpty();
+            if (counts > 0) {
+                log.info("Tag counts backfilled: counts={}", counts);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not backfill tag counts: {}", e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.rapid.infrastructure.exception;
 
 import com.rapid.infrastructure.exceptions.LimitExceededException;
+import com.rapid.infrastructure.exceptions.UploadNoLongerInProgressException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -31,6 +32,17 @@ public class GlobalExceptionHandler {
             ));
     }
     
+    @ExceptionHandler(UploadNoLongerInProgressException.class)
+    public ResponseEntity<?> handleUploadNoLongerInProgress(UploadNoLongerInProgressException ex,
+                                                            HttpServletRequest request) {
+        ApiError error = new ApiError();
+        error.setTimestamp(LocalDateTime.now());
+        error.setStatus(HttpStatus.CONFLICT.value());
+        error.setMessage(ex.getMessage());
+        error.setPath(request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+    
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<?> handleValidationExceptions(MethodArgumentNotValidException ex,
                                                        HttpServletRequest request) {
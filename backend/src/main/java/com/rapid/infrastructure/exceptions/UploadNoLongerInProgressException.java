@@ -0,0 +1,13 @@
+package com.rapid.infrastructure.exceptions;
+
+/**
+ * Exception thrown when an upload finishes after its photo left PENDING/UPLOADING
+ * (expired, failed or aborted meanwhile). Answered with 409 Conflict: the client has
+ * to initiate the file again.
+ */
+public class UploadNoLongerInProgressException extends RuntimeException {
+    
+    public UploadNoLongerInProgressException() {
+        super("Upload is no longer in progress");
+    }
+}
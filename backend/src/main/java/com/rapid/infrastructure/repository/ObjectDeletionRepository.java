@@ -0,0 +1,45 @@
+package com.rapid.infrastructure.repository;
+
+import com.rapid.domain.ObjectDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ObjectDeletionRepository extends JpaRepository<ObjectDeletion, String> {
+
+    /**
+     * Take up to :limit due deletions, oldest due first: each gets an attempt counted and
+     * is held until :leaseUntil. Rows another reclaimer is claiming are skipped, not
+     * waited for. RETURNING gives [id, s3key, attempts] per claimed row.
+     */
+    @Transactional
+    @Query(value = "UPDATE object_deletions SET attempts = attempts + 1, next_attempt_at = :leaseUntil " +
+                   "WHERE id IN (SELECT id FROM object_deletions WHERE next_attempt_at <= :now " +
+                   "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                   "RETURNING id, s3key, attempts",
+           nativeQuery = true)
+    List<Object[]> claimDue(@Param("now") LocalDateTime now,
+                            @Param("leaseUntil") LocalDateTime leaseUntil,
+                            @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ObjectDeletion d WHERE d.id IN :ids")
+    int deleteAllByIds(@Param("ids") Collection<String> ids);
+
+    // Failed attempt: due again at :nextAttemptAt
+    @Transactional
+    @Modifying
+    @Query("UPDATE ObjectDeletion d SET d.nextAttemptAt = :nextAttemptAt, d.lastError = :error WHERE d.id IN :ids")
+    int reschedule(@Param("ids") Collection<String> ids,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error);
+}
@@ -1,13 +1,21 @@
 package com.rapid.infrastructure.repository;
 
+import com.rapid.domain.ImageMetadata;
 import com.rapid.domain.Photo;
 import com.rapid.domain.PhotoStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,13 +26,209 @@ public interface PhotoRepository extends JpaRepository<Photo, String> {
     Page<Photo> findByUserId(String userId, Pageable pageable);
     Optional<Photo> findByIdAndUserId(String id, String userId);
     
+    // Same, holding the row lock: for changes that must read the current tags/status
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Photo p WHERE p.id = :id AND p.user.id = :userId")
+    Optional<Photo> findByIdAndUserIdForUpdate(@Param("id") String id, @Param("userId") String userId);
+    
+    // Batch status "since" polling: photos in the batch changed after the (updatedAt, id) cursor
+    @Query("SELECT p FROM Photo p WHERE p.user.id = :userId AND p.batch.id = :batchId " +
+           "AND (p.updatedAt > :updatedAt OR (p.updatedAt = :updatedAt AND p.id > :id)) " +
+           "ORDER BY p.updatedAt, p.id")
+    List<Photo> findBatchChangesAfter(@Param("userId") String userId,
+                                      @Param("batchId") String batchId,
+                                      @Param("updatedAt") LocalDateTime updatedAt,
+                                      @Param("id") String id);
+    
     // Query method that filters by status in the database (fixes pagination bug)
     Page<Photo> findByUserIdAndStatus(String userId, PhotoStatus status, Pageable pageable);
     
+    // Keyset pagination: first page, then everything strictly after the (createdAt, id) cursor
+    List<Photo> findByUserIdAndStatusOrderByCreatedAtDescIdDesc(String userId, PhotoStatus status, Pageable pageable);
+    
+    @Query("SELECT p FROM Photo p WHERE p.user.id = :userId AND p.status = :status " +
+           "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Photo> findPageAfter(@Param("userId") String userId,
+                              @Param("status") PhotoStatus status,
+                              @Param("createdAt") LocalDateTime createdAt,
+                              @Param("id") String id,
+                              Pageable pageable);
+    
+    // Tag search, keyset-paginated like findPageAfter (pass a far-future cursor for the
+    // first page). Both predicates are served by the GIN (tags jsonb_path_ops) index:
+    // ALL - containment of a JSON array of the tags
+    // ANY - jsonpath predicate '$[*] == "a" || $[*] == "b"' (the @@ operator, as @?
+    //       would be taken for a JDBC parameter)
+    @Query(value = "SELECT * FROM photos WHERE user_id = :userId AND status = 'UPLOADED' " +
+                   "AND tags @> CAST(:tagsJson AS jsonb) " +
+                   "AND (created_at < :createdAt OR (created_at = :createdAt AND id < :id)) " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Photo> findTaggedWithAllAfter(@Param("userId") String userId,
+                                       @Param("tagsJson") String tagsJson,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") String id,
+                                       @Param("limit") int limit);
+    
+    @Query(value = "SELECT * FROM photos WHERE user_id = :userId AND status = 'UPLOADED' " +
+                   "AND tags @@ CAST(:tagsPath AS jsonpath) " +
+                   "AND (created_at < :createdAt OR (created_at = :createdAt AND id < :id)) " +
+                   "ORDER BY created_at DESC, id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Photo> findTaggedWithAnyAfter(@Param("userId") String userId,
+                                       @Param("tagsPath") String tagsPath,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") String id,
+                                       @Param("limit") int limit);
+    
+    @Query(value = "SELECT COUNT(*) FROM photos WHERE user_id = :userId AND status = 'UPLOADED' " +
+                   "AND tags @> CAST(:tagsJson AS jsonb)",
+           nativeQuery = true)
+    long countTaggedWithAll(@Param("userId") String userId, @Param("tagsJson") String tagsJson);
+    
+    @Query(value = "SELECT COUNT(*) FROM photos WHERE user_id = :userId AND status = 'UPLOADED' " +
+                   "AND tags @@ CAST(:tagsPath AS jsonpath)",
+           nativeQuery = true)
+    long countTaggedWithAny(@Param("userId") String userId, @Param("tagsPath") String tagsPath);
+    
+    List<Photo> findByIdInAndUserId(Collection<String> ids, String userId);
+    
+    @Query("SELECT p.id FROM Photo p WHERE p.user.id = :userId AND p.batch.id = :batchId ORDER BY p.id")
+    List<String> findIdsByUserIdAndBatchId(@Param("userId") String userId, @Param("batchId") String batchId);
+    
+    // Bulk delete: the user's photos among ids, row-locked in id order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Photo p WHERE p.user.id = :userId AND p.id IN :ids ORDER BY p.id")
+    List<Photo> findAllByIdInAndUserIdForUpdate(@Param("ids") Collection<String> ids, @Param("userId") String userId);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Photo p WHERE p.user.id = :userId AND p.id IN :ids")
+    int deleteAllByIdInAndUserId(@Param("ids") Collection<String> ids, @Param("userId") String userId);
+    
+    /**
+     * Bulk tag change in one statement: locks the user's photos among ids (in id order),
+     * computes each one's new tags from :operation (ADD: append missing tags, REMOVE:
+     * drop them, REPLACE: set them), and writes only UPLOADED photos whose tags change
+     * and stay within 3. Returns every photo found, written or not:
+     * [id, status, old tags (JSON text), new tags (JSON text), written]
+     */
+    @Query(value = "WITH target AS (" +
+                   "  SELECT id, status, COALESCE(tags, CAST('[]' AS jsonb)) AS old_tags FROM photos " +
+                   "  WHERE user_id = :userId AND id IN (:ids) ORDER BY id FOR UPDATE), " +
+                   "computed AS (" +
+                   "  SELECT id, status, old_tags, CASE :operation " +
+                   "    WHEN 'ADD' THEN old_tags || COALESCE((SELECT jsonb_agg(a.tag ORDER BY a.ord) " +
+                   "      FROM jsonb_array_elements(CAST(:tagsJson AS jsonb)) WITH ORDINALITY AS a(tag, ord) " +
+                   "      WHERE NOT old_tags @> jsonb_build_array(a.tag)), CAST('[]' AS jsonb)) " +
+                   "    WHEN 'REMOVE' THEN COALESCE((SELECT jsonb_agg(a.tag ORDER BY a.ord) " +
+                   "      FROM jsonb_array_elements(old_tags) WITH ORDINALITY AS a(tag, ord) " +
+                   "      WHERE NOT CAST(:tagsJson AS jsonb) @> jsonb_build_array(a.tag)), CAST('[]' AS jsonb)) " +
+                   "    ELSE CAST(:tagsJson AS jsonb) END AS new_tags " +
+                   "  FROM target), " +
+                   "written AS (" +
+                   "  UPDATE photos p SET tags = c.new_tags, updated_at = NOW() FROM computed c " +
+                   "  WHERE p.id = c.id AND c.status = 'UPLOADED' AND c.new_tags <> c.old_tags " +
+                   "  AND jsonb_array_length(c.new_tags) <= 3 RETURNING p.id) " +
+                   "SELECT c.id, c.status, CAST(c.old_tags AS text), CAST(c.new_tags AS text), w.id IS NOT NULL " +
+                   "FROM computed c LEFT JOIN written w ON w.id = c.id",
+           nativeQuery = true)
+    List<Object[]> bulkUpdateTags(@Param("userId") String userId,
+                                  @Param("ids") Collection<String> ids,
+                                  @Param("operation") String operation,
+                                  @Param("tagsJson") String tagsJson);
+    
+    // Storage events identify objects by key only
+    List<Photo> findByS3KeyIn(Collection<String> s3Keys);
+    
+    // Set-based completion writes; RETURNING reports which rows actually changed so
+    // counters stay exact when the same photo is completed twice concurrently. Only
+    // in-progress rows move: a late complete or redelivered event can't revive a photo
+    // that failed, expired or was rejected (its reservation is already released)
+    @Query(value = "UPDATE photos SET status = 'UPLOADED', error_message = NULL, updated_at = NOW() " +
+                   "WHERE id IN (:ids) AND status IN ('PENDING', 'UPLOADING') RETURNING id",
+           nativeQuery = true)
+    List<String> markUploaded(@Param("ids") Collection<String> ids);
+    
+    // Content inspected (metadata is null when the object no longer exists)
+    @Transactional
+    @Modifying
+    @Query("UPDATE Photo p SET p.imageMetadata = :metadata, p.inspectedAt = CURRENT_TIMESTAMP WHERE p.id = :id")
+    void setInspected(@Param("id") String id, @Param("metadata") ImageMetadata metadata);
+    
+    // Uploaded photos whose content hasn't been inspected yet (inspection backfill)
+    List<Photo> findTop100ByInspectedAtIsNullAndStatusAndUpdatedAtBefore(PhotoStatus status, LocalDateTime cutoff);
+    
+    // Content turned out not to be an image: every uploaded photo of the object fails
+    @Query(value = "UPDATE photos SET status = 'FAILED', error_message = :errorMessage, updated_at = NOW() " +
+                   "WHERE s3key = :s3Key AND status = 'UPLOADED' RETURNING id",
+           nativeQuery = true)
+    List<String> markRejected(@Param("s3Key") String s3Key, @Param("errorMessage") String errorMessage);
+    
+    // Gallery derivatives generated (keys are null when the original isn't a readable image).
+    // Returns 0 if the photo was deleted or rejected meanwhile.
+    @Transactional
+    @Modifying
+    @Query("UPDATE Photo p SET p.thumbnailKey = :thumbnailKey, p.previewKey = :previewKey, " +
+           "p.derivativesProcessedAt = CURRENT_TIMESTAMP WHERE p.id = :id AND p.status = 'UPLOADED'")
+    int setDerivatives(@Param("id") String id, @Param("thumbnailKey") String thumbnailKey,
+                       @Param("previewKey") String previewKey);
+    
+    // Whether a gallery photo still uses the object (and so the derivatives named after it)
+    boolean existsByS3KeyAndStatus(String s3Key, PhotoStatus status);
+    
+    // Uploaded, inspected photos still waiting for derivatives (thumbnail backfill)
+    List<Photo> findTop100ByDerivativesProcessedAtIsNullAndInspectedAtIsNotNullAndStatusAndUpdatedAtBefore(
+        PhotoStatus status, LocalDateTime cutoff);
+    
+    // Move a shared object's bytes to another of its photos (the one carrying them is being deleted)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE photos SET deduplicated = false WHERE id = " +
+                   "(SELECT id FROM photos WHERE s3key = :s3Key AND id <> :excludedId AND deduplicated LIMIT 1)",
+           nativeQuery = true)
+    int promoteDeduplicated(@Param("s3Key") String s3Key, @Param("excludedId") String excludedId);
+    
+    // Same, when several photos of the object are deleted together
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE photos SET deduplicated = false WHERE id = " +
+                   "(SELECT id FROM photos WHERE s3key = :s3Key AND id NOT IN (:excludedIds) AND deduplicated LIMIT 1)",
+           nativeQuery = true)
+    int promoteDeduplicatedExcluding(@Param("s3Key") String s3Key, @Param("excludedIds") Collection<String> excludedIds);
+    
+    // Checksum computed by the server while proxying an upload (written with markUploaded)
+    @Transactional
+    @Modifying
+    @Query("UPDATE Photo p SET p.contentSha256 = :sha256 WHERE p.id = :id")
+    void setContentSha256(@Param("id") String id, @Param("sha256") String sha256);
+    
+    @Query(value = "UPDATE photos SET status = 'FAILED', error_message = :errorMessage, updated_at = NOW() " +
+                   "WHERE id IN (:ids) AND status IN ('PENDING', 'UPLOADING') RETURNING id",
+           nativeQuery = true)
+    List<String> markFailed(@Param("ids") Collection<String> ids, @Param("errorMessage") String errorMessage);
+    
     // Count method for UPLOADED photos only (for accurate pagination totals)
     long countByUserIdAndStatus(String userId, PhotoStatus status);
     
-    @Query("SELECT SUM(p.fileSizeBytes) FROM Photo p")
+    // Stored bytes: a deduplicated photo's object is already counted on another photo
+    @Query("SELECT SUM(p.fileSizeBytes) FROM Photo p WHERE p.deduplicated = false")
     Long sumFileSizeBytes();
+    
+    // Per-user storage by status: [userId, status, bytes] (seeds and reconciles UserQuotaService balances)
+    @Query("SELECT p.user.id, p.status, SUM(p.fileSizeBytes) FROM Photo p WHERE p.user.id IN :userIds " +
+           "AND p.status IN :statuses AND p.deduplicated = false GROUP BY p.user.id, p.status")
+    List<Object[]> sumFileSizeBytesByUserIdInAndStatusIn(@Param("userIds") Collection<String> userIds,
+                                                        @Param("statuses") Collection<PhotoStatus> statuses);
+    
+    // Record upload activity on an in-progress upload (see findTop500ByStatusInAndUpdatedAtBefore)
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Photo p SET p.updatedAt = CURRENT_TIMESTAMP WHERE p.id = :id AND p.status IN :statuses")
+    int touchIfStatusIn(@Param("id") String id, @Param("statuses") Collection<PhotoStatus> statuses);
+    
+    // Uploads with no activity (initiate, part re-presign) since their presigned URLs long expired
+    List<Photo> findTop500ByStatusInAndUpdatedAtBefore(Collection<PhotoStatus> statuses, LocalDateTime cutoff);
 }
 
@@ -0,0 +1,71 @@
+package com.rapid.infrastructure.repository;
+
+import com.rapid.domain.StoredObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StoredObjectRepository extends JpaRepository<StoredObject, String> {
+
+    List<StoredObject> findByUserIdAndContentSha256In(String userId, Collection<String> contentSha256s);
+
+    /**
+     * Index an uploaded object with one reference. No-op if the user already has an
+     * object with this hash (concurrent uploads of the same content): the newer one
+     * simply stays unindexed.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO stored_objects (s3key, user_id, content_sha256, size_bytes, ref_count, created_at) " +
+                   "VALUES (:s3Key, :userId, :sha256, :sizeBytes, 1, NOW()) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int register(@Param("s3Key") String s3Key,
+                 @Param("userId") String userId,
+                 @Param("sha256") String sha256,
+                 @Param("sizeBytes") long sizeBytes);
+
+    /**
+     * Add a reference, unless the last one is being dropped concurrently
+     * @return 1 if the reference was added
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.refCount = o.refCount + 1 WHERE o.s3Key = :s3Key AND o.refCount > 0")
+    int acquire(@Param("s3Key") String s3Key);
+
+    // Drop a reference; RETURNING gives the references left (empty if the object isn't indexed)
+    @Query(value = "UPDATE stored_objects SET ref_count = ref_count - 1 WHERE s3key = :s3Key RETURNING ref_count",
+           nativeQuery = true)
+    List<Integer> release(@Param("s3Key") String s3Key);
+
+    // Drop the references of many photos at once (the photo rows must still exist);
+    // RETURNING gives [s3key, references left] for the indexed objects among keys
+    @Query(value = "UPDATE stored_objects o SET ref_count = o.ref_count - " +
+                   "(SELECT COUNT(*) FROM photos p WHERE p.s3key = o.s3key AND p.id IN (:photoIds)) " +
+                   "WHERE o.s3key IN (:s3Keys) RETURNING o.s3key, o.ref_count",
+           nativeQuery = true)
+    List<Object[]> releaseAll(@Param("s3Keys") Collection<String> s3Keys,
+                              @Param("photoIds") Collection<String> photoIds);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredObject o WHERE o.s3Key = :s3Key AND o.refCount <= 0")
+    int deleteUnreferenced(@Param("s3Key") String s3Key);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredObject o WHERE o.s3Key IN :s3Keys AND o.refCount <= 0")
+    int deleteAllUnreferenced(@Param("s3Keys") Collection<String> s3Keys);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredObject o WHERE o.s3Key = :s3Key")
+    int deleteByS3Key(@Param("s3Key") String s3Key);
+}
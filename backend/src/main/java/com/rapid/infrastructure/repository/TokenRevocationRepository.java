@@ -0,0 +1,27 @@
+package com.rapid.infrastructure.repository;
+
+import com.rapid.domain.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, String> {
+    
+    // Revocations still in force (startup load)
+    List<TokenRevocation> findByExpiresAtAfter(LocalDateTime now);
+    
+    // Incremental refresh: revocations recorded since the last read
+    List<TokenRevocation> findByRevokedAtAfterOrderByRevokedAt(LocalDateTime since);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TokenRevocation r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
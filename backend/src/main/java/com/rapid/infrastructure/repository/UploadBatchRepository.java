@@ -13,29 +13,56 @@ import java.util.Optional;
 @Repository
 public interface UploadBatchRepository extends JpaRepository<UploadBatch, String> {
     
-    // No lock needed - we only read the batch, and count increments are atomic via SQL
+    // No lock needed - we only read the batch, and count increments are atomic via SQL.
+    // Every count update also bumps updatedAt, which (with the counts) is the batch status ETag.
     Optional<UploadBatch> findByIdAndUserId(String id, String userId);
     
     @Transactional
     @Modifying(clearAutomatically = true)
-    @Query("UPDATE UploadBatch b SET b.totalCount = b.totalCount + 1 WHERE b.id = :batchId")
+    @Query("UPDATE UploadBatch b SET b.totalCount = b.totalCount + 1, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :batchId")
     void incrementTotalCount(@Param("batchId") String batchId);
     
     @Transactional
     @Modifying(clearAutomatically = true)
-    @Query("UPDATE UploadBatch b SET b.completedCount = b.completedCount + 1 WHERE b.id = :batchId")
+    @Query("UPDATE UploadBatch b SET b.totalCount = b.totalCount + :increment, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :batchId")
+    void incrementTotalCountBy(@Param("batchId") String batchId, @Param("increment") int increment);
+    
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE UploadBatch b SET b.completedCount = b.completedCount + 1, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :batchId")
     void incrementCompletedCount(@Param("batchId") String batchId);
     
     @Transactional
     @Modifying(clearAutomatically = true)
-    @Query("UPDATE UploadBatch b SET b.completedCount = b.completedCount + :increment WHERE b.id = :batchId")
+    @Query("UPDATE UploadBatch b SET b.completedCount = b.completedCount + :increment, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :batchId")
     void incrementCompletedCountBy(@Param("batchId") String batchId, @Param("increment") int increment);
     
     @Transactional
     @Modifying(clearAutomatically = true)
-    @Query("UPDATE UploadBatch b SET b.failedCount = b.failedCount + 1 WHERE b.id = :batchId")
+    @Query("UPDATE UploadBatch b SET b.failedCount = b.failedCount + 1, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :batchId")
     void incrementFailedCount(@Param("batchId") String batchId);
     
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE UploadBatch b SET b.failedCount = b.failedCount + :increment, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :batchId")
+    void incrementFailedCountBy(@Param("batchId") String batchId, @Param("increment") int increment);
+    
+    // Uploads taken back after completing (content rejected on inspection)
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE UploadBatch b SET b.completedCount = b.completedCount - :count, b.failedCount = b.failedCount + :count, " +
+           "b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :batchId")
+    void moveCompletedToFailed(@Param("batchId") String batchId, @Param("count") int count);
+    
+    // Photos deleted from the batch (completed/failed: those of them that were UPLOADED/FAILED).
+    // Flushes first: a pending photo delete must not be dropped by the clear.
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE UploadBatch b SET b.totalCount = b.totalCount - :total, b.completedCount = b.completedCount - :completed, " +
+           "b.failedCount = b.failedCount - :failed, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :batchId")
+    void removePhotos(@Param("batchId") String batchId, @Param("total") int total,
+                      @Param("completed") int completed, @Param("failed") int failed);
+    
     /**
      * Atomically insert batch if not exists using PostgreSQL's ON CONFLICT.
      * This is the "correct" way to handle concurrent inserts with the same ID.
@@ -0,0 +1,27 @@
+package com.rapid.infrastructure.repository;
+
+import com.rapid.domain.UserQuota;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface UserQuotaRepository extends JpaRepository<UserQuota, String> {
+    
+    /**
+     * Write a user's current balance to the ledger (PostgreSQL upsert).
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_quotas (user_id, reserved_bytes, committed_bytes, updated_at) " +
+                   "VALUES (:userId, :reservedBytes, :committedBytes, NOW()) " +
+                   "ON CONFLICT (user_id) DO UPDATE SET reserved_bytes = EXCLUDED.reserved_bytes, " +
+                   "committed_bytes = EXCLUDED.committed_bytes, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    void upsertBalance(@Param("userId") String userId,
+                       @Param("reservedBytes") long reservedBytes,
+                       @Param("committedBytes") long committedBytes);
+}
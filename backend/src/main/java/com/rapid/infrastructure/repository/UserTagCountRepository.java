@@ -0,0 +1,53 @@
+package com.rapid.infrastructure.repository;
+
+import com.rapid.domain.UserTagCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface UserTagCountRepository extends JpaRepository<UserTagCount, UserTagCount.Key> {
+
+    // Tag facets, most used first (primary key range: no scan of the user's photos)
+    List<UserTagCount> findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc(String userId, int minCount);
+
+    /**
+     * Move one tag's count by delta (PostgreSQL upsert; the row lock serializes
+     * concurrent changes to the same tag)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_tag_counts (user_id, tag, photo_count) VALUES (:userId, :tag, :delta) " +
+                   "ON CONFLICT (user_id, tag) DO UPDATE SET photo_count = user_tag_counts.photo_count + EXCLUDED.photo_count",
+           nativeQuery = true)
+    void adjust(@Param("userId") String userId, @Param("tag") String tag, @Param("delta") int delta);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserTagCount c WHERE c.userId = :userId AND c.photoCount <= 0")
+    int deleteEmpty(@Param("userId") String userId);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM user_tag_counts)", nativeQuery = true)
+    boolean existsAnyCount();
+
+    // Backfill (TagCountService.backfillIfEmpty): held to commit, so no delta lands
+    // mid-backfill; reads of the counts aren't blocked
+    @Modifying
+    @Query(value = "LOCK TABLE user_tag_counts IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForBackfill();
+
+    // Counts recomputed from the photos themselves (UPLOADED only, each photo once per tag)
+    @Modifying
+    @Query(value = "INSERT INTO user_tag_counts (user_id, tag, photo_count) " +
+                   "SELECT p.user_id, t.tag, COUNT(DISTINCT p.id) FROM photos p " +
+                   "CROSS JOIN LATERAL jsonb_array_elements_text(p.tags) AS t(tag) " +
+                   "WHERE p.status = 'UPLOADED' AND jsonb_typeof(p.tags) = 'array' " +
+                   "GROUP BY p.user_id, t.tag",
+           nativeQuery = true)
+    int insertCountsFromPhotos();
+}
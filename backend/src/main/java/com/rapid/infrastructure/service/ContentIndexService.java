@@ -0,0 +1,156 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.StoredObject;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.StoredObjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content deduplication: reference-counted objects indexed by (user, SHA-256)
+ *
+ * A photo initiated with the hash and size of an object the user already has gets a
+ * reference to that object instead of an upload URL. Objects are indexed when a photo
+ * with a hash finishes uploading.
+ *
+ * Accounting: a shared object's bytes are carried by exactly one of its photos (the
+ * others are flagged deduplicated and excluded from storage sums); when that photo is
+ * deleted the bytes move to a remaining one, so quota and limit counters stay exact.
+ *
+ * Concurrency: reference changes are single-row UPDATEs on the stored_objects row, so
+ * they serialize on its row lock. A reference is only added while the count is above
+ * zero, so an object whose last photo is being deleted is never resurrected.
+ *
+ * The hash is the client's claim for direct-to-S3 uploads (the server never sees the
+ * bytes); since matches are per user, a wrong hash only affects that user's own photos.
+ */
+@Service
+public class ContentIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentIndexService.class);
+
+    private final StoredObjectRepository storedObjectRepository;
+    private final PhotoRepository photoRepository;
+
+    public ContentIndexService(StoredObjectRepository storedObjectRepository, PhotoRepository photoRepository) {
+        this.storedObjectRepository = storedObjectRepository;
+        this.photoRepository = photoRepository;
+    }
+
+    /**
+     * Indexed objects of a user, by hash (one query for a whole bulk initiate)
+     */
+    public Map<String, StoredObject> findStored(String userId, Collection<String> sha256s) {
+        Map<String, StoredObject> byHash = new HashMap<>();
+        if (sha256s.isEmpty()) {
+            return byHash;
+        }
+        for (StoredObject stored : storedObjectRepository.findByUserIdAndContentSha256In(userId, sha256s)) {
+            byHash.put(stored.getContentSha256(), stored);
+        }
+        return byHash;
+    }
+
+    /**
+     * Add a reference to a stored object for a new photo of the given size
+     * @return False if the object can't be reused (size differs, or it is being deleted)
+     */
+    public boolean acquire(StoredObject stored, long sizeBytes) {
+        return stored.getSizeBytes() == sizeBytes && storedObjectRepository.acquire(stored.getS3Key()) == 1;
+    }
+
+    /**
+     * Index a freshly uploaded object under its hash (first reference)
+     */
+    public void register(String userId, String s3Key, String sha256, long sizeBytes) {
+        if (storedObjectRepository.register(s3Key, userId, sha256, sizeBytes) == 1) {
+            log.debug("Content indexed: userId={}, s3Key={}", userId, s3Key);
+        }
+    }
+
+    /**
+     * Remove an object from the index whatever its references (the object is being
+     * deleted). Holds the row lock until commit, so no reference is added meanwhile.
+     */
+    public void unregister(String s3Key) {
+        storedObjectRepository.deleteByS3Key(s3Key);
+    }
+
+    /**
+     * Drop a photo's reference to its object (call before deleting the photo row)
+     * @return True if no other photo references the object, so it can be deleted
+     */
+    public boolean release(Photo photo) {
+        List<Integer> remaining = storedObjectRepository.release(photo.getS3Key());
+        if (remaining.isEmpty()) {
+            return true; // Not indexed: the object belongs to this photo alone
+        }
+        if (remaining.get(0) > 0) {
+            if (!photo.isDeduplicated()) {
+                photoRepository.promoteDeduplicated(photo.getS3Key(), photo.getId());
+            }
+            log.info("Shared object kept: s3Key={}, references={}", photo.getS3Key(), remaining.get(0));
+            return false;
+        }
+        storedObjectRepository.deleteUnreferenced(photo.getS3Key());
+        return true;
+    }
+
+    /**
+     * Drop the references of photos deleted together (call before deleting the rows).
+     * Set-based: one UPDATE for all of them, whichever objects they share.
+     * @return Keys of the objects no remaining photo references, which can be deleted
+     */
+    public Set<String> releaseAll(Collection<Photo> photos) {
+        Set<String> s3Keys = new LinkedHashSet<>();
+        List<String> photoIds = new ArrayList<>();
+        Set<String> carriedKeys = new HashSet<>(); // Objects whose bytes a deleted photo carries
+        for (Photo photo : photos) {
+            s3Keys.add(photo.getS3Key());
+            photoIds.add(photo.getId());
+            if (!photo.isDeduplicated()) {
+                carriedKeys.add(photo.getS3Key());
+            }
+        }
+        if (photoIds.isEmpty()) {
+            return s3Keys;
+        }
+
+        Map<String, Integer> remaining = new HashMap<>();
+        for (Object[] row : storedObjectRepository.releaseAll(s3Keys, photoIds)) {
+            remaining.put((String) row[0], ((Number) row[1]).intValue());
+        }
+
+        Set<String> deletable = new LinkedHashSet<>();
+        List<String> unreferenced = new ArrayList<>();
+        for (String s3Key : s3Keys) {
+            Integer left = remaining.get(s3Key);
+            if (left == null) {
+                deletable.add(s3Key); // Not indexed: the object belongs to its photo alone
+            } else if (left > 0) {
+                if (carriedKeys.contains(s3Key)) {
+                    photoRepository.promoteDeduplicatedExcluding(s3Key, photoIds);
+                }
+                log.info("Shared object kept: s3Key={}, references={}", s3Key, left);
+            } else {
+                deletable.add(s3Key);
+                unreferenced.add(s3Key);
+            }
+        }
+        if (!unreferenced.isEmpty()) {
+            storedObjectRepository.deleteAllUnreferenced(unreferenced);
+        }
+        return deletable;
+    }
+}
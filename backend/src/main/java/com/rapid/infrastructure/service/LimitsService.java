@@ -3,79 +3,155 @@ package com.rapid.infrastructure.service;
 import com.rapid.infrastructure.exceptions.LimitExceededException;
 import com.rapid.infrastructure.repository.PhotoRepository;
 import com.rapid.infrastructure.repository.UserRepository;
+import com.rapid.infrastructure.transaction.TransactionCallbacks;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for enforcing global limits to prevent runaway AWS costs
- * 
+ *
  * Limits:
  * - Max 50 users
  * - Max 30,000 photos
  * - Max 500 GB total storage (overall app total)
  * - Max 1.1 GB per file
+ *
+ * Counting strategy:
+ * - Totals are held in atomic counters so checks are O(1) and never touch the database
+ *   (previously COUNT(*) / SUM(file_size_bytes) over the whole table on every initiate)
+ * - Counters are seeded at startup and moved by the record* methods after commit
+ * - A scheduled reconcile re-reads the real totals, correcting drift from other
+ *   instances, manual deletes (scripts/) or failed afterCommit callbacks
+ *
+ * Counters mirror the photos table: every row counts, whatever its status, so
+ * completing or failing an upload leaves them unchanged (completion verifies the
+ * declared size) and a failed upload keeps counting until the photo is deleted,
+ * same as the old queries. Deduplicated photos count as photos but not bytes: a
+ * shared object's size is counted once, on the photo that carries it.
  */
 @Service
 public class LimitsService {
-    
+
+    private static final Logger log = LoggerFactory.getLogger(LimitsService.class);
+
     private static final int MAX_USERS = 50;
     private static final int MAX_PHOTOS = 30000;
     private static final long MAX_TOTAL_BYTES = 500L * 1024 * 1024 * 1024; // 500 GB (overall app total)
     private static final long MAX_FILE_BYTES = 1100L * 1024 * 1024;  // 1.1 GB (1100 MB)
-    
+
     private final UserRepository userRepository;
     private final PhotoRepository photoRepository;
-    
+
+    private final AtomicLong userCount = new AtomicLong();
+    private final AtomicLong photoCount = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+
     public LimitsService(UserRepository userRepository, PhotoRepository photoRepository) {
         this.userRepository = userRepository;
         this.photoRepository = photoRepository;
     }
-    
+
+    /**
+     * Seed counters at startup. If the database is unavailable the scheduled
+     * reconcile retries; checks are permissive until then.
+     */
+    @PostConstruct
+    public void seedCounters() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Could not seed limit counters at startup, will retry on next reconcile: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reset counters to the real totals from the database
+     */
+    @Scheduled(fixedDelayString = "${limits.reconcile-interval-ms:300000}",
+               initialDelayString = "${limits.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long users = userRepository.count();
+        long photos = photoRepository.count();
+        Long bytes = photoRepository.sumFileSizeBytes();
+        long storedBytes = bytes != null ? bytes : 0L;
+
+        long previousPhotos = photoCount.getAndSet(photos);
+        long previousBytes = totalBytes.getAndSet(storedBytes);
+        userCount.set(users);
+
+        if (previousPhotos != photos || previousBytes != storedBytes) {
+            log.debug("Limit counters reconciled: photos {} -> {}, bytes {} -> {}",
+                previousPhotos, photos, previousBytes, storedBytes);
+        }
+    }
+
     /**
      * Check if we can create a new user
      * @throws LimitExceededException if user limit reached
      */
-    @Transactional(readOnly = true)
     public void checkUserLimit() {
-        long userCount = userRepository.count();
-        if (userCount >= MAX_USERS) {
+        if (userCount.get() >= MAX_USERS) {
             throw new LimitExceededException(
                 "Can't register more users at this time",
                 "USER_LIMIT"
             );
         }
     }
-    
+
     /**
      * Check if we can upload a new photo
      * @throws LimitExceededException if photo limit reached
      */
-    @Transactional(readOnly = true)
     public void checkPhotoLimit() {
-        long photoCount = photoRepository.count();
-        if (photoCount >= MAX_PHOTOS) {
+        checkPhotoLimit(1);
+    }
+
+    /**
+     * Check if we can upload a number of new photos at once (bulk initiate)
+     * @param additionalPhotos number of photos about to be created
+     * @throws LimitExceededException if the photos would exceed the photo limit
+     */
+    public void checkPhotoLimit(int additionalPhotos) {
+        if (photoCount.get() + additionalPhotos > MAX_PHOTOS) {
             throw new LimitExceededException(
                 "You've reached your image limit",
                 "PHOTO_LIMIT"
             );
         }
     }
-    
+
     /**
      * Check if we have storage capacity
      * @throws LimitExceededException if storage limit reached
      */
-    @Transactional(readOnly = true)
     public void checkStorageLimit() {
-        Long totalBytes = photoRepository.sumFileSizeBytes();
-        if (totalBytes != null && totalBytes >= MAX_TOTAL_BYTES) {
+        if (totalBytes.get() >= MAX_TOTAL_BYTES) {
+            throw new LimitExceededException(
+                "You've reached your image limit",
+                "STORAGE_LIMIT"
+            );
+        }
+    }
+
+    /**
+     * Check if we have storage capacity for a number of new bytes at once (bulk initiate)
+     * @param additionalBytes total size of the files about to be uploaded
+     * @throws LimitExceededException if the files would exceed the storage limit
+     */
+    public void checkStorageLimit(long additionalBytes) {
+        if (totalBytes.get() + additionalBytes > MAX_TOTAL_BYTES) {
             throw new LimitExceededException(
                 "You've reached your image limit",
                 "STORAGE_LIMIT"
             );
         }
     }
-    
+
     /**
      * Check if individual file size is within limit
      * @param fileSizeBytes size of file to check
@@ -89,5 +165,31 @@ public class LimitsService {
             );
         }
     }
-}
 
+    /**
+     * Record a newly registered user (applied after commit)
+     */
+    public void recordUserCreated() {
+        TransactionCallbacks.afterCommit(userCount::incrementAndGet);
+    }
+
+    /**
+     * Record newly inserted photo rows (applied after commit)
+     */
+    public void recordPhotosCreated(int count, long bytes) {
+        TransactionCallbacks.afterCommit(() -> {
+            photoCount.addAndGet(count);
+            totalBytes.addAndGet(bytes);
+        });
+    }
+
+    /**
+     * Record deleted photo rows (applied after commit)
+     */
+    public void recordPhotosDeleted(int count, long bytes) {
+        TransactionCallbacks.afterCommit(() -> {
+            photoCount.addAndGet(-count);
+            totalBytes.addAndGet(-bytes);
+        });
+    }
+}
@@ -0,0 +1,194 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.domain.ObjectDeletion;
+import com.rapid.infrastructure.repository.ObjectDeletionRepository;
+import com.rapid.infrastructure.storage.StorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Deletes storage objects in the background, from the object_deletions outbox
+ *
+ * Request paths that delete photos only record which objects to delete (enqueue, in
+ * their own transaction) and return; no storage call is made while a request waits or a
+ * transaction is open.
+ *
+ * Each run drains every due row, batch-size rows at a time:
+ * - Claim: one UPDATE takes the oldest due rows (FOR UPDATE SKIP LOCKED, so instances
+ *   running side by side take disjoint rows) and leases them for lease-seconds; a
+ *   reclaimer that dies mid-batch leaves them due again when the lease runs out
+ * - Delete: one StorageService.deleteObjects call for the batch (S3 DeleteObjects,
+ *   1000 keys per request)
+ * - Settle: rows whose delete succeeded are removed in one DELETE; failed ones are due
+ *   again after an exponential backoff (base-backoff-seconds doubled per attempt, capped
+ *   at max-backoff-minutes), and retried until they succeed
+ *
+ * Deleting an object that is already gone succeeds, so running a row twice is harmless.
+ */
+@Service
+public class StorageReclaimService {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageReclaimService.class);
+
+    private final ObjectDeletionRepository objectDeletionRepository;
+    private final StorageService storageService;
+    private final int batchSize;
+    private final Duration lease;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Clock clock;
+
+    private final Counter deleted;
+    private final Counter failed;
+
+    @Autowired
+    public StorageReclaimService(ObjectDeletionRepository objectDeletionRepository,
+                                 StorageService storageService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${storage.reclaim.batch-size:1000}") int batchSize,
+                                 @Value("${storage.reclaim.lease-seconds:300}") int leaseSeconds,
+                                 @Value("${storage.reclaim.base-backoff-seconds:30}") int baseBackoffSeconds,
+                                 @Value("${storage.reclaim.max-backoff-minutes:60}") int maxBackoffMinutes) {
+        this(objectDeletionRepository, storageService, meterRegistry, batchSize, Duration.ofSeconds(leaseSeconds),
+            Duration.ofSeconds(baseBackoffSeconds), Duration.ofMinutes(maxBackoffMinutes), Clock.systemDefaultZone());
+    }
+
+    StorageReclaimService(ObjectDeletionRepository objectDeletionRepository, StorageService storageService,
+                          MeterRegistry meterRegistry, int batchSize, Duration lease, Duration baseBackoff,
+                          Duration maxBackoff, Clock clock) {
+        this.objectDeletionRepository = objectDeletionRepository;
+        this.storageService = storageService;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+        this.clock = clock;
+        this.deleted = reclaimCounter(meterRegistry, "deleted");
+        this.failed = reclaimCounter(meterRegistry, "failed");
+    }
+
+    /**
+     * Schedule objects for deletion, in the caller's transaction (a rollback schedules
+     * nothing). The objects must no longer be referenced by any photo.
+     */
+    @Transactional
+    public void enqueue(String userId, Collection<String> s3Keys) {
+        if (s3Keys.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<ObjectDeletion> deletions = new ArrayList<>(s3Keys.size());
+        for (String s3Key : new LinkedHashSet<>(s3Keys)) {
+            deletions.add(new ObjectDeletion(s3Key, userId, now));
+        }
+        objectDeletionRepository.saveAll(deletions);
+    }
+
+    /**
+     * Delete every due object, one batch at a time
+     */
+    @Scheduled(fixedDelayString = "${storage.reclaim.interval-ms:5000}")
+    public void reclaim() {
+        int claimed;
+        do {
+            claimed = reclaimBatch();
+        } while (claimed == batchSize);
+    }
+
+    /**
+     * Claim, delete and settle one batch
+     * @return Number of rows claimed
+     */
+    int reclaimBatch() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<Object[]> claimed = objectDeletionRepository.claimDue(now, now.plus(lease), batchSize);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        // The same object may have been scheduled twice (e.g. rejected, then its photo deleted)
+        Map<String, List<Object[]>> rowsByKey = new LinkedHashMap<>();
+        for (Object[] row : claimed) {
+            rowsByKey.computeIfAbsent((String) row[1], key -> new ArrayList<>()).add(row);
+        }
+
+        Set<String> failedKeys;
+        String error;
+        try {
+            failedKeys = new HashSet<>(storageService.deleteObjects(rowsByKey.keySet()));
+            error = "Delete failed";
+        } catch (RuntimeException e) {
+            failedKeys = rowsByKey.keySet();
+            error = e.getMessage();
+        }
+
+        List<String> doneIds = new ArrayList<>();
+        Map<Integer, List<String>> failedIdsByAttempts = new TreeMap<>();
+        for (Map.Entry<String, List<Object[]>> entry : rowsByKey.entrySet()) {
+            boolean keyFailed = failedKeys.contains(entry.getKey());
+            for (Object[] row : entry.getValue()) {
+                if (keyFailed) {
+                    int attempts = ((Number) row[2]).intValue();
+                    failedIdsByAttempts.computeIfAbsent(attempts, a -> new ArrayList<>()).add((String) row[0]);
+                } else {
+                    doneIds.add((String) row[0]);
+                }
+            }
+        }
+
+        if (!doneIds.isEmpty()) {
+            objectDeletionRepository.deleteAllByIds(doneIds);
+        }
+        for (Map.Entry<Integer, List<String>> entry : failedIdsByAttempts.entrySet()) {
+            Duration backoff = backoff(entry.getKey());
+            objectDeletionRepository.reschedule(entry.getValue(), now.plus(backoff), truncate(error));
+            log.warn("Object deletes failed, retrying in {}s: objects={}, attempt={}, error={}",
+                backoff.toSeconds(), entry.getValue().size(), entry.getKey(), error);
+        }
+        int failedCount = (int) rowsByKey.keySet().stream().filter(failedKeys::contains).count();
+        deleted.increment(rowsByKey.size() - failedCount);
+        failed.increment(failedCount);
+        log.info("Objects reclaimed: deleted={}, failed={}", rowsByKey.size() - failedCount, failedCount);
+        return claimed.size();
+    }
+
+    // base, 2 x base, 4 x base, ... up to max
+    Duration backoff(int attempts) {
+        Duration backoff = baseBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    private static Counter reclaimCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.reclaim.objects")
+            .description("Objects deleted from storage by the reclaimer, by outcome")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
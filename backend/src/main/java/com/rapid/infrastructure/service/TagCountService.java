@@ -0,0 +1,114 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.domain.UserTagCount;
+import com.rapid.infrastructure.repository.UserTagCountRepository;
+import com.rapid.infrastructure.transaction.TransactionCallbacks;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tag facets: per-user "tag -> number of photos" kept up to date by deltas
+ *
+ * Counts cover UPLOADED photos only, the same set tag search returns, so a facet's
+ * count is the number of results clicking it gives. Every change of a photo's tags
+ * or of its membership in that set goes through here (tag updates, bulk tag changes,
+ * deletes, content rejection), in the same transaction as the photo change.
+ *
+ * Concurrency: callers hold the photo row locks, so old tags can't go stale; each
+ * tag row is changed by a single upsert, and tags are applied in sorted order so two
+ * transactions touching the same tags lock them in the same order.
+ *
+ * Committed deltas are also pushed to the in-memory autocomplete (TagSuggestionService).
+ */
+@Service
+public class TagCountService {
+
+    private final UserTagCountRepository userTagCountRepository;
+    private final TagSuggestionService tagSuggestionService;
+
+    public TagCountService(UserTagCountRepository userTagCountRepository,
+                           TagSuggestionService tagSuggestionService) {
+        this.userTagCountRepository = userTagCountRepository;
+        this.tagSuggestionService = tagSuggestionService;
+    }
+
+    /**
+     * One photo's tags before and after a change; null means no tags
+     */
+    public record TagChange(Collection<String> oldTags, Collection<String> newTags) {
+    }
+
+    /**
+     * Apply one photo's tag change (empty old tags for a photo joining the counted set,
+     * empty new tags for one leaving it); null means no tags
+     */
+    public void photoTagsChanged(String userId, Collection<String> oldTags, Collection<String> newTags) {
+        photosTagsChanged(userId, List.of(new TagChange(oldTags, newTags)));
+    }
+
+    /**
+     * Apply many photos' tag changes at once: summed per tag, so each tag row is
+     * written once however many photos changed
+     */
+    public void photosTagsChanged(String userId, Collection<TagChange> changes) {
+        Map<String, Integer> deltas = new TreeMap<>();
+        for (TagChange change : changes) {
+            if (change.oldTags() != null) {
+                change.oldTags().stream().distinct().forEach(tag -> deltas.merge(tag, -1, Integer::sum));
+            }
+            if (change.newTags() != null) {
+                change.newTags().stream().distinct().forEach(tag -> deltas.merge(tag, 1, Integer::sum));
+            }
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        boolean decremented = false;
+        for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+            userTagCountRepository.adjust(userId, delta.getKey(), delta.getValue());
+            decremented |= delta.getValue() < 0;
+        }
+        if (decremented) {
+            userTagCountRepository.deleteEmpty(userId);
+        }
+        TransactionCallbacks.afterCommit(() -> tagSuggestionService.apply(userId, deltas));
+    }
+
+    /**
+     * Compute the counts from the photos table once, while the count table is still empty
+     * (TagCountInitializer, at startup)
+     *
+     * Fills in tags given before counts were kept; after that counts only move by deltas,
+     * and later starts just find the table filled (one cheap EXISTS, no lock). The
+     * backfill locks the count table against writes until commit and re-checks under the
+     * lock, so concurrently starting instances backfill once. Readers are not blocked.
+     * @return Number of (user, tag) counts inserted; 0 if the table was already filled
+     */
+    @Transactional
+    public int backfillIfEmpty() {
+        if (userTagCountRepository.existsAnyCount()) {
+            return 0;
+        }
+        userTagCountRepository.lockForBackfill();
+        if (userTagCountRepository.existsAnyCount()) {
+            return 0; // Backfilled (or a delta written) while we waited for the lock
+        }
+        int counts = userTagCountRepository.insertCountsFromPhotos();
+        TransactionCallbacks.afterCommit(tagSuggestionService::invalidateAll);
+        return counts;
+    }
+
+    /**
+     * The user's tags with their photo counts, most used first
+     */
+    public List<UserTagCount> counts(String userId) {
+        return userTagCountRepository.findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc(userId, 0);
+    }
+}
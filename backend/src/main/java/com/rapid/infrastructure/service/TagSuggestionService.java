@@ -0,0 +1,277 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.domain.UserTagCount;
+import com.rapid.infrastructure.cache.LruCache;
+import com.rapid.infrastructure.repository.UserTagCountRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Tag autocomplete: prefix suggestions ranked by how many photos carry the tag
+ *
+ * Each active user's tags are held in memory as arrays sorted by lower-cased tag, so a
+ * keystroke is a binary search for the prefix range plus a top-k pick by count (from a
+ * precomputed rank order when the prefix matches many tags): no database round trip,
+ * microseconds for thousands of tags.
+ *
+ * Lifecycle:
+ * - Built on a user's first suggestion request from user_tag_counts (one primary key
+ *   range read)
+ * - Kept current by the deltas TagCountService applies, pushed after commit; a snapshot
+ *   is immutable and replaced whole, so lookups take no lock
+ * - Rebuilt on the first lookup tags.suggest.max-age-seconds after it was read: deltas
+ *   are only pushed on the instance that made the change, so this bounds how stale
+ *   other instances' indexes get
+ * - Dropped after tags.suggest.idle-minutes without lookups, and beyond
+ *   tags.suggest.max-users (least recently used first)
+ *
+ * A change that commits while a user's tags are being loaded may or may not be in what
+ * the load read, so that load is used once and not kept (see stripe stamps below).
+ */
+@Service
+public class TagSuggestionService {
+
+    static final int MAX_LIMIT = 50;
+    private static final int STRIPES = 64;
+
+    private final UserTagCountRepository userTagCountRepository;
+    private final LruCache<String, Entry> indexes;
+    private final Duration idleTimeout;
+    private final long maxAgeMillis;
+    private final Clock clock;
+
+    // Per stripe of users: number of changes applied (guarded by the stripe's lock)
+    private final Object[] stripeLocks = new Object[STRIPES];
+    private final long[] stripeStamps = new long[STRIPES];
+
+    @Autowired
+    public TagSuggestionService(UserTagCountRepository userTagCountRepository,
+                                @Value("${tags.suggest.max-users:10000}") int maxUsers,
+                                @Value("${tags.suggest.idle-minutes:30}") int idleMinutes,
+                                @Value("${tags.suggest.max-age-seconds:60}") int maxAgeSeconds) {
+        this(userTagCountRepository, maxUsers, Duration.ofMinutes(idleMinutes), Duration.ofSeconds(maxAgeSeconds),
+            Clock.systemUTC());
+    }
+
+    TagSuggestionService(UserTagCountRepository userTagCountRepository, int maxUsers, Duration idleTimeout,
+                         Duration maxAge, Clock clock) {
+        this.userTagCountRepository = userTagCountRepository;
+        this.indexes = new LruCache<>(maxUsers);
+        this.idleTimeout = idleTimeout;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripeLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * The user's tags starting with prefix (case-insensitive), most used first
+     * @param prefix What the user typed so far (blank: most used tags overall)
+     * @param limit Maximum suggestions, capped at 50
+     */
+    public List<UserTagCount> suggest(String userId, String prefix, int limit) {
+        long now = clock.millis();
+        Entry entry = indexes.get(userId);
+        if (entry != null && now - entry.loadedMillis >= maxAgeMillis) {
+            entry = null; // May miss changes made on other instances: read again
+        }
+        TagIndex index = entry != null ? entry.index : load(userId);
+        if (entry != null) {
+            entry.lastUsedMillis = now;
+        }
+        String key = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        return index.suggest(userId, key, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    /**
+     * Apply committed tag count changes (no-op for users whose tags aren't loaded)
+     */
+    void apply(String userId, Map<String, Integer> deltas) {
+        int stripe = stripe(userId);
+        synchronized (stripeLocks[stripe]) {
+            stripeStamps[stripe]++;
+            Entry entry = indexes.get(userId);
+            if (entry != null) {
+                entry.index = entry.index.with(deltas);
+            }
+        }
+    }
+
+    /**
+     * Drop every loaded index (counts rebuilt); loads already running aren't kept
+     */
+    void invalidateAll() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            synchronized (stripeLocks[stripe]) {
+                stripeStamps[stripe]++;
+            }
+        }
+        indexes.clear();
+    }
+
+    /**
+     * Drop the indexes of users who stopped typing
+     */
+    @Scheduled(fixedDelayString = "${tags.suggest.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long cutoff = clock.millis() - idleTimeout.toMillis();
+        indexes.removeIf((userId, entry) -> entry.lastUsedMillis < cutoff);
+    }
+
+    private TagIndex load(String userId) {
+        int stripe = stripe(userId);
+        long stamp;
+        synchronized (stripeLocks[stripe]) {
+            stamp = stripeStamps[stripe];
+        }
+        TagIndex index = TagIndex.of(userTagCountRepository
+            .findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc(userId, 0));
+        synchronized (stripeLocks[stripe]) {
+            // Keep it only if no change to these users was applied meanwhile
+            if (stripeStamps[stripe] == stamp) {
+                long now = clock.millis();
+                indexes.put(userId, new Entry(index, now, now));
+            }
+        }
+        return index;
+    }
+
+    private static int stripe(String userId) {
+        return Math.floorMod(userId.hashCode(), STRIPES);
+    }
+
+    int loadedUsers() {
+        return indexes.size();
+    }
+
+    private static final class Entry {
+        // Replaced under the stripe lock, read without it
+        volatile TagIndex index;
+        volatile long lastUsedMillis;
+        // When the counts were read (deltas applied since don't renew it)
+        final long loadedMillis;
+
+        Entry(TagIndex index, long loadedMillis, long lastUsedMillis) {
+            this.index = index;
+            this.loadedMillis = loadedMillis;
+            this.lastUsedMillis = lastUsedMillis;
+        }
+    }
+
+    /**
+     * Immutable snapshot of one user's tags, sorted by (lower-cased tag, tag), plus the
+     * same positions in rank order (count desc, tag asc)
+     */
+    private static final class TagIndex {
+        private final String[] keys;
+        private final String[] tags;
+        private final int[] counts;
+        private final int[] byRank;
+
+        private TagIndex(Map<String, Integer> countsByTag) {
+            List<String> sorted = new ArrayList<>(countsByTag.keySet());
+            sorted.sort(Comparator.comparing((String tag) -> tag.toLowerCase(Locale.ROOT))
+                .thenComparing(Comparator.naturalOrder()));
+            this.keys = new String[sorted.size()];
+            this.tags = sorted.toArray(new String[0]);
+            this.counts = new int[sorted.size()];
+            for (int i = 0; i < tags.length; i++) {
+                keys[i] = tags[i].toLowerCase(Locale.ROOT);
+                counts[i] = countsByTag.get(tags[i]);
+            }
+            this.byRank = IntStream.range(0, tags.length).boxed()
+                .sorted(this::compareRank)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        }
+
+        static TagIndex of(List<UserTagCount> rows) {
+            Map<String, Integer> countsByTag = new TreeMap<>();
+            for (UserTagCount row : rows) {
+                countsByTag.put(row.getTag(), row.getPhotoCount());
+            }
+            return new TagIndex(countsByTag);
+        }
+
+        // Copy with deltas applied (tags reaching zero are dropped)
+        TagIndex with(Map<String, Integer> deltas) {
+            Map<String, Integer> countsByTag = new TreeMap<>();
+            for (int i = 0; i < tags.length; i++) {
+                countsByTag.put(tags[i], counts[i]);
+            }
+            deltas.forEach((tag, delta) -> countsByTag.merge(tag, delta, Integer::sum));
+            countsByTag.values().removeIf(count -> count <= 0);
+            return new TagIndex(countsByTag);
+        }
+
+        List<UserTagCount> suggest(String userId, String prefix, int limit) {
+            // [from, to): every key starting with prefix
+            int from = lowerBound(prefix);
+            int to = prefix.isEmpty() ? keys.length : lowerBound(prefix + Character.MAX_VALUE);
+            int matches = to - from;
+
+            int[] picked = new int[Math.min(limit, matches)];
+            int size = 0;
+            if (matches * 8L >= keys.length) {
+                // Wide prefix: walk the rank order, about 8 * limit steps at most on average
+                for (int i = 0; i < byRank.length && size < picked.length; i++) {
+                    if (byRank[i] >= from && byRank[i] < to) {
+                        picked[size++] = byRank[i];
+                    }
+                }
+            } else {
+                // Narrow prefix: keep the best of the range by insertion (limit is small)
+                for (int i = from; i < to; i++) {
+                    int at = size;
+                    while (at > 0 && compareRank(i, picked[at - 1]) < 0) {
+                        at--;
+                    }
+                    if (at < picked.length) {
+                        System.arraycopy(picked, at, picked, at + 1, Math.min(size, picked.length - 1) - at);
+                        picked[at] = i;
+                        size = Math.min(size + 1, picked.length);
+                    }
+                }
+            }
+
+            List<UserTagCount> suggestions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                suggestions.add(new UserTagCount(userId, tags[picked[i]], counts[picked[i]]));
+            }
+            return suggestions;
+        }
+
+        // Higher count first, then tag
+        private int compareRank(int a, int b) {
+            int byCount = Integer.compare(counts[b], counts[a]);
+            return byCount != 0 ? byCount : tags[a].compareTo(tags[b]);
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.domain.PhotoStatus;
+import com.rapid.infrastructure.exceptions.LimitExceededException;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.UserQuotaRepository;
+import com.rapid.infrastructure.transaction.TransactionCallbacks;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user storage quota with reserve/commit/release accounting
+ *
+ * Global limits (LimitsService) are checked against rows that already exist, so many
+ * concurrent initiates can all pass and overshoot. Here each user has an in-memory
+ * account and every initiate atomically reserves its declared size before any row
+ * is written:
+ * - reserve: initiate (single or bulk); rejected if reserved + committed would exceed the quota
+ * - commit: upload completed; moves the reservation to committed at the actual size
+ * - release: upload failed or expired; frees the reservation
+ * - uncommit: completed photo deleted
+ *
+ * Concurrency:
+ * - Accounts are independent per user (ConcurrentHashMap), and each check-and-reserve
+ *   holds only that user's account monitor - no database row lock on the hot path.
+ *   A reservation is a check-and-add on one user's balance, so the unit of locking is
+ *   the user (finer than lock striping over users)
+ * - Reservations are undone if the initiating transaction rolls back; commit/release
+ *   are applied after the completing transaction commits
+ *
+ * Balances (source of truth: the photos table):
+ * - Loaded on a user's first reservation or lookup, outside any map lock. Changes
+ *   committed while a user isn't loaded are skipped: the load reads them from the rows
+ * - Reconciled on a fixed delay for every loaded user (one grouped query per 1000
+ *   users), correcting drift from other instances, manual deletes and changes that raced
+ *   a load. An account changed while its recompute ran is left to the next round, and
+ *   reservations of transactions still open (rows not visible yet) are kept on top
+ * - Never clamped: a balance going negative is logged as drift and fixed by reconcile
+ *
+ * The user_quotas ledger receives each changed balance on a fixed delay (flush), as a
+ * per-user record for reporting; it is not read back.
+ */
+@Service
+public class UserQuotaService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserQuotaService.class);
+
+    private static final EnumSet<PhotoStatus> BALANCE_STATUSES =
+        EnumSet.of(PhotoStatus.PENDING, PhotoStatus.UPLOADING, PhotoStatus.UPLOADED);
+    private static final int RECONCILE_CHUNK = 1000;
+
+    private final PhotoRepository photoRepository;
+    private final UserQuotaRepository userQuotaRepository;
+    private final long quotaBytes;
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+    public UserQuotaService(PhotoRepository photoRepository,
+                            UserQuotaRepository userQuotaRepository,
+                            @Value("${limits.user-quota-bytes:10737418240}") long quotaBytes) {
+        this.photoRepository = photoRepository;
+        this.userQuotaRepository = userQuotaRepository;
+        this.quotaBytes = quotaBytes;
+    }
+
+    /**
+     * Reserve quota for uploads about to be initiated. Undone automatically if the
+     * current transaction rolls back.
+     * @throws LimitExceededException if the user's quota would be exceeded
+     */
+    public void reserve(String userId, long bytes) {
+        Account account = account(userId);
+        synchronized (account) {
+            if (account.reserved + account.committed + bytes > quotaBytes) {
+                throw new LimitExceededException(
+                    "You've reached your storage quota",
+                    "QUOTA_LIMIT"
+                );
+            }
+            account.reserved += bytes;
+            account.inFlight += bytes;
+            account.changes++;
+            account.dirty = true;
+        }
+        // Either way the rows are settled (visible, or never written)
+        TransactionCallbacks.afterCommit(() -> settle(account, bytes, 0));
+        TransactionCallbacks.afterRollback(() -> settle(account, bytes, bytes));
+    }
+
+    /**
+     * Convert a reservation into committed storage once the upload is complete
+     * (applied after commit).
+     */
+    public void commit(String userId, long reservedBytes, long actualBytes) {
+        TransactionCallbacks.afterCommit(() -> adjust(userId, -reservedBytes, actualBytes));
+    }
+
+    /**
+     * Free a reservation for an upload that failed or expired (applied after commit).
+     */
+    public void release(String userId, long reservedBytes) {
+        TransactionCallbacks.afterCommit(() -> adjust(userId, -reservedBytes, 0));
+    }
+
+    /**
+     * Free committed storage for a deleted photo (applied after commit).
+     */
+    public void uncommit(String userId, long committedBytes) {
+        TransactionCallbacks.afterCommit(() -> adjust(userId, 0, -committedBytes));
+    }
+
+    /**
+     * Bytes currently reserved plus committed for a user.
+     */
+    public long usedBytes(String userId) {
+        Account account = account(userId);
+        synchronized (account) {
+            return account.reserved + account.committed;
+        }
+    }
+
+    /**
+     * Reset loaded balances to the totals in the photos table
+     */
+    @Scheduled(fixedDelayString = "${limits.user-quota-reconcile-interval-ms:300000}",
+               initialDelayString = "${limits.user-quota-reconcile-interval-ms:300000}")
+    public void reconcile() {
+        List<String> userIds = new ArrayList<>(accounts.keySet());
+        int corrected = 0;
+        for (int from = 0; from < userIds.size(); from += RECONCILE_CHUNK) {
+            List<String> chunk = userIds.subList(from, Math.min(from + RECONCILE_CHUNK, userIds.size()));
+            Map<String, Long> changesBefore = new HashMap<>();
+            for (String userId : chunk) {
+                Account account = accounts.get(userId);
+                synchronized (account) {
+                    changesBefore.put(userId, account.changes);
+                }
+            }
+
+            Map<String, Account> balances = loadBalances(chunk);
+            for (String userId : chunk) {
+                Account account = accounts.get(userId);
+                Account balance = balances.getOrDefault(userId, new Account());
+                synchronized (account) {
+                    if (account.changes != changesBefore.get(userId)) {
+                        continue; // Changed while the totals were read: next round
+                    }
+                    long reserved = balance.reserved + account.inFlight;
+                    if (reserved != account.reserved || balance.committed != account.committed) {
+                        log.info("Quota balance reconciled: userId={}, reserved {} -> {}, committed {} -> {}",
+                            userId, account.reserved, reserved, account.committed, balance.committed);
+                        account.reserved = reserved;
+                        account.committed = balance.committed;
+                        account.dirty = true;
+                        corrected++;
+                    }
+                }
+            }
+        }
+        if (corrected > 0) {
+            log.info("Quota balances reconciled: users={}, corrected={}", userIds.size(), corrected);
+        }
+    }
+
+    /**
+     * Write changed balances to the user_quotas ledger.
+     */
+    @Scheduled(fixedDelayString = "${limits.user-quota-flush-interval-ms:10000}")
+    @PreDestroy
+    public void flush() {
+        for (Map.Entry<String, Account> entry : accounts.entrySet()) {
+            Account account = entry.getValue();
+            long reserved;
+            long committed;
+            synchronized (account) {
+                if (!account.dirty) {
+                    continue;
+                }
+                account.dirty = false;
+                reserved = account.reserved;
+                committed = account.committed;
+            }
+            try {
+                userQuotaRepository.upsertBalance(entry.getKey(), reserved, committed);
+            } catch (RuntimeException e) {
+                synchronized (account) {
+                    account.dirty = true; // Retry on next flush
+                }
+                log.warn("Failed to flush quota ledger: userId={}, error={}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private void adjust(String userId, long reservedDelta, long committedDelta) {
+        Account account = accounts.get(userId);
+        if (account == null) {
+            return; // Not loaded: its load reads the committed rows, change included
+        }
+        synchronized (account) {
+            account.reserved += reservedDelta;
+            account.committed += committedDelta;
+            account.changes++;
+            account.dirty = true;
+            if (account.reserved < 0 || account.committed < 0) {
+                log.warn("Quota balance negative (drift until next reconcile): userId={}, reserved={}, committed={}",
+                    userId, account.reserved, account.committed);
+            }
+        }
+    }
+
+    // Initiating transaction completed: its rows are visible (or gone, undoing the reservation)
+    private void settle(Account account, long bytes, long undoneBytes) {
+        synchronized (account) {
+            account.inFlight -= bytes;
+            account.reserved -= undoneBytes;
+            account.changes++;
+            account.dirty = true;
+        }
+    }
+
+    private Account account(String userId) {
+        Account account = accounts.get(userId);
+        if (account != null) {
+            return account;
+        }
+        // Read without holding a map bin; a concurrent load of the same user is discarded
+        Account loaded = loadBalances(List.of(userId)).getOrDefault(userId, new Account());
+        loaded.dirty = true;
+        Account existing = accounts.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private Map<String, Account> loadBalances(Collection<String> userIds) {
+        Map<String, Account> balances = new HashMap<>();
+        for (Object[] row : photoRepository.sumFileSizeBytesByUserIdInAndStatusIn(userIds, BALANCE_STATUSES)) {
+            Account balance = balances.computeIfAbsent((String) row[0], id -> new Account());
+            long bytes = ((Number) row[2]).longValue();
+            if (row[1] == PhotoStatus.UPLOADED) {
+                balance.committed += bytes;
+            } else {
+                balance.reserved += bytes;
+            }
+        }
+        return balances;
+    }
+
+    private static final class Account {
+        private long reserved;
+        private long committed;
+        // Reserved by transactions still open (their rows aren't visible to a recompute)
+        private long inFlight;
+        // Changes applied so far (a recompute is only installed if none landed meanwhile)
+        private long changes;
+        private boolean dirty;
+    }
+}
@@ -0,0 +1,74 @@
+package com.rapid.infrastructure.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * In-process stand-in for the storage event queue
+ *
+ * Used when no real notification queue is configured (local development, tests).
+ * Nothing publishes to it automatically; call publish() to simulate S3 notifications.
+ * Like SQS, a polled event stays in flight until acknowledged, and is delivered
+ * again once its visibility timeout passes without an acknowledgement.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.events.source", havingValue = "memory", matchIfMissing = true)
+public class InMemoryStorageEventSource implements StorageEventSource {
+
+    private static final Duration VISIBILITY_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ConcurrentLinkedQueue<StorageEvent> queue = new ConcurrentLinkedQueue<>();
+    // Polled, not yet acknowledged: event -> System.nanoTime() it is visible again at
+    private final Map<StorageEvent, Long> inFlight = new IdentityHashMap<>();
+    private final long visibilityTimeoutNanos;
+
+    public InMemoryStorageEventSource() {
+        this(VISIBILITY_TIMEOUT);
+    }
+
+    InMemoryStorageEventSource(Duration visibilityTimeout) {
+        this.visibilityTimeoutNanos = visibilityTimeout.toNanos();
+    }
+
+    public void publish(StorageEvent event) {
+        queue.add(event);
+    }
+
+    @Override
+    public List<StorageEvent> poll(int maxEvents) {
+        long now = System.nanoTime();
+        List<StorageEvent> events = new ArrayList<>();
+        synchronized (inFlight) {
+            Iterator<Map.Entry<StorageEvent, Long>> it = inFlight.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<StorageEvent, Long> entry = it.next();
+                if (now - entry.getValue() >= 0) {
+                    queue.add(entry.getKey()); // Timed out unacknowledged: redeliver
+                    it.remove();
+                }
+            }
+            StorageEvent event;
+            while (events.size() < maxEvents && (event = queue.poll()) != null) {
+                events.add(event);
+                inFlight.put(event, now + visibilityTimeoutNanos);
+            }
+        }
+        return events;
+    }
+
+    @Override
+    public void acknowledge(Collection<StorageEvent> events) {
+        synchronized (inFlight) {
+            events.forEach(inFlight::remove);
+        }
+    }
+}
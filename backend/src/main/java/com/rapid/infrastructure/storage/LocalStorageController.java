@@ -0,0 +1,159 @@
+package com.rapid.infrastructure.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Data plane for the local storage backend: the targets of LocalStorageService's
+ * signed URLs (stand-in for S3's presigned PUT/GET)
+ *
+ * No JWT: the HMAC signature authorizes exactly one method on one key until expiry.
+ * GET supports a single HTTP Range and is sent with Tomcat sendfile when the connector
+ * offers it (file pages go straight to the socket), otherwise with FileChannel.transferTo.
+ */
+@RestController
+@RequestMapping(LocalStorageController.OBJECT_PATH)
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageController {
+
+    static final String OBJECT_PATH = "/api/storage/object";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final LocalStorageService storage;
+
+    public LocalStorageController(LocalStorageService storage) {
+        this.storage = storage;
+    }
+
+    @PutMapping(consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<Void> putObject(
+            @RequestParam String key,
+            @RequestParam(required = false) String uploadId,
+            @RequestParam(required = false) Integer partNumber,
+            @RequestParam long expires,
+            @RequestParam String signature,
+            HttpServletRequest request) throws IOException {
+        if (!storage.verify("PUT", key, uploadId, partNumber, expires, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (uploadId != null) {
+            UploadedPart part = storage.writePart(key, uploadId, partNumber, request.getInputStream());
+            return ResponseEntity.ok().eTag(part.eTag()).build();
+        }
+        storage.writeObject(key, request.getInputStream());
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping
+    public void getObject(
+            @RequestParam String key,
+            @RequestParam long expires,
+            @RequestParam String signature,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (!storage.verify("GET", key, null, null, expires, signature)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        Path file = storage.objectFile(key);
+        if (!Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = Files.size(file);
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && range.startsWith("bytes=") && !range.contains(",")) {
+            long[] bounds = parseRange(range.substring("bytes=".length()), size);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = bounds[0];
+            end = bounds[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+
+        String contentType = Files.probeContentType(file);
+        response.setContentType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Same URL until it expires, and the object under a key never changes
+        long maxAge = Math.max(0, expires - System.currentTimeMillis() / 1000);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + maxAge + ", immutable");
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if (length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             WritableByteChannel out = Channels.newChannel(response.getOutputStream())) {
+            for (long position = start; position <= end; ) {
+                position += in.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+
+    /**
+     * Parse one byte range spec ("a-b", "a-" or "-suffix") against the object size
+     * @return {start, end} inclusive, or null if unsatisfiable
+     */
+    static long[] parseRange(String spec, long size) {
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            return start <= end && start < size ? new long[] {start, end} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.rapid.infrastructure.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Local disk storage backend (storage.backend=local)
+ *
+ * For on-prem installs and benchmarking the upload pipeline without AWS. Mimics S3:
+ * - Presigned URLs are HMAC-SHA256 signed URLs to LocalStorageController, bound to
+ *   method, key (and upload ID / part number) and an expiry
+ * - Writes stream the request body to a temp file with FileChannel.transferFrom and
+ *   move it into place atomically, so readers never see a partial object
+ * - Multipart parts are kept under .multipart/{uploadId}/ and concatenated with
+ *   FileChannel.transferTo on complete
+ * - Created objects are published to the in-memory storage event source (when it is
+ *   the configured source), like S3 ObjectCreated notifications
+ *
+ * Reads (with Range) are served by LocalStorageController via sendfile.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageService implements StorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalStorageService.class);
+
+    private static final String MULTIPART_DIR = ".multipart";
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final Path root;
+    private final String objectUrl;
+    private final byte[] signingKey;
+    private final Duration putExpiry;
+    private final Duration getExpiry;
+    private final Duration getBucket;
+    private final ObjectProvider<InMemoryStorageEventSource> eventSource;
+    private final Clock clock;
+
+    // Mac is not thread-safe; one keyed instance per thread
+    private final ThreadLocal<Mac> hmac;
+
+    @Autowired
+    public LocalStorageService(
+            @Value("${storage.local.root:./data/storage}") String root,
+            @Value("${storage.local.base-url:http://localhost:8080}") String baseUrl,
+            @Value("${storage.local.signing-secret:${jwt.secret}}") String signingSecret,
+            @Value("${s3.presigned-url-expiration-minutes}") int putExpirationMinutes,
+            @Value("${s3.get-url.expiration-minutes:60}") int getExpirationMinutes,
+            @Value("${s3.get-url.bucket-minutes:15}") int getBucketMinutes,
+            ObjectProvider<InMemoryStorageEventSource> eventSource) throws IOException {
+        this(Path.of(root), baseUrl, signingSecret, Duration.ofMinutes(putExpirationMinutes),
+            Duration.ofMinutes(getExpirationMinutes), Duration.ofMinutes(getBucketMinutes), eventSource, Clock.systemUTC());
+    }
+
+    LocalStorageService(Path root, String baseUrl, String signingSecret, Duration putExpiry, Duration getExpiry,
+                        Duration getBucket, ObjectProvider<InMemoryStorageEventSource> eventSource, Clock clock)
+            throws IOException {
+        this.root = Files.createDirectories(root).toRealPath();
+        this.objectUrl = baseUrl.replaceAll("/+$", "") + LocalStorageController.OBJECT_PATH;
+        this.signingKey = signingSecret.getBytes(StandardCharsets.UTF_8);
+        this.putExpiry = putExpiry;
+        this.getExpiry = getExpiry;
+        this.getBucket = getBucket;
+        this.eventSource = eventSource;
+        this.clock = clock;
+        this.hmac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 not available", e);
+            }
+        });
+        Files.createDirectories(this.root.resolve(MULTIPART_DIR));
+        log.info("Local storage at {}", this.root);
+    }
+
+    // ===== Signed URLs =====
+
+    @Override
+    public String generatePresignedPutUrl(String userId, String filename) {
+        String key = filename.contains("/") ? filename : generateKey(userId, filename);
+        return signedUrl("PUT", key, null, null, clock.millis() / 1000 + putExpiry.getSeconds());
+    }
+
+    @Override
+    public String generatePresignedGetUrl(String userId, String filename) {
+        String key = filename.contains("/") ? filename : generateKey(userId, filename);
+        // Signed at the start of a time bucket so the URL (and the browser cache entry) is stable
+        long bucketSeconds = getBucket.getSeconds();
+        long signedAt = clock.millis() / 1000 / bucketSeconds * bucketSeconds;
+        return signedUrl("GET", key, null, null, signedAt + getExpiry.getSeconds());
+    }
+
+    @Override
+    public String generatePresignedPartUrl(String s3Key, String uploadId, int partNumber) {
+        return signedUrl("PUT", s3Key, uploadId, partNumber, clock.millis() / 1000 + putExpiry.getSeconds());
+    }
+
+    /**
+     * Check a signed URL's parameters
+     * @return true if the signature matches and the URL has not expired
+     */
+    public boolean verify(String method, String key, String uploadId, Integer partNumber,
+                          long expires, String signature) {
+        if (signature == null || expires < clock.millis() / 1000) {
+            return false;
+        }
+        byte[] expected = sign(method, key, uploadId, partNumber, expires).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String signedUrl(String method, String key, String uploadId, Integer partNumber, long expires) {
+        StringBuilder url = new StringBuilder(objectUrl)
+            .append("?key=").append(URLEncoder.encode(key, StandardCharsets.UTF_8));
+        if (uploadId != null) {
+            url.append("&uploadId=").append(uploadId).append("&partNumber=").append(partNumber);
+        }
+        return url.append("&expires=").append(expires)
+            .append("&signature=").append(sign(method, key, uploadId, partNumber, expires))
+            .toString();
+    }
+
+    private String sign(String method, String key, String uploadId, Integer partNumber, long expires) {
+        String stringToSign = method + "\n" + key + "\n" + (uploadId != null ? uploadId : "") + "\n"
+            + (partNumber != null ? partNumber : "") + "\n" + expires;
+        return HexFormat.of().formatHex(hmac.get().doFinal(stringToSign.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // ===== Objects =====
+
+    /**
+     * Stream a request body into an object (PUT to a signed URL)
+     * @return Bytes written
+     */
+    public long writeObject(String key, InputStream body) {
+        Path target = objectPath(key);
+        long size = writeAtomically(target, body);
+        objectCreated(key, size);
+        return size;
+    }
+
+    /**
+     * Stream a request body into one part of a multipart upload
+     */
+    public UploadedPart writePart(String key, String uploadId, int partNumber, InputStream body) {
+        Path part = partPath(uploadId, partNumber);
+        return new UploadedPart(partNumber, etag(partNumber), writeAtomically(part, body));
+    }
+
+    /**
+     * Object file for reading (served by LocalStorageController)
+     */
+    public Path objectFile(String key) {
+        return objectPath(key);
+    }
+
+    @Override
+    public void putObject(String s3Key, String contentType, byte[] buffer, int length) {
+        Path target = objectPath(s3Key);
+        writeAtomically(target, buffer, length);
+        objectCreated(s3Key, length);
+    }
+
+    @Override
+    public UploadedPart uploadPart(String s3Key, String uploadId, int partNumber, byte[] buffer, int length) {
+        writeAtomically(partPath(uploadId, partNumber), buffer, length);
+        return new UploadedPart(partNumber, etag(partNumber), length);
+    }
+
+    @Override
+    public Optional<InputStream> openObject(String s3Key) {
+        try {
+            return Optional.of(Files.newInputStream(objectPath(s3Key)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> readObjectHead(String s3Key, int maxBytes) {
+        try (InputStream in = Files.newInputStream(objectPath(s3Key))) {
+            return Optional.of(in.readNBytes(maxBytes));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public OptionalLong headObjectSize(String s3Key) {
+        try {
+            return OptionalLong.of(Files.size(objectPath(s3Key)));
+        } catch (NoSuchFileException e) {
+            return OptionalLong.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Map<String, OptionalLong> headObjectSizes(Collection<String> s3Keys) {
+        Map<String, OptionalLong> sizes = new HashMap<>();
+        for (String s3Key : s3Keys) {
+            sizes.put(s3Key, headObjectSize(s3Key));
+        }
+        return sizes;
+    }
+
+    @Override
+    public void deleteFile(String s3Key) {
+        try {
+            Files.deleteIfExists(objectPath(s3Key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<String> deleteObjects(Collection<String> s3Keys) {
+        List<String> failed = new ArrayList<>();
+        for (String key : s3Keys) {
+            try {
+                Files.deleteIfExists(objectPath(key));
+            } catch (IOException e) {
+                log.warn("Could not delete {}: {}", key, e.getMessage());
+                failed.add(key);
+            }
+        }
+        return failed;
+    }
+
+    // ===== Multipart =====
+
+    @Override
+    public String createMultipartUpload(String s3Key, String contentType) {
+        objectPath(s3Key); // Validate the key up front
+        String uploadId = UUID.randomUUID().toString();
+        try {
+            Files.createDirectories(uploadDir(uploadId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return uploadId;
+    }
+
+    @Override
+    public List<UploadedPart> listParts(String s3Key, String uploadId) {
+        Path dir = existingUploadDir(uploadId);
+        List<UploadedPart> parts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.part")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int partNumber = Integer.parseInt(name.substring(0, name.length() - ".part".length()));
+                parts.add(new UploadedPart(partNumber, etag(partNumber), Files.size(file)));
+            }
+        } catch (NoSuchFileException e) {
+            throw new MultipartUploadNotFoundException(uploadId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        parts.sort(Comparator.comparingInt(UploadedPart::partNumber));
+        return parts;
+    }
+
+    @Override
+    public void completeMultipartUpload(String s3Key, String uploadId, List<UploadedPart> parts) {
+        existingUploadDir(uploadId);
+        Path target = objectPath(s3Key);
+        Path tmp = tempFileFor(target);
+        long size = 0;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            for (UploadedPart part : parts) {
+                try (FileChannel in = FileChannel.open(partPath(uploadId, part.partNumber()), StandardOpenOption.READ)) {
+                    long partSize = in.size();
+                    for (long position = 0; position < partSize; ) {
+                        position += in.transferTo(position, partSize - position, out);
+                    }
+                    size += partSize;
+                }
+            }
+            out.force(false);
+        } catch (NoSuchFileException e) {
+            deleteQuietly(tmp);
+            throw new MultipartUploadNotFoundException(uploadId);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(tmp);
+            throw e;
+        }
+        moveIntoPlace(tmp, target);
+        deleteRecursively(uploadDir(uploadId));
+        objectCreated(s3Key, size);
+    }
+
+    @Override
+    public void abortMultipartUpload(String s3Key, String uploadId) {
+        deleteRecursively(uploadDir(uploadId));
+    }
+
+    // ===== Files =====
+
+    // Resolve a key under the root, rejecting anything that would escape it
+    private Path objectPath(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root) || path.startsWith(root.resolve(MULTIPART_DIR))) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+
+    private Path uploadDir(String uploadId) {
+        // Upload IDs are UUIDs we issued; anything else can't name a directory
+        return root.resolve(MULTIPART_DIR).resolve(UUID.fromString(uploadId).toString());
+    }
+
+    private Path existingUploadDir(String uploadId) {
+        Path dir;
+        try {
+            dir = uploadDir(uploadId);
+        } catch (IllegalArgumentException e) {
+            throw new MultipartUploadNotFoundException(uploadId);
+        }
+        if (!Files.isDirectory(dir)) {
+            throw new MultipartUploadNotFoundException(uploadId);
+        }
+        return dir;
+    }
+
+    private Path partPath(String uploadId, int partNumber) {
+        if (partNumber < 1 || partNumber > 10_000) {
+            throw new IllegalArgumentException("Invalid part number: " + partNumber);
+        }
+        return existingUploadDir(uploadId).resolve(partNumber + ".part");
+    }
+
+    private long writeAtomically(Path target, InputStream body) {
+        Path tmp = tempFileFor(target);
+        long size = 0;
+        try (ReadableByteChannel in = Channels.newChannel(body);
+             FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // Blocking source: 0 bytes transferred means end of stream
+            for (long n; (n = out.transferFrom(in, size, TRANSFER_CHUNK)) > 0; ) {
+                size += n;
+            }
+            out.force(false);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new UncheckedIOException(e);
+        }
+        moveIntoPlace(tmp, target);
+        return size;
+    }
+
+    private void writeAtomically(Path target, byte[] buffer, int length) {
+        Path tmp = tempFileFor(target);
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(false);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new UncheckedIOException(e);
+        }
+        moveIntoPlace(tmp, target);
+    }
+
+    private static Path tempFileFor(Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(LocalStorageService::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private void objectCreated(String key, long size) {
+        InMemoryStorageEventSource events = eventSource.getIfAvailable();
+        if (events != null) {
+            events.publish(new StorageEvent(key, size, null, null));
+        }
+    }
+
+    private static String etag(int partNumber) {
+        return "\"" + partNumber + "\"";
+    }
+
+    private static String generateKey(String userId, String filename) {
+        String timestamp = System.currentTimeMillis() / 1000 + "";
+        String uuid = UUID.randomUUID().toString();
+        return userId + "/" + timestamp + "_" + uuid + "_" + filename;
+    }
+}
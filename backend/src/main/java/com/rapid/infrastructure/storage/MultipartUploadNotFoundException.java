@@ -0,0 +1,11 @@
+package com.rapid.infrastructure.storage;
+
+/**
+ * The multipart upload no longer exists in storage (completed or aborted)
+ */
+public class MultipartUploadNotFoundException extends RuntimeException {
+
+    public MultipartUploadNotFoundException(String uploadId) {
+        super("Multipart upload not found: " + uploadId);
+    }
+}
@@ -0,0 +1,92 @@
+package com.rapid.infrastructure.storage;
+
+import com.rapid.infrastructure.cache.LruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Deterministic, cacheable presigned GET URLs
+ *
+ * A presigned URL signed "now" is different on every page load, so browsers and the
+ * mobile app never get an HTTP cache hit on the image bytes. Instead, the signing time
+ * is rounded down to a fixed bucket (default 15 minutes): every request in the same
+ * bucket produces a byte-identical URL, which is kept in a bounded LRU keyed by s3Key.
+ *
+ * Validity: a URL signed at the start of a bucket with a 1-hour expiry is handed out
+ * for at most one bucket, so clients always get at least (expiry - bucket) = 45 minutes.
+ * Entries from a previous bucket are re-signed on next access (evicted before expiry).
+ *
+ * The URL also asks S3 to return Cache-Control for that guaranteed window, so repeat
+ * gallery views are served from the HTTP cache instead of re-downloading originals.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+public class PresignedGetUrlCache {
+
+    private final SigV4PresignEngine presignEngine;
+    private final Duration bucket;
+    private final Duration expiry;
+    private final Map<String, String> responseParams;
+    private final LruCache<String, CachedUrl> cache;
+    private final Clock clock;
+
+    @Autowired
+    public PresignedGetUrlCache(
+            SigV4PresignEngine presignEngine,
+            @Value("${s3.get-url.bucket-minutes:15}") int bucketMinutes,
+            @Value("${s3.get-url.expiration-minutes:60}") int expirationMinutes,
+            @Value("${s3.get-url.cache-size:20000}") int cacheSize) {
+        this(presignEngine, Duration.ofMinutes(bucketMinutes), Duration.ofMinutes(expirationMinutes),
+            cacheSize, Clock.systemUTC());
+    }
+
+    PresignedGetUrlCache(SigV4PresignEngine presignEngine, Duration bucket, Duration expiry,
+                         int cacheSize, Clock clock) {
+        if (bucket.isZero() || bucket.isNegative() || bucket.compareTo(expiry) >= 0) {
+            throw new IllegalStateException("s3.get-url.bucket-minutes must be positive and less than s3.get-url.expiration-minutes");
+        }
+        this.presignEngine = presignEngine;
+        this.bucket = bucket;
+        this.expiry = expiry;
+        this.responseParams = Map.of(
+            "response-cache-control", "private, max-age=" + expiry.minus(bucket).getSeconds() + ", immutable"
+        );
+        this.cache = new LruCache<>(cacheSize);
+        this.clock = clock;
+    }
+
+    /**
+     * Presigned GET URL for an object, identical for every call within the same time bucket.
+     * Only signs on a cache miss or when the bucket has rolled over.
+     */
+    public String getUrl(String s3Key) {
+        long bucketMillis = bucket.toMillis();
+        long bucketStart = Math.floorDiv(clock.millis(), bucketMillis) * bucketMillis;
+
+        CachedUrl cached = cache.get(s3Key);
+        if (cached != null && cached.bucketStart == bucketStart) {
+            return cached.url;
+        }
+
+        String url = presignEngine.presign("GET", s3Key, responseParams, Map.of(),
+            Instant.ofEpochMilli(bucketStart), expiry);
+        cache.put(s3Key, new CachedUrl(bucketStart, url));
+        return url;
+    }
+
+    /**
+     * Drop a cached URL (e.g. after the object is deleted).
+     */
+    public void invalidate(String s3Key) {
+        cache.remove(s3Key);
+    }
+
+    private record CachedUrl(long bucketStart, String url) {}
+}
@@ -1,35 +1,61 @@
 package com.rapid.infrastructure.storage;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
-import software.amazon.awssdk.services.s3.presigner.S3Presigner;
-import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 
+/**
+ * S3 storage backend (storage.backend=s3, the default)
+ * 
+ * Clients transfer bytes straight to/from S3 with presigned URLs; this service only
+ * signs URLs and makes the control-plane calls (multipart, HEAD, delete).
+ */
 @Service
-public class S3PresignedUrlService {
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3PresignedUrlService implements StorageService {
+    
+    private static final Logger log = LoggerFactory.getLogger(S3PresignedUrlService.class);
+    
+    // S3 DeleteObjects limit
+    private static final int DELETE_BATCH_SIZE = 1000;
     
     @Autowired
     private S3Client s3Client;
     
-    @Value("${aws.region}")
-    private String awsRegion;
+    @Autowired
+    private S3AsyncClient s3AsyncClient;
     
-    @Value("${aws.accessKeyId}")
-    private String accessKeyId;
+    // Shared, thread-safe presigner (no per-call S3Presigner/credentials setup)
+    @Autowired
+    private SigV4PresignEngine presignEngine;
     
-    @Value("${aws.secretAccessKey}")
-    private String secretAccessKey;
+    // Time-bucketed GET URLs so repeat gallery views hit the HTTP cache
+    @Autowired
+    private PresignedGetUrlCache getUrlCache;
     
     @Value("${aws.s3.bucket}")
     private String bucketName;
@@ -37,65 +63,202 @@ public class S3PresignedUrlService {
     @Value("${s3.presigned-url-expiration-minutes}")
     private int expirationMinutes;
     
+    // Max HEAD requests in flight per headObjectSizes call
+    @Value("${s3.verify.max-concurrency:32}")
+    private int verifyMaxConcurrency;
+    
+    @Override
     public String generatePresignedPutUrl(String userId, String filename) {
         // If filename already contains full s3Key (userId/timestamp_uuid_name), use it directly
         // Otherwise generate the key
         String s3Key = filename.contains("/") ? filename : generateS3Key(userId, filename);
-        
-        PutObjectRequest putRequest = PutObjectRequest.builder()
-            .bucket(bucketName)
-            .key(s3Key)
-            .build();
-        
-        S3Presigner presigner = S3Presigner.builder()
-            .credentialsProvider(StaticCredentialsProvider.create(
-                AwsBasicCredentials.create(accessKeyId, secretAccessKey)
-            ))
-            .region(Region.of(awsRegion))
-            .build();
-        
-        PutObjectPresignRequest presignedRequest = PutObjectPresignRequest.builder()
-            .putObjectRequest(putRequest)
-            .signatureDuration(Duration.ofMinutes(expirationMinutes))
-            .build();
-        
-        PresignedPutObjectRequest presignedUrl = presigner.presignPutObject(presignedRequest);
-        presigner.close();
-        return presignedUrl.url().toString();
+        return presignEngine.presignPut(s3Key, Duration.ofMinutes(expirationMinutes));
     }
     
-    public boolean verifyFileExists(String userId, String filename) {
-        // If filename already contains full s3Key (userId/timestamp_uuid_name), use it directly
-        // Otherwise generate the key
-        String s3Key = filename.contains("/") ? filename : generateS3Key(userId, filename);
+    @Override
+    public String createMultipartUpload(String s3Key, String contentType) {
+        return s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .contentType(contentType)
+                .build())
+            .uploadId();
+    }
+    
+    @Override
+    public String generatePresignedPartUrl(String s3Key, String uploadId, int partNumber) {
+        return presignEngine.presign("PUT", s3Key,
+            Map.of("partNumber", Integer.toString(partNumber), "uploadId", uploadId),
+            Map.of(), Instant.now(), Duration.ofMinutes(expirationMinutes));
+    }
+    
+    @Override
+    public List<UploadedPart> listParts(String s3Key, String uploadId) {
+        List<UploadedPart> parts = new ArrayList<>();
+        try {
+            s3Client.listPartsPaginator(ListPartsRequest.builder()
+                    .bucket(bucketName)
+                    .key(s3Key)
+                    .uploadId(uploadId)
+                    .build())
+                .parts()
+                .forEach(part -> parts.add(new UploadedPart(part.partNumber(), part.eTag(), part.size())));
+        } catch (NoSuchUploadException e) {
+            throw new MultipartUploadNotFoundException(uploadId);
+        }
+        return parts;
+    }
+    
+    @Override
+    public void completeMultipartUpload(String s3Key, String uploadId, List<UploadedPart> parts) {
+        try {
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder()
+                    .parts(parts.stream()
+                        .map(part -> CompletedPart.builder().partNumber(part.partNumber()).eTag(part.eTag()).build())
+                        .toList())
+                    .build())
+                .build());
+        } catch (NoSuchUploadException e) {
+            throw new MultipartUploadNotFoundException(uploadId);
+        }
+    }
+    
+    @Override
+    public void putObject(String s3Key, String contentType, byte[] buffer, int length) {
+        s3Client.putObject(PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .contentType(contentType)
+                .contentLength((long) length)
+                .build(),
+            RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length));
+    }
+    
+    @Override
+    public UploadedPart uploadPart(String s3Key, String uploadId, int partNumber, byte[] buffer, int length) {
+        UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) length)
+                .build(),
+            RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length));
+        return new UploadedPart(partNumber, response.eTag(), length);
+    }
+    
+    @Override
+    public void abortMultipartUpload(String s3Key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .uploadId(uploadId)
+                .build());
+        } catch (NoSuchUploadException e) {
+            log.debug("Multipart upload already gone: s3Key={}, uploadId={}", s3Key, uploadId);
+        }
+    }
+    
+    @Override
+    public Optional<InputStream> openObject(String s3Key) {
         try {
-            HeadObjectRequest request = HeadObjectRequest.builder()
+            return Optional.of(s3Client.getObject(GetObjectRequest.builder()
                 .bucket(bucketName)
                 .key(s3Key)
-                .build();
-            
-            s3Client.headObject(request);
-            return true;
+                .build()));
         } catch (NoSuchKeyException e) {
-            return false;
+            return Optional.empty();
         }
     }
     
-    public long getFileSizeBytes(String userId, String filename) {
-        // If filename already contains full s3Key (userId/timestamp_uuid_name), use it directly
-        // Otherwise generate the key
-        String s3Key = filename.contains("/") ? filename : generateS3Key(userId, filename);
+    @Override
+    public Optional<byte[]> readObjectHead(String s3Key, int maxBytes) {
+        try {
+            return Optional.of(s3Client.getObjectAsBytes(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(s3Key)
+                .range("bytes=0-" + (maxBytes - 1))
+                .build()).asByteArray());
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) {
+                return Optional.of(new byte[0]); // Empty object: no byte 0 to start the range at
+            }
+            throw e;
+        }
+    }
+    
+    @Override
+    public OptionalLong headObjectSize(String s3Key) {
         HeadObjectRequest request = HeadObjectRequest.builder()
             .bucket(bucketName)
             .key(s3Key)
             .build();
+        try {
+            return OptionalLong.of(s3Client.headObject(request).contentLength());
+        } catch (NoSuchKeyException e) {
+            return OptionalLong.empty();
+        }
+    }
+    
+    /**
+     * Sizes of many objects, one HEAD each, issued concurrently through the async client
+     * with at most s3.verify.max-concurrency in flight. Latency is roughly one S3 round
+     * trip per max-concurrency keys instead of two round trips per key.
+     * 
+     * @return Content length per key, or empty if the object doesn't exist. Keys whose
+     *         HEAD failed for another reason (throttling, network) are omitted.
+     */
+    @Override
+    public Map<String, OptionalLong> headObjectSizes(Collection<String> s3Keys) {
+        Semaphore permits = new Semaphore(verifyMaxConcurrency);
+        Map<String, CompletableFuture<OptionalLong>> pending = new LinkedHashMap<>();
+        
+        for (String s3Key : s3Keys) {
+            permits.acquireUninterruptibly();
+            CompletableFuture<OptionalLong> size;
+            try {
+                size = s3AsyncClient.headObject(HeadObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(s3Key)
+                        .build())
+                    .handle((response, error) -> {
+                        if (error == null) {
+                            return OptionalLong.of(response.contentLength());
+                        }
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (cause instanceof NoSuchKeyException
+                                || (cause instanceof S3Exception && ((S3Exception) cause).statusCode() == 404)) {
+                            return OptionalLong.empty();
+                        }
+                        throw new CompletionException(cause);
+                    });
+            } catch (RuntimeException e) {
+                size = CompletableFuture.failedFuture(e);
+            }
+            size.whenComplete((result, error) -> permits.release());
+            pending.put(s3Key, size);
+        }
         
-        HeadObjectResponse response = s3Client.headObject(request);
-        return response.contentLength();
+        Map<String, OptionalLong> sizes = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<OptionalLong>> entry : pending.entrySet()) {
+            try {
+                sizes.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                log.warn("HEAD failed: s3Key={}, error={}", entry.getKey(), e.getCause().getMessage());
+            }
+        }
+        return sizes;
     }
     
-    public void deleteFile(String userId, String filename) {
-        String s3Key = generateS3Key(userId, filename);
+    @Override
+    public void deleteFile(String s3Key) {
         DeleteObjectRequest request = DeleteObjectRequest.builder()
             .bucket(bucketName)
             .key(s3Key)
@@ -104,31 +267,41 @@ public class S3PresignedUrlService {
         s3Client.deleteObject(request);
     }
     
+    /**
+     * One DeleteObjects request per 1000 keys (quiet mode: only failures are listed)
+     */
+    @Override
+    public List<String> deleteObjects(Collection<String> s3Keys) {
+        List<String> keys = new ArrayList<>(s3Keys);
+        List<String> failed = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += DELETE_BATCH_SIZE) {
+            List<String> chunk = keys.subList(from, Math.min(from + DELETE_BATCH_SIZE, keys.size()));
+            List<ObjectIdentifier> objects = chunk.stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+            try {
+                DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucketName)
+                    .delete(Delete.builder().objects(objects).quiet(true).build())
+                    .build());
+                for (S3Error error : response.errors()) {
+                    log.warn("Delete failed: s3Key={}, code={}", error.key(), error.code());
+                    failed.add(error.key());
+                }
+            } catch (SdkException e) {
+                log.warn("DeleteObjects failed: keys={}, error={}", chunk.size(), e.getMessage());
+                failed.addAll(chunk);
+            }
+        }
+        return failed;
+    }
+    
+    @Override
     public String generatePresignedGetUrl(String userId, String filename) {
         // If filename already contains full s3Key (userId/timestamp_uuid_name), use it directly
         // Otherwise generate the key
         String s3Key = filename.contains("/") ? filename : generateS3Key(userId, filename);
-        
-        GetObjectRequest getRequest = GetObjectRequest.builder()
-            .bucket(bucketName)
-            .key(s3Key)
-            .build();
-        
-        S3Presigner presigner = S3Presigner.builder()
-            .credentialsProvider(StaticCredentialsProvider.create(
-                AwsBasicCredentials.create(accessKeyId, secretAccessKey)
-            ))
-            .region(Region.of(awsRegion))
-            .build();
-        
-        GetObjectPresignRequest presignedRequest = GetObjectPresignRequest.builder()
-            .getObjectRequest(getRequest)
-            .signatureDuration(Duration.ofHours(1))
-            .build();
-        
-        PresignedGetObjectRequest presignedUrl = presigner.presignGetObject(presignedRequest);
-        presigner.close();
-        return presignedUrl.url().toString();
+        return getUrlCache.getUrl(s3Key);
     }
     
     private String generateS3Key(String userId, String filename) {
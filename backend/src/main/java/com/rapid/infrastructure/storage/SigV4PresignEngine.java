@@ -0,0 +1,218 @@
+package com.rapid.infrastructure.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Long-lived SigV4 query-string presigner for S3 URLs
+ *
+ * Replaces building (and closing) an S3Presigner per call. Presigning is pure CPU work,
+ * so this engine keeps everything that can be reused:
+ * - The derived SigV4 signing key, cached per credential scope (day/region/service)
+ *   instead of four HMACs per URL
+ * - One Mac and one MessageDigest per thread (neither is thread-safe)
+ *
+ * Thread-safe; one instance is shared by all request threads. Produces the same
+ * signatures as the AWS SDK's S3 presigner (host is the only signed header unless
+ * extra signed headers are passed, payload is UNSIGNED-PAYLOAD).
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+public class SigV4PresignEngine {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final String TERMINATOR = "aws4_request";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final int MAX_CACHED_SIGNING_KEYS = 4; // Today, yesterday (clock skew), bucketed signing times
+
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+        .withZone(ZoneOffset.UTC);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<Mac> HMAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    });
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final String accessKeyId;
+    private final byte[] secretKeyBytes;
+    private final String region;
+    private final String host;
+    private final String endpoint;
+
+    // Credential scope ("yyyyMMdd/region/s3/aws4_request") -> derived signing key
+    private final ConcurrentHashMap<String, byte[]> signingKeys = new ConcurrentHashMap<>();
+
+    public SigV4PresignEngine(
+            @Value("${aws.accessKeyId}") String accessKeyId,
+            @Value("${aws.secretAccessKey}") String secretAccessKey,
+            @Value("${aws.region}") String region,
+            @Value("${aws.s3.bucket}") String bucketName) {
+        this.accessKeyId = accessKeyId;
+        this.secretKeyBytes = ("AWS4" + secretAccessKey).getBytes(StandardCharsets.UTF_8);
+        this.region = region;
+        this.host = bucketName + ".s3." + region + ".amazonaws.com";
+        this.endpoint = "https://" + host;
+    }
+
+    public String presignGet(String key, Duration expiry) {
+        return presign("GET", key, Map.of(), Map.of(), Instant.now(), expiry);
+    }
+
+    public String presignPut(String key, Duration expiry) {
+        return presign("PUT", key, Map.of(), Map.of(), Instant.now(), expiry);
+    }
+
+    /**
+     * Presign a request for an object in the configured bucket.
+     *
+     * @param method HTTP method (GET, PUT, ...)
+     * @param key Object key (unencoded)
+     * @param queryParams Extra query parameters to sign (e.g. partNumber, uploadId), unencoded
+     * @param signedHeaders Extra headers the client must send verbatim (lowercase names), besides host
+     * @param signingTime Signing time; deterministic inputs give byte-identical URLs
+     * @param expiry How long the URL stays valid (max 7 days)
+     * @return Presigned URL
+     */
+    public String presign(String method, String key, Map<String, String> queryParams,
+                          Map<String, String> signedHeaders, Instant signingTime, Duration expiry) {
+        String amzDate = AMZ_DATE.format(signingTime);
+        String dateStamp = amzDate.substring(0, 8);
+        String scope = dateStamp + "/" + region + "/" + SERVICE + "/" + TERMINATOR;
+
+        // Canonical headers: host plus any extra signed headers, sorted by name
+        TreeMap<String, String> headers = new TreeMap<>(signedHeaders);
+        headers.put("host", host);
+        String signedHeaderNames = String.join(";", headers.keySet());
+
+        // Canonical query string: all parameters except the signature, sorted by encoded name
+        TreeMap<String, String> query = new TreeMap<>();
+        for (Map.Entry<String, String> param : queryParams.entrySet()) {
+            query.put(uriEncode(param.getKey(), true), uriEncode(param.getValue(), true));
+        }
+        query.put("X-Amz-Algorithm", ALGORITHM);
+        query.put("X-Amz-Credential", uriEncode(accessKeyId + "/" + scope, true));
+        query.put("X-Amz-Date", amzDate);
+        query.put("X-Amz-Expires", Long.toString(expiry.getSeconds()));
+        query.put("X-Amz-SignedHeaders", uriEncode(signedHeaderNames, true));
+
+        StringBuilder canonicalQuery = new StringBuilder(256);
+        for (Map.Entry<String, String> param : query.entrySet()) {
+            if (canonicalQuery.length() > 0) {
+                canonicalQuery.append('&');
+            }
+            canonicalQuery.append(param.getKey()).append('=').append(param.getValue());
+        }
+
+        String encodedPath = "/" + uriEncode(key, false);
+
+        StringBuilder canonicalRequest = new StringBuilder(512)
+            .append(method).append('\n')
+            .append(encodedPath).append('\n')
+            .append(canonicalQuery).append('\n');
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            canonicalRequest.append(header.getKey()).append(':').append(header.getValue().trim()).append('\n');
+        }
+        canonicalRequest.append('\n')
+            .append(signedHeaderNames).append('\n')
+            .append(UNSIGNED_PAYLOAD);
+
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n"
+            + hex(sha256(canonicalRequest.toString()));
+
+        String signature = hex(hmac(signingKey(dateStamp, scope), stringToSign));
+
+        return endpoint + encodedPath + "?" + canonicalQuery + "&X-Amz-Signature=" + signature;
+    }
+
+    /**
+     * Derived signing key for a credential scope. Recomputing it is four chained HMACs,
+     * and it only changes once a day, so it is cached per scope.
+     */
+    private byte[] signingKey(String dateStamp, String scope) {
+        byte[] cached = signingKeys.get(scope);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] kDate = hmac(secretKeyBytes, dateStamp);
+        byte[] kRegion = hmac(kDate, region);
+        byte[] kService = hmac(kRegion, SERVICE);
+        byte[] kSigning = hmac(kService, TERMINATOR);
+
+        if (signingKeys.size() >= MAX_CACHED_SIGNING_KEYS) {
+            signingKeys.clear(); // Old days are never needed again
+        }
+        signingKeys.put(scope, kSigning);
+        return kSigning;
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        Mac mac = HMAC.get();
+        try {
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid HMAC key", e);
+        }
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] sha256(String data) {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest.digest(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            out[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    /**
+     * SigV4 URI encoding: everything except unreserved characters (A-Z a-z 0-9 - _ . ~)
+     * is percent-encoded as UTF-8; '/' is kept as-is in paths.
+     */
+    static String uriEncode(String value, boolean encodeSlash) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        StringBuilder out = new StringBuilder(bytes.length + 16);
+        for (byte b : bytes) {
+            int c = b & 0xFF;
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !encodeSlash)) {
+                out.append((char) c);
+            } else {
+                out.append('%').append(Character.toUpperCase(HEX[c >> 4])).append(Character.toUpperCase(HEX[c & 0xF]));
+            }
+        }
+        return out.toString();
+    }
+}
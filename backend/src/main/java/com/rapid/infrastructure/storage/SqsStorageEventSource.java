@@ -0,0 +1,144 @@
+package com.rapid.infrastructure.storage;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Storage events from S3 event notifications delivered to SQS
+ *
+ * Configure the bucket to send s3:ObjectCreated:* notifications to the queue at
+ * storage.events.sqs.queue-url (directly or via SNS). One SQS message can carry
+ * several records; all of them share the message's receipt handle, and the message
+ * is deleted once every record in it has been acknowledged together.
+ *
+ * Messages that aren't ObjectCreated records (e.g. s3:TestEvent) are deleted
+ * immediately.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.events.source", havingValue = "sqs")
+public class SqsStorageEventSource implements StorageEventSource {
+
+    private static final Logger log = LoggerFactory.getLogger(SqsStorageEventSource.class);
+
+    private static final int MAX_MESSAGES_PER_RECEIVE = 10; // SQS limit
+    private static final int MAX_ENTRIES_PER_DELETE = 10;   // SQS limit
+
+    private final SqsClient sqsClient;
+    private final ObjectMapper objectMapper;
+    private final String queueUrl;
+    private final int waitSeconds;
+
+    public SqsStorageEventSource(SqsClient sqsClient,
+                                 ObjectMapper objectMapper,
+                                 @Value("${storage.events.sqs.queue-url}") String queueUrl,
+                                 @Value("${storage.events.sqs.wait-seconds:1}") int waitSeconds) {
+        this.sqsClient = sqsClient;
+        this.objectMapper = objectMapper;
+        this.queueUrl = queueUrl;
+        this.waitSeconds = waitSeconds;
+    }
+
+    @Override
+    public List<StorageEvent> poll(int maxEvents) {
+        List<StorageEvent> events = new ArrayList<>();
+        List<String> ignored = new ArrayList<>();
+        while (events.size() < maxEvents) {
+            List<Message> messages = sqsClient.receiveMessage(ReceiveMessageRequest.builder()
+                .queueUrl(queueUrl)
+                .maxNumberOfMessages(MAX_MESSAGES_PER_RECEIVE)
+                .waitTimeSeconds(events.isEmpty() ? waitSeconds : 0) // Only wait for the first receive
+                .build()).messages();
+
+            for (Message message : messages) {
+                List<StorageEvent> parsed = parse(message);
+                if (parsed.isEmpty()) {
+                    ignored.add(message.receiptHandle());
+                }
+                events.addAll(parsed);
+            }
+            if (messages.size() < MAX_MESSAGES_PER_RECEIVE) {
+                break; // Queue drained
+            }
+        }
+        deleteMessages(ignored);
+        return events;
+    }
+
+    @Override
+    public void acknowledge(Collection<StorageEvent> events) {
+        Set<String> receiptHandles = new LinkedHashSet<>();
+        for (StorageEvent event : events) {
+            receiptHandles.add(event.ackToken());
+        }
+        deleteMessages(receiptHandles);
+    }
+
+    private List<StorageEvent> parse(Message message) {
+        List<StorageEvent> events = new ArrayList<>();
+        try {
+            JsonNode body = objectMapper.readTree(message.body());
+            // Unwrap S3 -> SNS -> SQS deliveries
+            if (body.hasNonNull("Message") && body.get("Message").isTextual()) {
+                body = objectMapper.readTree(body.get("Message").asText());
+            }
+            for (JsonNode record : body.path("Records")) {
+                if (!record.path("eventName").asText().startsWith("ObjectCreated:")) {
+                    continue;
+                }
+                JsonNode object = record.path("s3").path("object");
+                // Keys in S3 notifications are form-URL-encoded (spaces as '+')
+                String s3Key = URLDecoder.decode(object.path("key").asText(), StandardCharsets.UTF_8);
+                events.add(new StorageEvent(s3Key, object.path("size").asLong(),
+                    object.path("eTag").asText(null), message.receiptHandle()));
+            }
+        } catch (IOException e) {
+            log.warn("Unparseable storage event message, dropping: messageId={}, error={}",
+                message.messageId(), e.getMessage());
+        }
+        return events;
+    }
+
+    private void deleteMessages(Collection<String> receiptHandles) {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(MAX_ENTRIES_PER_DELETE);
+        for (String receiptHandle : receiptHandles) {
+            entries.add(DeleteMessageBatchRequestEntry.builder()
+                .id(Integer.toString(entries.size()))
+                .receiptHandle(receiptHandle)
+                .build());
+            if (entries.size() == MAX_ENTRIES_PER_DELETE) {
+                deleteBatch(entries);
+                entries = new ArrayList<>(MAX_ENTRIES_PER_DELETE);
+            }
+        }
+        if (!entries.isEmpty()) {
+            deleteBatch(entries);
+        }
+    }
+
+    private void deleteBatch(List<DeleteMessageBatchRequestEntry> entries) {
+        int failed = sqsClient.deleteMessageBatch(builder -> builder.queueUrl(queueUrl).entries(entries))
+            .failed().size();
+        if (failed > 0) {
+            // Not fatal: the messages are redelivered and processing is idempotent
+            log.warn("Failed to delete storage event messages: count={}", failed);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.rapid.infrastructure.storage;
+
+/**
+ * An object was created in the bucket (S3 ObjectCreated notification)
+ *
+ * @param s3Key Object key (decoded)
+ * @param sizeBytes Object size as reported by the event
+ * @param eTag Object ETag as reported by the event
+ * @param ackToken Source-specific handle used to acknowledge the event (e.g. SQS receipt handle)
+ */
+public record StorageEvent(String s3Key, long sizeBytes, String eTag, String ackToken) {
+}
@@ -0,0 +1,28 @@
+package com.rapid.infrastructure.storage;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Queue of storage (ObjectCreated) events
+ *
+ * Implementations:
+ * - InMemoryStorageEventSource: in-process queue (default; local dev and tests)
+ * - SqsStorageEventSource: S3 event notifications delivered to an SQS queue
+ *
+ * Delivery is at-least-once: events are only removed once acknowledged (an
+ * unacknowledged event is delivered again after the source's visibility timeout), so
+ * consumers must be idempotent.
+ */
+public interface StorageEventSource {
+
+    /**
+     * Take up to maxEvents pending events. May block briefly (long poll) when empty.
+     */
+    List<StorageEvent> poll(int maxEvents);
+
+    /**
+     * Remove processed events so they are not delivered again.
+     */
+    void acknowledge(Collection<StorageEvent> events);
+}
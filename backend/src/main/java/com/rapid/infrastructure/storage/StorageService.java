@@ -0,0 +1,111 @@
+package com.rapid.infrastructure.storage;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Object storage used by the upload and photo services
+ *
+ * Selected with storage.backend:
+ * - s3 (default): S3PresignedUrlService, clients upload/download straight to/from S3
+ * - local: LocalStorageService, objects on local disk behind HMAC-signed URLs served by
+ *   this API (on-prem installs, offline benchmarking without AWS)
+ *
+ * Keys are the photo's s3Key ("userId/timestamp_uuid_filename") for either backend.
+ */
+public interface StorageService {
+
+    /**
+     * URL the client PUTs the file to, valid for s3.presigned-url-expiration-minutes
+     * @param filename Full object key, or a bare filename to generate a key for
+     */
+    String generatePresignedPutUrl(String userId, String filename);
+
+    /**
+     * URL the client GETs the file from (cacheable, see PresignedGetUrlCache)
+     * @param filename Full object key, or a bare filename to generate a key for
+     */
+    String generatePresignedGetUrl(String userId, String filename);
+
+    /**
+     * Start a multipart upload for an object
+     * @return Upload ID
+     */
+    String createMultipartUpload(String s3Key, String contentType);
+
+    /**
+     * URL the client PUTs one part of a multipart upload to
+     */
+    String generatePresignedPartUrl(String s3Key, String uploadId, int partNumber);
+
+    /**
+     * Parts uploaded so far, in part number order
+     * @throws MultipartUploadNotFoundException if the upload was completed or aborted
+     */
+    List<UploadedPart> listParts(String s3Key, String uploadId);
+
+    /**
+     * Assemble uploaded parts into the final object
+     * @throws MultipartUploadNotFoundException if the upload was already completed or aborted
+     */
+    void completeMultipartUpload(String s3Key, String uploadId, List<UploadedPart> parts);
+
+    /**
+     * Abort a multipart upload and free its stored parts (no-op if it no longer exists)
+     */
+    void abortMultipartUpload(String s3Key, String uploadId);
+
+    /**
+     * Write an object from bytes already in memory (first length bytes of buffer).
+     * The buffer is not retained, so it can be reused once this returns.
+     */
+    void putObject(String s3Key, String contentType, byte[] buffer, int length);
+
+    /**
+     * Write one part of a multipart upload from bytes in memory (see putObject)
+     */
+    UploadedPart uploadPart(String s3Key, String uploadId, int partNumber, byte[] buffer, int length);
+
+    /**
+     * Stream an object's content (the caller closes the stream)
+     * @return Content, or empty if the object doesn't exist
+     */
+    Optional<InputStream> openObject(String s3Key);
+
+    /**
+     * First bytes of an object, fetched with a ranged GET: the rest is never transferred,
+     * so the cost doesn't depend on the object's size
+     * @return Up to maxBytes (fewer if the object is smaller), or empty if it doesn't exist
+     */
+    Optional<byte[]> readObjectHead(String s3Key, int maxBytes);
+
+    /**
+     * Size of one object
+     * @return Content length, or empty if the object doesn't exist
+     */
+    OptionalLong headObjectSize(String s3Key);
+
+    /**
+     * Sizes of many objects
+     * @return Content length per key, or empty if the object doesn't exist. Keys that
+     *         couldn't be checked (throttling, network) are omitted.
+     */
+    Map<String, OptionalLong> headObjectSizes(Collection<String> s3Keys);
+
+    /**
+     * Delete one object
+     * @param s3Key Full object key, as stored on the photo
+     */
+    void deleteFile(String s3Key);
+
+    /**
+     * Delete many objects (S3: DeleteObjects, up to 1000 keys per request).
+     * Keys that don't exist count as deleted.
+     * @return Keys that couldn't be deleted
+     */
+    List<String> deleteObjects(Collection<String> s3Keys);
+}
@@ -0,0 +1,7 @@
+package com.rapid.infrastructure.storage;
+
+/**
+ * One part of an in-progress S3 multipart upload, as listed by S3
+ */
+public record UploadedPart(int partNumber, String eTag, long sizeBytes) {
+}
@@ -10,6 +10,11 @@ import org.springframework.stereotype.Service;
 
 import java.util.Collections;
 
+/**
+ * Loads users for Spring Security's UserDetailsService contract.
+ * Not on the per-request path: JwtAuthenticationFilter builds the principal from
+ * verified token claims without a users-table lookup.
+ */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     
@@ -1,16 +1,30 @@
 package com.rapid.security;
 
+import com.rapid.infrastructure.cache.LruCache;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.time.Instant;
 import java.util.Date;
+import java.util.UUID;
 
+/**
+ * Issues and verifies JWTs
+ *
+ * The signing key and parser are built once (both are immutable and thread-safe).
+ * Verified tokens are kept in a small bounded LRU until they expire, so the 100+
+ * initiate/complete calls of a batch upload verify the HMAC once, not per request.
+ * Revocation is checked on every call, cached or not (TokenRevocationService, in memory).
+ */
 @Component
 public class JwtTokenProvider {
     @Value("${jwt.secret:}")
@@ -19,42 +33,93 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
     
-    private SecretKey getSigningKey() {
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private LruCache<String, VerifiedToken> verifiedTokens;
+    
+    private record VerifiedToken(String userId, String jti, long issuedAtMillis, long expiresAtMillis) {}
+    
+    @PostConstruct
+    void init() {
         if (jwtSecret == null || jwtSecret.isEmpty()) {
             throw new IllegalStateException("JWT_SECRET environment variable is required but not set. Please set it before starting the application.");
         }
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parser().verifyWith(signingKey).build();
+        verifiedTokens = new LruCache<>(verifiedCacheSize);
     }
     
     public String generateToken(String userId, String email) {
         return Jwts.builder()
+            .id(UUID.randomUUID().toString())
             .subject(userId)
             .claim("email", email)
             .issuedAt(new Date())
             .expiration(new Date(System.currentTimeMillis() + jwtExpiration))
-            .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+            .signWith(signingKey, SignatureAlgorithm.HS512)
             .compact();
     }
     
-    public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-            .verifyWith(getSigningKey())
-            .build()
-            .parseSignedClaims(token)
-            .getPayload();
-        return claims.getSubject();
+    /**
+     * Verify a token (signature, expiry and revocation) and return its subject.
+     * @return User ID, or null if the token is invalid, expired or revoked
+     */
+    public String resolveUserId(String token) {
+        VerifiedToken verified = verify(token);
+        if (verified == null || tokenRevocationService.isRevoked(
+                verified.jti(), verified.userId(), verified.issuedAtMillis())) {
+            return null;
+        }
+        return verified.userId();
+    }
+    
+    /**
+     * Revoke a token (logout). Tokens issued without a jti can't be told apart, so
+     * for those every token of the user issued so far is revoked.
+     */
+    public void revoke(String token) {
+        VerifiedToken verified = verify(token);
+        if (verified == null) {
+            return; // Already unusable
+        }
+        if (verified.jti() == null) {
+            tokenRevocationService.revokeAllForUser(verified.userId());
+        } else {
+            tokenRevocationService.revokeToken(verified.jti(), verified.userId(),
+                Instant.ofEpochMilli(verified.expiresAtMillis()));
+        }
     }
     
-    public boolean validateToken(String token) {
+    // Signature and expiry only; verified tokens are cached until they expire
+    private VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(token);
+        if (cached != null) {
+            if (now < cached.expiresAtMillis()) {
+                return cached;
+            }
+            verifiedTokens.remove(token);
+            return null;
+        }
+        
+        Claims claims;
         try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token);
-            return true;
+            claims = parser.parseSignedClaims(token).getPayload();
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
+        }
+        if (claims.getSubject() == null || claims.getExpiration() == null || claims.getIssuedAt() == null) {
+            return null;
         }
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), claims.getId(),
+            claims.getIssuedAt().getTime(), claims.getExpiration().getTime());
+        verifiedTokens.put(token, verified);
+        return verified;
     }
 }
-
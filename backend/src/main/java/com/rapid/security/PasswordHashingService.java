@@ -0,0 +1,238 @@
+package com.rapid.security;
+
+import com.rapid.infrastructure.exceptions.LimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Password hashing (BCrypt) on a dedicated, bounded set of threads
+ *
+ * Each hash or verify costs ~100 ms of CPU. Run on request threads, a burst of logins
+ * (a whole class signing in at once) takes the CPU and threads that serve uploads.
+ * Here the work is queued and run by a fixed number of workers, and the request
+ * thread is released while it waits (callers get a CompletableFuture).
+ *
+ * Admission:
+ * - Bounded queue, per client (source IP) and in total; beyond either, work is
+ *   rejected immediately with 429 AUTH_BUSY instead of piling up
+ * - Workers take clients round-robin, so one client's burst can't delay everyone else
+ * - Work that waited longer than max-wait is failed without hashing (the client has
+ *   likely given up)
+ *
+ * Metrics: auth.hashing.queue.depth, auth.hashing.duration / auth.hashing.wait
+ * (by operation), auth.hashing.rejected (by reason)
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final int maxQueued;
+    private final int maxQueuedPerClient;
+    private final long maxWaitNanos;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    // Per-client FIFO queues; a client id is in `ready` exactly while its queue is non-empty
+    private final Map<String, ArrayDeque<Task<?>>> queues = new HashMap<>();
+    private final ArrayDeque<String> ready = new ArrayDeque<>();
+    private int queued;
+    private boolean shutdown;
+
+    @Autowired
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${auth.hashing.threads:0}") int threads,
+                                  @Value("${auth.hashing.max-queued:64}") int maxQueued,
+                                  @Value("${auth.hashing.max-queued-per-client:4}") int maxQueuedPerClient,
+                                  @Value("${auth.hashing.max-wait-ms:5000}") long maxWaitMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry;
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerClient = maxQueuedPerClient;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+
+        // Default: half the cores, leaving the rest for request threads
+        int workerCount = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::workLoop, "auth-hash-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        Gauge.builder("auth.hashing.queue.depth", this, PasswordHashingService::queueDepth)
+            .description("Password hash/verify operations waiting for a worker")
+            .register(meterRegistry);
+        log.info("Password hashing workers started: threads={}, maxQueued={}, maxQueuedPerClient={}",
+            workerCount, maxQueued, maxQueuedPerClient);
+    }
+
+    /**
+     * Hash a password.
+     * @param clientKey Fairness key (source IP)
+     * @throws LimitExceededException (AUTH_BUSY) if the queue is full for this client or overall
+     */
+    public CompletableFuture<String> encode(String rawPassword, String clientKey) {
+        return submit(clientKey, "encode", () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Check a password against a stored hash.
+     * @param clientKey Fairness key (source IP)
+     * @throws LimitExceededException (AUTH_BUSY) if the queue is full for this client or overall
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword, String clientKey) {
+        return submit(clientKey, "matches", () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    int queueDepth() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(String clientKey, String operation, Supplier<T> work) {
+        Task<T> task = new Task<>(operation, work, System.nanoTime());
+        lock.lock();
+        try {
+            ArrayDeque<Task<?>> queue = queues.get(clientKey);
+            if (shutdown || queued >= maxQueued) {
+                throw busy("queue_full");
+            }
+            if (queue != null && queue.size() >= maxQueuedPerClient) {
+                throw busy("client_limit");
+            }
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(clientKey, queue);
+                ready.addLast(clientKey);
+            }
+            queue.addLast(task);
+            queued++;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        return task.future;
+    }
+
+    // Next task, taking clients round-robin; null once shut down
+    private Task<?> take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (ready.isEmpty()) {
+                if (shutdown) {
+                    return null;
+                }
+                workAvailable.await();
+            }
+            String clientKey = ready.pollFirst();
+            ArrayDeque<Task<?>> queue = queues.get(clientKey);
+            Task<?> task = queue.pollFirst();
+            if (queue.isEmpty()) {
+                queues.remove(clientKey);
+            } else {
+                ready.addLast(clientKey);
+            }
+            queued--;
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void workLoop() {
+        while (true) {
+            Task<?> task;
+            try {
+                task = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == null) {
+                return;
+            }
+            run(task);
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        long waited = System.nanoTime() - task.enqueuedAt;
+        Timer.builder("auth.hashing.wait").tag("operation", task.operation)
+            .register(meterRegistry).record(waited, TimeUnit.NANOSECONDS);
+        if (waited > maxWaitNanos) {
+            task.future.completeExceptionally(busy("timeout"));
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            task.future.complete(task.work.get());
+        } catch (Throwable e) {
+            task.future.completeExceptionally(e);
+        } finally {
+            Timer.builder("auth.hashing.duration").tag("operation", task.operation)
+                .register(meterRegistry).record(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    private LimitExceededException busy(String reason) {
+        Counter.builder("auth.hashing.rejected").tag("reason", reason).register(meterRegistry).increment();
+        log.warn("Password hashing rejected: reason={}", reason);
+        return new LimitExceededException("Too many sign-in attempts right now, please try again shortly", "AUTH_BUSY");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<Task<?>> abandoned = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            queues.values().forEach(abandoned::addAll);
+            queues.clear();
+            ready.clear();
+            queued = 0;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        abandoned.forEach(task -> task.future.completeExceptionally(busy("shutdown")));
+    }
+
+    private static final class Task<T> {
+        final String operation;
+        final Supplier<T> work;
+        final long enqueuedAt;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Task(String operation, Supplier<T> work, long enqueuedAt) {
+            this.operation = operation;
+            this.work = work;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.rapid.security;
+
+import com.rapid.domain.TokenRevocation;
+import com.rapid.infrastructure.cache.BloomFilter;
+import com.rapid.infrastructure.repository.TokenRevocationRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked JWTs, checked on every request without touching the database
+ *
+ * JwtAuthenticationFilter trusts verified claims, so sessions are killed by revoking
+ * tokens here instead of by a per-request users lookup:
+ * - revokeToken: one token (logout), by its jti
+ * - revokeAllForUser: every token of a user issued before now (logout everywhere,
+ *   password change, user deletion)
+ *
+ * Lookup:
+ * - Bloom filters over revoked jtis and user ids answer "not revoked" for almost every
+ *   token without hashing into the exact maps; a filter hit is confirmed against the
+ *   exact maps (jti -> expiry, userId -> revoked-before)
+ * - Mutations (local revokes, refresh, rebuild) are serialized; lookups take no lock
+ *
+ * Persistence:
+ * - Revocations are written to token_revocations first, then applied locally, so the
+ *   revoking instance enforces them immediately
+ * - Other instances pick up new rows on a fixed delay, reading by revokedAt with an
+ *   overlap so rows committed late are not missed (re-applying a row is harmless)
+ * - Entries past their expiry are dropped from memory and purged from the table
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    // How far each refresh re-reads behind the newest row already seen
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(30);
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final TokenRevocationRepository repository;
+    private final Duration tokenLifetime;
+    private final int initialCapacity;
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>();
+    private volatile BloomFilter tokenFilter;
+    private volatile BloomFilter userFilter;
+    private int capacity;
+    private LocalDateTime refreshedThrough;
+
+    public TokenRevocationService(TokenRevocationRepository repository,
+                                  @Value("${jwt.expiration}") long jwtExpirationMillis,
+                                  @Value("${jwt.revocation.filter-capacity:100000}") int initialCapacity) {
+        this.repository = repository;
+        this.tokenLifetime = Duration.ofMillis(jwtExpirationMillis);
+        this.initialCapacity = initialCapacity;
+        this.capacity = initialCapacity;
+        this.tokenFilter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        this.userFilter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Load revocations still in force before the first request is authenticated.
+     */
+    @PostConstruct
+    synchronized void load() {
+        LocalDateTime now = LocalDateTime.now();
+        List<TokenRevocation> rows = repository.findByExpiresAtAfter(now);
+        rows.forEach(this::apply);
+        refreshedThrough = rows.stream().map(TokenRevocation::getRevokedAt).max(LocalDateTime::compareTo).orElse(now);
+        log.info("Token revocations loaded: tokens={}, users={}", revokedTokens.size(), revokedUsers.size());
+    }
+
+    /**
+     * Whether a verified token has been revoked (no database access).
+     * @param jti Token id, or null for tokens issued without one
+     * @param issuedAtMillis Token iat (second precision)
+     */
+    public boolean isRevoked(String jti, String userId, long issuedAtMillis) {
+        if (jti != null && tokenFilter.mightContain(jti) && revokedTokens.containsKey(jti)) {
+            return true;
+        }
+        if (userFilter.mightContain(userId)) {
+            Long revokedBefore = revokedUsers.get(userId);
+            return revokedBefore != null && issuedAtMillis < revokedBefore;
+        }
+        return false;
+    }
+
+    /**
+     * Revoke a single token until it expires.
+     */
+    public void revokeToken(String jti, String userId, Instant expiresAt) {
+        TokenRevocation revocation = repository.save(
+            new TokenRevocation(jti, userId, LocalDateTime.now(), toLocal(expiresAt)));
+        synchronized (this) {
+            apply(revocation);
+        }
+        log.debug("Token revoked: userId={}, jti={}", userId, jti);
+    }
+
+    /**
+     * Revoke every token of a user issued before now. Tokens issued afterwards (e.g. a
+     * login right after a password change) are unaffected.
+     */
+    public void revokeAllForUser(String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        TokenRevocation revocation = repository.save(
+            new TokenRevocation(null, userId, now, now.plus(tokenLifetime)));
+        synchronized (this) {
+            apply(revocation);
+        }
+        log.info("All tokens revoked for user: userId={}", userId);
+    }
+
+    /**
+     * Apply revocations recorded by other instances and drop expired entries.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval-ms:5000}")
+    public synchronized void refresh() {
+        try {
+            List<TokenRevocation> rows = repository.findByRevokedAtAfterOrderByRevokedAt(
+                refreshedThrough.minus(REFRESH_OVERLAP));
+            for (TokenRevocation row : rows) {
+                apply(row);
+                if (row.getRevokedAt().isAfter(refreshedThrough)) {
+                    refreshedThrough = row.getRevokedAt();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to refresh token revocations: error={}", e.getMessage());
+        }
+
+        long now = System.currentTimeMillis();
+        int sizeBefore = revokedTokens.size() + revokedUsers.size();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedUsers.values().removeIf(revokedBefore -> revokedBefore + tokenLifetime.toMillis() <= now);
+        int size = revokedTokens.size() + revokedUsers.size();
+        // Filters only grow; rebuild once a good share of their entries has expired
+        if (size < sizeBefore && (sizeBefore - size) * 4 >= sizeBefore) {
+            rebuildFilters();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = repository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Expired token revocations purged: count={}", deleted);
+        }
+    }
+
+    // Callers hold the monitor
+    private void apply(TokenRevocation revocation) {
+        if (revocation.getJti() != null) {
+            revokedTokens.put(revocation.getJti(), toMillis(revocation.getExpiresAt()));
+            tokenFilter.put(revocation.getJti());
+        } else {
+            // iat has second precision: tokens issued in the revoking second survive, so a
+            // fresh login right after revoking is never caught
+            long revokedBefore = toMillis(revocation.getRevokedAt()) / 1000 * 1000;
+            revokedUsers.merge(revocation.getUserId(), revokedBefore, Math::max);
+            userFilter.put(revocation.getUserId());
+        }
+        if (revokedTokens.size() > capacity || revokedUsers.size() > capacity) {
+            rebuildFilters();
+        }
+    }
+
+    private void rebuildFilters() {
+        capacity = Math.max(initialCapacity, Math.max(revokedTokens.size(), revokedUsers.size()) * 2);
+        BloomFilter tokens = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        revokedTokens.keySet().forEach(tokens::put);
+        BloomFilter users = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        revokedUsers.keySet().forEach(users::put);
+        tokenFilter = tokens;
+        userFilter = users;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
@@ -7,15 +7,17 @@ import com.rapid.features.auth.dto.RegisterRequest;
 import com.rapid.infrastructure.repository.UserRepository;
 import com.rapid.infrastructure.service.LimitsService;
 import com.rapid.security.JwtTokenProvider;
+import com.rapid.security.PasswordHashingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -29,7 +31,7 @@ class AuthServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Mock
     private JwtTokenProvider jwtTokenProvider;
@@ -56,11 +58,11 @@ class AuthServiceTest {
         
         doNothing().when(limitsService).checkUserLimit();
         when(userRepository.existsByEmail("newuser@example.com")).thenReturn(false);
-        when(passwordEncoder.encode("password123")).thenReturn("encoded-hash");
+        when(passwordHashingService.encode("password123", "10.0.0.1")).thenReturn(CompletableFuture.completedFuture("encoded-hash"));
         when(userRepository.save(any(User.class))).thenReturn(testUser);
         when(jwtTokenProvider.generateToken("user-123", "test@example.com")).thenReturn("jwt-token");
 
-        AuthResponse response = authService.register(request);
+        AuthResponse response = authService.register(request, "10.0.0.1").join();
 
         assertNotNull(response);
         assertEquals("user-123", response.getUserId());
@@ -75,7 +77,7 @@ class AuthServiceTest {
         doNothing().when(limitsService).checkUserLimit();
         when(userRepository.existsByEmail("existing@example.com")).thenReturn(true);
 
-        assertThrows(RuntimeException.class, () -> authService.register(request));
+        assertThrows(RuntimeException.class, () -> authService.register(request, "10.0.0.1"));
         verify(userRepository, never()).save(any(User.class));
     }
 
@@ -85,13 +87,13 @@ class AuthServiceTest {
         
         doNothing().when(limitsService).checkUserLimit();
         when(userRepository.existsByEmail("newuser@example.com")).thenReturn(false);
-        when(passwordEncoder.encode("password123")).thenReturn("encoded-hash");
+        when(passwordHashingService.encode("password123", "10.0.0.1")).thenReturn(CompletableFuture.completedFuture("encoded-hash"));
         when(userRepository.save(any(User.class))).thenReturn(testUser);
         when(jwtTokenProvider.generateToken(anyString(), anyString())).thenReturn("token");
 
-        authService.register(request);
+        authService.register(request, "10.0.0.1").join();
 
-        verify(passwordEncoder).encode("password123");
+        verify(passwordHashingService).encode("password123", "10.0.0.1");
     }
 
     @Test
@@ -99,10 +101,10 @@ class AuthServiceTest {
         LoginRequest request = new LoginRequest("test@example.com", "password123");
         
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(passwordEncoder.matches("password123", "encoded-password-hash")).thenReturn(true);
+        when(passwordHashingService.matches("password123", "encoded-password-hash", "10.0.0.1")).thenReturn(CompletableFuture.completedFuture(true));
         when(jwtTokenProvider.generateToken("user-123", "test@example.com")).thenReturn("jwt-token");
 
-        AuthResponse response = authService.login(request);
+        AuthResponse response = authService.login(request, "10.0.0.1").join();
 
         assertNotNull(response);
         assertEquals("user-123", response.getUserId());
@@ -115,9 +117,10 @@ class AuthServiceTest {
         LoginRequest request = new LoginRequest("test@example.com", "wrongpassword");
         
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
-        when(passwordEncoder.matches("wrongpassword", "encoded-password-hash")).thenReturn(false);
+        when(passwordHashingService.matches("wrongpassword", "encoded-password-hash", "10.0.0.1")).thenReturn(CompletableFuture.completedFuture(false));
 
-        assertThrows(RuntimeException.class, () -> authService.login(request));
+        CompletionException e = assertThrows(CompletionException.class, () -> authService.login(request, "10.0.0.1").join());
+        assertEquals("Invalid email or password", e.getCause().getMessage());
         verify(jwtTokenProvider, never()).generateToken(anyString(), anyString());
     }
 
@@ -127,7 +130,7 @@ class AuthServiceTest {
         
         when(userRepository.findByEmail("nonexistent@example.com")).thenReturn(Optional.empty());
 
-        assertThrows(RuntimeException.class, () -> authService.login(request));
+        assertThrows(RuntimeException.class, () -> authService.login(request, "10.0.0.1"));
     }
 }
 
@@ -0,0 +1,161 @@
+package com.rapid.features.photos.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.infrastructure.storage.StorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageVariantServiceTest {
+
+    private static final String S3_KEY = "user-123/1_uuid_a.jpg";
+
+    @TempDir
+    Path cacheDir;
+
+    private PhotoQueryService photoQueryService;
+    private StorageService storageService;
+    private SimpleMeterRegistry meterRegistry;
+    private ImageVariantService service;
+    private byte[] original;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        photoQueryService = mock(PhotoQueryService.class);
+        storageService = mock(StorageService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        service = newService();
+
+        Photo photo = new Photo();
+        photo.setId("photo-1");
+        photo.setS3Key(S3_KEY);
+        photo.setStatus(PhotoStatus.UPLOADED);
+        original = jpeg(3000, 2000);
+        photo.setFileSizeBytes((long) original.length);
+        when(photoQueryService.findUploadedPhoto("user-123", "photo-1")).thenReturn(photo);
+        when(storageService.openObject(S3_KEY)).thenAnswer(invocation -> Optional.of(new ByteArrayInputStream(original)));
+    }
+
+    @Test
+    void testRendersOnceThenServesFromHeap() throws Exception {
+        ImageVariantService.Variant variant = service.resolve("user-123", "photo-1", 300, null, null);
+
+        byte[] first = service.load(variant);
+        byte[] second = service.load(service.resolve("user-123", "photo-1", 300, null, "jpg"));
+
+        assertEquals("image/jpeg", variant.contentType());
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(first));
+        assertEquals(300, image.getWidth());
+        assertEquals(200, image.getHeight());
+        assertSame(first, second);
+        verify(storageService, times(1)).openObject(S3_KEY);
+        assertEquals(1, count("heap"));
+    }
+
+    @Test
+    void testDiskCacheSurvivesRestart() {
+        ImageVariantService.Variant variant = service.resolve("user-123", "photo-1", 100, 100, "png");
+        byte[] rendered = service.load(variant);
+
+        ImageVariantService restarted = newService();
+        byte[] fromDisk = restarted.load(restarted.resolve("user-123", "photo-1", 100, 100, "png"));
+
+        assertArrayEquals(rendered, fromDisk);
+        verify(storageService, times(1)).openObject(S3_KEY);
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneRender() throws Exception {
+        CountDownLatch renderStarted = new CountDownLatch(1);
+        CountDownLatch releaseRender = new CountDownLatch(1);
+        when(storageService.openObject(S3_KEY)).thenAnswer(invocation -> {
+            renderStarted.countDown();
+            releaseRender.await(10, TimeUnit.SECONDS);
+            return Optional.of(new ByteArrayInputStream(original));
+        });
+        ImageVariantService.Variant variant = service.resolve("user-123", "photo-1", 256, 256, null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            results.add(pool.submit(() -> service.load(variant)));
+            assertTrue(renderStarted.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(pool.submit(() -> service.load(variant)));
+            }
+            // All the others are waiting on the first render
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (count("coalesced") < 7 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            releaseRender.countDown();
+
+            byte[] expected = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                assertSame(expected, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(storageService, times(1)).openObject(S3_KEY);
+        assertEquals(7, count("coalesced"));
+        assertEquals(1, count("rendered"));
+    }
+
+    @Test
+    void testNonImageFailsAndIsNotCached() {
+        when(storageService.openObject(S3_KEY))
+            .thenAnswer(invocation -> Optional.of(new ByteArrayInputStream(new byte[] {1, 2, 3, 4})));
+        ImageVariantService.Variant variant = service.resolve("user-123", "photo-1", 256, null, null);
+
+        assertThrows(RuntimeException.class, () -> service.load(variant));
+        assertThrows(RuntimeException.class, () -> service.load(variant));
+
+        verify(storageService, times(2)).openObject(S3_KEY);
+    }
+
+    @Test
+    void testRejectsInvalidRequestsBeforeLookup() {
+        assertThrows(RuntimeException.class, () -> service.resolve("user-123", "photo-1", null, null, null));
+        assertThrows(RuntimeException.class, () -> service.resolve("user-123", "photo-1", 5000, null, null));
+        assertThrows(RuntimeException.class, () -> service.resolve("user-123", "photo-1", 0, 10, null));
+        assertThrows(RuntimeException.class, () -> service.resolve("user-123", "photo-1", 100, null, "webp"));
+
+        verifyNoInteractions(photoQueryService);
+    }
+
+    private ImageVariantService newService() {
+        return new ImageVariantService(photoQueryService, storageService, meterRegistry,
+            2048, 50L * 1024 * 1024, 2, 1024 * 1024, 256 * 1024, cacheDir, 10L * 1024 * 1024);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("images.variants").tag("result", result).counter().count();
+    }
+
+    private static byte[] jpeg(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,207 @@
+package com.rapid.features.photos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.UploadBatch;
+import com.rapid.domain.User;
+import com.rapid.features.photos.dto.BulkDeleteRequest;
+import com.rapid.features.photos.dto.BulkDeleteResponse;
+import com.rapid.features.photos.dto.BulkTagRequest;
+import com.rapid.features.photos.dto.BulkTagResponse;
+import com.rapid.features.photos.dto.UpdateTagsRequest;
+import com.rapid.features.upload.service.BatchProgressService;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.UploadBatchRepository;
+import com.rapid.infrastructure.service.ContentIndexService;
+import com.rapid.infrastructure.service.LimitsService;
+import com.rapid.infrastructure.service.StorageReclaimService;
+import com.rapid.infrastructure.service.TagCountService;
+import com.rapid.infrastructure.service.UserQuotaService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoCommandServiceTest {
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private StorageReclaimService storageReclaimService;
+
+    @Mock
+    private LimitsService limitsService;
+
+    @Mock
+    private UserQuotaService userQuotaService;
+
+    @Mock
+    private ContentIndexService contentIndexService;
+
+    @Mock
+    private TagCountService tagCountService;
+
+    @Mock
+    private UploadBatchRepository uploadBatchRepository;
+
+    @Mock
+    private BatchProgressService batchProgressService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private PhotoCommandService photoCommandService;
+
+    @Test
+    void testUpdateTagsMovesFacetCounts() {
+        Photo photo = createPhoto("photo-1", PhotoStatus.UPLOADED, List.of("beach", "dog"));
+        when(photoRepository.findByIdAndUserIdForUpdate("photo-1", "user-123")).thenReturn(Optional.of(photo));
+
+        photoCommandService.updateTags("user-123", "photo-1", new UpdateTagsRequest(List.of(" sunset", "beach", "beach")));
+
+        verify(tagCountService).photoTagsChanged("user-123", List.of("beach", "dog"), List.of("sunset", "beach"));
+        assertEquals(List.of("sunset", "beach"), photo.getTags());
+        verify(photoRepository).save(photo);
+    }
+
+    @Test
+    void testUpdateTagsRejectsPhotosNotUploaded() {
+        Photo photo = createPhoto("photo-1", PhotoStatus.PENDING, List.of());
+        when(photoRepository.findByIdAndUserIdForUpdate("photo-1", "user-123")).thenReturn(Optional.of(photo));
+
+        assertThrows(RuntimeException.class, () ->
+            photoCommandService.updateTags("user-123", "photo-1", new UpdateTagsRequest(List.of("beach"))));
+        verifyNoInteractions(tagCountService);
+        verify(photoRepository, never()).save(any());
+    }
+
+    @Test
+    void testBulkTagReportsEveryRequestedPhoto() {
+        when(photoRepository.bulkUpdateTags("user-123", List.of("photo-1", "photo-2", "photo-3", "photo-4", "missing"),
+                "ADD", "[\"beach\"]"))
+            .thenReturn(List.of(
+                new Object[]{"photo-1", "UPLOADED", "[\"dog\"]", "[\"dog\", \"beach\"]", true},
+                new Object[]{"photo-2", "UPLOADED", "[\"beach\"]", "[\"beach\"]", false},
+                new Object[]{"photo-3", "UPLOADED", "[\"a\", \"b\", \"c\"]", "[\"a\", \"b\", \"c\", \"beach\"]", false},
+                new Object[]{"photo-4", "PENDING", "[]", "[\"beach\"]", false}));
+
+        BulkTagResponse response = photoCommandService.bulkUpdateTags("user-123", new BulkTagRequest(
+            List.of("photo-1", "photo-2", "photo-3", "photo-4", "missing", "photo-1"), null,
+            BulkTagRequest.Operation.ADD, List.of(" beach")));
+
+        assertEquals(1, response.getUpdatedCount());
+        assertEquals(List.of(BulkTagResponse.Outcome.UPDATED, BulkTagResponse.Outcome.UNCHANGED,
+                BulkTagResponse.Outcome.TOO_MANY_TAGS, BulkTagResponse.Outcome.NOT_AVAILABLE,
+                BulkTagResponse.Outcome.NOT_FOUND),
+            response.getResults().stream().map(BulkTagResponse.Result::getOutcome).toList());
+        assertEquals(List.of("dog", "beach"), response.getResults().get(0).getTags());
+        assertEquals(List.of("a", "b", "c"), response.getResults().get(2).getTags());
+        // One facet update for the whole request, from the photos actually written
+        verify(tagCountService).photosTagsChanged("user-123",
+            List.of(new TagCountService.TagChange(List.of("dog"), List.of("dog", "beach"))));
+    }
+
+    @Test
+    void testBulkTagOnBatchTagsEveryPhotoOfIt() {
+        UploadBatch batch = new UploadBatch();
+        batch.setId("batch-1");
+        when(uploadBatchRepository.findByIdAndUserId("batch-1", "user-123")).thenReturn(Optional.of(batch));
+        when(photoRepository.findIdsByUserIdAndBatchId("user-123", "batch-1")).thenReturn(List.of("photo-1"));
+        when(photoRepository.bulkUpdateTags("user-123", List.of("photo-1"), "REMOVE", "[\"dog\"]"))
+            .thenReturn(List.<Object[]>of(new Object[]{"photo-1", "UPLOADED", "[\"dog\"]", "[]", true}));
+
+        BulkTagResponse response = photoCommandService.bulkUpdateTags("user-123",
+            new BulkTagRequest(null, "batch-1", BulkTagRequest.Operation.REMOVE, List.of("dog")));
+
+        assertEquals(1, response.getUpdatedCount());
+        assertEquals(List.of(), response.getResults().get(0).getTags());
+    }
+
+    @Test
+    void testBulkTagRequiresExactlyOneTarget() {
+        assertThrows(IllegalArgumentException.class, () -> photoCommandService.bulkUpdateTags("user-123",
+            new BulkTagRequest(List.of("photo-1"), "batch-1", BulkTagRequest.Operation.ADD, List.of("dog"))));
+        assertThrows(IllegalArgumentException.class, () -> photoCommandService.bulkUpdateTags("user-123",
+            new BulkTagRequest(null, null, BulkTagRequest.Operation.ADD, List.of("dog"))));
+        assertThrows(IllegalArgumentException.class, () -> photoCommandService.bulkUpdateTags("user-123",
+            new BulkTagRequest(List.of("photo-1"), null, BulkTagRequest.Operation.ADD, List.of(" "))));
+        verifyNoInteractions(photoRepository, tagCountService);
+    }
+
+    @Test
+    void testBulkDeleteReleasesAndDeletesInOnePass() {
+        Photo uploaded = createPhoto("photo-1", PhotoStatus.UPLOADED, List.of("dog"));
+        uploaded.setS3Key("user-123/a.jpg");
+        uploaded.setThumbnailKey("user-123/thumbnails/a.jpg");
+        uploaded.setFileSizeBytes(100L);
+        Photo shared = createPhoto("photo-2", PhotoStatus.UPLOADED, List.of());
+        shared.setS3Key("user-123/b.jpg");
+        shared.setFileSizeBytes(50L);
+        Photo pending = createPhoto("photo-3", PhotoStatus.PENDING, List.of());
+        pending.setS3Key("user-123/c.jpg");
+        pending.setFileSizeBytes(30L);
+        List<Photo> photos = List.of(uploaded, shared, pending);
+        when(photoRepository.findAllByIdInAndUserIdForUpdate(List.of("photo-1", "photo-2", "photo-3", "missing"), "user-123"))
+            .thenReturn(photos);
+        when(contentIndexService.releaseAll(photos)).thenReturn(Set.of("user-123/a.jpg", "user-123/c.jpg"));
+
+        BulkDeleteResponse response = photoCommandService.deletePhotos("user-123",
+            new BulkDeleteRequest(List.of("photo-1", "photo-2", "photo-3", "missing", "photo-1"), null));
+
+        assertEquals(3, response.getDeletedCount());
+        assertEquals(List.of("missing"), response.getNotFoundIds());
+        verify(photoRepository).deleteAllByIdInAndUserId(List.of("photo-1", "photo-2", "photo-3"), "user-123");
+        // The shared object stays (another photo now carries its bytes)
+        verify(limitsService).recordPhotosDeleted(3, 130L);
+        verify(userQuotaService).uncommit("user-123", 100L);
+        verify(userQuotaService).release("user-123", 30L);
+        verify(tagCountService).photosTagsChanged("user-123", List.of(
+            new TagCountService.TagChange(List.of("dog"), List.of()),
+            new TagCountService.TagChange(List.of(), List.of())));
+        verify(storageReclaimService).enqueue("user-123", Set.of("user-123/a.jpg", "user-123/thumbnails/a.jpg", "user-123/c.jpg"));
+        verify(uploadBatchRepository).removePhotos("batch-123", 3, 2, 0);
+        verify(batchProgressService).countersChanged("batch-123");
+    }
+
+    @Test
+    void testDeletePhotoTakesItOutOfItsBatchCounters() {
+        Photo failed = createPhoto("photo-1", PhotoStatus.FAILED, List.of());
+        failed.setS3Key("user-123/a.jpg");
+        failed.setFileSizeBytes(100L);
+        when(photoRepository.findByIdAndUserIdForUpdate("photo-1", "user-123")).thenReturn(Optional.of(failed));
+
+        photoCommandService.deletePhoto("user-123", "photo-1");
+
+        verify(photoRepository).delete(failed);
+        verify(uploadBatchRepository).removePhotos("batch-123", 1, 0, 1);
+        verify(batchProgressService).countersChanged("batch-123");
+    }
+
+    private Photo createPhoto(String id, PhotoStatus status, List<String> tags) {
+        User user = new User();
+        user.setId("user-123");
+        Photo photo = new Photo();
+        photo.setId(id);
+        photo.setUser(user);
+        UploadBatch batch = new UploadBatch();
+        batch.setId("batch-123");
+        photo.setBatch(batch);
+        photo.setStatus(status);
+        photo.setTags(tags);
+        return photo;
+    }
+}
@@ -3,10 +3,14 @@ package com.rapid.features.photos.service;
 import com.rapid.domain.Photo;
 import com.rapid.domain.PhotoStatus;
 import com.rapid.domain.User;
+import com.rapid.domain.UserTagCount;
 import com.rapid.features.photos.dto.PhotoDto;
 import com.rapid.features.photos.dto.PhotoListResponse;
+import com.rapid.features.photos.dto.TagCountDto;
 import com.rapid.infrastructure.repository.PhotoRepository;
-import com.rapid.infrastructure.storage.S3PresignedUrlService;
+import com.rapid.infrastructure.service.TagCountService;
+import com.rapid.infrastructure.service.TagSuggestionService;
+import com.rapid.infrastructure.storage.StorageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -33,7 +37,13 @@ class PhotoQueryServiceTest {
     private PhotoRepository photoRepository;
 
     @Mock
-    private S3PresignedUrlService s3Service;
+    private StorageService storageService;
+
+    @Mock
+    private TagCountService tagCountService;
+
+    @Mock
+    private TagSuggestionService tagSuggestionService;
 
     @InjectMocks
     private PhotoQueryService photoQueryService;
@@ -84,7 +94,7 @@ class PhotoQueryServiceTest {
 
         when(photoRepository.findByUserIdAndStatus(eq("user-123"), eq(PhotoStatus.UPLOADED), any(Pageable.class)))
             .thenReturn(uploadedPage);
-        when(s3Service.generatePresignedGetUrl(anyString(), anyString()))
+        when(storageService.generatePresignedGetUrl(anyString(), anyString()))
             .thenReturn("https://s3.url/presigned");
 
         PhotoListResponse response = photoQueryService.getUserPhotos("user-123", 0, 20);
@@ -109,7 +119,7 @@ class PhotoQueryServiceTest {
 
         when(photoRepository.findByUserIdAndStatus(eq("user-123"), eq(PhotoStatus.UPLOADED), any(Pageable.class)))
             .thenReturn(uploadedPage);
-        when(s3Service.generatePresignedGetUrl(anyString(), anyString()))
+        when(storageService.generatePresignedGetUrl(anyString(), anyString()))
             .thenReturn("https://s3.url/presigned");
 
         PhotoListResponse response = photoQueryService.getUserPhotos("user-123", 0, 20);
@@ -142,7 +152,7 @@ class PhotoQueryServiceTest {
 
         when(photoRepository.findByUserIdAndStatus(eq("user-123"), eq(PhotoStatus.UPLOADED), any(Pageable.class)))
             .thenReturn(uploadedPage);
-        when(s3Service.generatePresignedGetUrl(anyString(), anyString()))
+        when(storageService.generatePresignedGetUrl(anyString(), anyString()))
             .thenReturn("https://s3.url/presigned");
 
         PhotoListResponse response = photoQueryService.getUserPhotos("user-123", 0, 20);
@@ -167,7 +177,7 @@ class PhotoQueryServiceTest {
 
         when(photoRepository.findByUserIdAndStatus(eq("user-123"), eq(PhotoStatus.UPLOADED), any(Pageable.class)))
             .thenReturn(firstPage);
-        when(s3Service.generatePresignedGetUrl(anyString(), anyString()))
+        when(storageService.generatePresignedGetUrl(anyString(), anyString()))
             .thenReturn("https://s3.url/presigned");
 
         PhotoListResponse response = photoQueryService.getUserPhotos("user-123", 0, 3);
@@ -201,7 +211,7 @@ class PhotoQueryServiceTest {
         
         when(photoRepository.findByIdAndUserId("photo-uploaded-1", "user-123"))
             .thenReturn(java.util.Optional.of(uploadedPhoto));
-        when(s3Service.generatePresignedGetUrl("user-123", uploadedPhoto.getS3Key()))
+        when(storageService.generatePresignedGetUrl("user-123", uploadedPhoto.getS3Key()))
             .thenReturn("https://s3.url/presigned");
 
         PhotoDto dto = photoQueryService.getPhotoById("user-123", "photo-uploaded-1");
@@ -212,5 +222,127 @@ class PhotoQueryServiceTest {
         assertEquals(1024L, dto.getFileSizeBytes());
         assertNotNull(dto.getDownloadUrl());
     }
-}
 
+    @Test
+    void testCursorPaginationReturnsNextCursorWithoutCounting() {
+        // pageSize + 1 rows means another page exists
+        when(photoRepository.findByUserIdAndStatusOrderByCreatedAtDescIdDesc(eq("user-123"), eq(PhotoStatus.UPLOADED), any(Pageable.class)))
+            .thenReturn(uploadedPhotos.subList(0, 4));
+        when(storageService.generatePresignedGetUrl(anyString(), anyString()))
+            .thenReturn("https://s3.url/presigned");
+
+        PhotoListResponse response = photoQueryService.getUserPhotosAfter("user-123", "", 3, false);
+
+        assertEquals(3, response.getPhotos().size());
+        assertNotNull(response.getNextCursor());
+        assertNull(response.getTotalCount());
+        verify(photoRepository, never()).countByUserIdAndStatus(anyString(), any());
+    }
+
+    @Test
+    void testCursorSeeksPastLastPhotoOfPreviousPage() {
+        Photo last = uploadedPhotos.get(2);
+        String cursor = new PhotoCursor(last.getCreatedAt(), last.getId()).encode();
+        when(photoRepository.findPageAfter("user-123", PhotoStatus.UPLOADED, last.getCreatedAt(), last.getId(), PageRequest.of(0, 4)))
+            .thenReturn(uploadedPhotos.subList(3, 5));
+        when(storageService.generatePresignedGetUrl(anyString(), anyString()))
+            .thenReturn("https://s3.url/presigned");
+        when(photoRepository.countByUserIdAndStatus("user-123", PhotoStatus.UPLOADED)).thenReturn(5L);
+
+        PhotoListResponse response = photoQueryService.getUserPhotosAfter("user-123", cursor, 3, true);
+
+        assertEquals(2, response.getPhotos().size());
+        assertEquals("photo-uploaded-4", response.getPhotos().get(0).getId());
+        assertNull(response.getNextCursor()); // Last page
+        assertEquals(5L, response.getTotalCount());
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        assertThrows(RuntimeException.class, () ->
+            photoQueryService.getUserPhotosAfter("user-123", "not-a-cursor", 3, false));
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void testNonPositivePageSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+            photoQueryService.getUserPhotosAfter("user-123", null, 0, false));
+        assertThrows(IllegalArgumentException.class, () ->
+            photoQueryService.getPhotosByTags("user-123", List.of("dog"), "all", null, -1, false));
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void testTagSearchMatchingAllUsesContainment() {
+        when(photoRepository.findTaggedWithAllAfter(eq("user-123"), eq("[\"beach\",\"sunset\"]"),
+                any(LocalDateTime.class), eq(""), eq(4)))
+            .thenReturn(uploadedPhotos.subList(0, 4));
+        when(storageService.generatePresignedGetUrl(anyString(), anyString()))
+            .thenReturn("https://s3.url/presigned");
+
+        // Tags are trimmed and deduplicated like on update
+        PhotoListResponse response = photoQueryService.getPhotosByTags("user-123",
+            List.of(" beach", "sunset", "beach"), "all", null, 3, false);
+
+        assertEquals(3, response.getPhotos().size());
+        assertNotNull(response.getNextCursor());
+        verify(photoRepository, never()).countTaggedWithAll(anyString(), anyString());
+    }
+
+    @Test
+    void testTagSearchMatchingAnyEscapesTagsInJsonPath() {
+        Photo last = uploadedPhotos.get(2);
+        String cursor = new PhotoCursor(last.getCreatedAt(), last.getId()).encode();
+        String path = "$[*] == \"beach\" || $[*] == \"say \\\"hi\\\"\"";
+        when(photoRepository.findTaggedWithAnyAfter("user-123", path, last.getCreatedAt(), last.getId(), 4))
+            .thenReturn(uploadedPhotos.subList(3, 5));
+        when(photoRepository.countTaggedWithAny("user-123", path)).thenReturn(5L);
+        when(storageService.generatePresignedGetUrl(anyString(), anyString()))
+            .thenReturn("https://s3.url/presigned");
+
+        PhotoListResponse response = photoQueryService.getPhotosByTags("user-123",
+            List.of("beach", "say \"hi\""), "any", cursor, 3, true);
+
+        assertEquals(2, response.getPhotos().size());
+        assertNull(response.getNextCursor());
+        assertEquals(5L, response.getTotalCount());
+    }
+
+    @Test
+    void testTagSearchRejectsInvalidFilters() {
+        assertThrows(RuntimeException.class, () ->
+            photoQueryService.getPhotosByTags("user-123", List.of("beach"), "some", null, 3, false));
+        assertThrows(RuntimeException.class, () ->
+            photoQueryService.getPhotosByTags("user-123", List.of(" "), "all", null, 3, false));
+        assertThrows(RuntimeException.class, () ->
+            photoQueryService.getPhotosByTags("user-123",
+                List.of("1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11"), "any", null, 3, false));
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void testTagCountsComeFromMaintainedCounts() {
+        when(tagCountService.counts("user-123")).thenReturn(List.of(
+            new UserTagCount("user-123", "beach", 12), new UserTagCount("user-123", "sunset", 3)));
+
+        List<TagCountDto> counts = photoQueryService.getTagCounts("user-123");
+
+        assertEquals(2, counts.size());
+        assertEquals("beach", counts.get(0).getTag());
+        assertEquals(12, counts.get(0).getCount());
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void testTagSuggestionsAreServedFromMemory() {
+        when(tagSuggestionService.suggest("user-123", "be", 10)).thenReturn(List.of(
+            new UserTagCount("user-123", "beach", 12)));
+
+        List<TagCountDto> suggestions = photoQueryService.suggestTags("user-123", "be", 10);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("beach", suggestions.get(0).getTag());
+        verifyNoInteractions(photoRepository, tagCountService);
+    }
+}
@@ -0,0 +1,130 @@
+package com.rapid.features.photos.service;
+
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.service.StorageReclaimService;
+import com.rapid.infrastructure.storage.StorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ThumbnailServiceTest {
+
+    private PhotoRepository photoRepository;
+    private StorageService storageService;
+    private StorageReclaimService storageReclaimService;
+    private ThumbnailService thumbnailService;
+
+    @BeforeEach
+    void setUp() {
+        photoRepository = mock(PhotoRepository.class);
+        storageService = mock(StorageService.class);
+        storageReclaimService = mock(StorageReclaimService.class);
+        thumbnailService = new ThumbnailService(photoRepository, storageService, storageReclaimService, new SimpleMeterRegistry(),
+            1, 10, 10 * 1024 * 1024);
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    void testGeneratesPreviewAndThumbnailScaledToLongEdge() throws Exception {
+        byte[] original = jpeg(3000, 2000);
+        when(storageService.openObject("user-123/a.jpg")).thenReturn(Optional.of(new ByteArrayInputStream(original)));
+        when(photoRepository.setDerivatives(eq("photo-1"), anyString(), anyString())).thenReturn(1);
+
+        thumbnailService.generate("user-123", "photo-1", "user-123/a.jpg", original.length);
+
+        ArgumentCaptor<byte[]> preview = ArgumentCaptor.forClass(byte[].class);
+        verify(storageService).putObject(eq("derivatives/user-123/a.jpg_1024.jpg"), eq("image/jpeg"),
+            preview.capture(), anyInt());
+        ArgumentCaptor<byte[]> thumbnail = ArgumentCaptor.forClass(byte[].class);
+        verify(storageService).putObject(eq("derivatives/user-123/a.jpg_256.jpg"), eq("image/jpeg"),
+            thumbnail.capture(), anyInt());
+        assertDimensions(1024, 683, preview.getValue());
+        assertDimensions(256, 171, thumbnail.getValue());
+        verify(photoRepository).setDerivatives("photo-1",
+            "derivatives/user-123/a.jpg_256.jpg", "derivatives/user-123/a.jpg_1024.jpg");
+    }
+
+    @Test
+    void testDerivativesOfPhotoDeletedWhileRenderingAreReclaimed() throws Exception {
+        byte[] original = jpeg(300, 200);
+        when(storageService.openObject("user-123/a.jpg")).thenReturn(Optional.of(new ByteArrayInputStream(original)));
+
+        thumbnailService.generate("user-123", "photo-1", "user-123/a.jpg", original.length);
+
+        verify(storageReclaimService).enqueue("user-123",
+            List.of("derivatives/user-123/a.jpg_256.jpg", "derivatives/user-123/a.jpg_1024.jpg"));
+    }
+
+    @Test
+    void testDerivativesStillUsedByAnotherPhotoAreKept() throws Exception {
+        byte[] original = jpeg(300, 200);
+        when(storageService.openObject("user-123/a.jpg")).thenReturn(Optional.of(new ByteArrayInputStream(original)));
+        when(photoRepository.existsByS3KeyAndStatus(eq("user-123/a.jpg"), any())).thenReturn(true);
+
+        thumbnailService.generate("user-123", "photo-1", "user-123/a.jpg", original.length);
+
+        verifyNoInteractions(storageReclaimService);
+    }
+
+    @Test
+    void testSmallImagesAreNotUpscaled() throws Exception {
+        byte[] original = jpeg(200, 100);
+        when(storageService.openObject("user-123/a.jpg")).thenReturn(Optional.of(new ByteArrayInputStream(original)));
+
+        thumbnailService.generate("user-123", "photo-1", "user-123/a.jpg", original.length);
+
+        ArgumentCaptor<byte[]> written = ArgumentCaptor.forClass(byte[].class);
+        verify(storageService, times(2)).putObject(anyString(), eq("image/jpeg"), written.capture(), anyInt());
+        assertDimensions(200, 100, written.getAllValues().get(0));
+        assertDimensions(200, 100, written.getAllValues().get(1));
+    }
+
+    @Test
+    void testNonImageIsMarkedProcessedWithoutDerivatives() {
+        when(storageService.openObject("user-123/a.mov"))
+            .thenReturn(Optional.of(new ByteArrayInputStream(new byte[] {0, 0, 0, 24, 'f', 't', 'y', 'p'})));
+
+        thumbnailService.generate("user-123", "photo-1", "user-123/a.mov", 8);
+
+        verify(storageService, never()).putObject(anyString(), anyString(), any(), anyInt());
+        verify(photoRepository).setDerivatives("photo-1", null, null);
+    }
+
+    @Test
+    void testOversizedOriginalIsSkippedWithoutReading() {
+        thumbnailService.generate("user-123", "photo-1", "user-123/huge.jpg", 11 * 1024 * 1024);
+
+        verify(storageService, never()).openObject(anyString());
+        verify(photoRepository).setDerivatives("photo-1", null, null);
+    }
+
+    private static byte[] jpeg(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    private static void assertDimensions(int width, int height, byte[] jpeg) throws Exception {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg));
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+    }
+}
@@ -0,0 +1,152 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.UploadBatch;
+import com.rapid.domain.User;
+import com.rapid.features.upload.dto.BatchStatusResponse;
+import com.rapid.features.upload.dto.PhotoStatusDto;
+import com.rapid.infrastructure.exceptions.LimitExceededException;
+import com.rapid.infrastructure.repository.UploadBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchProgressServiceTest {
+
+    @Mock
+    private UploadBatchRepository batchRepository;
+
+    @Mock
+    private UploadQueryService uploadQueryService;
+
+    private BatchProgressService progressService;
+    private UploadBatch testBatch;
+
+    @BeforeEach
+    void setUp() {
+        // Send on the calling thread so results are visible immediately
+        progressService = new BatchProgressService(batchRepository, uploadQueryService, Runnable::run,
+            60_000, 25_000, 60_000, 3, 2);
+
+        User testUser = new User();
+        testUser.setId("user-123");
+
+        testBatch = new UploadBatch();
+        testBatch.setId("batch-123");
+        testBatch.setUser(testUser);
+        testBatch.setTotalCount(10);
+        testBatch.setCompletedCount(4);
+        testBatch.setFailedCount(1);
+    }
+
+    @Test
+    void testChangesAreCoalescedIntoOneEventPerFlush() {
+        when(batchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(batchRepository.findById("batch-123")).thenReturn(Optional.of(testBatch));
+        DeferredResult<ResponseEntity<?>> result = progressService.poll("user-123", "batch-123", null);
+
+        progressService.photoChanged("batch-123", "photo-1", "a.jpg", PhotoStatus.UPLOADING, null);
+        progressService.photoChanged("batch-123", "photo-1", "a.jpg", PhotoStatus.UPLOADED, null);
+        progressService.photoChanged("batch-123", "photo-2", "b.jpg", PhotoStatus.FAILED, "File size mismatch");
+        progressService.flush();
+
+        BatchStatusResponse event = (BatchStatusResponse) ((ResponseEntity<?>) result.getResult()).getBody();
+        assertEquals(4, event.getCompletedCount());
+        assertEquals(2, event.getPhotos().size()); // Latest state per photo only
+        assertEquals(PhotoStatus.UPLOADED, event.getPhotos().stream()
+            .filter(p -> p.getId().equals("photo-1")).findFirst().orElseThrow().getStatus());
+        verify(batchRepository, times(1)).findById("batch-123"); // One counter read per flush
+    }
+
+    @Test
+    void testLongPollWithCursorGetsChangesMadeBetweenPolls() {
+        when(batchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(batchRepository.findById("batch-123")).thenReturn(Optional.of(testBatch));
+        DeferredResult<ResponseEntity<?>> first = progressService.poll("user-123", "batch-123", null);
+        progressService.photoChanged("batch-123", "photo-1", "a.jpg", PhotoStatus.UPLOADED, null);
+        progressService.flush();
+        String cursor = event(first).getChangeCursor();
+
+        // Client is between polls
+        progressService.photoChanged("batch-123", "photo-2", "b.jpg", PhotoStatus.UPLOADED, null);
+        progressService.photoChanged("batch-123", "photo-3", "c.jpg", PhotoStatus.FAILED, "File size mismatch");
+        progressService.flush();
+
+        DeferredResult<ResponseEntity<?>> second = progressService.poll("user-123", "batch-123", cursor);
+        assertEquals(List.of("photo-2", "photo-3"), event(second).getPhotos().stream().map(PhotoStatusDto::getId).toList());
+        verifyNoInteractions(uploadQueryService);
+    }
+
+    @Test
+    void testUnknownCursorGetsFullStatus() {
+        when(batchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        BatchStatusResponse full = new BatchStatusResponse("batch-123", 10, 4, 1, List.of(), "status-cursor");
+        when(uploadQueryService.getBatchStatus("user-123", "batch-123")).thenReturn(full);
+
+        // e.g. issued before a restart, or by another instance
+        DeferredResult<ResponseEntity<?>> result = progressService.poll("user-123", "batch-123", "gone:12");
+
+        assertSame(full, event(result));
+        assertNotEquals("status-cursor", full.getChangeCursor()); // Positioned in the new log
+        assertFalse(progressService.poll("user-123", "batch-123", full.getChangeCursor()).hasResult());
+    }
+
+    @Test
+    void testUnwatchedBatchesCostNothing() {
+        progressService.photoChanged("batch-999", "photo-1", "a.jpg", PhotoStatus.UPLOADED, null);
+        progressService.countersChanged("batch-999");
+        progressService.flush();
+
+        verifyNoInteractions(batchRepository);
+        assertEquals(0, progressService.loggedBatches());
+    }
+
+    @Test
+    void testStreamsAreCappedPerUser() {
+        when(batchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        progressService.poll("user-123", "batch-123", null);
+        progressService.poll("user-123", "batch-123", null);
+
+        LimitExceededException ex = assertThrows(LimitExceededException.class,
+            () -> progressService.poll("user-123", "batch-123", null));
+        assertEquals("STREAM_LIMIT", ex.getLimitType());
+        assertEquals(2, progressService.streamCount());
+    }
+
+    @Test
+    void testFailedStatusReadGivesTheStreamBack() {
+        when(batchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(uploadQueryService.getBatchStatus("user-123", "batch-123")).thenThrow(new RuntimeException("db down"));
+
+        assertThrows(RuntimeException.class, () -> progressService.poll("user-123", "batch-123", "gone:12"));
+
+        assertEquals(0, progressService.streamCount());
+        progressService.photoChanged("batch-123", "photo-1", "a.jpg", PhotoStatus.UPLOADED, null);
+        progressService.flush();
+        verify(batchRepository, never()).findById(anyString()); // No watcher left behind
+    }
+
+    @Test
+    void testCannotWatchAnotherUsersBatch() {
+        when(batchRepository.findByIdAndUserId(anyString(), anyString())).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> progressService.subscribe("user-456", "batch-123"));
+        assertEquals(0, progressService.streamCount());
+    }
+
+    private static BatchStatusResponse event(DeferredResult<ResponseEntity<?>> result) {
+        return (BatchStatusResponse) ((ResponseEntity<?>) result.getResult()).getBody();
+    }
+}
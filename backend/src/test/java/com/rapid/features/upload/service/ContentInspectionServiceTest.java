@@ -0,0 +1,93 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.ImageMetadata;
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.features.photos.service.ThumbnailService;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.storage.StorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ContentInspectionServiceTest {
+
+    private static final String S3_KEY = "user-123/1_uuid_a.png";
+
+    private PhotoRepository photoRepository;
+    private StorageService storageService;
+    private ContentRejectionWriter rejectionWriter;
+    private ThumbnailService thumbnailService;
+    private ContentInspectionService inspectionService;
+    private Photo photo;
+
+    @BeforeEach
+    void setUp() {
+        photoRepository = mock(PhotoRepository.class);
+        storageService = mock(StorageService.class);
+        rejectionWriter = mock(ContentRejectionWriter.class);
+        thumbnailService = mock(ThumbnailService.class);
+        inspectionService = new ContentInspectionService(photoRepository, storageService, rejectionWriter,
+            thumbnailService, new SimpleMeterRegistry(), 1, 10, 65536);
+
+        photo = new Photo();
+        photo.setId("photo-1");
+        photo.setS3Key(S3_KEY);
+        photo.setFileSizeBytes(1024L * 1024 * 1024);
+        photo.setStatus(PhotoStatus.UPLOADED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        inspectionService.shutdown();
+    }
+
+    @Test
+    void testImageIsRecordedThenQueuedForThumbnails() {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n',
+            0, 0, 0, 13, 'I', 'H', 'D', 'R', 0, 0, 0x0F, (byte) 0xA0, 0, 0, 0x0B, (byte) 0xB8, 8, 2, 0, 0, 0};
+        when(storageService.readObjectHead(S3_KEY, 65536)).thenReturn(Optional.of(png));
+
+        inspectionService.inspect(photo);
+
+        ArgumentCaptor<ImageMetadata> metadata = ArgumentCaptor.forClass(ImageMetadata.class);
+        verify(photoRepository).setInspected(eq("photo-1"), metadata.capture());
+        assertEquals("image/png", metadata.getValue().getMediaType());
+        assertEquals(4000, metadata.getValue().getWidth());
+        assertEquals(3000, metadata.getValue().getHeight());
+        verify(thumbnailService).enqueue(photo);
+        // Only the head of a 1 GB object is read
+        verify(storageService, never()).openObject(anyString());
+        verifyNoInteractions(rejectionWriter);
+    }
+
+    @Test
+    void testNonImageIsRejected() {
+        when(storageService.readObjectHead(S3_KEY, 65536))
+            .thenReturn(Optional.of("PK\u0003\u0004 not a photo".getBytes()));
+
+        inspectionService.inspect(photo);
+
+        verify(rejectionWriter).reject(S3_KEY, ContentInspectionService.NOT_AN_IMAGE);
+        verify(photoRepository, never()).setInspected(anyString(), any());
+        verifyNoInteractions(thumbnailService);
+    }
+
+    @Test
+    void testMissingObjectIsMarkedInspected() {
+        when(storageService.readObjectHead(S3_KEY, 65536)).thenReturn(Optional.empty());
+
+        inspectionService.inspect(photo);
+
+        verify(photoRepository).setInspected("photo-1", null);
+        verifyNoInteractions(rejectionWriter, thumbnailService);
+    }
+}
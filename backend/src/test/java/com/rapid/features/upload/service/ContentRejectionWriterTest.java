@@ -0,0 +1,115 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.UploadBatch;
+import com.rapid.domain.User;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.UploadBatchRepository;
+import com.rapid.infrastructure.service.ContentIndexService;
+import com.rapid.infrastructure.service.StorageReclaimService;
+import com.rapid.infrastructure.service.TagCountService;
+import com.rapid.infrastructure.service.UserQuotaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContentRejectionWriterTest {
+
+    private static final String S3_KEY = "user-123/1_uuid_a.jpg";
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private UploadBatchRepository uploadBatchRepository;
+
+    @Mock
+    private UserQuotaService userQuotaService;
+
+    @Mock
+    private BatchProgressService batchProgressService;
+
+    @Mock
+    private ContentIndexService contentIndexService;
+
+    @Mock
+    private TagCountService tagCountService;
+
+    @Mock
+    private StorageReclaimService storageReclaimService;
+
+    @InjectMocks
+    private ContentRejectionWriter rejectionWriter;
+
+    private User testUser;
+    private UploadBatch testBatch;
+
+    @BeforeEach
+    void setUp() {
+        testUser = new User();
+        testUser.setId("user-123");
+        testBatch = new UploadBatch();
+        testBatch.setId("batch-123");
+        testBatch.setUser(testUser);
+    }
+
+    @Test
+    void testFailsEveryPhotoOfTheObjectAndDeletesIt() {
+        // photo-2 references photo-1's object through deduplication
+        Photo owner = createPhoto("photo-1", false);
+        owner.setThumbnailKey("derivatives/" + S3_KEY + "_256.jpg");
+        owner.setTags(List.of("beach"));
+        Photo reference = createPhoto("photo-2", true);
+        reference.setThumbnailKey(owner.getThumbnailKey());
+        when(photoRepository.markRejected(S3_KEY, "Not a supported image")).thenReturn(List.of("photo-1", "photo-2"));
+        when(photoRepository.findAllById(List.of("photo-1", "photo-2"))).thenReturn(List.of(owner, reference));
+
+        int rejected = rejectionWriter.reject(S3_KEY, "Not a supported image");
+
+        assertEquals(2, rejected);
+        verify(contentIndexService).unregister(S3_KEY);
+        // Storage was committed once, on the photo carrying the bytes
+        verify(userQuotaService).uncommit("user-123", 1024L);
+        verify(uploadBatchRepository).moveCompletedToFailed("batch-123", 2);
+        // Rejected photos leave the tag facets (untagged ones have nothing to remove)
+        verify(tagCountService).photoTagsChanged("user-123", List.of("beach"), List.of());
+        verifyNoMoreInteractions(tagCountService);
+        verify(batchProgressService, times(2)).photoChanged(eq("batch-123"), anyString(), anyString(),
+            eq(PhotoStatus.FAILED), eq("Not a supported image"));
+        verify(storageReclaimService).enqueue("user-123", List.of(S3_KEY, owner.getThumbnailKey()));
+    }
+
+    @Test
+    void testNothingMovesWhenNoPhotoIsStillUploaded() {
+        when(photoRepository.markRejected(S3_KEY, "Not a supported image")).thenReturn(List.of());
+
+        assertEquals(0, rejectionWriter.reject(S3_KEY, "Not a supported image"));
+
+        verify(photoRepository, never()).findAllById(any());
+        verifyNoInteractions(userQuotaService, uploadBatchRepository, batchProgressService, tagCountService, storageReclaimService);
+    }
+
+    private Photo createPhoto(String id, boolean deduplicated) {
+        Photo photo = new Photo();
+        photo.setId(id);
+        photo.setUser(testUser);
+        photo.setBatch(testBatch);
+        photo.setS3Key(S3_KEY);
+        photo.setOriginalFilename(id + ".jpg");
+        photo.setFileSizeBytes(1024L);
+        photo.setStatus(PhotoStatus.FAILED);
+        photo.setDeduplicated(deduplicated);
+        return photo;
+    }
+}
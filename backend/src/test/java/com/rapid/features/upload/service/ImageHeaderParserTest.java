@@ -0,0 +1,149 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.ImageMetadata;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageHeaderParserTest {
+
+    @Test
+    void testReadsJpegExifAndFrameDimensions() throws Exception {
+        byte[] jpeg = withExif(image("jpeg", 640, 480), exif(ByteOrder.BIG_ENDIAN));
+
+        ImageMetadata metadata = ImageHeaderParser.parse(jpeg);
+
+        assertEquals("image/jpeg", metadata.getMediaType());
+        assertEquals(640, metadata.getWidth());
+        assertEquals(480, metadata.getHeight());
+        assertEquals(6, metadata.getOrientation());
+        assertEquals("Canon", metadata.getCameraMake());
+        assertEquals("Canon EOS R5", metadata.getCameraModel());
+        assertEquals(LocalDateTime.of(2024, 6, 1, 12, 30, 45), metadata.getCapturedAt());
+        assertEquals(48.858222, metadata.getGpsLatitude(), 1e-6);
+        assertEquals(-2.2945, metadata.getGpsLongitude(), 1e-6);
+    }
+
+    @Test
+    void testLittleEndianExif() throws Exception {
+        byte[] jpeg = withExif(image("jpeg", 64, 48), exif(ByteOrder.LITTLE_ENDIAN));
+
+        ImageMetadata metadata = ImageHeaderParser.parse(jpeg);
+
+        assertEquals("Canon EOS R5", metadata.getCameraModel());
+        assertEquals(6, metadata.getOrientation());
+        assertEquals(48.858222, metadata.getGpsLatitude(), 1e-6);
+    }
+
+    @Test
+    void testTruncatedHeadKeepsWhatItReached() throws Exception {
+        byte[] exif = exif(ByteOrder.BIG_ENDIAN);
+        // Cut inside the GPS values: everything before them is still reported
+        byte[] head = Arrays.copyOf(withExif(image("jpeg", 640, 480), exif), 4 + 2 + 2 + 6 + 190);
+
+        ImageMetadata metadata = ImageHeaderParser.parse(head);
+
+        assertEquals("image/jpeg", metadata.getMediaType());
+        assertEquals("Canon EOS R5", metadata.getCameraModel());
+        assertEquals(LocalDateTime.of(2024, 6, 1, 12, 30, 45), metadata.getCapturedAt());
+        assertNull(metadata.getGpsLatitude());
+        assertNull(metadata.getWidth());
+    }
+
+    @Test
+    void testReadsPngDimensions() throws Exception {
+        ImageMetadata metadata = ImageHeaderParser.parse(image("png", 300, 200));
+
+        assertEquals("image/png", metadata.getMediaType());
+        assertEquals(300, metadata.getWidth());
+        assertEquals(200, metadata.getHeight());
+        assertNull(metadata.getCapturedAt());
+    }
+
+    @Test
+    void testRecognizesOtherFormatsByMagicBytes() {
+        byte[] gif = {'G', 'I', 'F', '8', '9', 'a', 10, 0, 20, 0};
+        byte[] heic = {0, 0, 0, 24, 'f', 't', 'y', 'p', 'h', 'e', 'i', 'c', 0, 0, 0, 0};
+
+        ImageMetadata metadata = ImageHeaderParser.parse(gif);
+        assertEquals("image/gif", metadata.getMediaType());
+        assertEquals(10, metadata.getWidth());
+        assertEquals(20, metadata.getHeight());
+        assertEquals("image/heic", ImageHeaderParser.parse(heic).getMediaType());
+    }
+
+    @Test
+    void testRejectsNonImages() {
+        assertNull(ImageHeaderParser.parse("%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII)));
+        assertNull(ImageHeaderParser.parse(new byte[] {0, 0, 0, 24, 'f', 't', 'y', 'p', 'q', 't', ' ', ' '}));
+        assertNull(ImageHeaderParser.parse(new byte[] {(byte) 0xFF, (byte) 0xD8}));
+        assertNull(ImageHeaderParser.parse(new byte[0]));
+    }
+
+    private static byte[] image(String format, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    // APP1 segment right after SOI, as cameras write it
+    private static byte[] withExif(byte[] jpeg, byte[] tiff) {
+        ByteBuffer out = ByteBuffer.allocate(jpeg.length + 4 + 6 + tiff.length);
+        out.put(jpeg, 0, 2);
+        out.put((byte) 0xFF).put((byte) 0xE1).putShort((short) (2 + 6 + tiff.length));
+        out.put(new byte[] {'E', 'x', 'i', 'f', 0, 0}).put(tiff);
+        out.put(jpeg, 2, jpeg.length - 2);
+        return out.array();
+    }
+
+    /**
+     * IFD0 (make, model, orientation, Exif and GPS pointers) at 8, Exif IFD
+     * (DateTimeOriginal) at 74, GPS IFD at 92, values from 146.
+     * Position 48°51'29.6"N 2°17'40.2"W.
+     */
+    private static byte[] exif(ByteOrder order) {
+        ByteBuffer b = ByteBuffer.allocate(233).order(order);
+        b.put(order == ByteOrder.BIG_ENDIAN ? new byte[] {'M', 'M'} : new byte[] {'I', 'I'});
+        b.putShort((short) 42).putInt(8);
+
+        b.putShort((short) 5);
+        entry(b, 0x010F, 2, 6, 146);
+        entry(b, 0x0110, 2, 13, 152);
+        b.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) 6).putShort((short) 0);
+        entry(b, 0x8769, 4, 1, 74);
+        entry(b, 0x8825, 4, 1, 92);
+        b.putInt(0);
+
+        b.putShort((short) 1);
+        entry(b, 0x9003, 2, 20, 165);
+        b.putInt(0);
+
+        b.putShort((short) 4);
+        b.putShort((short) 1).putShort((short) 2).putInt(2).put(new byte[] {'N', 0, 0, 0});
+        entry(b, 2, 5, 3, 185);
+        b.putShort((short) 3).putShort((short) 2).putInt(2).put(new byte[] {'W', 0, 0, 0});
+        entry(b, 4, 5, 3, 209);
+        b.putInt(0);
+
+        b.put("Canon\0".getBytes(StandardCharsets.US_ASCII));
+        b.put("Canon EOS R5\0".getBytes(StandardCharsets.US_ASCII));
+        b.put("2024:06:01 12:30:45\0".getBytes(StandardCharsets.US_ASCII));
+        b.putInt(48).putInt(1).putInt(51).putInt(1).putInt(296).putInt(10);
+        b.putInt(2).putInt(1).putInt(17).putInt(1).putInt(402).putInt(10);
+        return b.array();
+    }
+
+    private static void entry(ByteBuffer b, int tag, int type, int count, int value) {
+        b.putShort((short) tag).putShort((short) type).putInt(count).putInt(value);
+    }
+}
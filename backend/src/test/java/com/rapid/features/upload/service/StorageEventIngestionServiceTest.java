@@ -0,0 +1,122 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.UploadBatch;
+import com.rapid.domain.User;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.storage.StorageEvent;
+import com.rapid.infrastructure.storage.StorageEventSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StorageEventIngestionServiceTest {
+
+    @Mock
+    private StorageEventSource eventSource;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private UploadCompletionWriter completionWriter;
+
+    @InjectMocks
+    private StorageEventIngestionService ingestionService;
+
+    private User testUser;
+    private UploadBatch testBatch;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ingestionService, "maxBatch", 500);
+
+        testUser = new User();
+        testUser.setId("user-123");
+
+        testBatch = new UploadBatch();
+        testBatch.setId("batch-123");
+        testBatch.setUser(testUser);
+    }
+
+    @Test
+    void testEventsCompleteMatchingPhotosUsingEventSize() {
+        Photo photo1 = createPhoto("photo-1", "user-123/key1.jpg", PhotoStatus.PENDING);
+        Photo photo2 = createPhoto("photo-2", "user-123/key2.jpg", PhotoStatus.PENDING);
+        List<StorageEvent> events = List.of(
+            new StorageEvent("user-123/key1.jpg", 1024L, "etag-1", "ack-1"),
+            new StorageEvent("user-123/key2.jpg", 999L, "etag-2", "ack-1"),
+            new StorageEvent("thumbnails/other.jpg", 10L, "etag-3", "ack-2")
+        );
+
+        when(eventSource.poll(500)).thenReturn(events);
+        when(photoRepository.findByS3KeyIn(anyCollection())).thenReturn(List.of(photo1, photo2));
+
+        ingestionService.ingest();
+
+        List<UploadCompletionWriter.Outcome> outcomes = captureOutcomes();
+        assertEquals(2, outcomes.size()); // Unknown key ignored
+        assertNull(outcomes.get(0).errorMessage());
+        assertEquals("File size mismatch", outcomes.get(1).errorMessage());
+        verify(eventSource).acknowledge(events);
+    }
+
+    @Test
+    void testAlreadyCompletedPhotosAreSkipped() {
+        Photo photo = createPhoto("photo-1", "user-123/key1.jpg", PhotoStatus.UPLOADED);
+        List<StorageEvent> events = List.of(new StorageEvent("user-123/key1.jpg", 1024L, "etag-1", "ack-1"));
+
+        when(eventSource.poll(500)).thenReturn(events);
+        when(photoRepository.findByS3KeyIn(anyCollection())).thenReturn(List.of(photo));
+
+        ingestionService.ingest();
+
+        assertTrue(captureOutcomes().isEmpty());
+        verify(eventSource).acknowledge(events);
+    }
+
+    @Test
+    void testEventsNotAcknowledgedWhenWriteFails() {
+        Photo photo = createPhoto("photo-1", "user-123/key1.jpg", PhotoStatus.PENDING);
+        List<StorageEvent> events = List.of(new StorageEvent("user-123/key1.jpg", 1024L, "etag-1", "ack-1"));
+
+        when(eventSource.poll(500)).thenReturn(events);
+        when(photoRepository.findByS3KeyIn(anyCollection())).thenReturn(List.of(photo));
+        doThrow(new RuntimeException("db down")).when(completionWriter).apply(anyList());
+
+        ingestionService.ingest();
+
+        verify(eventSource, never()).acknowledge(anyCollection());
+    }
+
+    private Photo createPhoto(String id, String s3Key, PhotoStatus status) {
+        Photo photo = new Photo();
+        photo.setId(id);
+        photo.setUser(testUser);
+        photo.setBatch(testBatch);
+        photo.setS3Key(s3Key);
+        photo.setFileSizeBytes(1024L);
+        photo.setStatus(status);
+        return photo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<UploadCompletionWriter.Outcome> captureOutcomes() {
+        ArgumentCaptor<List<UploadCompletionWriter.Outcome>> captor = ArgumentCaptor.forClass(List.class);
+        verify(completionWriter).apply(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,203 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.UploadBatch;
+import com.rapid.domain.User;
+import com.rapid.infrastructure.exceptions.UploadNoLongerInProgressException;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.storage.StorageService;
+import com.rapid.infrastructure.storage.UploadedPart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamingUploadServiceTest {
+
+    private static final int MIB = 1024 * 1024;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private StorageService storageService;
+
+    @Mock
+    private UploadCompletionWriter completionWriter;
+
+    private StreamingUploadService service;
+
+    private Photo photo;
+
+    @BeforeEach
+    void setUp() {
+        service = new StreamingUploadService(photoRepository, storageService, completionWriter, 5L * MIB, 2, 60_000);
+
+        User user = new User();
+        user.setId("user-123");
+        UploadBatch batch = new UploadBatch();
+        batch.setId("batch-123");
+
+        photo = new Photo();
+        photo.setId("photo-123");
+        photo.setUser(user);
+        photo.setBatch(batch);
+        photo.setS3Key("user-123/key.jpg");
+        photo.setStatus(PhotoStatus.PENDING);
+    }
+
+    @Test
+    void testSmallFileIsOnePutWithChecksum() throws Exception {
+        byte[] content = randomBytes(1024);
+        photo.setFileSizeBytes((long) content.length);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(photo));
+        when(completionWriter.applyStoredObject(any())).thenReturn(true);
+
+        service.streamUpload("user-123", "photo-123", "image/jpeg", new ByteArrayInputStream(content));
+
+        verify(storageService).putObject(eq("user-123/key.jpg"), eq("image/jpeg"), any(byte[].class), eq(1024));
+        verify(storageService, never()).createMultipartUpload(anyString(), anyString());
+        UploadCompletionWriter.Outcome outcome = captureStoredOutcome();
+        assertNull(outcome.errorMessage());
+        assertEquals(sha256Hex(content), outcome.contentSha256());
+    }
+
+    @Test
+    void testLargeFileStreamsInPartsThroughOneBuffer() throws Exception {
+        byte[] content = randomBytes(12 * MIB);
+        photo.setFileSizeBytes((long) content.length);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(photo));
+        when(storageService.createMultipartUpload("user-123/key.jpg", "image/jpeg")).thenReturn("upload-1");
+        when(storageService.uploadPart(anyString(), eq("upload-1"), anyInt(), any(byte[].class), anyInt()))
+            .thenAnswer(invocation -> new UploadedPart(invocation.getArgument(2), "etag", (int) invocation.getArgument(4)));
+        when(completionWriter.applyStoredObject(any())).thenReturn(true);
+
+        service.streamUpload("user-123", "photo-123", "image/jpeg", new ByteArrayInputStream(content));
+
+        ArgumentCaptor<byte[]> buffers = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<Integer> lengths = ArgumentCaptor.forClass(Integer.class);
+        verify(storageService, times(3)).uploadPart(anyString(), anyString(), anyInt(), buffers.capture(), lengths.capture());
+        assertEquals(List.of(5 * MIB, 5 * MIB, 2 * MIB), lengths.getAllValues());
+        assertSame(buffers.getAllValues().get(0), buffers.getAllValues().get(2), "buffer is reused across parts");
+        verify(storageService).completeMultipartUpload(eq("user-123/key.jpg"), eq("upload-1"), anyList());
+        verify(storageService, never()).abortMultipartUpload(anyString(), anyString());
+        assertEquals(sha256Hex(content), captureStoredOutcome().contentSha256());
+        verify(photoRepository, never()).touchIfStatusIn(anyString(), anyCollection());
+    }
+
+    @Test
+    void testLongStreamTouchesPhotoAndStopsOnceItExpired() {
+        service = new StreamingUploadService(photoRepository, storageService, completionWriter, 5L * MIB, 2, 0);
+        photo.setFileSizeBytes(12L * MIB);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(photo));
+        when(storageService.createMultipartUpload(anyString(), anyString())).thenReturn("upload-1");
+        when(storageService.uploadPart(anyString(), anyString(), anyInt(), any(byte[].class), anyInt()))
+            .thenReturn(new UploadedPart(1, "etag", 5L * MIB));
+        when(photoRepository.touchIfStatusIn("photo-123", EnumSet.of(PhotoStatus.PENDING))).thenReturn(1, 0);
+
+        assertThrows(UploadNoLongerInProgressException.class, () ->
+            service.streamUpload("user-123", "photo-123", null, new ByteArrayInputStream(randomBytes(12 * MIB))));
+
+        verify(storageService, times(2)).uploadPart(anyString(), anyString(), anyInt(), any(byte[].class), anyInt());
+        verify(storageService).abortMultipartUpload("user-123/key.jpg", "upload-1");
+        verifyNoInteractions(completionWriter);
+    }
+
+    @Test
+    void testFinishedStreamOfExpiredPhotoIsConflict() {
+        byte[] content = randomBytes(1024);
+        photo.setFileSizeBytes((long) content.length);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(photo));
+        when(completionWriter.applyStoredObject(any())).thenReturn(false);
+
+        assertThrows(UploadNoLongerInProgressException.class, () ->
+            service.streamUpload("user-123", "photo-123", null, new ByteArrayInputStream(content)));
+
+        verify(storageService).putObject(eq("user-123/key.jpg"), any(), any(byte[].class), eq(1024));
+    }
+
+    @Test
+    void testShortBodyAbortsAndFailsPhoto() {
+        photo.setFileSizeBytes(12L * MIB);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(photo));
+        when(storageService.createMultipartUpload(anyString(), anyString())).thenReturn("upload-1");
+        when(storageService.uploadPart(anyString(), anyString(), anyInt(), any(byte[].class), anyInt()))
+            .thenReturn(new UploadedPart(1, "etag", 5L * MIB));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () ->
+            service.streamUpload("user-123", "photo-123", null, new ByteArrayInputStream(randomBytes(7 * MIB))));
+
+        assertEquals("File size mismatch", e.getMessage());
+        verify(storageService).abortMultipartUpload("user-123/key.jpg", "upload-1");
+        verify(storageService, never()).completeMultipartUpload(anyString(), anyString(), anyList());
+        assertEquals("File size mismatch", captureOutcome().errorMessage());
+    }
+
+    @Test
+    void testOversizedBodyIsRejected() {
+        photo.setFileSizeBytes(1024L);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(photo));
+
+        assertThrows(RuntimeException.class, () ->
+            service.streamUpload("user-123", "photo-123", null, new ByteArrayInputStream(randomBytes(1025))));
+
+        verify(storageService, never()).putObject(anyString(), anyString(), any(byte[].class), anyInt());
+        assertEquals("File size mismatch", captureOutcome().errorMessage());
+    }
+
+    @Test
+    void testRejectsPhotoThatIsNotPending() {
+        photo.setFileSizeBytes(1024L);
+        photo.setStatus(PhotoStatus.UPLOADED);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(photo));
+
+        assertThrows(RuntimeException.class, () ->
+            service.streamUpload("user-123", "photo-123", null, new ByteArrayInputStream(randomBytes(1024))));
+
+        verifyNoInteractions(storageService, completionWriter);
+    }
+
+    private UploadCompletionWriter.Outcome captureStoredOutcome() {
+        ArgumentCaptor<UploadCompletionWriter.Outcome> captor = ArgumentCaptor.forClass(UploadCompletionWriter.Outcome.class);
+        verify(completionWriter).applyStoredObject(captor.capture());
+        return captor.getValue();
+    }
+
+    private UploadCompletionWriter.Outcome captureOutcome() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UploadCompletionWriter.Outcome>> captor = ArgumentCaptor.forClass(List.class);
+        verify(completionWriter).apply(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        return captor.getValue().get(0);
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256Hex(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
@@ -2,17 +2,26 @@ package com.rapid.features.upload.service;
 
 import com.rapid.domain.Photo;
 import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.StoredObject;
 import com.rapid.domain.UploadBatch;
 import com.rapid.domain.User;
+import com.rapid.features.photos.service.ThumbnailService;
 import com.rapid.features.upload.dto.BatchCompleteRequest;
+import com.rapid.features.upload.dto.BulkInitiateUploadRequest;
+import com.rapid.features.upload.dto.BulkInitiateUploadResponse;
 import com.rapid.features.upload.dto.InitiateUploadRequest;
 import com.rapid.features.upload.dto.InitiateUploadResponse;
+import com.rapid.features.upload.dto.MultipartUploadResponse;
 import com.rapid.features.upload.dto.UploadCompleteRequest;
+import com.rapid.infrastructure.exceptions.UploadNoLongerInProgressException;
 import com.rapid.infrastructure.repository.PhotoRepository;
 import com.rapid.infrastructure.repository.UploadBatchRepository;
 import com.rapid.infrastructure.repository.UserRepository;
+import com.rapid.infrastructure.service.ContentIndexService;
 import com.rapid.infrastructure.service.LimitsService;
-import com.rapid.infrastructure.storage.S3PresignedUrlService;
+import com.rapid.infrastructure.service.UserQuotaService;
+import com.rapid.infrastructure.storage.StorageService;
+import com.rapid.infrastructure.storage.UploadedPart;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,17 +29,27 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class UploadCommandServiceTest {
 
+    private static final long MIB = 1024 * 1024;
+
     @Mock
     private PhotoRepository photoRepository;
 
@@ -41,10 +60,28 @@ class UploadCommandServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private S3PresignedUrlService s3Service;
+    private StorageService storageService;
 
     @Mock
     private LimitsService limitsService;
+    
+    @Mock
+    private UserQuotaService userQuotaService;
+    
+    @Mock
+    private BatchProgressService batchProgressService;
+    
+    @Mock
+    private UploadCompletionWriter completionWriter;
+    
+    @Mock
+    private ThumbnailService thumbnailService;
+    
+    @Mock
+    private ContentIndexService contentIndexService;
+    
+    @Mock
+    private ContentInspectionService contentInspectionService;
 
     @InjectMocks
     private UploadCommandService uploadCommandService;
@@ -87,7 +124,7 @@ class UploadCommandServiceTest {
         when(userRepository.findById("user-123")).thenReturn(Optional.of(testUser));
         when(uploadBatchRepository.saveAndFlush(any(UploadBatch.class))).thenReturn(testBatch);
         when(photoRepository.save(any(Photo.class))).thenReturn(testPhoto);
-        when(s3Service.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
+        when(storageService.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
 
         InitiateUploadResponse response = uploadCommandService.initiateUpload("user-123", request);
 
@@ -113,7 +150,7 @@ class UploadCommandServiceTest {
         when(userRepository.findById("user-123")).thenReturn(Optional.of(testUser));
         when(uploadBatchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
         when(photoRepository.save(any(Photo.class))).thenReturn(testPhoto);
-        when(s3Service.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
+        when(storageService.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
 
         InitiateUploadResponse response = uploadCommandService.initiateUpload("user-123", request);
 
@@ -137,7 +174,7 @@ class UploadCommandServiceTest {
         when(userRepository.findById("user-123")).thenReturn(Optional.of(testUser));
         when(uploadBatchRepository.saveAndFlush(any(UploadBatch.class))).thenReturn(testBatch);
         when(photoRepository.save(any(Photo.class))).thenReturn(testPhoto);
-        when(s3Service.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
+        when(storageService.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
 
         uploadCommandService.initiateUpload("user-123", request);
 
@@ -164,7 +201,7 @@ class UploadCommandServiceTest {
         // After insert, batch should be found
         when(uploadBatchRepository.findByIdAndUserId("client-batch-456", "user-123")).thenReturn(Optional.of(testBatch));
         when(photoRepository.save(any(Photo.class))).thenReturn(testPhoto);
-        when(s3Service.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
+        when(storageService.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
 
         InitiateUploadResponse response = uploadCommandService.initiateUpload("user-123", request);
 
@@ -177,22 +214,174 @@ class UploadCommandServiceTest {
         verify(uploadBatchRepository).incrementTotalCount(anyString());
     }
 
+    @Test
+    void testInitiateBulkUploadDoesSharedWorkOnce() {
+        BulkInitiateUploadRequest request = new BulkInitiateUploadRequest("batch-123", java.util.Arrays.asList(
+            new BulkInitiateUploadRequest.FileItem("a.jpg", 1024L, "image/jpeg"),
+            new BulkInitiateUploadRequest.FileItem("b.jpg", 2048L, "image/jpeg"),
+            new BulkInitiateUploadRequest.FileItem("c.jpg", 4096L, "image/jpeg")
+        ));
+        
+        when(userRepository.findById("user-123")).thenReturn(Optional.of(testUser));
+        when(uploadBatchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(photoRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Photo> photos = invocation.getArgument(0);
+            for (int i = 0; i < photos.size(); i++) {
+                photos.get(i).setId("photo-" + i);
+            }
+            return photos;
+        });
+        when(storageService.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
+
+        BulkInitiateUploadResponse response = uploadCommandService.initiateBulkUpload("user-123", request);
+
+        assertEquals("batch-123", response.getBatchId());
+        assertEquals(3, response.getUploads().size());
+        assertEquals("photo-0", response.getUploads().get(0).getPhotoId());
+        assertEquals("photo-2", response.getUploads().get(2).getPhotoId());
+        
+        // Limits, batch upsert and counter update happen once for the whole request
+        verify(limitsService).checkPhotoLimit(3);
+        verify(limitsService).checkStorageLimit(1024L + 2048L + 4096L);
+        verify(uploadBatchRepository).insertBatchIfNotExists("batch-123", "user-123");
+        verify(uploadBatchRepository).incrementTotalCountBy("batch-123", 3);
+        verify(uploadBatchRepository, never()).incrementTotalCount(anyString());
+        verify(photoRepository).saveAll(anyList());
+        verify(photoRepository, never()).save(any(Photo.class));
+    }
+
+    @Test
+    void testInitiateBulkUploadRejectsOversizedFileBeforeWriting() {
+        BulkInitiateUploadRequest request = new BulkInitiateUploadRequest(null, java.util.Arrays.asList(
+            new BulkInitiateUploadRequest.FileItem("ok.jpg", 1024L, "image/jpeg"),
+            new BulkInitiateUploadRequest.FileItem("huge.mov", 5_000_000_000L, "video/quicktime")
+        ));
+        
+        doThrow(new com.rapid.infrastructure.exceptions.LimitExceededException("Image too large", "FILE_SIZE"))
+            .when(limitsService).checkFileSizeLimit(5_000_000_000L);
+
+        assertThrows(RuntimeException.class, () ->
+            uploadCommandService.initiateBulkUpload("user-123", request)
+        );
+        
+        verify(photoRepository, never()).saveAll(anyList());
+        verify(uploadBatchRepository, never()).saveAndFlush(any(UploadBatch.class));
+    }
+
+    @Test
+    void testInitiateUploadReferencesContentAlreadyStored() {
+        String sha256 = "ab".repeat(32);
+        InitiateUploadRequest request = new InitiateUploadRequest("copy.jpg", 1024L, "image/jpeg", "batch-123");
+        request.setContentSha256(sha256.toUpperCase());
+        StoredObject stored = storedObject("user-123/1_uuid_original.jpg", sha256, 1024L);
+        
+        when(contentIndexService.findStored("user-123", List.of(sha256))).thenReturn(Map.of(sha256, stored));
+        when(contentIndexService.acquire(stored, 1024L)).thenReturn(true);
+        when(userRepository.findById("user-123")).thenReturn(Optional.of(testUser));
+        when(uploadBatchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(photoRepository.save(any(Photo.class))).thenAnswer(invocation -> {
+            Photo photo = invocation.getArgument(0);
+            photo.setId("photo-copy");
+            return photo;
+        });
+
+        InitiateUploadResponse response = uploadCommandService.initiateUpload("user-123", request);
+
+        assertTrue(response.isAlreadyStored());
+        assertNull(response.getUploadUrl());
+        assertEquals("photo-copy", response.getPhotoId());
+        
+        ArgumentCaptor<Photo> photoCaptor = ArgumentCaptor.forClass(Photo.class);
+        verify(photoRepository).save(photoCaptor.capture());
+        Photo photo = photoCaptor.getValue();
+        assertEquals("user-123/1_uuid_original.jpg", photo.getS3Key());
+        assertEquals(PhotoStatus.UPLOADED, photo.getStatus());
+        assertTrue(photo.isDeduplicated());
+        
+        // No upload, so no storage is reserved and the batch counts it as completed
+        verify(storageService, never()).generatePresignedPutUrl(anyString(), anyString());
+        verify(userQuotaService, never()).reserve(anyString(), anyLong());
+        verify(limitsService).recordPhotosCreated(1, 0);
+        verify(uploadBatchRepository).incrementCompletedCountBy("batch-123", 1);
+    }
+
+    @Test
+    void testInitiateUploadWithUnknownContentUploadsAndRecordsHash() {
+        String sha256 = "cd".repeat(32);
+        InitiateUploadRequest request = new InitiateUploadRequest("new.jpg", 1024L, "image/jpeg", "batch-123");
+        request.setContentSha256(sha256);
+        
+        when(userRepository.findById("user-123")).thenReturn(Optional.of(testUser));
+        when(uploadBatchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(photoRepository.save(any(Photo.class))).thenReturn(testPhoto);
+        when(storageService.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
+
+        InitiateUploadResponse response = uploadCommandService.initiateUpload("user-123", request);
+
+        assertFalse(response.isAlreadyStored());
+        assertEquals("https://s3.url", response.getUploadUrl());
+        ArgumentCaptor<Photo> photoCaptor = ArgumentCaptor.forClass(Photo.class);
+        verify(photoRepository).save(photoCaptor.capture());
+        assertEquals(sha256, photoCaptor.getValue().getContentSha256());
+        assertFalse(photoCaptor.getValue().isDeduplicated());
+        verify(userQuotaService).reserve("user-123", 1024L);
+    }
+
+    @Test
+    void testInitiateBulkUploadOnlyUploadsUnknownContent() {
+        String knownSha256 = "ab".repeat(32);
+        BulkInitiateUploadRequest.FileItem known = new BulkInitiateUploadRequest.FileItem("a.jpg", 1024L, "image/jpeg");
+        known.setContentSha256(knownSha256);
+        BulkInitiateUploadRequest.FileItem unknown = new BulkInitiateUploadRequest.FileItem("b.jpg", 2048L, "image/jpeg");
+        unknown.setContentSha256("cd".repeat(32));
+        BulkInitiateUploadRequest request = new BulkInitiateUploadRequest("batch-123", List.of(known, unknown));
+        StoredObject stored = storedObject("user-123/1_uuid_a.jpg", knownSha256, 1024L);
+        
+        when(contentIndexService.findStored(eq("user-123"), anyList())).thenReturn(Map.of(knownSha256, stored));
+        when(contentIndexService.acquire(stored, 1024L)).thenReturn(true);
+        when(userRepository.findById("user-123")).thenReturn(Optional.of(testUser));
+        when(uploadBatchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(photoRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Photo> photos = invocation.getArgument(0);
+            for (int i = 0; i < photos.size(); i++) {
+                photos.get(i).setId("photo-" + i);
+            }
+            return photos;
+        });
+        when(storageService.generatePresignedPutUrl(anyString(), anyString())).thenReturn("https://s3.url");
+
+        BulkInitiateUploadResponse response = uploadCommandService.initiateBulkUpload("user-123", request);
+
+        assertTrue(response.getUploads().get(0).isAlreadyStored());
+        assertNull(response.getUploads().get(0).getUploadUrl());
+        assertFalse(response.getUploads().get(1).isAlreadyStored());
+        assertEquals("https://s3.url", response.getUploads().get(1).getUploadUrl());
+        
+        // Only the file to upload takes storage
+        verify(limitsService).checkPhotoLimit(2);
+        verify(limitsService).checkStorageLimit(2048L);
+        verify(userQuotaService).reserve("user-123", 2048L);
+        verify(limitsService).recordPhotosCreated(2, 2048L);
+        verify(uploadBatchRepository).incrementTotalCountBy("batch-123", 2);
+        verify(uploadBatchRepository).incrementCompletedCountBy("batch-123", 1);
+    }
+
     @Test
     void testCompleteUploadThrowsWhenFileNotInS3() {
         UploadCompleteRequest request = new UploadCompleteRequest(1024L, null);
         
         when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(testPhoto));
-        when(s3Service.verifyFileExists("user-123", testPhoto.getS3Key())).thenReturn(false);
+        when(storageService.headObjectSize(testPhoto.getS3Key())).thenReturn(OptionalLong.empty());
 
         assertThrows(RuntimeException.class, () ->
             uploadCommandService.completeUpload("user-123", "photo-123", request)
         );
 
-        // Verify photo was marked as FAILED with error message
-        ArgumentCaptor<Photo> photoCaptor = ArgumentCaptor.forClass(Photo.class);
-        verify(photoRepository).save(photoCaptor.capture());
-        assertEquals(PhotoStatus.FAILED, photoCaptor.getValue().getStatus());
-        assertEquals("File not found in S3", photoCaptor.getValue().getErrorMessage());
+        // The failure is written through the guarded path (releases the reservation once)
+        List<UploadCompletionWriter.Outcome> outcomes = captureOutcomes();
+        assertEquals(1, outcomes.size());
+        assertEquals("File not found in S3", outcomes.get(0).errorMessage());
+        verify(photoRepository, never()).save(any(Photo.class));
     }
 
     @Test
@@ -200,58 +389,63 @@ class UploadCommandServiceTest {
         UploadCompleteRequest request = new UploadCompleteRequest(2048L, null); // Different size
         
         when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(testPhoto));
-        when(s3Service.verifyFileExists("user-123", testPhoto.getS3Key())).thenReturn(true);
-        when(s3Service.getFileSizeBytes("user-123", testPhoto.getS3Key())).thenReturn(1024L); // Actual size
+        when(storageService.headObjectSize(testPhoto.getS3Key())).thenReturn(OptionalLong.of(1024L)); // Actual size
 
         assertThrows(RuntimeException.class, () ->
             uploadCommandService.completeUpload("user-123", "photo-123", request)
         );
 
-        // Verify photo was marked as FAILED with correct error
-        ArgumentCaptor<Photo> photoCaptor = ArgumentCaptor.forClass(Photo.class);
-        verify(photoRepository, atLeast(1)).save(photoCaptor.capture());
-        assertEquals(PhotoStatus.FAILED, photoCaptor.getValue().getStatus());
-        assertEquals("File size mismatch", photoCaptor.getValue().getErrorMessage());
+        assertEquals("File size mismatch", captureOutcomes().get(0).errorMessage());
     }
 
     @Test
-    void testCompleteUploadIncrementsBatchCompletedCount() {
+    void testCompleteUploadWritesThroughCompletionWriter() {
         UploadCompleteRequest request = new UploadCompleteRequest(1024L, null);
-        testBatch.setCompletedCount(5);
         testPhoto.setStatus(PhotoStatus.PENDING);
         
         when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(testPhoto));
-        when(s3Service.verifyFileExists("user-123", testPhoto.getS3Key())).thenReturn(true);
-        when(s3Service.getFileSizeBytes("user-123", testPhoto.getS3Key())).thenReturn(1024L);
+        when(storageService.headObjectSize(testPhoto.getS3Key())).thenReturn(OptionalLong.of(1024L));
 
         uploadCommandService.completeUpload("user-123", "photo-123", request);
 
-        // Verify batch count was incremented
-        ArgumentCaptor<Photo> photoCaptor = ArgumentCaptor.forClass(Photo.class);
-        verify(photoRepository).save(photoCaptor.capture());
-        assertEquals(PhotoStatus.UPLOADED, photoCaptor.getValue().getStatus());
+        // Single HEAD per object
+        verify(storageService, times(1)).headObjectSize(testPhoto.getS3Key());
         
-        ArgumentCaptor<UploadBatch> batchCaptor = ArgumentCaptor.forClass(UploadBatch.class);
-        verify(uploadBatchRepository).save(batchCaptor.capture());
-        assertEquals(6, batchCaptor.getValue().getCompletedCount());
+        List<UploadCompletionWriter.Outcome> outcomes = captureOutcomes();
+        assertEquals(1, outcomes.size());
+        assertSame(testPhoto, outcomes.get(0).photo());
+        assertNull(outcomes.get(0).errorMessage());
+        assertEquals(1024L, outcomes.get(0).actualSizeBytes());
+        // Quota, batch counter and inspection are the writer's, applied only if the row changes
+        verifyNoInteractions(userQuotaService, uploadBatchRepository, contentInspectionService);
+    }
+
+    @Test
+    void testCompleteUploadOfCompletedPhotoIsANoOp() {
+        // e.g. the storage event completed it before the client's callback
+        testPhoto.setStatus(PhotoStatus.UPLOADED);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(testPhoto));
+
+        uploadCommandService.completeUpload("user-123", "photo-123", new UploadCompleteRequest(1024L, null));
+
+        verifyNoInteractions(storageService, completionWriter, userQuotaService, uploadBatchRepository);
+    }
+
+    @Test
+    void testCompleteUploadRefusesPhotoNoLongerInProgress() {
+        testPhoto.setStatus(PhotoStatus.FAILED);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(testPhoto));
+
+        assertThrows(RuntimeException.class, () ->
+            uploadCommandService.completeUpload("user-123", "photo-123", new UploadCompleteRequest(1024L, null)));
+
+        verifyNoInteractions(storageService, completionWriter, userQuotaService);
     }
 
     @Test
     void testBatchCompleteUploadProcessesMultipleItems() {
-        // Create multiple photos for batch processing
-        Photo photo1 = new Photo();
-        photo1.setId("photo-1");
-        photo1.setUser(testUser);
-        photo1.setBatch(testBatch);
-        photo1.setS3Key("user-123/key1.jpg");
-        photo1.setStatus(PhotoStatus.PENDING);
-
-        Photo photo2 = new Photo();
-        photo2.setId("photo-2");
-        photo2.setUser(testUser);
-        photo2.setBatch(testBatch);
-        photo2.setS3Key("user-123/key2.jpg");
-        photo2.setStatus(PhotoStatus.PENDING);
+        Photo photo1 = createPendingPhoto("photo-1", "user-123/key1.jpg", 1024L);
+        Photo photo2 = createPendingPhoto("photo-2", "user-123/key2.jpg", 2048L);
 
         BatchCompleteRequest request = new BatchCompleteRequest();
         request.setItems(java.util.Arrays.asList(
@@ -259,77 +453,53 @@ class UploadCommandServiceTest {
             new BatchCompleteRequest.CompleteItem("photo-2", 2048L, null)
         ));
 
-        when(photoRepository.findByIdAndUserId("photo-1", "user-123")).thenReturn(Optional.of(photo1));
-        when(photoRepository.findByIdAndUserId("photo-2", "user-123")).thenReturn(Optional.of(photo2));
-        when(s3Service.verifyFileExists("user-123", "user-123/key1.jpg")).thenReturn(true);
-        when(s3Service.verifyFileExists("user-123", "user-123/key2.jpg")).thenReturn(true);
-        when(s3Service.getFileSizeBytes("user-123", "user-123/key1.jpg")).thenReturn(1024L);
-        when(s3Service.getFileSizeBytes("user-123", "user-123/key2.jpg")).thenReturn(2048L);
-        when(uploadBatchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(photoRepository.findByIdInAndUserId(List.of("photo-1", "photo-2"), "user-123"))
+            .thenReturn(List.of(photo1, photo2));
+        when(storageService.headObjectSizes(List.of("user-123/key1.jpg", "user-123/key2.jpg")))
+            .thenReturn(Map.of("user-123/key1.jpg", OptionalLong.of(1024L), "user-123/key2.jpg", OptionalLong.of(2048L)));
 
         int processedCount = uploadCommandService.batchCompleteUpload("user-123", request);
 
         assertEquals(2, processedCount);
         
-        // Verify both photos were updated
-        ArgumentCaptor<Photo> photoCaptor = ArgumentCaptor.forClass(Photo.class);
-        verify(photoRepository, times(2)).save(photoCaptor.capture());
-        
-        java.util.List<Photo> savedPhotos = photoCaptor.getAllValues();
-        assertEquals(PhotoStatus.UPLOADED, savedPhotos.get(0).getStatus());
-        assertEquals(PhotoStatus.UPLOADED, savedPhotos.get(1).getStatus());
-        
-        // Verify batch count was updated
-        ArgumentCaptor<UploadBatch> batchCaptor = ArgumentCaptor.forClass(UploadBatch.class);
-        verify(uploadBatchRepository).save(batchCaptor.capture());
-        assertEquals(2, batchCaptor.getValue().getCompletedCount());
+        // All items verified in one fan-out and written back in one go
+        verify(storageService, times(1)).headObjectSizes(anyList());
+        List<UploadCompletionWriter.Outcome> outcomes = captureOutcomes();
+        assertEquals(2, outcomes.size());
+        assertTrue(outcomes.stream().allMatch(o -> o.errorMessage() == null));
+        verify(photoRepository, never()).save(any(Photo.class));
     }
 
     @Test
     void testBatchCompleteUploadHandlesPartialFailures() {
-        Photo photo1 = new Photo();
-        photo1.setId("photo-1");
-        photo1.setUser(testUser);
-        photo1.setBatch(testBatch);
-        photo1.setS3Key("user-123/key1.jpg");
-        photo1.setStatus(PhotoStatus.PENDING);
-
-        Photo photo2 = new Photo();
-        photo2.setId("photo-2");
-        photo2.setUser(testUser);
-        photo2.setBatch(testBatch);
-        photo2.setS3Key("user-123/key2.jpg");
-        photo2.setStatus(PhotoStatus.PENDING);
+        Photo photo1 = createPendingPhoto("photo-1", "user-123/key1.jpg", 1024L);
+        Photo photo2 = createPendingPhoto("photo-2", "user-123/key2.jpg", 2048L);
+        Photo photo3 = createPendingPhoto("photo-3", "user-123/key3.jpg", 4096L);
 
         BatchCompleteRequest request = new BatchCompleteRequest();
         request.setItems(java.util.Arrays.asList(
             new BatchCompleteRequest.CompleteItem("photo-1", 1024L, null),
-            new BatchCompleteRequest.CompleteItem("photo-2", 2048L, null)
+            new BatchCompleteRequest.CompleteItem("photo-2", 2048L, null),
+            new BatchCompleteRequest.CompleteItem("photo-3", 4096L, null)
         ));
 
-        when(photoRepository.findByIdAndUserId("photo-1", "user-123")).thenReturn(Optional.of(photo1));
-        when(photoRepository.findByIdAndUserId("photo-2", "user-123")).thenReturn(Optional.of(photo2));
-        when(s3Service.verifyFileExists("user-123", "user-123/key1.jpg")).thenReturn(true);
-        when(s3Service.verifyFileExists("user-123", "user-123/key2.jpg")).thenReturn(false); // File 2 not found
-        when(s3Service.getFileSizeBytes("user-123", "user-123/key1.jpg")).thenReturn(1024L);
-        when(uploadBatchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(photoRepository.findByIdInAndUserId(anyList(), eq("user-123")))
+            .thenReturn(List.of(photo1, photo2, photo3));
+        // File 2 not found; HEAD for file 3 errored (omitted from the result)
+        when(storageService.headObjectSizes(anyList()))
+            .thenReturn(Map.of("user-123/key1.jpg", OptionalLong.of(1024L), "user-123/key2.jpg", OptionalLong.empty()));
 
         int processedCount = uploadCommandService.batchCompleteUpload("user-123", request);
 
         assertEquals(1, processedCount); // Only photo1 succeeded
         
-        // Verify photo1 was updated to UPLOADED
-        ArgumentCaptor<Photo> photoCaptor = ArgumentCaptor.forClass(Photo.class);
-        verify(photoRepository, times(2)).save(photoCaptor.capture());
-        
-        java.util.List<Photo> savedPhotos = photoCaptor.getAllValues();
-        // First save: photo1 to UPLOADED
-        // Second save: photo2 to FAILED
-        boolean foundUploaded = savedPhotos.stream().anyMatch(p -> 
-            p.getId().equals("photo-1") && p.getStatus() == PhotoStatus.UPLOADED
+        List<UploadCompletionWriter.Outcome> outcomes = captureOutcomes();
+        assertEquals(2, outcomes.size()); // photo3 left as-is for a retry
+        boolean foundUploaded = outcomes.stream().anyMatch(o ->
+            o.photo().getId().equals("photo-1") && o.errorMessage() == null
         );
-        boolean foundFailed = savedPhotos.stream().anyMatch(p -> 
-            p.getId().equals("photo-2") && p.getStatus() == PhotoStatus.FAILED
+        boolean foundFailed = outcomes.stream().anyMatch(o ->
+            o.photo().getId().equals("photo-2") && "File not found in S3".equals(o.errorMessage())
         );
         assertTrue(foundUploaded, "Photo1 should be UPLOADED");
         assertTrue(foundFailed, "Photo2 should be FAILED");
@@ -345,16 +515,238 @@ class UploadCommandServiceTest {
             new BatchCompleteRequest.CompleteItem("photo-123", 1024L, null)
         ));
 
-        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(testPhoto));
-        when(uploadBatchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(photoRepository.findByIdInAndUserId(List.of("photo-123"), "user-123")).thenReturn(List.of(testPhoto));
+        when(storageService.headObjectSizes(List.of())).thenReturn(Map.of());
 
         int processedCount = uploadCommandService.batchCompleteUpload("user-123", request);
 
         assertEquals(1, processedCount); // Counted as processed (idempotent)
         
-        // Should not verify S3 or update photo (already completed)
-        verify(s3Service, never()).verifyFileExists(anyString(), anyString());
+        // Nothing to verify or write (already completed)
+        assertTrue(captureOutcomes().isEmpty());
         verify(photoRepository, never()).save(any(Photo.class));
     }
-}
 
+    @Test
+    void testBatchCompleteUploadSkipsPhotosNoLongerInProgress() {
+        // Expired before the client got to complete it
+        testPhoto.setStatus(PhotoStatus.FAILED);
+
+        BatchCompleteRequest request = new BatchCompleteRequest();
+        request.setItems(List.of(new BatchCompleteRequest.CompleteItem("photo-123", 1024L, null)));
+
+        when(photoRepository.findByIdInAndUserId(List.of("photo-123"), "user-123")).thenReturn(List.of(testPhoto));
+        when(storageService.headObjectSizes(List.of())).thenReturn(Map.of());
+
+        assertEquals(0, uploadCommandService.batchCompleteUpload("user-123", request));
+
+        assertTrue(captureOutcomes().isEmpty());
+    }
+
+    @Test
+    void testPartSizeGrowsToStayWithinTenThousandParts() {
+        assertEquals(8L * MIB, UploadCommandService.partSizeFor(100L * MIB, 8L * MIB));
+        // Never below S3's 5 MiB minimum
+        assertEquals(5L * MIB, UploadCommandService.partSizeFor(100L * MIB, MIB));
+        // 200 GiB / 10,000 parts = ~20.5 MiB, rounded up to whole MiB
+        assertEquals(21L * MIB, UploadCommandService.partSizeFor(200L * 1024 * MIB, 8L * MIB));
+    }
+
+    @Test
+    void testInitiateMultipartUploadPresignsEveryPart() {
+        ReflectionTestUtils.setField(uploadCommandService, "multipartPartSizeBytes", 8L * MIB);
+        InitiateUploadRequest request = new InitiateUploadRequest("big.mov", 20L * MIB, "video/quicktime", "batch-123");
+
+        when(userRepository.findById("user-123")).thenReturn(Optional.of(testUser));
+        when(uploadBatchRepository.findByIdAndUserId("batch-123", "user-123")).thenReturn(Optional.of(testBatch));
+        when(storageService.createMultipartUpload(anyString(), eq("video/quicktime"))).thenReturn("upload-1");
+        when(photoRepository.save(any(Photo.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(storageService.generatePresignedPartUrl(anyString(), eq("upload-1"), anyInt()))
+            .thenAnswer(invocation -> "https://s3.url/part" + invocation.getArgument(2));
+
+        MultipartUploadResponse response = uploadCommandService.initiateMultipartUpload("user-123", request);
+
+        assertEquals(8L * MIB, response.getPartSizeBytes());
+        assertEquals(3, response.getPartCount());
+        assertEquals(List.of(1, 2, 3), response.getParts().stream().map(MultipartUploadResponse.PartUrl::getPartNumber).toList());
+
+        ArgumentCaptor<Photo> photoCaptor = ArgumentCaptor.forClass(Photo.class);
+        verify(photoRepository).save(photoCaptor.capture());
+        assertEquals("upload-1", photoCaptor.getValue().getMultipartUploadId());
+        assertEquals(PhotoStatus.UPLOADING, photoCaptor.getValue().getStatus());
+        verify(userQuotaService).reserve("user-123", 20L * MIB);
+    }
+
+    @Test
+    void testGetMissingPartsReturnsAbsentAndWrongSizedParts() {
+        Photo photo = createMultipartPhoto(20L * MIB);
+        when(photoRepository.findByIdAndUserId("photo-mp", "user-123")).thenReturn(Optional.of(photo));
+        // Part 2 was cut short, part 3 never arrived
+        when(storageService.listParts(photo.getS3Key(), "upload-1")).thenReturn(List.of(
+            new UploadedPart(1, "\"e1\"", 8L * MIB),
+            new UploadedPart(2, "\"e2\"", MIB)
+        ));
+        when(storageService.generatePresignedPartUrl(anyString(), eq("upload-1"), anyInt())).thenReturn("https://s3.url");
+
+        MultipartUploadResponse response = uploadCommandService.getMissingParts("user-123", "photo-mp");
+
+        assertEquals(List.of(2, 3), response.getParts().stream().map(MultipartUploadResponse.PartUrl::getPartNumber).toList());
+        verify(photoRepository).touchIfStatusIn(eq("photo-mp"), any());
+    }
+
+    @Test
+    void testCompleteMultipartUploadRejectsMissingParts() {
+        Photo photo = createMultipartPhoto(20L * MIB);
+        when(photoRepository.findByIdAndUserId("photo-mp", "user-123")).thenReturn(Optional.of(photo));
+        when(storageService.listParts(photo.getS3Key(), "upload-1")).thenReturn(List.of(
+            new UploadedPart(1, "\"e1\"", 8L * MIB)
+        ));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+            () -> uploadCommandService.completeMultipartUpload("user-123", "photo-mp"));
+
+        assertEquals("Upload incomplete: 2 parts missing", e.getMessage());
+        verify(storageService, never()).completeMultipartUpload(anyString(), anyString(), anyList());
+        verifyNoInteractions(completionWriter);
+    }
+
+    @Test
+    void testCompleteMultipartUploadAssemblesPartsAndMarksUploaded() {
+        Photo photo = createMultipartPhoto(20L * MIB);
+        List<UploadedPart> parts = List.of(
+            new UploadedPart(1, "\"e1\"", 8L * MIB),
+            new UploadedPart(2, "\"e2\"", 8L * MIB),
+            new UploadedPart(3, "\"e3\"", 4L * MIB)
+        );
+        when(photoRepository.findByIdAndUserId("photo-mp", "user-123")).thenReturn(Optional.of(photo));
+        when(storageService.listParts(photo.getS3Key(), "upload-1")).thenReturn(parts);
+        when(completionWriter.applyStoredObject(any())).thenReturn(true);
+
+        uploadCommandService.completeMultipartUpload("user-123", "photo-mp");
+
+        verify(storageService).completeMultipartUpload(photo.getS3Key(), "upload-1", parts);
+        ArgumentCaptor<UploadCompletionWriter.Outcome> outcome = ArgumentCaptor.forClass(UploadCompletionWriter.Outcome.class);
+        verify(completionWriter).applyStoredObject(outcome.capture());
+        assertNull(outcome.getValue().errorMessage());
+        assertEquals(20L * MIB, outcome.getValue().actualSizeBytes());
+    }
+
+    @Test
+    void testCompleteMultipartUploadOfPhotoExpiredMeanwhileIsConflict() {
+        Photo photo = createMultipartPhoto(20L * MIB);
+        List<UploadedPart> parts = List.of(
+            new UploadedPart(1, "\"e1\"", 8L * MIB),
+            new UploadedPart(2, "\"e2\"", 8L * MIB),
+            new UploadedPart(3, "\"e3\"", 4L * MIB)
+        );
+        when(photoRepository.findByIdAndUserId("photo-mp", "user-123")).thenReturn(Optional.of(photo));
+        when(storageService.listParts(photo.getS3Key(), "upload-1")).thenReturn(parts);
+        // The writer queues the assembled object for reclaim
+        when(completionWriter.applyStoredObject(any())).thenReturn(false);
+
+        assertThrows(UploadNoLongerInProgressException.class,
+            () -> uploadCommandService.completeMultipartUpload("user-123", "photo-mp"));
+        verify(storageService).completeMultipartUpload(photo.getS3Key(), "upload-1", parts);
+    }
+
+    @Test
+    void testCompleteUploadRejectsMultipartPhoto() {
+        Photo photo = createMultipartPhoto(20L * MIB);
+        when(photoRepository.findByIdAndUserId("photo-mp", "user-123")).thenReturn(Optional.of(photo));
+
+        assertThrows(RuntimeException.class, () -> uploadCommandService.completeUpload(
+            "user-123", "photo-mp", new UploadCompleteRequest(20L * MIB, null)));
+        verify(storageService, never()).headObjectSize(anyString());
+    }
+
+    @Test
+    void testFailUploadGoesThroughGuardedWrite() {
+        Photo photo = createMultipartPhoto(20L * MIB);
+        when(photoRepository.findByIdAndUserId("photo-mp", "user-123")).thenReturn(Optional.of(photo));
+        when(completionWriter.apply(anyList())).thenReturn(Set.of("photo-mp"));
+
+        uploadCommandService.failUpload("user-123", "photo-mp", "Network error");
+
+        List<UploadCompletionWriter.Outcome> outcomes = captureOutcomes();
+        assertEquals("Network error", outcomes.get(0).errorMessage());
+        verify(storageService).abortMultipartUpload("user-123/big.mov", "upload-1");
+        // Quota and counters move inside the writer, only for rows it changed
+        verifyNoInteractions(userQuotaService, uploadBatchRepository);
+    }
+
+    @Test
+    void testFailUploadOfAlreadyFailedPhotoChangesNothing() {
+        Photo photo = createMultipartPhoto(20L * MIB);
+        when(photoRepository.findByIdAndUserId("photo-mp", "user-123")).thenReturn(Optional.of(photo));
+        when(completionWriter.apply(anyList())).thenReturn(Set.of());
+
+        uploadCommandService.failUpload("user-123", "photo-mp", "Network error");
+
+        verify(storageService, never()).abortMultipartUpload(anyString(), anyString());
+    }
+
+    @Test
+    void testFailUploadRefusesCompletedPhoto() {
+        testPhoto.setStatus(PhotoStatus.UPLOADED);
+        when(photoRepository.findByIdAndUserId("photo-123", "user-123")).thenReturn(Optional.of(testPhoto));
+
+        assertThrows(RuntimeException.class,
+            () -> uploadCommandService.failUpload("user-123", "photo-123", "Network error"));
+        verifyNoInteractions(completionWriter);
+    }
+
+    @Test
+    void testExpireStaleUploadsLeavesPhotosCompletedMeanwhile() {
+        Photo expiring = createMultipartPhoto(20L * MIB);
+        Photo completedMeanwhile = createPendingPhoto("photo-late", "user-123/late.jpg", 1024L);
+        completedMeanwhile.setMultipartUploadId("upload-2");
+        when(photoRepository.findTop500ByStatusInAndUpdatedAtBefore(anyCollection(), any()))
+            .thenReturn(List.of(expiring, completedMeanwhile));
+        when(completionWriter.apply(anyList())).thenReturn(Set.of("photo-mp"));
+
+        uploadCommandService.expireStaleUploads();
+
+        List<UploadCompletionWriter.Outcome> outcomes = captureOutcomes();
+        assertEquals(2, outcomes.size());
+        assertTrue(outcomes.stream().allMatch(o -> "Upload expired".equals(o.errorMessage())));
+        verify(storageService).abortMultipartUpload("user-123/big.mov", "upload-1");
+        verify(storageService, never()).abortMultipartUpload("user-123/late.jpg", "upload-2");
+        verify(photoRepository, never()).saveAll(anyList());
+    }
+
+    private Photo createMultipartPhoto(long sizeBytes) {
+        Photo photo = createPendingPhoto("photo-mp", "user-123/big.mov", sizeBytes);
+        photo.setStatus(PhotoStatus.UPLOADING);
+        photo.setMultipartUploadId("upload-1");
+        photo.setMultipartPartSizeBytes(8L * MIB);
+        return photo;
+    }
+
+    private Photo createPendingPhoto(String id, String s3Key, long sizeBytes) {
+        Photo photo = new Photo();
+        photo.setId(id);
+        photo.setUser(testUser);
+        photo.setBatch(testBatch);
+        photo.setS3Key(s3Key);
+        photo.setFileSizeBytes(sizeBytes);
+        photo.setStatus(PhotoStatus.PENDING);
+        return photo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<UploadCompletionWriter.Outcome> captureOutcomes() {
+        ArgumentCaptor<List<UploadCompletionWriter.Outcome>> captor = ArgumentCaptor.forClass(List.class);
+        verify(completionWriter).apply(captor.capture());
+        return captor.getValue();
+    }
+
+    private static StoredObject storedObject(String s3Key, String sha256, long sizeBytes) {
+        StoredObject stored = new StoredObject();
+        stored.setS3Key(s3Key);
+        stored.setUserId("user-123");
+        stored.setContentSha256(sha256);
+        stored.setSizeBytes(sizeBytes);
+        stored.setRefCount(1);
+        return stored;
+    }
+}
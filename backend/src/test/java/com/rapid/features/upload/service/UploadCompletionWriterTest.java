@@ -0,0 +1,164 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.UploadBatch;
+import com.rapid.domain.User;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.UploadBatchRepository;
+import com.rapid.infrastructure.service.ContentIndexService;
+import com.rapid.infrastructure.service.StorageReclaimService;
+import com.rapid.infrastructure.service.UserQuotaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadCompletionWriterTest {
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private UploadBatchRepository uploadBatchRepository;
+
+    @Mock
+    private UserQuotaService userQuotaService;
+    
+    @Mock
+    private BatchProgressService batchProgressService;
+
+    @Mock
+    private ContentInspectionService contentInspectionService;
+
+    @Mock
+    private ContentIndexService contentIndexService;
+
+    @Mock
+    private StorageReclaimService storageReclaimService;
+
+    @InjectMocks
+    private UploadCompletionWriter completionWriter;
+
+    private User testUser;
+    private UploadBatch testBatch;
+
+    @BeforeEach
+    void setUp() {
+        testUser = new User();
+        testUser.setId("user-123");
+
+        testBatch = new UploadBatch();
+        testBatch.setId("batch-123");
+        testBatch.setUser(testUser);
+    }
+
+    @Test
+    void testWritesAllOutcomesWithOneUpdatePerKind() {
+        Photo photo1 = createPhoto("photo-1");
+        Photo photo2 = createPhoto("photo-2");
+        Photo photo3 = createPhoto("photo-3");
+
+        when(photoRepository.markUploaded(List.of("photo-1", "photo-2"))).thenReturn(List.of("photo-1", "photo-2"));
+        when(photoRepository.markFailed(List.of("photo-3"), "File size mismatch")).thenReturn(List.of("photo-3"));
+
+        completionWriter.apply(List.of(
+            UploadCompletionWriter.Outcome.uploaded(photo1, 1024L),
+            UploadCompletionWriter.Outcome.uploaded(photo2, 1024L),
+            UploadCompletionWriter.Outcome.failed(photo3, "File size mismatch")
+        ));
+
+        verify(uploadBatchRepository).incrementCompletedCountBy("batch-123", 2);
+        verify(uploadBatchRepository).incrementFailedCountBy("batch-123", 1);
+        verify(userQuotaService, times(2)).commit("user-123", 1024L, 1024L);
+        verify(userQuotaService).release("user-123", 1024L);
+        verify(photoRepository, never()).save(any(Photo.class));
+        // Derivatives queued for the uploaded photos only
+        verify(contentInspectionService).enqueue(photo1);
+        verify(contentInspectionService).enqueue(photo2);
+        verify(contentInspectionService, never()).enqueue(photo3);
+    }
+
+    @Test
+    void testOnlyRowsThatChangedMoveCounters() {
+        // photo-2 was completed concurrently by another request
+        Photo photo1 = createPhoto("photo-1");
+        Photo photo2 = createPhoto("photo-2");
+
+        when(photoRepository.markUploaded(List.of("photo-1", "photo-2"))).thenReturn(List.of("photo-1"));
+
+        completionWriter.apply(List.of(
+            UploadCompletionWriter.Outcome.uploaded(photo1, 1024L),
+            UploadCompletionWriter.Outcome.uploaded(photo2, 1024L)
+        ));
+
+        verify(uploadBatchRepository).incrementCompletedCountBy("batch-123", 1);
+        verify(userQuotaService, times(1)).commit(anyString(), anyLong(), anyLong());
+        verify(uploadBatchRepository, never()).incrementFailedCountBy(anyString(), anyInt());
+    }
+
+    @Test
+    void testIndexesContentOfUploadedPhotos() {
+        String sha256 = "ab".repeat(32);
+        Photo photo1 = createPhoto("photo-1");
+        Photo photo2 = createPhoto("photo-2");
+
+        when(photoRepository.markUploaded(List.of("photo-1", "photo-2"))).thenReturn(List.of("photo-1", "photo-2"));
+
+        completionWriter.apply(List.of(
+            UploadCompletionWriter.Outcome.uploaded(photo1, 1024L, sha256),
+            UploadCompletionWriter.Outcome.uploaded(photo2, 1024L)
+        ));
+
+        verify(contentIndexService).register("user-123", "user-123/photo-1.jpg", sha256, 1024L);
+        verify(contentIndexService, times(1)).register(anyString(), anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void testStoredObjectOfExpiredPhotoIsReclaimed() {
+        Photo photo = createPhoto("photo-1");
+        Photo expired = createPhoto("photo-1");
+        expired.setStatus(PhotoStatus.FAILED);
+        when(photoRepository.markUploaded(List.of("photo-1"))).thenReturn(List.of());
+        when(photoRepository.findById("photo-1")).thenReturn(Optional.of(expired));
+
+        assertFalse(completionWriter.applyStoredObject(UploadCompletionWriter.Outcome.uploaded(photo, 1024L)));
+
+        verify(storageReclaimService).enqueue("user-123", List.of("user-123/photo-1.jpg"));
+        verify(uploadBatchRepository, never()).incrementCompletedCountBy(anyString(), anyInt());
+    }
+
+    @Test
+    void testStoredObjectOfPhotoCompletedMeanwhileIsKept() {
+        Photo photo = createPhoto("photo-1");
+        Photo completed = createPhoto("photo-1");
+        completed.setStatus(PhotoStatus.UPLOADED);
+        when(photoRepository.markUploaded(List.of("photo-1"))).thenReturn(List.of());
+        when(photoRepository.findById("photo-1")).thenReturn(Optional.of(completed));
+
+        assertTrue(completionWriter.applyStoredObject(UploadCompletionWriter.Outcome.uploaded(photo, 1024L)));
+
+        verifyNoInteractions(storageReclaimService);
+    }
+
+    private Photo createPhoto(String id) {
+        Photo photo = new Photo();
+        photo.setId(id);
+        photo.setUser(testUser);
+        photo.setBatch(testBatch);
+        photo.setS3Key("user-123/" + id + ".jpg");
+        photo.setFileSizeBytes(1024L);
+        photo.setStatus(PhotoStatus.PENDING);
+        return photo;
+    }
+}
@@ -0,0 +1,133 @@
+package com.rapid.features.upload.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.PhotoStatus;
+import com.rapid.domain.UploadBatch;
+import com.rapid.features.upload.dto.BatchStatusResponse;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.UploadBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadQueryServiceTest {
+
+    @Mock
+    private UploadBatchRepository batchRepository;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @InjectMocks
+    private UploadQueryService uploadQueryService;
+
+    private UploadBatch batch;
+
+    @BeforeEach
+    void setUp() {
+        batch = new UploadBatch();
+        batch.setId("batch-1");
+        batch.setTotalCount(3);
+        batch.setCompletedCount(1);
+        batch.setFailedCount(0);
+        batch.setUpdatedAt(LocalDateTime.now().minusMinutes(1));
+        lenient().when(batchRepository.findByIdAndUserId("batch-1", "user-123")).thenReturn(Optional.of(batch));
+    }
+
+    private Photo photo(String id, LocalDateTime updatedAt) {
+        Photo photo = new Photo();
+        photo.setId(id);
+        photo.setOriginalFilename(id + ".jpg");
+        photo.setStatus(PhotoStatus.UPLOADED);
+        photo.setUpdatedAt(updatedAt);
+        return photo;
+    }
+
+    @Test
+    void testETagChangesWithCountersAndUpdatedAt() {
+        String etag = uploadQueryService.getBatchETag("user-123", "batch-1", null);
+        assertEquals(etag, uploadQueryService.getBatchETag("user-123", "batch-1", null));
+        assertTrue(etag.startsWith("W/\"") && etag.endsWith("\""), "ETag should be a quoted weak validator");
+
+        batch.setCompletedCount(2);
+        String afterCount = uploadQueryService.getBatchETag("user-123", "batch-1", null);
+        assertNotEquals(etag, afterCount);
+
+        batch.setUpdatedAt(batch.getUpdatedAt().plusNanos(1000));
+        assertNotEquals(afterCount, uploadQueryService.getBatchETag("user-123", "batch-1", null));
+
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void testETagDependsOnSinceCursor() {
+        String since = new BatchChangeCursor(LocalDateTime.now().minusMinutes(1), "photo-a").encode();
+
+        String full = uploadQueryService.getBatchETag("user-123", "batch-1", null);
+        String delta = uploadQueryService.getBatchETag("user-123", "batch-1", since);
+
+        assertNotEquals(full, delta);
+        assertEquals(delta, uploadQueryService.getBatchETag("user-123", "batch-1", since));
+        assertThrows(RuntimeException.class, () -> uploadQueryService.getBatchETag("user-123", "batch-1", "\"bogus"));
+    }
+
+    @Test
+    void testSinceCursorReturnsOnlyChangedPhotos() {
+        LocalDateTime base = LocalDateTime.now().minusMinutes(10);
+        Photo older = photo("photo-a", base);
+        Photo newer = photo("photo-b", base.plusMinutes(1));
+        when(photoRepository.findByUserIdAndBatchIdOrderByCreatedAtDesc("user-123", "batch-1"))
+            .thenReturn(List.of(newer, older));
+
+        BatchStatusResponse full = uploadQueryService.getBatchStatus("user-123", "batch-1", null);
+        assertEquals(2, full.getPhotos().size());
+        assertEquals(new BatchChangeCursor(newer.getUpdatedAt(), "photo-b").encode(), full.getChangeCursor());
+
+        Photo changed = photo("photo-a", base.plusMinutes(2));
+        when(photoRepository.findBatchChangesAfter("user-123", "batch-1", newer.getUpdatedAt(), "photo-b"))
+            .thenReturn(List.of(changed));
+
+        BatchStatusResponse delta = uploadQueryService.getBatchStatus("user-123", "batch-1", full.getChangeCursor());
+        assertEquals(1, delta.getPhotos().size());
+        assertEquals("photo-a", delta.getPhotos().get(0).getId());
+        assertEquals(1, delta.getCompletedCount());
+        assertEquals(new BatchChangeCursor(changed.getUpdatedAt(), "photo-a").encode(), delta.getChangeCursor());
+    }
+
+    @Test
+    void testCursorTrailsRecentChanges() {
+        LocalDateTime old = LocalDateTime.now().minusMinutes(10);
+        String since = new BatchChangeCursor(old, "photo-a").encode();
+        Photo recent = photo("photo-b", LocalDateTime.now());
+        when(photoRepository.findBatchChangesAfter(eq("user-123"), eq("batch-1"), eq(old), eq("photo-a")))
+            .thenReturn(List.of(recent));
+
+        BatchStatusResponse delta = uploadQueryService.getBatchStatus("user-123", "batch-1", since);
+
+        // The change is returned, but the cursor stops short of it so a slower write
+        // committing just behind it is still seen on the next poll
+        assertEquals(1, delta.getPhotos().size());
+        BatchChangeCursor next = BatchChangeCursor.decode(delta.getChangeCursor());
+        assertTrue(next.updatedAt().isAfter(old));
+        assertTrue(next.updatedAt().isBefore(recent.getUpdatedAt()));
+    }
+
+    @Test
+    void testInvalidSinceCursorRejected() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+            () -> uploadQueryService.getBatchStatus("user-123", "batch-1", "not-a-cursor"));
+        assertEquals("Invalid cursor", e.getMessage());
+    }
+}
@@ -0,0 +1,111 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.domain.Photo;
+import com.rapid.domain.StoredObject;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.StoredObjectRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContentIndexServiceTest {
+
+    private static final String S3_KEY = "user-1/1_uuid_a.jpg";
+
+    @Mock
+    private StoredObjectRepository storedObjectRepository;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    private ContentIndexService contentIndexService;
+
+    @BeforeEach
+    void setUp() {
+        contentIndexService = new ContentIndexService(storedObjectRepository, photoRepository);
+    }
+
+    @Test
+    void testAcquireRequiresMatchingSize() {
+        StoredObject stored = new StoredObject();
+        stored.setS3Key(S3_KEY);
+        stored.setSizeBytes(1024L);
+
+        assertFalse(contentIndexService.acquire(stored, 2048L));
+        verify(storedObjectRepository, never()).acquire(anyString());
+
+        when(storedObjectRepository.acquire(S3_KEY)).thenReturn(1);
+        assertTrue(contentIndexService.acquire(stored, 1024L));
+    }
+
+    @Test
+    void testReleaseOfUnindexedObjectFreesIt() {
+        when(storedObjectRepository.release(S3_KEY)).thenReturn(List.of());
+
+        assertTrue(contentIndexService.release(photo("photo-1", false)));
+        verify(storedObjectRepository, never()).deleteUnreferenced(anyString());
+    }
+
+    @Test
+    void testReleaseOfSharedObjectMovesBytesToRemainingPhoto() {
+        when(storedObjectRepository.release(S3_KEY)).thenReturn(List.of(1));
+
+        assertFalse(contentIndexService.release(photo("photo-1", false)));
+        verify(photoRepository).promoteDeduplicated(S3_KEY, "photo-1");
+        verify(storedObjectRepository, never()).deleteUnreferenced(anyString());
+    }
+
+    @Test
+    void testReleaseOfDeduplicatedReferenceKeepsAccounting() {
+        when(storedObjectRepository.release(S3_KEY)).thenReturn(List.of(1));
+
+        assertFalse(contentIndexService.release(photo("photo-2", true)));
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void testReleaseOfLastReferenceRemovesIndexEntry() {
+        when(storedObjectRepository.release(S3_KEY)).thenReturn(List.of(0));
+
+        assertTrue(contentIndexService.release(photo("photo-1", false)));
+        verify(storedObjectRepository).deleteUnreferenced(S3_KEY);
+    }
+
+    @Test
+    void testReleaseAllClassifiesEachObject() {
+        Photo unindexed = photo("photo-1", false);
+        unindexed.setS3Key("user-1/solo.jpg");
+        Photo carrier = photo("photo-2", false);
+        carrier.setS3Key("user-1/shared.jpg");
+        Photo last = photo("photo-3", true);
+        List<Object[]> remaining = List.of(
+            new Object[] {"user-1/shared.jpg", 1},
+            new Object[] {S3_KEY, 0});
+        when(storedObjectRepository.releaseAll(anyCollection(), anyCollection())).thenReturn(remaining);
+
+        Set<String> deletable = contentIndexService.releaseAll(List.of(unindexed, carrier, last));
+
+        assertEquals(Set.of("user-1/solo.jpg", S3_KEY), deletable);
+        verify(photoRepository).promoteDeduplicatedExcluding("user-1/shared.jpg",
+            List.of("photo-1", "photo-2", "photo-3"));
+        verify(storedObjectRepository).deleteAllUnreferenced(List.of(S3_KEY));
+    }
+
+    private static Photo photo(String id, boolean deduplicated) {
+        Photo photo = new Photo();
+        photo.setId(id);
+        photo.setS3Key(S3_KEY);
+        photo.setDeduplicated(deduplicated);
+        return photo;
+    }
+}
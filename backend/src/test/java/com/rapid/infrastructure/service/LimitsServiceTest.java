@@ -0,0 +1,89 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.infrastructure.exceptions.LimitExceededException;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LimitsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @InjectMocks
+    private LimitsService limitsService;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.count()).thenReturn(10L);
+        when(photoRepository.count()).thenReturn(29_998L);
+        when(photoRepository.sumFileSizeBytes()).thenReturn(1024L);
+        limitsService.seedCounters();
+    }
+
+    @Test
+    void testChecksUseCountersWithoutQueryingDatabase() {
+        limitsService.checkPhotoLimit();
+        limitsService.checkStorageLimit();
+        limitsService.checkUserLimit();
+
+        // Only the startup seed touched the repositories
+        verify(photoRepository, times(1)).count();
+        verify(photoRepository, times(1)).sumFileSizeBytes();
+        verify(userRepository, times(1)).count();
+    }
+
+    @Test
+    void testRecordedPhotosCountTowardsLimit() {
+        limitsService.checkPhotoLimit(2);
+
+        limitsService.recordPhotosCreated(2, 2048L);
+
+        LimitExceededException ex = assertThrows(LimitExceededException.class,
+            () -> limitsService.checkPhotoLimit());
+        assertEquals("PHOTO_LIMIT", ex.getLimitType());
+    }
+
+    @Test
+    void testDeletedPhotosFreeCapacity() {
+        limitsService.recordPhotosCreated(2, 2048L);
+        assertThrows(LimitExceededException.class, () -> limitsService.checkPhotoLimit());
+
+        limitsService.recordPhotosDeleted(1, 1024L);
+
+        assertDoesNotThrow(() -> limitsService.checkPhotoLimit());
+    }
+
+    @Test
+    void testReconcileCorrectsDrift() {
+        limitsService.recordPhotosCreated(2, 2048L);
+        assertThrows(LimitExceededException.class, () -> limitsService.checkPhotoLimit());
+
+        // Photos were removed outside the app (e.g. scripts/delete-all-photos.sh)
+        when(photoRepository.count()).thenReturn(0L);
+        when(photoRepository.sumFileSizeBytes()).thenReturn(null);
+        limitsService.reconcile();
+
+        assertDoesNotThrow(() -> limitsService.checkPhotoLimit(30_000));
+    }
+
+    @Test
+    void testStorageLimitAccountsForAdditionalBytes() {
+        long almostFull = 500L * 1024 * 1024 * 1024 - 1024L;
+
+        assertThrows(LimitExceededException.class, () -> limitsService.checkStorageLimit(almostFull + 1));
+        assertDoesNotThrow(() -> limitsService.checkStorageLimit(almostFull));
+    }
+}
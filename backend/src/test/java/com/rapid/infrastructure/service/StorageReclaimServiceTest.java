@@ -0,0 +1,112 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.domain.ObjectDeletion;
+import com.rapid.infrastructure.repository.ObjectDeletionRepository;
+import com.rapid.infrastructure.storage.StorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StorageReclaimServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Mock
+    private ObjectDeletionRepository objectDeletionRepository;
+
+    @Mock
+    private StorageService storageService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private StorageReclaimService reclaimService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        reclaimService = new StorageReclaimService(objectDeletionRepository, storageService, meterRegistry, 3,
+            Duration.ofMinutes(5), Duration.ofSeconds(30), Duration.ofMinutes(60), clock);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEnqueueWritesOneDueRowPerObject() {
+        reclaimService.enqueue("user-1", List.of("user-1/a.jpg", "user-1/thumb.jpg", "user-1/a.jpg"));
+
+        ArgumentCaptor<List<ObjectDeletion>> saved = ArgumentCaptor.forClass(List.class);
+        verify(objectDeletionRepository).saveAll(saved.capture());
+        assertEquals(List.of("user-1/a.jpg", "user-1/thumb.jpg"),
+            saved.getValue().stream().map(ObjectDeletion::getS3Key).toList());
+        assertTrue(saved.getValue().stream().allMatch(d -> d.getNextAttemptAt().equals(NOW)));
+    }
+
+    @Test
+    void testBatchRemovesDeletedRowsAndBacksOffFailedOnes() {
+        when(objectDeletionRepository.claimDue(NOW, NOW.plusMinutes(5), 3)).thenReturn(List.of(
+            new Object[]{"d-1", "user-1/a.jpg", 1},
+            new Object[]{"d-2", "user-1/b.jpg", 1},
+            new Object[]{"d-3", "user-1/c.jpg", 3}));
+        when(storageService.deleteObjects(anyCollection())).thenReturn(List.of("user-1/b.jpg", "user-1/c.jpg"));
+
+        assertEquals(3, reclaimService.reclaimBatch());
+
+        verify(storageService).deleteObjects(Set.of("user-1/a.jpg", "user-1/b.jpg", "user-1/c.jpg"));
+        verify(objectDeletionRepository).deleteAllByIds(List.of("d-1"));
+        verify(objectDeletionRepository).reschedule(List.of("d-2"), NOW.plusSeconds(30), "Delete failed");
+        verify(objectDeletionRepository).reschedule(List.of("d-3"), NOW.plusMinutes(2), "Delete failed");
+        assertEquals(1, meterRegistry.counter("storage.reclaim.objects", "result", "deleted").count());
+        assertEquals(2, meterRegistry.counter("storage.reclaim.objects", "result", "failed").count());
+    }
+
+    @Test
+    void testStorageErrorReschedulesTheWholeBatch() {
+        // The same object scheduled twice is deleted once
+        when(objectDeletionRepository.claimDue(any(), any(), anyInt())).thenReturn(List.of(
+            new Object[]{"d-1", "user-1/a.jpg", 2},
+            new Object[]{"d-2", "user-1/a.jpg", 2}));
+        when(storageService.deleteObjects(anyCollection())).thenThrow(new IllegalStateException("S3 unavailable"));
+
+        reclaimService.reclaimBatch();
+
+        verify(objectDeletionRepository).reschedule(List.of("d-1", "d-2"), NOW.plusMinutes(1), "S3 unavailable");
+        verify(objectDeletionRepository, never()).deleteAllByIds(any());
+    }
+
+    @Test
+    void testReclaimDrainsUntilABatchComesBackShort() {
+        when(objectDeletionRepository.claimDue(any(), any(), eq(3)))
+            .thenReturn(List.of(
+                new Object[]{"d-1", "k1", 1}, new Object[]{"d-2", "k2", 1}, new Object[]{"d-3", "k3", 1}))
+            .thenReturn(List.<Object[]>of(new Object[]{"d-4", "k4", 1}));
+        when(storageService.deleteObjects(anyCollection())).thenReturn(List.of());
+
+        reclaimService.reclaim();
+
+        verify(objectDeletionRepository, times(2)).claimDue(any(), any(), eq(3));
+        verify(objectDeletionRepository).deleteAllByIds(List.of("d-4"));
+    }
+
+    @Test
+    void testBackoffDoublesUpToTheCap() {
+        assertEquals(Duration.ofSeconds(30), reclaimService.backoff(1));
+        assertEquals(Duration.ofSeconds(240), reclaimService.backoff(4));
+        assertEquals(Duration.ofMinutes(60), reclaimService.backoff(10));
+        assertEquals(Duration.ofMinutes(60), reclaimService.backoff(500));
+    }
+}
@@ -0,0 +1,88 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.infrastructure.repository.UserTagCountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TagCountServiceTest {
+
+    @Mock
+    private UserTagCountRepository userTagCountRepository;
+
+    @Mock
+    private TagSuggestionService tagSuggestionService;
+
+    private TagCountService tagCountService;
+
+    @BeforeEach
+    void setUp() {
+        tagCountService = new TagCountService(userTagCountRepository, tagSuggestionService);
+    }
+
+    @Test
+    void testOnlyChangedTagsAreAdjustedInSortedOrder() {
+        tagCountService.photoTagsChanged("user-1", List.of("sunset", "beach"), List.of("beach", "dog", "cat"));
+
+        // Unchanged "beach" is left alone; rows are locked in tag order
+        InOrder inOrder = inOrder(userTagCountRepository);
+        inOrder.verify(userTagCountRepository).adjust("user-1", "cat", 1);
+        inOrder.verify(userTagCountRepository).adjust("user-1", "dog", 1);
+        inOrder.verify(userTagCountRepository).adjust("user-1", "sunset", -1);
+        inOrder.verify(userTagCountRepository).deleteEmpty("user-1");
+        verifyNoMoreInteractions(userTagCountRepository);
+        // Autocomplete gets the same deltas once committed (no transaction here: at once)
+        verify(tagSuggestionService).apply("user-1", Map.of("cat", 1, "dog", 1, "sunset", -1));
+    }
+
+    @Test
+    void testAddingTagsLeavesNoEmptyRowsToDelete() {
+        tagCountService.photoTagsChanged("user-1", null, List.of("beach", "beach"));
+
+        verify(userTagCountRepository).adjust("user-1", "beach", 1);
+        verify(userTagCountRepository, never()).deleteEmpty(anyString());
+    }
+
+    @Test
+    void testUnchangedTagsTouchNothing() {
+        tagCountService.photoTagsChanged("user-1", List.of("beach"), List.of("beach"));
+
+        verifyNoInteractions(userTagCountRepository, tagSuggestionService);
+    }
+
+    @Test
+    void testBackfillFillsEmptyTableUnderTheTableLock() {
+        when(userTagCountRepository.existsAnyCount()).thenReturn(false);
+        when(userTagCountRepository.insertCountsFromPhotos()).thenReturn(7);
+
+        assertEquals(7, tagCountService.backfillIfEmpty());
+
+        InOrder inOrder = inOrder(userTagCountRepository, tagSuggestionService);
+        inOrder.verify(userTagCountRepository).lockForBackfill();
+        inOrder.verify(userTagCountRepository).existsAnyCount();
+        inOrder.verify(userTagCountRepository).insertCountsFromPhotos();
+        inOrder.verify(tagSuggestionService).invalidateAll();
+    }
+
+    @Test
+    void testBackfillSkipsFilledTableWithoutLocking() {
+        when(userTagCountRepository.existsAnyCount()).thenReturn(true);
+
+        assertEquals(0, tagCountService.backfillIfEmpty());
+
+        verify(userTagCountRepository, never()).lockForBackfill();
+        verify(userTagCountRepository, never()).insertCountsFromPhotos();
+        verifyNoInteractions(tagSuggestionService);
+    }
+}
@@ -0,0 +1,178 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.domain.UserTagCount;
+import com.rapid.infrastructure.repository.UserTagCountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TagSuggestionServiceTest {
+
+    @Mock
+    private UserTagCountRepository userTagCountRepository;
+
+    private MutableClock clock;
+    private TagSuggestionService tagSuggestionService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-11-13T17:02:00Z"));
+        tagSuggestionService = new TagSuggestionService(userTagCountRepository, 2, Duration.ofMinutes(30),
+            Duration.ofHours(1), clock);
+    }
+
+    @Test
+    void testSuggestsPrefixMatchesByFrequencyFromOneLoad() {
+        stubCounts("user-1", Map.of("beach", 12, "Beer", 30, "bench", 1, "sunset", 50, "be", 12));
+
+        assertEquals(List.of("Beer", "be", "beach", "bench"), tags(tagSuggestionService.suggest("user-1", "BE", 10)));
+        assertEquals(List.of("Beer", "be"), tags(tagSuggestionService.suggest("user-1", " be", 2)));
+        assertEquals(List.of("sunset", "Beer"), tags(tagSuggestionService.suggest("user-1", "", 2)));
+        assertTrue(tagSuggestionService.suggest("user-1", "x", 10).isEmpty());
+
+        // Built once, then every keystroke is served from memory
+        verify(userTagCountRepository, times(1))
+            .findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc("user-1", 0);
+    }
+
+    @Test
+    void testCommittedDeltasUpdateLoadedIndex() {
+        stubCounts("user-1", Map.of("beach", 2, "bench", 1));
+        tagSuggestionService.suggest("user-1", "b", 10);
+
+        tagSuggestionService.apply("user-1", Map.of("bench", 2, "beach", -2, "boat", 1));
+
+        List<UserTagCount> suggestions = tagSuggestionService.suggest("user-1", "b", 10);
+        assertEquals(List.of("bench", "boat"), tags(suggestions));
+        assertEquals(3, suggestions.get(0).getPhotoCount());
+        verify(userTagCountRepository, times(1))
+            .findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc("user-1", 0);
+    }
+
+    @Test
+    void testLoadRacingAChangeIsNotKept() {
+        // The change lands while the counts are being read: that read may predate it
+        when(userTagCountRepository.findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc("user-1", 0))
+            .thenAnswer(invocation -> {
+                tagSuggestionService.apply("user-1", Map.of("beach", 1));
+                return List.of(new UserTagCount("user-1", "beach", 1));
+            })
+            .thenReturn(List.of(new UserTagCount("user-1", "beach", 1)));
+
+        assertEquals(List.of("beach"), tags(tagSuggestionService.suggest("user-1", "b", 10)));
+        assertEquals(0, tagSuggestionService.loadedUsers());
+
+        tagSuggestionService.suggest("user-1", "b", 10);
+        assertEquals(1, tagSuggestionService.loadedUsers());
+    }
+
+    @Test
+    void testInvalidateAllReloadsAndDropsRacingLoads() {
+        // Counts rebuilt while a load is reading: that read may predate the rebuild
+        when(userTagCountRepository.findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc("user-1", 0))
+            .thenAnswer(invocation -> {
+                tagSuggestionService.invalidateAll();
+                return List.of(new UserTagCount("user-1", "beach", 1));
+            })
+            .thenReturn(List.of(new UserTagCount("user-1", "beach", 4)));
+        stubCounts("user-2", Map.of("dog", 1));
+        tagSuggestionService.suggest("user-2", "", 10);
+
+        tagSuggestionService.suggest("user-1", "", 10);
+        assertEquals(0, tagSuggestionService.loadedUsers());
+
+        assertEquals(4, tagSuggestionService.suggest("user-1", "", 10).get(0).getPhotoCount());
+        assertEquals(1, tagSuggestionService.loadedUsers());
+    }
+
+    @Test
+    void testIndexIsReadAgainAfterMaxAge() {
+        // Another instance changed the counts: no delta reaches this one
+        when(userTagCountRepository.findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc("user-1", 0))
+            .thenReturn(List.of(new UserTagCount("user-1", "beach", 1)))
+            .thenReturn(List.of(new UserTagCount("user-1", "beach", 5)));
+        tagSuggestionService.suggest("user-1", "", 10);
+
+        clock.advance(Duration.ofMinutes(59));
+        tagSuggestionService.apply("user-1", Map.of("beach", 1));
+        assertEquals(2, tagSuggestionService.suggest("user-1", "", 10).get(0).getPhotoCount());
+
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals(5, tagSuggestionService.suggest("user-1", "", 10).get(0).getPhotoCount());
+        verify(userTagCountRepository, times(2))
+            .findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc("user-1", 0);
+    }
+
+    @Test
+    void testIdleAndLeastRecentUsersAreEvicted() {
+        stubCounts("user-1", Map.of("beach", 1));
+        stubCounts("user-2", Map.of("dog", 1));
+        stubCounts("user-3", Map.of("cat", 1));
+        tagSuggestionService.suggest("user-1", "", 10);
+        tagSuggestionService.suggest("user-2", "", 10);
+        tagSuggestionService.suggest("user-3", "", 10);
+        assertEquals(2, tagSuggestionService.loadedUsers()); // max-users = 2
+
+        clock.advance(Duration.ofMinutes(20));
+        tagSuggestionService.suggest("user-3", "", 10);
+        clock.advance(Duration.ofMinutes(20));
+        tagSuggestionService.evictIdle();
+
+        assertEquals(1, tagSuggestionService.loadedUsers());
+        tagSuggestionService.suggest("user-3", "", 10);
+        verify(userTagCountRepository, times(1))
+            .findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc("user-3", 0);
+    }
+
+    private void stubCounts(String userId, Map<String, Integer> counts) {
+        when(userTagCountRepository.findByUserIdAndPhotoCountGreaterThanOrderByPhotoCountDescTagAsc(userId, 0))
+            .thenReturn(counts.entrySet().stream()
+                .map(e -> new UserTagCount(userId, e.getKey(), e.getValue()))
+                .toList());
+    }
+
+    private static List<String> tags(List<UserTagCount> suggestions) {
+        return suggestions.stream().map(UserTagCount::getTag).toList();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.rapid.infrastructure.service;
+
+import com.rapid.domain.PhotoStatus;
+import com.rapid.infrastructure.exceptions.LimitExceededException;
+import com.rapid.infrastructure.repository.PhotoRepository;
+import com.rapid.infrastructure.repository.UserQuotaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserQuotaServiceTest {
+
+    private static final long QUOTA = 1000L;
+
+    @Mock
+    private PhotoRepository photoRepository;
+
+    @Mock
+    private UserQuotaRepository userQuotaRepository;
+
+    private UserQuotaService userQuotaService;
+
+    @BeforeEach
+    void setUp() {
+        userQuotaService = new UserQuotaService(photoRepository, userQuotaRepository, QUOTA);
+        lenient().when(photoRepository.sumFileSizeBytesByUserIdInAndStatusIn(eq(List.of("user-1")), any()))
+            .thenReturn(List.of());
+    }
+
+    @Test
+    void testReserveRejectsWhenQuotaWouldBeExceeded() {
+        userQuotaService.reserve("user-1", 600L);
+
+        LimitExceededException ex = assertThrows(LimitExceededException.class,
+            () -> userQuotaService.reserve("user-1", 500L));
+        assertEquals("QUOTA_LIMIT", ex.getLimitType());
+        assertEquals(600L, userQuotaService.usedBytes("user-1"));
+    }
+
+    @Test
+    void testReleaseFreesReservation() {
+        userQuotaService.reserve("user-1", 600L);
+
+        userQuotaService.release("user-1", 600L);
+
+        assertDoesNotThrow(() -> userQuotaService.reserve("user-1", 1000L));
+    }
+
+    @Test
+    void testCommitUsesActualSize() {
+        userQuotaService.reserve("user-1", 600L);
+
+        userQuotaService.commit("user-1", 600L, 400L);
+
+        assertEquals(400L, userQuotaService.usedBytes("user-1"));
+        userQuotaService.uncommit("user-1", 400L);
+        assertEquals(0L, userQuotaService.usedBytes("user-1"));
+    }
+
+    @Test
+    void testBalancesSeededFromPhotosTable() {
+        when(photoRepository.sumFileSizeBytesByUserIdInAndStatusIn(eq(List.of("user-2")), any()))
+            .thenReturn(balances("user-2", 300L, 600L));
+
+        assertThrows(LimitExceededException.class, () -> userQuotaService.reserve("user-2", 200L));
+        assertDoesNotThrow(() -> userQuotaService.reserve("user-2", 100L));
+    }
+
+    @Test
+    void testChangeCommittedBeforeLoadIsNotCountedTwice() {
+        // After a restart the first touch is a completion: its row is already UPLOADED
+        userQuotaService.commit("user-2", 600L, 600L);
+        when(photoRepository.sumFileSizeBytesByUserIdInAndStatusIn(eq(List.of("user-2")), any()))
+            .thenReturn(balances("user-2", 0L, 600L));
+
+        assertEquals(600L, userQuotaService.usedBytes("user-2"));
+    }
+
+    @Test
+    void testReconcileResetsDriftedBalances() {
+        userQuotaService.reserve("user-1", 100L);
+        userQuotaService.uncommit("user-1", 300L); // Drift: nothing was committed here
+        assertEquals(-200L, userQuotaService.usedBytes("user-1"));
+
+        // e.g. another instance completed the upload
+        when(photoRepository.sumFileSizeBytesByUserIdInAndStatusIn(eq(List.of("user-1")), any()))
+            .thenReturn(balances("user-1", 0L, 100L));
+        userQuotaService.reconcile();
+
+        assertEquals(100L, userQuotaService.usedBytes("user-1"));
+        userQuotaService.flush();
+        verify(userQuotaRepository).upsertBalance("user-1", 0L, 100L);
+    }
+
+    @Test
+    void testReconcileKeepsReservationsOfOpenTransactions() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Initiate still open: its PENDING rows aren't visible to the recompute yet
+            userQuotaService.reserve("user-1", 100L);
+            userQuotaService.reconcile();
+            assertEquals(100L, userQuotaService.usedBytes("user-1"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testFlushWritesOnlyChangedBalances() {
+        userQuotaService.reserve("user-1", 100L);
+
+        userQuotaService.flush();
+        userQuotaService.flush();
+
+        verify(userQuotaRepository, times(1)).upsertBalance("user-1", 100L, 0L);
+    }
+
+    private static List<Object[]> balances(String userId, long reserved, long committed) {
+        return List.of(
+            new Object[]{userId, PhotoStatus.PENDING, reserved},
+            new Object[]{userId, PhotoStatus.UPLOADED, committed});
+    }
+}
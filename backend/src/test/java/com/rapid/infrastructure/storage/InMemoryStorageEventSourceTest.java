@@ -0,0 +1,36 @@
+package com.rapid.infrastructure.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageEventSourceTest {
+
+    @Test
+    void testUnacknowledgedEventsAreRedeliveredAfterTimeout() {
+        InMemoryStorageEventSource source = new InMemoryStorageEventSource(Duration.ZERO);
+        StorageEvent acked = new StorageEvent("user-123/a.jpg", 10L, "etag-a", null);
+        StorageEvent failed = new StorageEvent("user-123/b.jpg", 20L, "etag-b", null);
+        source.publish(acked);
+        source.publish(failed);
+
+        assertEquals(List.of(acked, failed), source.poll(10));
+        source.acknowledge(List.of(acked));
+
+        assertEquals(List.of(failed), source.poll(10));
+        source.acknowledge(List.of(failed));
+        assertTrue(source.poll(10).isEmpty());
+    }
+
+    @Test
+    void testInFlightEventsAreNotDeliveredTwice() {
+        InMemoryStorageEventSource source = new InMemoryStorageEventSource(Duration.ofMinutes(1));
+        source.publish(new StorageEvent("user-123/a.jpg", 10L, "etag-a", null));
+
+        assertEquals(1, source.poll(10).size());
+        assertTrue(source.poll(10).isEmpty());
+    }
+}
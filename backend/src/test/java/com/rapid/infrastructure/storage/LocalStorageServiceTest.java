@@ -0,0 +1,143 @@
+package com.rapid.infrastructure.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LocalStorageServiceTest {
+
+    @TempDir
+    Path root;
+
+    private InMemoryStorageEventSource events;
+    private LocalStorageService storage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        events = new InMemoryStorageEventSource();
+        @SuppressWarnings("unchecked")
+        ObjectProvider<InMemoryStorageEventSource> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(events);
+        Clock clock = Clock.fixed(Instant.parse("2025-11-13T17:02:00Z"), ZoneOffset.UTC);
+        storage = new LocalStorageService(root, "http://localhost:8080/", "test-secret",
+            Duration.ofMinutes(30), Duration.ofHours(1), Duration.ofMinutes(15), provider, clock);
+    }
+
+    @Test
+    void testSignedPutUrlVerifiesOnlyForItsMethodAndKey() {
+        UriComponents url = UriComponentsBuilder.fromUriString(
+            storage.generatePresignedPutUrl("user-123", "user-123/1_uuid_a+b c.jpg")).build();
+        String key = decode(url.getQueryParams().getFirst("key"));
+        long expires = Long.parseLong(url.getQueryParams().getFirst("expires"));
+        String signature = url.getQueryParams().getFirst("signature");
+
+        assertEquals("/api/storage/object", url.getPath());
+        assertEquals("user-123/1_uuid_a+b c.jpg", key);
+        assertTrue(storage.verify("PUT", key, null, null, expires, signature));
+        assertFalse(storage.verify("GET", key, null, null, expires, signature));
+        assertFalse(storage.verify("PUT", "user-123/other.jpg", null, null, expires, signature));
+        assertFalse(storage.verify("PUT", key, null, null, expires + 60, signature));
+    }
+
+    @Test
+    void testGetUrlsAreStableWithinBucket() {
+        assertEquals(storage.generatePresignedGetUrl("user-123", "user-123/a.jpg"),
+            storage.generatePresignedGetUrl("user-123", "user-123/a.jpg"));
+    }
+
+    @Test
+    void testWriteObjectIsVisibleAndPublishesEvent() throws Exception {
+        byte[] content = "hello".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(5, storage.writeObject("user-123/a.jpg", new ByteArrayInputStream(content)));
+
+        assertArrayEquals(content, Files.readAllBytes(storage.objectFile("user-123/a.jpg")));
+        assertEquals(OptionalLong.of(5), storage.headObjectSize("user-123/a.jpg"));
+        assertEquals(OptionalLong.empty(), storage.headObjectSize("user-123/missing.jpg"));
+        List<StorageEvent> published = events.poll(10);
+        assertEquals(1, published.size());
+        assertEquals("user-123/a.jpg", published.get(0).s3Key());
+        assertEquals(5, published.get(0).sizeBytes());
+    }
+
+    @Test
+    void testDeleteObjectsRemovesEveryKey() throws Exception {
+        storage.writeObject("user-123/a.jpg", new ByteArrayInputStream(new byte[1]));
+        storage.writeObject("user-123/b.jpg", new ByteArrayInputStream(new byte[1]));
+
+        assertEquals(List.of(), storage.deleteObjects(List.of("user-123/a.jpg", "user-123/b.jpg", "user-123/missing.jpg")));
+
+        assertFalse(Files.exists(storage.objectFile("user-123/a.jpg")));
+        assertFalse(Files.exists(storage.objectFile("user-123/b.jpg")));
+    }
+
+    @Test
+    void testMultipartPartsAreConcatenatedInOrder() throws Exception {
+        String uploadId = storage.createMultipartUpload("user-123/big.mov", "video/quicktime");
+        storage.writePart("user-123/big.mov", uploadId, 2, new ByteArrayInputStream("world".getBytes(StandardCharsets.UTF_8)));
+        storage.uploadPart("user-123/big.mov", uploadId, 1, "hello ".getBytes(StandardCharsets.UTF_8), 6);
+
+        List<UploadedPart> parts = storage.listParts("user-123/big.mov", uploadId);
+        assertEquals(List.of(1, 2), parts.stream().map(UploadedPart::partNumber).toList());
+        assertEquals(List.of(6L, 5L), parts.stream().map(UploadedPart::sizeBytes).toList());
+
+        storage.completeMultipartUpload("user-123/big.mov", uploadId, parts);
+
+        assertEquals("hello world", Files.readString(storage.objectFile("user-123/big.mov")));
+        assertThrows(MultipartUploadNotFoundException.class, () -> storage.listParts("user-123/big.mov", uploadId));
+    }
+
+    @Test
+    void testAbortDiscardsParts() {
+        String uploadId = storage.createMultipartUpload("user-123/big.mov", "video/quicktime");
+        storage.uploadPart("user-123/big.mov", uploadId, 1, new byte[10], 10);
+
+        storage.abortMultipartUpload("user-123/big.mov", uploadId);
+        storage.abortMultipartUpload("user-123/big.mov", uploadId); // no-op
+
+        assertThrows(MultipartUploadNotFoundException.class, () -> storage.listParts("user-123/big.mov", uploadId));
+        assertThrows(MultipartUploadNotFoundException.class, () -> storage.listParts("user-123/big.mov", "not-a-uuid"));
+    }
+
+    @Test
+    void testRejectsKeysOutsideRoot() {
+        assertThrows(IllegalArgumentException.class, () ->
+            storage.writeObject("../escape.jpg", new ByteArrayInputStream(new byte[1])));
+        assertThrows(IllegalArgumentException.class, () ->
+            storage.putObject(".multipart/x/1.part", "image/jpeg", new byte[1], 1));
+        assertFalse(Files.exists(root.getParent().resolve("escape.jpg")));
+    }
+
+    @Test
+    void testRangeParsing() {
+        assertArrayEquals(new long[] {0, 99}, LocalStorageController.parseRange("0-99", 1000));
+        assertArrayEquals(new long[] {900, 999}, LocalStorageController.parseRange("900-", 1000));
+        assertArrayEquals(new long[] {900, 999}, LocalStorageController.parseRange("-100", 1000));
+        assertArrayEquals(new long[] {990, 999}, LocalStorageController.parseRange("990-5000", 1000));
+        assertNull(LocalStorageController.parseRange("1000-", 1000));
+        assertNull(LocalStorageController.parseRange("5-2", 1000));
+        assertNull(LocalStorageController.parseRange("abc", 1000));
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,93 @@
+package com.rapid.infrastructure.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PresignedGetUrlCacheTest {
+
+    private MutableClock clock;
+    private SigV4PresignEngine engine;
+    private PresignedGetUrlCache cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-11-13T17:02:00Z"));
+        engine = spy(new SigV4PresignEngine("AKIDEXAMPLE", "secret", "us-east-2", "test-bucket"));
+        cache = new PresignedGetUrlCache(engine, Duration.ofMinutes(15), Duration.ofHours(1), 100, clock);
+    }
+
+    @Test
+    void testRepeatViewsWithinBucketReturnIdenticalUrlsWithoutSigning() {
+        String first = cache.getUrl("user-123/a.jpg");
+        clock.advance(Duration.ofMinutes(10));
+        String second = cache.getUrl("user-123/a.jpg");
+
+        assertEquals(first, second);
+        verify(engine, times(1)).presign(eq("GET"), eq("user-123/a.jpg"), anyMap(), anyMap(), any(), any());
+        // Signed at the start of the bucket, not at request time
+        assertTrue(first.contains("X-Amz-Date=20251113T170000Z"), first);
+        assertTrue(first.contains("response-cache-control=private%2C%20max-age%3D2700%2C%20immutable"), first);
+    }
+
+    @Test
+    void testNewBucketProducesNewUrl() {
+        String first = cache.getUrl("user-123/a.jpg");
+        clock.advance(Duration.ofMinutes(15));
+        String second = cache.getUrl("user-123/a.jpg");
+
+        assertNotEquals(first, second);
+        assertTrue(second.contains("X-Amz-Date=20251113T171500Z"), second);
+    }
+
+    @Test
+    void testUrlsAreDeterministicAcrossCacheEvictions() {
+        String first = cache.getUrl("user-123/a.jpg");
+        cache.invalidate("user-123/a.jpg");
+        String second = cache.getUrl("user-123/a.jpg");
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testRejectsBucketNotShorterThanExpiry() {
+        assertThrows(IllegalStateException.class, () ->
+            new PresignedGetUrlCache(engine, Duration.ofHours(1), Duration.ofHours(1), 100, clock));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.rapid.infrastructure.storage;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.signer.AwsS3V4Signer;
+import software.amazon.awssdk.auth.signer.params.Aws4PresignerParams;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.regions.Region;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SigV4PresignEngineTest {
+
+    private static final String ACCESS_KEY = "AKIDEXAMPLE";
+    private static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+    private static final Instant SIGNING_TIME = Instant.parse("2025-11-13T17:42:05Z");
+
+    private final SigV4PresignEngine engine =
+        new SigV4PresignEngine(ACCESS_KEY, SECRET_KEY, "us-east-2", "test-bucket");
+
+    @Test
+    void testSignatureMatchesAwsSdkSigner() {
+        String key = "user-123/1731519725_uuid_My Photo (1).jpg";
+
+        String url = engine.presign("GET", key, Map.of(), Map.of(), SIGNING_TIME, Duration.ofHours(1));
+
+        SdkHttpFullRequest request = SdkHttpFullRequest.builder()
+            .method(SdkHttpMethod.GET)
+            .protocol("https")
+            .host("test-bucket.s3.us-east-2.amazonaws.com")
+            .encodedPath("/" + SigV4PresignEngine.uriEncode(key, false))
+            .build();
+        Aws4PresignerParams params = Aws4PresignerParams.builder()
+            .awsCredentials(AwsBasicCredentials.create(ACCESS_KEY, SECRET_KEY))
+            .signingName("s3")
+            .doubleUrlEncode(false) // S3 signs the path single-encoded, as S3Presigner does
+            .signingRegion(Region.US_EAST_2)
+            .signingClockOverride(Clock.fixed(SIGNING_TIME, ZoneOffset.UTC))
+            .expirationTime(SIGNING_TIME.plus(Duration.ofHours(1)))
+            .build();
+        SdkHttpFullRequest presigned = AwsS3V4Signer.create().presign(request, params);
+
+        String expectedSignature = presigned.rawQueryParameters().get("X-Amz-Signature").get(0);
+        assertTrue(url.endsWith("&X-Amz-Signature=" + expectedSignature), url);
+        assertTrue(url.startsWith("https://test-bucket.s3.us-east-2.amazonaws.com/user-123/"));
+        assertTrue(url.contains("My%20Photo%20%281%29.jpg"));
+    }
+
+    @Test
+    void testSameInputsProduceIdenticalUrls() {
+        String first = engine.presign("GET", "user-123/a.jpg", Map.of(), Map.of(), SIGNING_TIME, Duration.ofHours(1));
+        String second = engine.presign("GET", "user-123/a.jpg", Map.of(), Map.of(), SIGNING_TIME, Duration.ofHours(1));
+        String put = engine.presign("PUT", "user-123/a.jpg", Map.of(), Map.of(), SIGNING_TIME, Duration.ofHours(1));
+
+        assertEquals(first, second);
+        assertNotEquals(first, put);
+    }
+
+    @Test
+    void testConcurrentPresignsAreConsistent() throws Exception {
+        String expected = engine.presign("PUT", "user-123/b.jpg", Map.of("partNumber", "3", "uploadId", "abc"),
+            Map.of(), SIGNING_TIME, Duration.ofMinutes(30));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Map<String, Boolean> results = new ConcurrentHashMap<>();
+            List<Future<?>> futures = new java.util.ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 2000; j++) {
+                        // Interleave days so the signing-key cache is exercised concurrently
+                        Instant time = SIGNING_TIME.plus(Duration.ofDays(j % 3));
+                        engine.presign("GET", "user-123/c.jpg", Map.of(), Map.of(), time, Duration.ofHours(1));
+                        results.put(engine.presign("PUT", "user-123/b.jpg", Map.of("partNumber", "3", "uploadId", "abc"),
+                            Map.of(), SIGNING_TIME, Duration.ofMinutes(30)), Boolean.TRUE);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(1, results.size());
+            assertTrue(results.containsKey(expected));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.rapid.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "test-secret-that-is-long-enough-for-hs512-signing-0123456789abcdef";
+
+    private TokenRevocationService tokenRevocationService;
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = mock(TokenRevocationService.class);
+        jwtTokenProvider = provider(SECRET);
+    }
+
+    private JwtTokenProvider provider(String secret) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", secret);
+        ReflectionTestUtils.setField(provider, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(provider, "verifiedCacheSize", 100);
+        ReflectionTestUtils.setField(provider, "tokenRevocationService", tokenRevocationService);
+        provider.init();
+        return provider;
+    }
+
+    @Test
+    void testResolvesUserIdFromGeneratedToken() {
+        String token = jwtTokenProvider.generateToken("user-123", "test@example.com");
+
+        assertEquals("user-123", jwtTokenProvider.resolveUserId(token));
+        // Second call is served from the verified-token cache
+        assertEquals("user-123", jwtTokenProvider.resolveUserId(token));
+    }
+
+    @Test
+    void testRejectsTokenSignedWithAnotherKey() {
+        String foreign = provider(SECRET.replace('0', 'x')).generateToken("user-123", "test@example.com");
+
+        assertNull(jwtTokenProvider.resolveUserId(foreign));
+        assertNull(jwtTokenProvider.resolveUserId("not-a-jwt"));
+    }
+
+    @Test
+    void testRejectsExpiredToken() {
+        String expired = Jwts.builder()
+            .subject("user-123")
+            .issuedAt(new Date(System.currentTimeMillis() - 120_000))
+            .expiration(new Date(System.currentTimeMillis() - 60_000))
+            .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS512)
+            .compact();
+
+        assertNull(jwtTokenProvider.resolveUserId(expired));
+    }
+
+    @Test
+    void testRevokedTokenIsRejectedEvenWhenCached() {
+        String token = jwtTokenProvider.generateToken("user-123", "test@example.com");
+        assertEquals("user-123", jwtTokenProvider.resolveUserId(token));
+
+        when(tokenRevocationService.isRevoked(anyString(), eq("user-123"), anyLong())).thenReturn(true);
+
+        assertNull(jwtTokenProvider.resolveUserId(token));
+    }
+
+    @Test
+    void testRevokeRecordsTokenId() {
+        String token = jwtTokenProvider.generateToken("user-123", "test@example.com");
+
+        jwtTokenProvider.revoke(token);
+
+        verify(tokenRevocationService).revokeToken(anyString(), eq("user-123"), any(Instant.class));
+        verify(tokenRevocationService, never()).revokeAllForUser(anyString());
+    }
+
+    @Test
+    void testMissingSecretFailsAtStartup() {
+        assertThrows(IllegalStateException.class, () -> provider(""));
+    }
+}
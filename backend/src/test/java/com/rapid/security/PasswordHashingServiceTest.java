@@ -0,0 +1,125 @@
+package com.rapid.security;
+
+import com.rapid.infrastructure.exceptions.LimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private final List<String> hashed = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch blockerRunning = new CountDownLatch(1);
+    private MeterRegistry meterRegistry;
+    private PasswordHashingService hashingService;
+
+    // Records each password hashed; "block" holds the worker until released
+    private final PasswordEncoder passwordEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            if ("block".contentEquals(rawPassword)) {
+                blockerRunning.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            hashed.add(rawPassword.toString());
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hashingService = new PasswordHashingService(passwordEncoder, meterRegistry, 1, 5, 3, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hashingService.shutdown();
+    }
+
+    @Test
+    void testEncodeAndMatchRunOnWorkers() {
+        assertEquals("hash:secret", hashingService.encode("secret", "10.0.0.1").join());
+        assertTrue(hashingService.matches("secret", "hash:secret", "10.0.0.1").join());
+        assertFalse(hashingService.matches("other", "hash:secret", "10.0.0.1").join());
+        assertEquals(1, meterRegistry.get("auth.hashing.duration").tag("operation", "encode").timer().count());
+    }
+
+    @Test
+    void testClientsAreServedRoundRobin() throws Exception {
+        CompletableFuture<String> blocker = hashingService.encode("block", "10.0.0.9");
+        assertTrue(blockerRunning.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<String>> pending = List.of(
+            hashingService.encode("a1", "10.0.0.1"),
+            hashingService.encode("a2", "10.0.0.1"),
+            hashingService.encode("a3", "10.0.0.1"),
+            hashingService.encode("b1", "10.0.0.2")
+        );
+        assertEquals(4, hashingService.queueDepth());
+        release.countDown();
+        blocker.join();
+        pending.forEach(CompletableFuture::join);
+
+        // b1 arrived last but only waits behind one of a's requests
+        assertEquals(List.of("block", "a1", "b1", "a2", "a3"), hashed);
+    }
+
+    @Test
+    void testRejectsWhenClientOrQueueIsFull() throws Exception {
+        hashingService.encode("block", "10.0.0.9");
+        assertTrue(blockerRunning.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 3; i++) {
+            hashingService.encode("a" + i, "10.0.0.1");
+        }
+        LimitExceededException perClient = assertThrows(LimitExceededException.class,
+            () -> hashingService.encode("a3", "10.0.0.1"));
+        assertEquals("AUTH_BUSY", perClient.getLimitType());
+
+        hashingService.encode("b0", "10.0.0.2");
+        hashingService.encode("c0", "10.0.0.3");
+        assertThrows(LimitExceededException.class, () -> hashingService.encode("d0", "10.0.0.4"));
+        assertEquals(2.0, meterRegistry.get("auth.hashing.rejected").counters().stream()
+            .mapToDouble(c -> c.count()).sum());
+    }
+
+    @Test
+    void testWorkWaitingTooLongIsFailedWithoutHashing() throws Exception {
+        hashingService.shutdown();
+        hashingService = new PasswordHashingService(passwordEncoder, meterRegistry, 1, 5, 3, 50);
+        hashingService.encode("block", "10.0.0.9");
+        assertTrue(blockerRunning.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> stale = hashingService.encode("late", "10.0.0.1");
+        Thread.sleep(100);
+        release.countDown();
+
+        CompletionException e = assertThrows(CompletionException.class, stale::join);
+        assertInstanceOf(LimitExceededException.class, e.getCause());
+        assertFalse(hashed.contains("late"));
+    }
+}
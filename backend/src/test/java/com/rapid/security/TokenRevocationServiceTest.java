@@ -0,0 +1,97 @@
+package com.rapid.security;
+
+import com.rapid.domain.TokenRevocation;
+import com.rapid.infrastructure.repository.TokenRevocationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    private static final long TOKEN_LIFETIME_MS = Duration.ofDays(1).toMillis();
+
+    @Mock
+    private TokenRevocationRepository repository;
+
+    private TokenRevocationService revocationService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(repository.save(any(TokenRevocation.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of());
+        revocationService = new TokenRevocationService(repository, TOKEN_LIFETIME_MS, 1000);
+        revocationService.load();
+    }
+
+    @Test
+    void testRevokedTokenIsRejectedOthersAreNot() {
+        long issuedAt = System.currentTimeMillis() - 60_000;
+        revocationService.revokeToken("jti-1", "user-123", Instant.now().plusSeconds(3600));
+
+        assertTrue(revocationService.isRevoked("jti-1", "user-123", issuedAt));
+        assertFalse(revocationService.isRevoked("jti-2", "user-123", issuedAt));
+        assertFalse(revocationService.isRevoked(null, "user-123", issuedAt));
+        verify(repository).save(argThat(r -> "jti-1".equals(r.getJti()) && "user-123".equals(r.getUserId())));
+    }
+
+    @Test
+    void testRevokeAllForUserOnlyAffectsEarlierTokens() {
+        long before = System.currentTimeMillis() - 5_000;
+        revocationService.revokeAllForUser("user-123");
+        long after = System.currentTimeMillis() + 2_000;
+
+        assertTrue(revocationService.isRevoked("jti-old", "user-123", before));
+        assertTrue(revocationService.isRevoked(null, "user-123", before));
+        assertFalse(revocationService.isRevoked("jti-new", "user-123", after));
+        assertFalse(revocationService.isRevoked("jti-old", "user-456", before));
+    }
+
+    @Test
+    void testRefreshAppliesRevocationsFromOtherInstances() {
+        LocalDateTime now = LocalDateTime.now();
+        when(repository.findByRevokedAtAfterOrderByRevokedAt(any())).thenReturn(List.of(
+            new TokenRevocation("jti-remote", "user-123", now, now.plusHours(1))
+        ));
+
+        assertFalse(revocationService.isRevoked("jti-remote", "user-123", System.currentTimeMillis()));
+        revocationService.refresh();
+        assertTrue(revocationService.isRevoked("jti-remote", "user-123", System.currentTimeMillis()));
+    }
+
+    @Test
+    void testExpiredRevocationsAreDropped() {
+        LocalDateTime now = LocalDateTime.now();
+        when(repository.findByRevokedAtAfterOrderByRevokedAt(any())).thenReturn(List.of(
+            new TokenRevocation("jti-expired", "user-123", now.minusHours(2), now.minusHours(1))
+        ));
+
+        revocationService.refresh();
+
+        assertFalse(revocationService.isRevoked("jti-expired", "user-123", System.currentTimeMillis()));
+    }
+
+    @Test
+    void testFilterGrowsPastInitialCapacity() {
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        for (int i = 0; i < 2500; i++) {
+            revocationService.revokeToken("jti-" + i, "user-123", expiresAt);
+        }
+
+        for (int i = 0; i < 2500; i++) {
+            assertTrue(revocationService.isRevoked("jti-" + i, "user-123", 0));
+        }
+        assertFalse(revocationService.isRevoked("jti-other", "user-123", 0));
+    }
+}